@@ -1,12 +1,33 @@
 import java.io.File;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.management.ObjectName;
 
 import controller.NavigationController;
+import controller.hrs.BookingEngine;
 import controller.hrs.CheckInCheckOutController;
+import controller.hrs.ExpirySweeper;
+import controller.hrs.ReservationArchiver;
 import controller.hrs.ReservationController;
+import controller.hrs.WaitlistAssigner;
+import controller.hss.KitchenPipeline;
 import controller.hss.ServiceOrderController;
 import controller.management.*;
+import controller.report.NightAudit;
 import controller.report.ReportController;
+import index.ArrivalIndex;
+import index.AvailabilityCalendar;
+import index.Catalog;
+import index.OccupancyCube;
+import index.OpenOrderIndex;
+import index.RoomAttributeIndex;
+import index.RoomHistoryIndex;
+import index.RoomTypeInventory;
+import index.WaitlistIndex;
+import model.room.RoomType;
+import model.service.fnb.MenuItem;
 import persistence.file.text.FilePersistence;
 import view.ConsoleView;
 
@@ -15,25 +36,43 @@ public class Test {
 	public static void main(String args[]) {
 		Scanner sc = new Scanner(System.in);
 		FilePersistence persistence;
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		BookingEngine engine = null;
+		KitchenPipeline pipeline = null;
 		try {
 			persistence = new FilePersistence(new File("persistence.cfg"));
 			
-			RoomTypeController rtController = new RoomTypeController(persistence);
+			Catalog catalog = new Catalog(persistence, RoomType.class, MenuItem.class);
+			RoomTypeController rtController = new RoomTypeController(persistence, catalog);
 			GuestController gController = new GuestController(persistence);
-			ReservationController rController = new ReservationController(persistence, gController);
-			ServiceOrderController soController = new ServiceOrderController(persistence, new MenuItemController(persistence));
+			AvailabilityCalendar calendar = new AvailabilityCalendar(persistence);
+			RoomAttributeIndex index = new RoomAttributeIndex(persistence);
+			RoomTypeInventory inventory = new RoomTypeInventory(persistence);
+			engine = new BookingEngine(persistence, calendar, index, inventory);
+			WaitlistAssigner assigner = new WaitlistAssigner(persistence, calendar, index, engine);
+			ReservationController rController = new ReservationController(persistence, gController, calendar, inventory,
+					new WaitlistIndex(persistence), assigner, engine, catalog);
+			assigner.schedule(scheduler);
+			ExpirySweeper sweeper = new ExpirySweeper(persistence, new ArrivalIndex(persistence), engine);
+			sweeper.registerMBean(new ObjectName("hrs:type=ExpirySweeper"));
+			sweeper.schedule(scheduler);
+			OpenOrderIndex orders = new OpenOrderIndex(persistence);
+			pipeline = new KitchenPipeline(persistence, orders);
+			pipeline.registerMBean(new ObjectName("hss:type=KitchenPipeline"));
+			pipeline.start();
+			ServiceOrderController soController = new ServiceOrderController(persistence, new MenuItemController(persistence, catalog), orders, pipeline);
 			
 			NavigationController managementController = new NavigationController();
 			managementController.addView(new ConsoleView(new GuestController(persistence), "Manage Guest", sc));
-			managementController.addView(new ConsoleView(new MenuItemController(persistence), "Manage Menu Item", sc));
-			managementController.addView(new ConsoleView(new RoomController(persistence, rtController), "Manage Room", sc));
+			managementController.addView(new ConsoleView(new MenuItemController(persistence, catalog), "Manage Menu Item", sc));
+			managementController.addView(new ConsoleView(new RoomController(persistence, rtController, new RoomHistoryIndex(persistence)), "Manage Room", sc));
 			managementController.addView(new ConsoleView(rtController, "Manage Room Type", sc));
 			
 			ConsoleView managementView = new ConsoleView(managementController, "Management View", sc);
 			
 			NavigationController hrsController = new NavigationController();
 			hrsController.addView(new ConsoleView(rController, "Reservation System", sc));
-			hrsController.addView(new ConsoleView(new CheckInCheckOutController(persistence, gController, rController), "Check-in/Check-out", sc));
+			hrsController.addView(new ConsoleView(new CheckInCheckOutController(persistence, gController, rController, index, sweeper, engine), "Check-in/Check-out", sc));
 			
 
 			NavigationController hssController = new NavigationController();
@@ -41,7 +80,9 @@ public class Test {
 			
 			ConsoleView hrsView = new ConsoleView(hrsController, "Hotel Reservation System", sc);
 			ConsoleView hssView = new ConsoleView(hssController, "Hotel Service System", sc);
-			ConsoleView reportView = new ConsoleView(new ReportController(persistence), "Room occupancy report", sc);
+			OccupancyCube cube = new OccupancyCube(persistence);
+			NightAudit audit = new NightAudit(persistence, index, cube, sweeper, new ReservationArchiver(persistence));
+			ConsoleView reportView = new ConsoleView(new ReportController(persistence, index, cube, audit, catalog), "Room occupancy report", sc);
 			
 			NavigationController mainNav = new NavigationController();
 			mainNav.addView(managementView);
@@ -53,6 +94,12 @@ public class Test {
 			mainView.display();
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			scheduler.shutdownNow();
+			if(engine != null)
+				engine.shutdown();
+			if(pipeline != null)
+				pipeline.shutdown();
 		}
 	}
 
@@ -8,6 +8,7 @@ import view.View;
  * @author YingHao
  */
 public abstract class PersistenceController implements Controller {
+	public final static String MESSAGE_ERROR = "An error occurred while performing file operations, please try again later.";
 	private final Persistence persistence;
 	
 	/**
@@ -45,7 +46,7 @@ public abstract class PersistenceController implements Controller {
 		try {
 			this.safeOnOptionSelected(view, option);
 		} catch(Exception e) {
-			view.message("An error occurred while performing file operations, please try again later.");
+			view.message(MESSAGE_ERROR);
 			e.printStackTrace();
 		}
 	}
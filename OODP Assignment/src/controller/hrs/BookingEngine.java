@@ -0,0 +1,857 @@
+package controller.hrs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import index.AvailabilityCalendar;
+import index.RoomAttributeIndex;
+import index.RoomTypeInventory;
+import model.reservation.Payment;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import model.room.RoomStatus;
+import model.room.RoomType;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.collection.LongList;
+import persistence.collection.LongObjectMap;
+
+/**
+ * BookingEngine books rooms through a single writer per shard of rooms, where a shard is a floor of the hotel given by the
+ * first two digits of the room number. Every shard is owned by an actor thread with a mailbox, which applies the reserve,
+ * assign, cancel, check in, check out and expiry commands for its rooms one after another in memory and persists the commands it has taken from its
+ * mailbox together, updates being written with {@link Persistence#updateAll(java.util.Collection, Class)}. As no two
+ * threads book the same room, rooms are never double booked, while the shards book in parallel.<br />
+ * Searches across shards fan out to every shard in parallel, looking up the {@link RoomAttributeIndex} and
+ * {@link AvailabilityCalendar} only. The number of commands persisted together is configured with {@link #KEY_BATCH_SIZE}.
+ * @author YingHao
+ */
+public class BookingEngine implements PersistenceListener {
+	public final static String KEY_BATCH_SIZE = "booking-batch-size";
+	public final static int DEFAULT_BATCH_SIZE = 32;
+
+	private final Persistence persistence;
+	private final AvailabilityCalendar calendar;
+	private final RoomAttributeIndex index;
+	private final RoomTypeInventory inventory;
+	private final int batchSize;
+	private final Map<String, Shard> shards;
+	private final LongObjectMap<Shard> rooms;
+
+	/**
+	 * BookingEngine constructor. Starts an actor for every floor of the rooms of the specified persistence provider and
+	 * registers itself to be notified of rooms created or deleted subsequently.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param calendar - The AvailabilityCalendar to look up room availability from.
+	 * @param index - The RoomAttributeIndex to look up rooms fulfilling room criteria from.
+	 * @param inventory - The RoomTypeInventory to look up the number of rooms available per room type from.
+	 * @throws Exception
+	 */
+	public BookingEngine(Persistence persistence, AvailabilityCalendar calendar, RoomAttributeIndex index, RoomTypeInventory inventory)
+			throws Exception {
+		this.persistence = persistence;
+		this.calendar = calendar;
+		this.index = index;
+		this.inventory = inventory;
+		this.batchSize = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE)));
+		this.shards = new TreeMap<String, Shard>();
+		this.rooms = new LongObjectMap<Shard>();
+
+		persistence.addListener(this);
+
+		for(Room room: persistence.search(null, Room.class, false))
+			this.addRoom(room);
+	}
+
+	/**
+	 * Gets the number of shards.
+	 * @return count
+	 */
+	public synchronized int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * Finds the rooms that fulfil the criteria of the specified reservation and are available for its dates, searching
+	 * every shard in parallel. Rooms under maintenance are not excluded.
+	 * @param reservation
+	 * @return A list of room identifiers, grouped by shard.
+	 * @throws Exception
+	 */
+	public LongList findAvailableRooms(Reservation reservation) throws Exception {
+		LongList list = new LongList();
+
+		for(Future<LongList> future: this.fanOut(reservation))
+			list.addAll(await(future));
+
+		return list;
+	}
+
+	/**
+	 * Reserves a room for the specified reservation if it is in the wait list, and creates or updates the reservation. The
+	 * search fans out to every shard in parallel, after which the shards holding candidate rooms are asked in turn to book
+	 * one of them, as another command may have booked it in the meantime. The shards are not searched when every room of
+	 * the requested room type is booked on some night of the stay.
+	 * @param reservation
+	 * @return A flag indicating if a room was reserved.
+	 * @throws Exception
+	 */
+	public boolean reserve(Reservation reservation) throws Exception {
+		boolean flag = false;
+
+		RoomType roomType = reservation.getCriteria() == null? null: reservation.getCriteria().getRoomType();
+		boolean full = roomType != null && inventory.checkAvailableCount(roomType, reservation.getStartDate(), reservation.getEndDate()) == 0;
+
+		if(reservation.getStatus() == ReservationStatus.Waitlist && !full) {
+			List<Shard> list = this.getShards();
+			List<Future<LongList>> found = this.fanOut(reservation);
+
+			for(int i = 0; !flag && i < list.size(); i++) {
+				LongList candidates = await(found.get(i));
+				if(candidates.size() > 0)
+					flag = await(list.get(i).send(new Book(reservation, candidates)));
+			}
+		}
+
+		// A reservation without a room is not owned by any shard
+		if(!flag) {
+			if(reservation.isManaged())
+				persistence.update(reservation, Reservation.class);
+			else
+				persistence.create(reservation, Reservation.class);
+		}
+
+		return flag;
+	}
+
+	/**
+	 * Assigns the specified room to the specified reservation in the wait list and updates the reservation, unless the
+	 * room does not fulfil its criteria or is booked during its stay.
+	 * @param reservation - A managed reservation.
+	 * @param room
+	 * @return A flag indicating if the room was assigned.
+	 * @throws Exception
+	 */
+	public boolean assign(Reservation reservation, Room room) throws Exception {
+		Shard shard = this.getShard(room.getIdentifier());
+
+		return shard != null && await(shard.send(new Assign(reservation, room)));
+	}
+
+	/**
+	 * Assigns the specified rooms to the specified reservations in the wait list, pairwise, and updates the reservations.
+	 * Every assignment is sent to the shard owning its room before any is waited on, hence the assignments of a shard are
+	 * taken from its mailbox together and persisted in one batch. A room that no longer fulfils the criteria of its
+	 * reservation, or has been booked during its stay, is not assigned.
+	 * @param reservations - Managed reservations in the wait list.
+	 * @param rooms - The room to assign to each reservation, in the same order.
+	 * @return The number of reservations that were assigned their room.
+	 * @throws Exception This exception is thrown after every assignment has been applied, when any could not be persisted.
+	 */
+	public int assignAll(List<Reservation> reservations, List<Room> rooms) throws Exception {
+		List<Future<Boolean>> assigned = new ArrayList<Future<Boolean>>();
+		for(int i = 0; i < reservations.size(); i++) {
+			Shard shard = this.getShard(rooms.get(i).getIdentifier());
+			if(shard != null)
+				assigned.add(shard.send(new Assign(reservations.get(i), rooms.get(i))));
+		}
+
+		return count(assigned);
+	}
+
+	/**
+	 * Cancels the specified reservation and updates it. A reservation holding a room is cancelled by the shard owning the
+	 * room.
+	 * @param reservation - A managed reservation.
+	 * @return A flag indicating if the reservation was cancelled.
+	 * @throws Exception
+	 */
+	public boolean cancel(Reservation reservation) throws Exception {
+		boolean flag;
+
+		Room room = reservation.getAssignedRoom();
+		Shard shard = room == null || reservation.getStatus() != ReservationStatus.Confirmed? null: this.getShard(room.getIdentifier());
+		if(shard != null) {
+			flag = await(shard.send(new Cancel(reservation)));
+		}
+		else {
+			// Claims the reservation, as a shard may be booking it at the same time
+			synchronized(reservation) {
+				flag = reservation.getStatus() == ReservationStatus.Waitlist;
+				if(flag)
+					reservation.setStatus(ReservationStatus.Cancelled);
+			}
+			if(flag)
+				persistence.update(reservation, Reservation.class);
+		}
+
+		return flag;
+	}
+
+	/**
+	 * Checks in the specified confirmed reservation and updates it, unless its room is not vacant. The reservation is
+	 * checked in by the shard owning its room.
+	 * @param reservation - A managed reservation.
+	 * @return A flag indicating if the reservation was checked in.
+	 * @throws Exception
+	 */
+	public boolean checkIn(Reservation reservation) throws Exception {
+		Shard shard = this.getShard(reservation);
+
+		return shard != null && await(shard.send(new CheckIn(reservation)));
+	}
+
+	/**
+	 * Checks out the specified checked in reservation with the specified payment and updates it, which frees its room. The
+	 * reservation is checked out by the shard owning its room.
+	 * @param reservation - A managed reservation.
+	 * @param payment - The payment made for the reservation.
+	 * @return A flag indicating if the reservation was checked out.
+	 * @throws Exception
+	 */
+	public boolean checkOut(Reservation reservation, Payment payment) throws Exception {
+		Shard shard = this.getShard(reservation);
+
+		return shard != null && await(shard.send(new CheckOut(reservation, payment)));
+	}
+
+	/**
+	 * Expires the specified confirmed reservations and updates them, which frees their rooms. Every expiry is sent to the
+	 * shard owning its room before any is waited on, as {@link #assignAll(List, List)} does. A reservation that is no
+	 * longer confirmed, as its guest has checked in in the meantime, is not expired.
+	 * @param reservations - Managed reservations.
+	 * @return The number of reservations that were expired.
+	 * @throws Exception This exception is thrown after every expiry has been applied, when any could not be persisted.
+	 */
+	public int expireAll(List<Reservation> reservations) throws Exception {
+		List<Future<Boolean>> expired = new ArrayList<Future<Boolean>>();
+		for(Reservation reservation: reservations) {
+			Shard shard = this.getShard(reservation);
+			if(shard != null)
+				expired.add(shard.send(new Expire(reservation)));
+		}
+
+		return count(expired);
+	}
+
+	/**
+	 * Stops the actors of all shards. Commands that have not been taken from the mailboxes, or are sent afterwards, fail
+	 * with an {@link IllegalStateException}.
+	 */
+	public synchronized void shutdown() {
+		for(Shard shard: shards.values()) {
+			shard.closed = true;
+			shard.thread.interrupt();
+			shard.discard();
+		}
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Room)
+			this.addRoom((Room) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		// The room number, hence the shard, of a room does not change
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Room)
+			this.rooms.remove(id);
+	}
+
+	/**
+	 * Sends a search for the rooms available to the specified reservation to every shard.
+	 * @param reservation
+	 * @return The results of the shards, in the order of {@link #getShards()}.
+	 */
+	private List<Future<LongList>> fanOut(Reservation reservation) {
+		List<Future<LongList>> found = new ArrayList<Future<LongList>>();
+
+		LongList candidates = index.getRooms(reservation.getCriteria());
+		for(Shard shard: this.getShards())
+			found.add(shard.send(new Find(reservation, candidates)));
+
+		return found;
+	}
+
+	/**
+	 * Adds the specified room to the shard of its floor, starting the actor of the shard if it is new.
+	 * @param room
+	 */
+	private synchronized void addRoom(Room room) {
+		String number = room.getNumber() == null? "": room.getNumber();
+		String floor = number.length() > 2? number.substring(0, 2): number;
+
+		Shard shard = shards.get(floor);
+		if(shard == null) {
+			shard = new Shard(floor);
+			shards.put(floor, shard);
+			shard.thread.start();
+		}
+		rooms.put(room.getIdentifier(), shard);
+	}
+
+	/**
+	 * Gets the shard owning the specified room.
+	 * @param room - The identifier of the room.
+	 * @return shard, or null if the room is unknown.
+	 */
+	private synchronized Shard getShard(long room) {
+		return rooms.get(room);
+	}
+
+	/**
+	 * Gets the shard owning the room assigned to the specified reservation.
+	 * @param reservation
+	 * @return shard, or null if the reservation has no room or the room is unknown.
+	 */
+	private Shard getShard(Reservation reservation) {
+		Room room = reservation.getAssignedRoom();
+
+		return room == null? null: this.getShard(room.getIdentifier());
+	}
+
+	/**
+	 * Gets a snapshot of the shards, ordered by floor.
+	 * @return shards
+	 */
+	private synchronized List<Shard> getShards() {
+		return new ArrayList<Shard>(shards.values());
+	}
+
+	/**
+	 * Waits for the result of a command, rethrowing the exception it failed with.
+	 * @param future
+	 * @return result
+	 * @throws Exception
+	 */
+	private static <V> V await(Future<V> future) throws Exception {
+		V value = null;
+
+		try {
+			value = future.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Waits for the results of commands sent together, rethrowing the first exception any failed with once all have
+	 * completed.
+	 * @param futures
+	 * @return The number of commands whose result is true.
+	 * @throws Exception
+	 */
+	private static int count(List<Future<Boolean>> futures) throws Exception {
+		int count = 0;
+
+		Exception failure = null;
+		for(Future<Boolean> future: futures) {
+			try {
+				if(await(future))
+					count++;
+			} catch(Exception e) {
+				if(failure == null)
+					failure = e;
+			}
+		}
+
+		if(failure != null)
+			throw failure;
+
+		return count;
+	}
+
+	/**
+	 * Shard is the actor owning the rooms of a floor. Commands are taken from its mailbox in batches of at most
+	 * {@link BookingEngine#KEY_BATCH_SIZE}, applied in memory one after another and then persisted together.
+	 * @author YingHao
+	 */
+	private class Shard implements Runnable {
+		private final BlockingQueue<Command<?>> mailbox;
+		private final List<Reservation> pending;
+		private final Thread thread;
+		private volatile boolean closed;
+
+		/**
+		 * Shard constructor.
+		 * @param floor - The first two digits of the room numbers of the shard.
+		 */
+		public Shard(String floor) {
+			this.mailbox = new LinkedBlockingQueue<Command<?>>();
+			this.pending = new ArrayList<Reservation>();
+			this.thread = new Thread(this, "booking-" + floor);
+			this.thread.setDaemon(true);
+		}
+
+		/**
+		 * Sends a command to the mailbox of this shard.
+		 * @param command
+		 * @return A future completed once the command has been applied and persisted.
+		 */
+		public <V> Future<V> send(Command<V> command) {
+			mailbox.add(command);
+			// A command sent while the shard was being shut down may have missed the drain
+			if(closed)
+				this.discard();
+
+			return command.future;
+		}
+
+		/**
+		 * Drains the mailbox of this shard after it has been shut down, failing the commands that were never applied so that
+		 * their senders are not left waiting.
+		 */
+		private void discard() {
+			List<Command<?>> discarded = new ArrayList<Command<?>>();
+			mailbox.drainTo(discarded);
+
+			for(Command<?> command: discarded)
+				command.future.completeExceptionally(new IllegalStateException("The booking engine has been shut down."));
+		}
+
+		@Override
+		public void run() {
+			try {
+				List<Command<?>> batch = new ArrayList<Command<?>>();
+				while(!Thread.currentThread().isInterrupted()) {
+					batch.add(mailbox.take());
+					mailbox.drainTo(batch, batchSize - 1);
+
+					this.process(batch);
+					batch.clear();
+				}
+			} catch(InterruptedException e) {
+				// Shut down
+			}
+		}
+
+		/**
+		 * Applies a batch of commands in memory and persists the reservations they have changed.
+		 * @param batch
+		 */
+		private void process(List<Command<?>> batch) {
+			List<Command<?>> updates = new ArrayList<Command<?>>();
+			List<Reservation> reservations = new ArrayList<Reservation>();
+
+			// Loop through the commands in the order they were sent
+			for(Command<?> command: batch) {
+				try {
+					Reservation reservation = command.apply(this);
+					if(reservation == null)
+						command.complete();
+					else if(reservation.isManaged()) {
+						updates.add(command);
+						reservations.add(reservation);
+					}
+					else
+						this.persist(command, reservation);
+				} catch(Exception e) {
+					command.future.completeExceptionally(e);
+				}
+			}
+
+			if(updates.size() > 0) {
+				try {
+					persistence.updateAll(reservations, Reservation.class);
+					for(Command<?> command: updates)
+						command.complete();
+				} catch(Exception e) {
+					// Write the reservations one at a time, so that only the commands on stale entities fail
+					for(int i = 0; i < updates.size(); i++)
+						this.persist(updates.get(i), reservations.get(i));
+				}
+			}
+
+			// The nights of the persisted bookings are now held by the calendar
+			pending.clear();
+		}
+
+		/**
+		 * Creates or updates the reservation changed by a command, rolling the command back if it could not be persisted.
+		 * @param command
+		 * @param reservation
+		 */
+		private void persist(Command<?> command, Reservation reservation) {
+			try {
+				if(reservation.isManaged())
+					persistence.update(reservation, Reservation.class);
+				else
+					persistence.create(reservation, Reservation.class);
+				command.complete();
+			} catch(Exception e) {
+				command.rollback();
+				command.future.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * Gets a flag indicating if the specified room is available to the specified reservation, considering the
+		 * bookings of this shard that have not been persisted yet.
+		 * @param room
+		 * @param reservation
+		 * @return flag
+		 */
+		private boolean isAvailable(Room room, Reservation reservation) {
+			boolean flag = new RoomReservationPredicate(reservation, calendar).test(room);
+
+			for(int i = 0; flag && i < pending.size(); i++) {
+				Reservation booked = pending.get(i);
+				if(booked.getAssignedRoom().equals(room) && booked.getStartDate().before(reservation.getEndDate()) &&
+						reservation.getStartDate().before(booked.getEndDate()))
+					flag = false;
+			}
+
+			return flag;
+		}
+
+		/**
+		 * Gets a flag indicating if the specified room identifier is held by any booking of this shard that has not
+		 * been persisted yet, during the stay of the specified reservation.
+		 * @param room - The identifier of the room.
+		 * @param reservation
+		 * @return flag
+		 */
+		private boolean isPending(long room, Reservation reservation) {
+			boolean flag = false;
+
+			for(int i = 0; !flag && i < pending.size(); i++) {
+				Reservation booked = pending.get(i);
+				flag = booked.getAssignedRoom().getIdentifier() == room && booked.getStartDate().before(reservation.getEndDate()) &&
+						reservation.getStartDate().before(booked.getEndDate());
+			}
+
+			return flag;
+		}
+
+		/**
+		 * Loads the specified rooms, each read through the primary index rather than scanning the rooms.
+		 * @param ids - The identifiers of the rooms.
+		 * @return The rooms that still exist, in the order of their identifiers.
+		 * @throws Exception
+		 */
+		private List<Room> load(LongList ids) throws Exception {
+			List<Room> list = new ArrayList<Room>();
+
+			for(int i = 0; i < ids.size(); i++) {
+				Room room = persistence.retrieveByID(ids.get(i), Room.class);
+				if(room != null)
+					list.add(room);
+			}
+
+			return list;
+		}
+	}
+
+	/**
+	 * Command is a message to a shard. It is applied by the actor of the shard, after which the reservation it has
+	 * changed, if any, is persisted before its future is completed.
+	 * @author YingHao
+	 * @param <V> - The type of the result.
+	 */
+	private abstract static class Command<V> {
+		protected final CompletableFuture<V> future = new CompletableFuture<V>();
+		protected V result;
+
+		/**
+		 * Applies this command in memory.
+		 * @param shard - The shard applying the command.
+		 * @return The reservation that has been changed, or null if there is nothing to persist.
+		 * @throws Exception
+		 */
+		protected abstract Reservation apply(Shard shard) throws Exception;
+
+		/**
+		 * Reverts the changes of this command in memory, after the reservation it has changed could not be persisted.
+		 */
+		protected void rollback() {
+		}
+
+		/**
+		 * Completes the future of this command with its result.
+		 */
+		private void complete() {
+			future.complete(result);
+		}
+	}
+
+	/**
+	 * Find searches a shard for the rooms available to a reservation.
+	 * @author YingHao
+	 */
+	private class Find extends Command<LongList> {
+		private final Reservation reservation;
+		private final LongList candidates;
+
+		/**
+		 * Find constructor.
+		 * @param reservation
+		 * @param candidates - The rooms fulfilling the criteria of the reservation, across all shards.
+		 */
+		public Find(Reservation reservation, LongList candidates) {
+			this.reservation = reservation;
+			this.candidates = candidates;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			result = new LongList();
+
+			for(int i = 0; i < candidates.size(); i++) {
+				long room = candidates.get(i);
+				if(getShard(room) == shard && !shard.isPending(room, reservation)) {
+					// Rooms are accepted when the dates are not covered, the booking checks them against their reservations
+					Boolean available = calendar.checkAvailability(room, reservation.getStartDate(), reservation.getEndDate());
+					if(available == null || available)
+						result.add(room);
+				}
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Book reserves the first of a list of rooms of a shard that is still available to a reservation in the wait list. As
+	 * the shards holding candidate rooms may be sent the same reservation, the reservation is claimed by checking and
+	 * assigning it while holding its monitor.
+	 * @author YingHao
+	 */
+	private class Book extends Command<Boolean> {
+		private final Reservation reservation;
+		private final LongList candidates;
+
+		/**
+		 * Book constructor.
+		 * @param reservation
+		 * @param candidates - The rooms of the shard found available to the reservation.
+		 */
+		public Book(Reservation reservation, LongList candidates) {
+			this.reservation = reservation;
+			this.candidates = candidates;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) throws Exception {
+			result = false;
+
+			if(reservation.getStatus() == ReservationStatus.Waitlist) {
+				List<Room> rooms = shard.load(candidates);
+				synchronized(reservation) {
+					for(int i = 0; reservation.getStatus() == ReservationStatus.Waitlist && !result && i < rooms.size(); i++) {
+						Room room = rooms.get(i);
+						if(shard.isAvailable(room, reservation)) {
+							reservation.setAssignedRoom(room);
+							shard.pending.add(reservation);
+							result = true;
+						}
+					}
+				}
+			}
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			synchronized(reservation) {
+				reservation.setAssignedRoom(null);
+			}
+		}
+	}
+
+	/**
+	 * Assign assigns a room of a shard to a reservation in the wait list, claiming the reservation as {@link Book} does.
+	 * @author YingHao
+	 */
+	private class Assign extends Command<Boolean> {
+		private final Reservation reservation;
+		private final Room room;
+
+		/**
+		 * Assign constructor.
+		 * @param reservation
+		 * @param room
+		 */
+		public Assign(Reservation reservation, Room room) {
+			this.reservation = reservation;
+			this.room = room;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			synchronized(reservation) {
+				result = reservation.getStatus() == ReservationStatus.Waitlist && shard.isAvailable(room, reservation);
+				if(result) {
+					reservation.setAssignedRoom(room);
+					shard.pending.add(reservation);
+				}
+			}
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			synchronized(reservation) {
+				reservation.setAssignedRoom(null);
+			}
+		}
+	}
+
+	/**
+	 * Cancel cancels a confirmed reservation holding a room of a shard.
+	 * @author YingHao
+	 */
+	private class Cancel extends Command<Boolean> {
+		private final Reservation reservation;
+		private Room room;
+
+		/**
+		 * Cancel constructor.
+		 * @param reservation
+		 */
+		public Cancel(Reservation reservation) {
+			this.reservation = reservation;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			result = reservation.getStatus() == ReservationStatus.Confirmed;
+			if(result) {
+				room = reservation.getAssignedRoom();
+				reservation.setStatus(ReservationStatus.Cancelled);
+			}
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			reservation.setAssignedRoom(room);
+		}
+	}
+
+	/**
+	 * CheckIn checks in a confirmed reservation holding a room of a shard, if the room is vacant.
+	 * @author YingHao
+	 */
+	private class CheckIn extends Command<Boolean> {
+		private final Reservation reservation;
+
+		/**
+		 * CheckIn constructor.
+		 * @param reservation
+		 */
+		public CheckIn(Reservation reservation) {
+			this.reservation = reservation;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			result = reservation.getStatus() == ReservationStatus.Confirmed && reservation.getAssignedRoom().getStatus() == RoomStatus.Vacant;
+			if(result)
+				reservation.setStatus(ReservationStatus.CheckedIn);
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			reservation.getAssignedRoom().setStatus(RoomStatus.Vacant);
+			reservation.setStatus(ReservationStatus.Confirmed);
+		}
+	}
+
+	/**
+	 * CheckOut checks out a checked in reservation holding a room of a shard.
+	 * @author YingHao
+	 */
+	private class CheckOut extends Command<Boolean> {
+		private final Reservation reservation;
+		private final Payment payment;
+		private Room room;
+		private Payment previous;
+
+		/**
+		 * CheckOut constructor.
+		 * @param reservation
+		 * @param payment - The payment made for the reservation.
+		 */
+		public CheckOut(Reservation reservation, Payment payment) {
+			this.reservation = reservation;
+			this.payment = payment;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			result = reservation.getStatus() == ReservationStatus.CheckedIn;
+			if(result) {
+				room = reservation.getAssignedRoom();
+				previous = reservation.getPayment();
+				reservation.setPayment(payment);
+				reservation.setStatus(ReservationStatus.CheckedOut);
+			}
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			reservation.setPayment(previous);
+			reservation.setAssignedRoom(room);
+			reservation.setStatus(ReservationStatus.CheckedIn);
+		}
+	}
+
+	/**
+	 * Expire expires a confirmed reservation holding a room of a shard, whose guest has not checked in.
+	 * @author YingHao
+	 */
+	private class Expire extends Command<Boolean> {
+		private final Reservation reservation;
+		private Room room;
+
+		/**
+		 * Expire constructor.
+		 * @param reservation
+		 */
+		public Expire(Reservation reservation) {
+			this.reservation = reservation;
+		}
+
+		@Override
+		protected Reservation apply(Shard shard) {
+			result = reservation.getStatus() == ReservationStatus.Confirmed;
+			if(result) {
+				room = reservation.getAssignedRoom();
+				reservation.setStatus(ReservationStatus.Expired);
+			}
+
+			return result? reservation: null;
+		}
+
+		@Override
+		protected void rollback() {
+			reservation.setAssignedRoom(room);
+		}
+	}
+
+}
@@ -7,10 +7,10 @@ import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import controller.EntityController;
 import controller.PersistenceController;
+import index.RoomAttributeIndex;
 import model.Guest;
 import model.reservation.DiscountType;
 import model.reservation.Payment;
@@ -35,16 +35,26 @@ public class CheckInCheckOutController extends PersistenceController {
 	public final static String KEY_DISCOUNT_VALUE = "discount value";
 	private final EntityController<Guest> gController;
 	private final ReservationInterface rInterface;
+	private final RoomAttributeIndex index;
+	private final ExpirySweeper sweeper;
+	private final BookingEngine engine;
 
 	/**
 	 * CheckInCheckOutController constructor.
 	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
 	 * @param rInterface - The ReservationInterface to allow CheckInCheckOutController to interact with for handling reservations.
+	 * @param index - The RoomAttributeIndex to look up rooms fulfilling room criteria from.
+	 * @param sweeper - The ExpirySweeper to expire overdue reservations with before rooms are looked up for the wait list.
+	 * @param engine - The BookingEngine to check reservations in and out through.
 	 */
-	public CheckInCheckOutController(Persistence persistence, EntityController<Guest> gController,ReservationInterface rInterface) {
+	public CheckInCheckOutController(Persistence persistence, EntityController<Guest> gController,ReservationInterface rInterface, RoomAttributeIndex index,
+			ExpirySweeper sweeper, BookingEngine engine) {
 		super(persistence);
 		this.gController = gController;
 		this.rInterface = rInterface;
+		this.index = index;
+		this.sweeper = sweeper;
+		this.engine = engine;
 	}
 
 	@Override
@@ -186,18 +196,28 @@ public class CheckInCheckOutController extends PersistenceController {
 	 * @param reservations - The reservations to perform check in.
 	 */
 	private void checkin(View view, List<Reservation> reservations) throws Exception {
-		Persistence persistence = this.getPersistenceImpl();
+		// Rooms held by guests who have not arrived within the grace period are released before looking for a room
+		boolean swept = false;
+		for(Reservation reservation: reservations) {
+			if(!swept && reservation.getStatus() == ReservationStatus.Waitlist) {
+				sweeper.sweep();
+				swept = true;
+			}
+		}
 		
 		for(Reservation reservation: reservations) {
 			String message;
 			
-			if(reservation.getStatus() == ReservationStatus.Waitlist)
-				reservation.setAssignedRoom(findVacantAndAvailableRoom(reservation));
+			if(reservation.getStatus() == ReservationStatus.Waitlist) {
+				// The room is assigned through the booking engine, which rejects it if it has been booked in the meantime
+				Room room = findVacantAndAvailableRoom(reservation);
+				if(room != null)
+					rInterface.assignRoom(reservation, room);
+			}
 			
 			if(reservation.getStatus() == ReservationStatus.Confirmed) {
-				if(reservation.getAssignedRoom().getStatus() == RoomStatus.Vacant) {
-					reservation.setStatus(ReservationStatus.CheckedIn);
-					persistence.update(reservation, Reservation.class);
+				// The reservation is checked in by the shard owning its room, which rejects it if the room is not vacant
+				if(engine.checkIn(reservation)) {
 					message = "The above reservation has been checked-in successfully, the room number assigned is " + reservation.getAssignedRoom().getNumber();
 				}
 				else {
@@ -224,9 +244,14 @@ public class CheckInCheckOutController extends PersistenceController {
 		
 		SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
 		Date today = sdf.parse(sdf.format(new Date()));
+		List<Date> endDates = new ArrayList<Date>();
 		for(Reservation reservation: reservations) {
-			// Update the end date of the reservations to today's date;
+			// Update the end date of the reservations to today's date, keeping the booked end date to release the nights after today
+			endDates.add(reservation.getEndDate());
 			reservation.setEndDate(today);
+			
+			// Nights that have not been posted yet are posted to the folio, which the payment is billed from
+			reservation.getFolio().postNights(reservation.getStartDate(), today, reservation.getAssignedRoom().getType().getPrice());
 		}
 		
 		Payment payment = new Payment(reservations);
@@ -262,13 +287,19 @@ public class CheckInCheckOutController extends PersistenceController {
 		// Create payment
 		persistence.create(payment, Payment.class);
 		view.message("Your payment is successful, thank you for staying with us, we hope to see you again!");
-		for(Reservation reservation: reservations) {
-			// Update status and save changes to file
-			reservation.setStatus(ReservationStatus.CheckedOut);
-			reservation.setPayment(payment);
-			persistence.update(reservation, Reservation.class);
-			
-			view.message("Successfully checked out from room " + reservation.getAssignedRoom().getNumber() + ".");
+		for(int i = 0; i < reservations.size(); i++) {
+			Reservation reservation = reservations.get(i);
+			// Update status and save changes to file through the shard owning the room
+			if(engine.checkOut(reservation, payment)) {
+				// Nights booked beyond today are freed by an early check out
+				if(endDates.get(i).after(today))
+					rInterface.promoteWaitlist(reservation.getAssignedRoom(), today, endDates.get(i));
+				
+				view.message("Successfully checked out from room " + reservation.getAssignedRoom().getNumber() + ".");
+			}
+			else {
+				view.message("Room " + reservation.getAssignedRoom().getNumber() + " has already been checked out.");
+			}
 		}
 		view.message("Please take not of your receipt below");
 		view.display(payment);
@@ -283,57 +314,29 @@ public class CheckInCheckOutController extends PersistenceController {
 		Room room = null;
 		Persistence persistence = this.getPersistenceImpl();
 		
-		long now = new Date().getTime();
-		long grace = TimeUnit.HOURS.toMillis(Long.parseLong(persistence.getConfiguration().getProperty(KEY_GRACE_PERIOD, Integer.toString(10))));
+		// Attempts to get a room if reservation is in wait list. Overdue reservations have been expired by the sweeper,
+		// hence a room is available if none of its reservations overlap with the stay.
+		RoomReservationPredicate predicate = new RoomReservationPredicate(reservation);
 		
-		List<Reservation> expiredList = new ArrayList<Reservation>();
-		// Attempts to get a room if reservation is in wait list
+		// Rooms that are not vacant or do not fulfil the criteria are rejected before their references are loaded
+		Predicate<Room> fulfils = index.getPredicate(reservation.getCriteria());
 		EntityIterator<Room> roomIterator = (EntityIterator<Room>) persistence.search(new Predicate<Room>() {
 
 			@Override
 			public boolean test(Room item) {
-				boolean flag = false;
-				
-				// Only care about vacant rooms
-				if(item.getStatus() == RoomStatus.Vacant && item.getDescription().fulfils(reservation.getCriteria())) {
-					// Loop through the list to find out which reservation has expired (Grace period is over).
-					List<Reservation> reservations = item.getReservationList();
-					for(int i = 0; i < reservations.size(); i++) {
-						Reservation roomReservation = reservations.get(i);
-						// Find overlapping reservations
-						if(roomReservation.getStartDate().before(reservation.getEndDate()) &&
-								roomReservation.getEndDate().after(reservation.getStartDate())) {
-							long overtime = now - roomReservation.getStartDate().getTime();
-							if(overtime > grace) {
-								// Find expired reservations
-								flag = true;
-								expiredList.add(roomReservation);
-							}
-							else {
-								// Sets flag back to false if we find reservations that are
-								// overlapping and yet not expiring
-								flag = false;
-							}
-						}
-					}
-				}
-				
-				return flag;
+				return item.getStatus() == RoomStatus.Vacant && fulfils.test(item);
 			}
 			
-		}, Room.class, true).iterator();
+		}, Room.class, false).iterator();
 		
-		if(roomIterator.hasNext())
-			room = roomIterator.next();
+		while(room == null && roomIterator.hasNext()) {
+			Room candidate = roomIterator.next();
+			if(predicate.test(candidate))
+				room = candidate;
+		}
 		
 		roomIterator.close();
 		
-		// Update expired reservations with their correct status
-		for(Reservation expired: expiredList) {
-			expired.setStatus(ReservationStatus.Expired);
-			persistence.update(expired, Reservation.class);
-		}
-		
 		return room;
 	}
 
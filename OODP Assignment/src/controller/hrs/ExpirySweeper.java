@@ -0,0 +1,186 @@
+package controller.hrs;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import index.ArrivalIndex;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import persistence.Persistence;
+import persistence.collection.LongList;
+import persistence.metrics.LatencyHistogram;
+
+/**
+ * ExpirySweeper expires the {@link ReservationStatus#Confirmed} reservations whose guests have not checked in within the
+ * grace period, configured with {@link CheckInCheckOutController#KEY_GRACE_PERIOD} in hours from the start date. Overdue
+ * reservations are found through an {@link ArrivalIndex} and expired in batches of {@link #KEY_BATCH_SIZE}, each sent to the
+ * {@link BookingEngine} together, of which the shard owning each room expires its reservations and writes them with
+ * {@link Persistence#updateAll(java.util.Collection, Class)}, which frees their rooms for the wait list.<br />
+ * Sweeps are meant to run on a schedule with {@link #schedule(ScheduledExecutorService)}, and their metrics are exposed
+ * through {@link ExpirySweeperMXBean}.
+ * @author YingHao
+ */
+public class ExpirySweeper implements ExpirySweeperMXBean {
+	public final static String KEY_INTERVAL = "expiry-sweep-interval";
+	public final static String KEY_BATCH_SIZE = "expiry-batch-size";
+	public final static int DEFAULT_INTERVAL = 15;
+	public final static int DEFAULT_BATCH_SIZE = 100;
+
+	private final Persistence persistence;
+	private final ArrivalIndex arrivals;
+	private final BookingEngine engine;
+	private final AtomicLong sweeps;
+	private final AtomicLong failures;
+	private final AtomicLong expired;
+	private final AtomicLong lastExpired;
+	private final AtomicLong lastSweepTime;
+	private final LatencyHistogram latency;
+
+	/**
+	 * ExpirySweeper constructor.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param arrivals - The ArrivalIndex to look up overdue reservations from.
+	 * @param engine - The BookingEngine to expire the overdue reservations through.
+	 */
+	public ExpirySweeper(Persistence persistence, ArrivalIndex arrivals, BookingEngine engine) {
+		this.persistence = persistence;
+		this.arrivals = arrivals;
+		this.engine = engine;
+		this.sweeps = new AtomicLong();
+		this.failures = new AtomicLong();
+		this.expired = new AtomicLong();
+		this.lastExpired = new AtomicLong();
+		this.lastSweepTime = new AtomicLong();
+		this.latency = new LatencyHistogram();
+	}
+
+	/**
+	 * Schedules sweeps periodically on the specified executor, at the interval in minutes configured with {@link #KEY_INTERVAL}.
+	 * The first sweep is run immediately.
+	 * @param executor - The executor to run the sweeps on.
+	 * @return A future that can be used to cancel the schedule.
+	 */
+	public ScheduledFuture<?> schedule(ScheduledExecutorService executor) {
+		long interval = Long.parseLong(persistence.getConfiguration().getProperty(KEY_INTERVAL, Integer.toString(DEFAULT_INTERVAL)));
+
+		return executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					sweep();
+				} catch(Exception e) {
+					// Keep the schedule running, the next sweep retries the reservations that were not expired
+					e.printStackTrace();
+				}
+			}
+
+		}, 0, interval, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Expires the confirmed reservations whose grace period is over.
+	 * @return The number of reservations expired.
+	 * @throws Exception
+	 */
+	public synchronized int sweep() throws Exception {
+		int count = 0;
+
+		long start = System.nanoTime();
+		boolean completed = false;
+		lastSweepTime.set(System.currentTimeMillis());
+		try {
+			long grace = TimeUnit.HOURS.toMillis(Long.parseLong(persistence.getConfiguration().getProperty(CheckInCheckOutController.KEY_GRACE_PERIOD,
+					Integer.toString(10))));
+			Date cutoff = new Date(System.currentTimeMillis() - grace);
+
+			LongList overdue = arrivals.getArrivalsBefore(cutoff);
+			List<Reservation> list = new ArrayList<Reservation>();
+			// Each overdue reservation is read through the primary index rather than scanning the reservations
+			for(int i = 0; i < overdue.size(); i++) {
+				Reservation reservation = persistence.retrieveByID(overdue.get(i), Reservation.class);
+				if(reservation != null && reservation.getStatus() == ReservationStatus.Confirmed && reservation.getStartDate().before(cutoff))
+					list.add(reservation);
+			}
+
+			int batchSize = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE)));
+			// Reservations that could not be written are rolled back by their shards and hold their rooms until the next sweep
+			for(int i = 0; i < list.size(); i += batchSize)
+				count += engine.expireAll(list.subList(i, Math.min(i + batchSize, list.size())));
+
+			completed = true;
+		} finally {
+			sweeps.incrementAndGet();
+			if(!completed)
+				failures.incrementAndGet();
+			expired.addAndGet(count);
+			lastExpired.set(count);
+			latency.record(System.nanoTime() - start);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Registers this sweeper on the platform MBean server, replacing any MBean registered under the same name.
+	 * @param name - The object name to register under.
+	 * @throws JMException
+	 */
+	public void registerMBean(ObjectName name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if(server.isRegistered(name))
+			server.unregisterMBean(name);
+		server.registerMBean(this, name);
+	}
+
+	@Override
+	public long getSweeps() {
+		return sweeps.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public long getExpired() {
+		return expired.get();
+	}
+
+	@Override
+	public long getLastExpired() {
+		return lastExpired.get();
+	}
+
+	@Override
+	public long getLastSweepTime() {
+		return lastSweepTime.get();
+	}
+
+	@Override
+	public double getMeanSweepMicros() {
+		return latency.getMean() / 1000;
+	}
+
+	@Override
+	public double getMaxSweepMicros() {
+		return latency.getMax() / 1000.0;
+	}
+
+	@Override
+	public long getWatched() {
+		return arrivals.size();
+	}
+
+}
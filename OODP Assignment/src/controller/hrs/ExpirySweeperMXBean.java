@@ -0,0 +1,58 @@
+package controller.hrs;
+
+/**
+ * ExpirySweeperMXBean is the management interface through which the metrics of an {@link ExpirySweeper} are exposed
+ * on the platform MBean server, e.g. for inspection with JConsole or VisualVM.
+ * @author YingHao
+ */
+public interface ExpirySweeperMXBean {
+
+	/**
+	 * Gets the number of sweeps that have been run.
+	 * @return sweeps
+	 */
+	public long getSweeps();
+
+	/**
+	 * Gets the number of sweeps that failed with an exception.
+	 * @return failures
+	 */
+	public long getFailures();
+
+	/**
+	 * Gets the number of reservations expired across all sweeps.
+	 * @return expired
+	 */
+	public long getExpired();
+
+	/**
+	 * Gets the number of reservations expired by the last sweep.
+	 * @return expired
+	 */
+	public long getLastExpired();
+
+	/**
+	 * Gets the time the last sweep started, in milliseconds since the epoch. 0 if no sweep has been run.
+	 * @return time
+	 */
+	public long getLastSweepTime();
+
+	/**
+	 * Gets the mean duration of a sweep in microseconds.
+	 * @return duration
+	 */
+	public double getMeanSweepMicros();
+
+	/**
+	 * Gets the longest duration of a sweep in microseconds.
+	 * @return duration
+	 */
+	public double getMaxSweepMicros();
+
+	/**
+	 * Gets the number of confirmed reservations being watched for expiry.
+	 * @return count
+	 */
+	public long getWatched();
+
+}
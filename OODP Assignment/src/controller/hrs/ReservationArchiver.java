@@ -0,0 +1,96 @@
+package controller.hrs;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import model.reservation.Payment;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import persistence.Persistence;
+import persistence.Predicate;
+import persistence.collection.LongLongMap;
+
+/**
+ * ReservationArchiver moves the closed reservations, which are those {@link ReservationStatus#CheckedOut},
+ * {@link ReservationStatus#Cancelled} or {@link ReservationStatus#Expired}, that ended more than {@link #KEY_ARCHIVE_AGE}
+ * days ago out of the reservation data file into an archive segment per month of their end date, with
+ * {@link Persistence#archive(java.util.Collection, Class, String)}. Their service orders and folios are archived with them
+ * as they are owned by the reservation, and so are their payments.<br />
+ * Archived reservations are no longer read by searches of active reservations, such as those of check in, check out and
+ * room availability, while reports read them through {@link Persistence#searchAll(Predicate, Class, boolean)}.
+ * @author YingHao
+ */
+public class ReservationArchiver {
+	public final static String KEY_ARCHIVE_AGE = "archive-age";
+	public final static int DEFAULT_ARCHIVE_AGE = 90;
+	public final static String SEGMENT_FORMAT = "yyyy-MM";
+
+	private final Persistence persistence;
+
+	/**
+	 * ReservationArchiver constructor.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 */
+	public ReservationArchiver(Persistence persistence) {
+		this.persistence = persistence;
+	}
+
+	/**
+	 * Archives the closed reservations that ended before the archive age.
+	 * @return The number of reservations archived.
+	 * @throws Exception
+	 */
+	public synchronized int archive() throws Exception {
+		int count = 0;
+
+		long age = TimeUnit.DAYS.toMillis(Long.parseLong(persistence.getConfiguration().getProperty(KEY_ARCHIVE_AGE, Integer.toString(DEFAULT_ARCHIVE_AGE))));
+		Date cutoff = new Date(System.currentTimeMillis() - age);
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				ReservationStatus status = item.getStatus();
+				return (status == ReservationStatus.CheckedOut || status == ReservationStatus.Cancelled || status == ReservationStatus.Expired) &&
+						item.getEndDate() != null && item.getEndDate().before(cutoff);
+			}
+
+		}, Reservation.class, false);
+
+		// Stores into temporary lists by segment as we can read from file and update at the same time
+		SimpleDateFormat sdf = new SimpleDateFormat(SEGMENT_FORMAT);
+		Map<String, List<Reservation>> segments = new TreeMap<String, List<Reservation>>();
+		for(Reservation reservation: reservations) {
+			String segment = sdf.format(reservation.getEndDate());
+			List<Reservation> list = segments.get(segment);
+			if(list == null) {
+				list = new ArrayList<Reservation>();
+				segments.put(segment, list);
+			}
+			list.add(reservation);
+		}
+
+		LongLongMap archived = new LongLongMap();
+		for(Map.Entry<String, List<Reservation>> entry: segments.entrySet()) {
+			count += persistence.archive(entry.getValue(), Reservation.class, entry.getKey());
+
+			// A payment may settle several reservations, it is archived with the first of them
+			List<Payment> payments = new ArrayList<Payment>();
+			for(Reservation reservation: entry.getValue()) {
+				Payment payment = reservation.getPayment();
+				if(payment != null && payment.isManaged() && !archived.containsKey(payment.getIdentifier())) {
+					archived.put(payment.getIdentifier(), 0);
+					payments.add(payment);
+				}
+			}
+			persistence.archive(payments, Payment.class, entry.getKey());
+		}
+
+		return count;
+	}
+
+}
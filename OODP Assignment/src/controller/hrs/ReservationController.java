@@ -13,15 +13,19 @@ import java.util.concurrent.TimeUnit;
 import controller.BillingInformationValidator;
 import controller.EntityController;
 import controller.PersistenceController;
+import index.AvailabilityCalendar;
+import index.Catalog;
+import index.RoomTypeInventory;
+import index.WaitlistIndex;
 import model.Guest;
 import model.reservation.Reservation;
 import model.reservation.ReservationStatus;
 import model.room.BedType;
 import model.room.Room;
 import model.room.RoomType;
-import persistence.EntityIterator;
 import persistence.Persistence;
 import persistence.Predicate;
+import persistence.StaleEntityException;
 import view.Options;
 import view.View;
 import viewmodel.reservation.BedTypeVM;
@@ -44,23 +48,48 @@ public class ReservationController extends PersistenceController implements Rese
 	public final static String KEY_VIEW = "Room View";
 	public final static String KEY_WIFI = "Wifi Status";
 	public final static String KEY_SMOKING = "Smoking Room";
+	public final static String KEY_RESERVE_ATTEMPTS = "reserve-attempts";
+	public final static int DEFAULT_RESERVE_ATTEMPTS = 3;
 	private final EntityController<Guest> gController;
+	private final AvailabilityCalendar calendar;
+	private final RoomTypeInventory inventory;
+	private final WaitlistIndex waitlist;
+	private final WaitlistAssigner assigner;
+	private final BookingEngine engine;
+	private final Catalog catalog;
+	private double highestPrice;
+	private long highestPriceVersion = -1;
 	
 	/**
 	 * ReservationController constructor.
 	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
 	 * @param gController - The Guest EntityController to allow ReservationController to interact with for information sharing.
+	 * @param calendar - The AvailabilityCalendar to look up room availability from.
+	 * @param inventory - The RoomTypeInventory to look up the number of rooms available per room type from.
+	 * @param waitlist - The WaitlistIndex to look up reservations in the wait list from.
+	 * @param assigner - The WaitlistAssigner to assign rooms to the wait list with.
+	 * @param engine - The BookingEngine to reserve, assign and cancel rooms through.
+	 * @param catalog - The Catalog to look up room types from.
 	 */
-	public ReservationController(Persistence persistence, EntityController<Guest> gController) {
+	public ReservationController(Persistence persistence, EntityController<Guest> gController, AvailabilityCalendar calendar,
+			RoomTypeInventory inventory, WaitlistIndex waitlist, WaitlistAssigner assigner,
+			BookingEngine engine, Catalog catalog) {
 		super(persistence);
 		this.gController = gController;
+		this.calendar = calendar;
+		this.inventory = inventory;
+		this.waitlist = waitlist;
+		this.assigner = assigner;
+		this.engine = engine;
+		this.catalog = catalog;
 	}
 
 	@Override
 	public List<String> getOptions() {
 		return Arrays.asList("Check room availability/Make a reservation",
 				"Cancel a reservation", 
-				"Search reservation by guest");
+				"Search reservation by guest",
+				"Assign rooms to wait list");
 	}
 
 	@Override
@@ -75,9 +104,21 @@ public class ReservationController extends PersistenceController implements Rese
 		case 2:
 			searchReservation(view);
 			break;
+		case 3:
+			assignWaitlist(view);
+			break;
 		}
 	}
 	
+	/**
+	 * Handler method for assign rooms to wait list option.
+	 * @param view - A view interface that provides input/output.
+	 */
+	private void assignWaitlist(View view) throws Exception {
+		int assigned = assigner.assign();
+		view.message(assigned + " reservation(s) in the wait list have been assigned a room.");
+	}
+	
 	/**
 	 * Handler method for make reservation options.
 	 * @param view - A view interface that provides input/output.
@@ -111,7 +152,6 @@ public class ReservationController extends PersistenceController implements Rese
 		
 		boolean valid = false;
 		Guest guest = reservation.getGuest();
-		Persistence persistence = this.getPersistenceImpl();
 		do {
 			view.input(inputMap);
 			
@@ -133,9 +173,7 @@ public class ReservationController extends PersistenceController implements Rese
 				} while(selected != Options.Yes && selected != Options.No);
 				
 				// Attempts to reserve room for the reservation
-				reserveRoomForReservation(reservation);
-				
-				persistence.create(reservation, Reservation.class);
+				reserveAndPersist(reservation);
 				
 				valid = true;
 				if(reservation.getStatus() == ReservationStatus.Waitlist)
@@ -163,7 +201,6 @@ public class ReservationController extends PersistenceController implements Rese
 		inputMap.put(KEY_START_DATE, null);
 		inputMap.put(KEY_END_DATE, null);
 		
-		Persistence persistence = this.getPersistenceImpl();
 		boolean valid = false;
 		do {
 			view.input(inputMap);
@@ -186,11 +223,8 @@ public class ReservationController extends PersistenceController implements Rese
 						// Display expected cost
 						double cost = 0;
 						if(reservation.getCriteria().getRoomType() == null) {
-							// No room type selected, find the highest price
-							Iterable<RoomType> roomTypes = persistence.search(null, RoomType.class, false);
-							for(RoomType rType: roomTypes)
-								if(rType.getPrice() > cost)
-									cost = rType.getPrice();
+							// No room type selected, quote the highest price
+							cost = getHighestPrice();
 						}
 						else {
 							// Retrieve the cost of the selected room type
@@ -241,40 +275,14 @@ public class ReservationController extends PersistenceController implements Rese
 						valid = true;
 					}
 					else {
-						Room room = reservation.getAssignedRoom();
-						reservation.setStatus(ReservationStatus.Cancelled);
-						
-						persistence.update(reservation, Reservation.class);
+						Room room = reservation.getStatus() == ReservationStatus.Confirmed? reservation.getAssignedRoom(): null;
+						engine.cancel(reservation);
 						
 						success = true;
-						if(room != null) {
+						if(room != null)
 							// Attempts to find rooms that are on the waitlist that can be assigned
 							// with this room
-							Iterable<Reservation> waitlist = persistence.search(new Predicate<Reservation>() {
-
-								@Override
-								public boolean test(Reservation item) {
-									return item.getStatus() == ReservationStatus.Waitlist && 
-											new RoomReservationPredicate(item).test(room);
-								}
-								
-							}, Reservation.class, true);
-							
-							List<Reservation> reservations = new ArrayList<Reservation>();
-							// Stores into temporary list as we can read from file and update at the same time
-							for(Reservation r: waitlist)
-								reservations.add(r);
-							
-							// Perform last round check to ensure that the selected reservation is eligible to be assigned this room
-							// This step is to ensure that assigning this room to the next reservation will not affect the
-							// eligibility of the succeeding reservations
-							for(Reservation r: reservations) {
-								if(new RoomReservationPredicate(r).test(room)) {
-									r.setAssignedRoom(room);
-									persistence.update(r, Reservation.class);
-								}
-							}
-						}
+							promoteWaitlist(room, reservation.getStartDate(), reservation.getEndDate());
 						
 						view.message("Reservation cancelled!");
 						valid = true;
@@ -289,6 +297,35 @@ public class ReservationController extends PersistenceController implements Rese
 		return success;
 	}
 	
+	@Override
+	public int promoteWaitlist(Room room, Date start, Date end) throws Exception {
+		int count = 0;
+		
+		// Only reservations in the wait list that are compatible with the room and staying over the freed nights are read
+		long[] candidates = waitlist.getCandidates(room, start, end).toArray();
+		if(candidates.length > 0) {
+			Persistence persistence = this.getPersistenceImpl();
+			
+			// Each candidate is read through the primary index rather than scanning the reservations
+			List<Reservation> reservations = new ArrayList<Reservation>();
+			for(long candidate: candidates) {
+				Reservation r = persistence.retrieveByID(candidate, Reservation.class);
+				if(r != null && r.getStatus() == ReservationStatus.Waitlist)
+					reservations.add(r);
+			}
+			
+			// Perform last round check to ensure that the selected reservation is eligible to be assigned this room
+			// This step is to ensure that assigning this room to the next reservation will not affect the
+			// eligibility of the succeeding reservations
+			for(Reservation r: reservations) {
+				if(engine.assign(r, room))
+					count++;
+			}
+		}
+		
+		return count;
+	}
+	
 	@Override
 	public void searchReservation(View view) throws Exception {
 		Guest guest = gController.select(view);
@@ -316,24 +353,55 @@ public class ReservationController extends PersistenceController implements Rese
 	}
 	
 	@Override
-	public boolean reserveRoomForReservation(Reservation reservation) throws Exception {
+	public boolean assignRoom(Reservation reservation, Room room) throws Exception {
+		return engine.assign(reservation, room);
+	}
+	
+	@Override
+	public boolean reserveAndPersist(Reservation reservation) throws Exception {
 		boolean flag = false;
 		
-		if(reservation.getStatus() == ReservationStatus.Waitlist) {
-			Persistence persistence = this.getPersistenceImpl();
-			EntityIterator<Room> rooms = (EntityIterator<Room>) persistence.search(new RoomReservationPredicate(reservation), Room.class, true).iterator();
-			
-			if(rooms.hasNext()) {
-				reservation.setAssignedRoom(rooms.next());
-				flag = true;
+		Persistence persistence = this.getPersistenceImpl();
+		int attempts = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_RESERVE_ATTEMPTS, Integer.toString(DEFAULT_RESERVE_ATTEMPTS)));
+		boolean persisted = false;
+		for(int attempt = 1; !persisted; attempt++) {
+			try {
+				// The room is booked and persisted by the shard of the booking engine owning it
+				flag = engine.reserve(reservation);
+				persisted = true;
+			} catch(StaleEntityException e) {
+				// The room or a reference of it was written by another process, or through an instance read outside the identity
+				// cache, after it was read and the shard has released it. Bookings made in this process on the cached instances
+				// never get here, as they are serialized by the shards instead
+				if(attempt >= attempts)
+					throw e;
+				persistence.retrieveByID(e.entity.getIdentifier(), e.entity.getClass());
 			}
-			
-			rooms.close();
 		}
 		
 		return flag;
 	}
 	
+	/**
+	 * Gets the highest price of all room types, which is quoted when any room type is accepted. The price is cached until a
+	 * room type is created, updated or deleted.
+	 * @return highestPrice
+	 */
+	private synchronized double getHighestPrice() {
+		long version = catalog.getVersion(RoomType.class);
+		if(version != highestPriceVersion) {
+			double price = 0;
+			for(RoomType rType: catalog.getAll(RoomType.class))
+				if(rType.getPrice() > price)
+					price = rType.getPrice();
+			
+			highestPrice = price;
+			highestPriceVersion = version;
+		}
+		
+		return highestPrice;
+	}
+	
 	/**
 	 * Prompts the user to enter relevant information for their desired room and populates the criteria attribute of the provided
 	 * reservation parameter.
@@ -346,8 +414,9 @@ public class ReservationController extends PersistenceController implements Rese
 		
 		boolean done = false;
 		do {
-			long matches = persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true);
-			view.message("There are " + matches + " room(s) that are available and matches your room requirements");
+			// Counts for the current requirements and for every refinement are produced in one pass over the rooms
+			RoomFacets facets = RoomFacets.count(persistence, reservation, calendar, inventory);
+			view.message("There are " + facets.getMatches() + " room(s) that are available and matches your room requirements");
 			view.message("Do you want to refine your room requirements?");
 			if(view.options(Arrays.asList(Options.Yes, Options.No)).equals(Options.No))
 				done = true;
@@ -356,19 +425,19 @@ public class ReservationController extends PersistenceController implements Rese
 				// Request the user to select an option to update the room requirement
 				switch(view.options(Arrays.asList(KEY_ROOM_TYPE, KEY_BED_TYPE, KEY_VIEW, KEY_WIFI, KEY_SMOKING))) {
 				case KEY_ROOM_TYPE:
-					updateRoomType(view, reservation);
+					updateRoomType(view, reservation, facets);
 					break;
 				case KEY_BED_TYPE:
-					updateBedType(view, reservation);
+					updateBedType(view, reservation, facets);
 					break;
 				case KEY_VIEW:
-					updateView(view, reservation);
+					updateView(view, reservation, facets);
 					break;
 				case KEY_WIFI:
-					updateWifiStatus(view, reservation);
+					updateWifiStatus(view, reservation, facets);
 					break;
 				case KEY_SMOKING:
-					updateSmokingStatus(view, reservation);
+					updateSmokingStatus(view, reservation, facets);
 					break;
 				}
 			}
@@ -380,23 +449,19 @@ public class ReservationController extends PersistenceController implements Rese
 	 * to select a RoomType to be populated into the criteria attribute of the specified reservation.
 	 * @param view - A view interface that provides input/output.
 	 * @param reservation - Reservation instance that this method will base on for the start and end date.
+	 * @param facets - The number of available rooms for every room criteria value.
 	 */
-	private void updateRoomType(View view, Reservation reservation) throws Exception {
+	private void updateRoomType(View view, Reservation reservation, RoomFacets facets) throws Exception {
 		RoomType rType = reservation.getCriteria().getRoomType();
 		
-		Persistence persistence = this.getPersistenceImpl();
-		
 		String rTypeName = "Any";
 		if(rType != null)
 			rTypeName = rType.getName();
 		view.message("Currently selected room type: " + rTypeName);
 		
-		List options = new ArrayList();
-		Iterable<RoomType> roomTypes = persistence.search(null, RoomType.class, false);
-		for(RoomType roomType: roomTypes) {
-			reservation.getCriteria().setRoomType(roomType);
-			options.add(new RoomTypeVM(roomType, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
-		}
+		List<Object> options = new ArrayList<Object>();
+		for(RoomType roomType: catalog.getAll(RoomType.class))
+			options.add(new RoomTypeVM(roomType, facets.getCount(roomType)));
 		options.add(Options.Any);
 		
 		view.message("Please select a room type");
@@ -414,22 +479,19 @@ public class ReservationController extends PersistenceController implements Rese
 	 * to select a BedType to be populated into the criteria attribute of the specified reservation.
 	 * @param view - A view interface that provides input/output.
 	 * @param reservation - Reservation instance that this method will base on for the start and end date.
+	 * @param facets - The number of available rooms for every room criteria value.
 	 */
-	private void updateBedType(View view, Reservation reservation) throws Exception {
+	private void updateBedType(View view, Reservation reservation, RoomFacets facets) throws Exception {
 		BedType bType = reservation.getCriteria().getBedType();
 		
-		Persistence persistence = this.getPersistenceImpl();
-		
 		String bTypeName = "Any";
 		if(bType != null)
 			bTypeName = bType.toString();
 		view.message("Currently selected bed type: " + bTypeName);
 		
-		List options = new ArrayList();
-		for(BedType bedType: BedType.values()) {
-			reservation.getCriteria().setBedType(bedType);
-			options.add(new BedTypeVM(bedType, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
-		}
+		List<Object> options = new ArrayList<Object>();
+		for(BedType bedType: BedType.values())
+			options.add(new BedTypeVM(bedType, facets.getCount(bedType)));
 		options.add(Options.Any);
 		
 		view.message("Please select a room type");
@@ -447,27 +509,19 @@ public class ReservationController extends PersistenceController implements Rese
 	 * to select a view to be populated into the criteria attribute of the specified reservation.
 	 * @param view - A view interface that provides input/output.
 	 * @param reservation - Reservation instance that this method will base on for the start and end date.
+	 * @param facets - The number of available rooms for every room criteria value.
 	 */
-	private void updateView(View view, Reservation reservation) throws Exception {
+	private void updateView(View view, Reservation reservation, RoomFacets facets) throws Exception {
 		String rView = reservation.getCriteria().getView();
 		
-		Persistence persistence = this.getPersistenceImpl();
-		
 		String rViewName = "Any";
 		if(rView != null)
 			rViewName = rView;
 		view.message("Currently selected room view: " + rViewName);
 		
-		List options = new ArrayList();
-		Iterable<Room> rooms = persistence.search(null, Room.class, true);
-		for(Room room: rooms) {
-			TextAndCountVM viewModel = new TextAndCountVM(room.getView(), 0);
-			if(!options.contains(viewModel)) {
-				reservation.getCriteria().setView(room.getView());
-				viewModel.setCount(persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true));
-				options.add(viewModel);
-			}
-		}
+		List<Object> options = new ArrayList<Object>();
+		for(String roomView: facets.getViews())
+			options.add(new TextAndCountVM(roomView, facets.getViewCount(roomView)));
 		options.add(Options.Any);
 		
 		view.message("Please select the desired view for your room");
@@ -485,8 +539,9 @@ public class ReservationController extends PersistenceController implements Rese
 	 * a requirement to be populated into the criteria attribute of the specified reservation.
 	 * @param view - A view interface that provides input/output.
 	 * @param reservation - Reservation instance that this method will base on for the start and end date.
+	 * @param facets - The number of available rooms for every room criteria value.
 	 */
-	private void updateWifiStatus(View view, Reservation reservation) throws Exception {
+	private void updateWifiStatus(View view, Reservation reservation, RoomFacets facets) throws Exception {
 		boolean wifiStatus = reservation.getCriteria().isWifi();
 		
 		String required = Options.Required.toString();
@@ -497,13 +552,9 @@ public class ReservationController extends PersistenceController implements Rese
 			wifiStatusName = required;
 		view.message("Currently selected Wifi requirement: " + wifiStatusName);
 		
-		Persistence persistence = this.getPersistenceImpl();
 		List<TextAndCountVM> options = new ArrayList<TextAndCountVM>();
-		
-		reservation.getCriteria().setIsWifi(true);
-		options.add(new TextAndCountVM(required, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
-		reservation.getCriteria().setIsWifi(false);
-		options.add(new TextAndCountVM(notRequired, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
+		options.add(new TextAndCountVM(required, facets.getWifiCount(true)));
+		options.add(new TextAndCountVM(notRequired, facets.getWifiCount(false)));
 		
 		view.message("Please select a Wifi requirement");
 		wifiStatus = view.options(options).getText().equals(required);
@@ -516,8 +567,9 @@ public class ReservationController extends PersistenceController implements Rese
 	 * a requirement to be populated into the criteria attribute of the specified reservation.
 	 * @param view - A view interface that provides input/output.
 	 * @param reservation - Reservation instance that this method will base on for the start and end date.
+	 * @param facets - The number of available rooms for every room criteria value.
 	 */
-	private void updateSmokingStatus(View view, Reservation reservation) throws Exception {
+	private void updateSmokingStatus(View view, Reservation reservation, RoomFacets facets) throws Exception {
 		boolean smokingStatus = reservation.getCriteria().isSmoking();
 		
 		String required = Options.Required.toString();
@@ -528,13 +580,9 @@ public class ReservationController extends PersistenceController implements Rese
 			smokingStatusName = notRequired;
 		view.message("Currently selected Smoking-Room requirement: " + smokingStatusName);
 		
-		Persistence persistence = this.getPersistenceImpl();
 		List<TextAndCountVM> options = new ArrayList<TextAndCountVM>();
-		
-		reservation.getCriteria().setIsSmoking(true);
-		options.add(new TextAndCountVM(required, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
-		reservation.getCriteria().setIsSmoking(false);
-		options.add(new TextAndCountVM(notRequired, persistence.getCount(new RoomReservationPredicate(reservation), Room.class, true)));
+		options.add(new TextAndCountVM(required, facets.getSmokingCount(true)));
+		options.add(new TextAndCountVM(notRequired, facets.getSmokingCount(false)));
 		
 		view.message("Please select a Smoking-Room requirement");
 		smokingStatus = view.options(options).getText().equals(required);
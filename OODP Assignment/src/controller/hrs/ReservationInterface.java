@@ -1,6 +1,9 @@
 package controller.hrs;
 
+import java.util.Date;
+
 import model.reservation.Reservation;
+import model.room.Room;
 import view.View;
 
 /**
@@ -24,11 +27,33 @@ public interface ReservationInterface {
 	public void searchReservation(View view) throws Exception;
 	
 	/**
-	 * Reserves a room for the specified Reservation.
+	 * Assigns the specified room to the specified Reservation in the wait list and updates the reservation, unless the room
+	 * does not fulfil its criteria or is booked during its stay.
+	 * @param reservation - A managed reservation in the wait list.
+	 * @param room - The room to assign.
+	 * @return A flag indicating if the room was assigned.
+	 */
+	public boolean assignRoom(Reservation reservation, Room room) throws Exception;
+	
+	/**
+	 * Reserves a room for the specified Reservation if it is in the wait list, and creates or updates it. When the reserved
+	 * room has been updated by another process since it was read, the room is released and reserved again, up to a
+	 * configured number of attempts. Reservations made in this process do not conflict, as each room is booked by a single
+	 * writer.
 	 * @param reservation - The reservation used to reserve a room.
 	 * @return A flag indicating if a room was reserved.
+	 * @throws persistence.StaleEntityException This exception is thrown when the reservation could not be persisted within the attempts.
+	 */
+	public boolean reserveAndPersist(Reservation reservation) throws Exception;
+	
+	/**
+	 * Assigns a room that has been freed to the reservations in the wait list that it fits, in the order they were made.
+	 * @param room - The room that has been freed.
+	 * @param start - The first freed night.
+	 * @param end - The end of the freed nights, exclusive.
+	 * @return The number of reservations that were assigned the room.
 	 */
-	public boolean reserveRoomForReservation(Reservation reservation) throws Exception;
+	public int promoteWaitlist(Room room, Date start, Date end) throws Exception;
 
 	/**
 	 * Prompts the user to enter relevant information to check for room availability and
@@ -0,0 +1,185 @@
+package controller.hrs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import index.AvailabilityCalendar;
+import index.RoomTypeInventory;
+import model.reservation.Reservation;
+import model.room.BedType;
+import model.room.Room;
+import model.room.RoomDescription;
+import model.room.RoomType;
+import persistence.Persistence;
+
+/**
+ * RoomFacets holds the number of rooms available for the dates of a reservation for every value of the room criteria,
+ * namely room type, bed type, view, wifi and smoking. The count of a value is the number of available rooms that would
+ * match the criteria of the reservation if that criterion were set to the value, while the other criteria stay as selected.<br />
+ * All counts are produced by {@link #count(Persistence, Reservation, AvailabilityCalendar, RoomTypeInventory)} in a single pass
+ * over the rooms, in which the availability of each room is evaluated once, and not at all for the rooms of a room type that
+ * is fully booked on some night of the stay.
+ * @author YingHao
+ */
+public class RoomFacets {
+	private long matches;
+	private final Map<RoomType, Long> roomTypes;
+	private final Map<BedType, Long> bedTypes;
+	private final List<String> views;
+	private final Map<String, Long> viewCounts;
+	private long wifi;
+	private long anyWifi;
+	private long smoking;
+	private long anySmoking;
+
+	/**
+	 * RoomFacets constructor.
+	 */
+	private RoomFacets() {
+		this.roomTypes = new HashMap<RoomType, Long>();
+		this.bedTypes = new HashMap<BedType, Long>();
+		this.views = new ArrayList<String>();
+		this.viewCounts = new HashMap<String, Long>();
+	}
+
+	/**
+	 * Counts the available rooms for every value of the room criteria of the specified reservation.
+	 * @param persistence - The Persistence API implementation to read rooms from.
+	 * @param reservation - The reservation providing the dates and the selected criteria.
+	 * @param calendar - The availability calendar to look up date availability from. Can be null.
+	 * @param inventory - The room type inventory to look up fully booked room types from. Can be null.
+	 * @return The facet counts.
+	 * @throws Exception
+	 */
+	public static RoomFacets count(Persistence persistence, Reservation reservation, AvailabilityCalendar calendar,
+			RoomTypeInventory inventory) throws Exception {
+		RoomFacets facets = new RoomFacets();
+		RoomReservationPredicate predicate = new RoomReservationPredicate(reservation, calendar);
+		RoomDescription criteria = reservation.getCriteria();
+		Map<RoomType, Boolean> full = new HashMap<RoomType, Boolean>();
+
+		// Loop through every room once, as the views of unavailable rooms are listed as well
+		for(Room room: persistence.search(null, Room.class, true)) {
+			RoomDescription description = room.getDescription();
+
+			String view = description.getView();
+			if(!facets.views.contains(view))
+				facets.views.add(view);
+
+			RoomType roomType = description.getRoomType();
+			if(inventory != null && roomType != null && !full.containsKey(roomType))
+				full.put(roomType, inventory.checkAvailableCount(roomType, reservation.getStartDate(), reservation.getEndDate()) == 0);
+
+			if(!Boolean.TRUE.equals(full.get(roomType)) && predicate.isAvailable(room)) {
+				// Evaluate each criterion once, a facet counts the rooms matching all criteria but its own
+				boolean type = criteria.getRoomType() == null || criteria.getRoomType().equals(description.getRoomType());
+				boolean bed = criteria.getBedType() == null || criteria.getBedType().equals(description.getBedType());
+				boolean viewed = criteria.getView() == null || criteria.getView().toLowerCase().equals(view.toLowerCase());
+				boolean wifi = !criteria.isWifi() || description.isWifi();
+				boolean smoking = !criteria.isSmoking() || description.isSmoking();
+
+				if(type && bed && viewed && wifi && smoking)
+					facets.matches++;
+				if(bed && viewed && wifi && smoking)
+					increment(facets.roomTypes, description.getRoomType());
+				if(type && viewed && wifi && smoking)
+					increment(facets.bedTypes, description.getBedType());
+				if(type && bed && wifi && smoking)
+					increment(facets.viewCounts, view.toLowerCase());
+				if(type && bed && viewed && smoking) {
+					facets.anyWifi++;
+					if(description.isWifi())
+						facets.wifi++;
+				}
+				if(type && bed && viewed && wifi) {
+					facets.anySmoking++;
+					if(description.isSmoking())
+						facets.smoking++;
+				}
+			}
+		}
+
+		return facets;
+	}
+
+	/**
+	 * Gets the number of available rooms matching all of the selected criteria.
+	 * @return count
+	 */
+	public long getMatches() {
+		return matches;
+	}
+
+	/**
+	 * Gets the number of available rooms of the specified room type matching the other selected criteria.
+	 * @param roomType
+	 * @return count
+	 */
+	public long getCount(RoomType roomType) {
+		Long count = roomTypes.get(roomType);
+
+		return count == null? 0: count;
+	}
+
+	/**
+	 * Gets the number of available rooms with the specified bed type matching the other selected criteria.
+	 * @param bedType
+	 * @return count
+	 */
+	public long getCount(BedType bedType) {
+		Long count = bedTypes.get(bedType);
+
+		return count == null? 0: count;
+	}
+
+	/**
+	 * Gets the distinct views of all rooms, available or not, in the order they were found.
+	 * @return views
+	 */
+	public List<String> getViews() {
+		return views;
+	}
+
+	/**
+	 * Gets the number of available rooms with the specified view matching the other selected criteria. Views are compared
+	 * case-insensitively.
+	 * @param view
+	 * @return count
+	 */
+	public long getViewCount(String view) {
+		Long count = viewCounts.get(view.toLowerCase());
+
+		return count == null? 0: count;
+	}
+
+	/**
+	 * Gets the number of available rooms matching the other selected criteria for the specified wifi requirement.
+	 * @param required - A flag indicating if wifi is required.
+	 * @return count
+	 */
+	public long getWifiCount(boolean required) {
+		return required? wifi: anyWifi;
+	}
+
+	/**
+	 * Gets the number of available rooms matching the other selected criteria for the specified smoking-room requirement.
+	 * @param required - A flag indicating if a smoking room is required.
+	 * @return count
+	 */
+	public long getSmokingCount(boolean required) {
+		return required? smoking: anySmoking;
+	}
+
+	/**
+	 * Increments the count of the specified key.
+	 * @param counts
+	 * @param key
+	 */
+	private static <K> void increment(Map<K, Long> counts, K key) {
+		Long count = counts.get(key);
+		counts.put(key, count == null? 1: count + 1);
+	}
+
+}
@@ -2,6 +2,7 @@ package controller.hrs;
 
 import java.util.List;
 
+import index.AvailabilityCalendar;
 import model.reservation.Reservation;
 import model.reservation.ReservationStatus;
 import model.room.Room;
@@ -11,26 +12,55 @@ import persistence.Predicate;
 /**
  * RoomReservationPredicate is a predicate class that determines whether a Room
  * passes or fails a reservation predicate which includes conditions such as start and end date
- * as well as room criteria.
+ * as well as room criteria. When an {@link AvailabilityCalendar} covering the dates of the reservation is provided,
+ * date availability is looked up from the calendar instead of walking the reservations of the room.
  * @author YingHao
  */
 public class RoomReservationPredicate implements Predicate<Room> {
 	private final Reservation reservation;
+	private final AvailabilityCalendar calendar;
 	
 	/**
 	 * RoomReservationPredicate constructor.
 	 * @param reservation - The reservation that this predicate should base on.
 	 */
 	public RoomReservationPredicate(Reservation reservation) {
+		this(reservation, null);
+	}
+	
+	/**
+	 * RoomReservationPredicate constructor.
+	 * @param reservation - The reservation that this predicate should base on.
+	 * @param calendar - The availability calendar to look up date availability from. Can be null.
+	 */
+	public RoomReservationPredicate(Reservation reservation, AvailabilityCalendar calendar) {
 		this.reservation = reservation;
+		this.calendar = calendar;
 	}
 
 	@Override
 	public boolean test(Room item) {
+		return isAvailable(item) && item.getDescription().fulfils(reservation.getCriteria());
+	}
+	
+	/**
+	 * Gets a flag indicating if the specified room is not under maintenance and not reserved between the start and end date
+	 * of the reservation, regardless of the room criteria.
+	 * @param item - The room to be tested.
+	 * @return flag
+	 */
+	public boolean isAvailable(Room item) {
 		boolean flag = true;
 		
+		// Null when the calendar does not cover the dates, in which case the reservations of the room are walked
+		Boolean available = calendar == null? null: 
+				calendar.checkAvailability(item.getIdentifier(), reservation.getStartDate(), reservation.getEndDate());
+		
 		if(item.getStatus() == RoomStatus.Maintenance)
 			flag = false;
+		else if(available != null) {
+			flag = available;
+		}
 		else {
 			List<Reservation> reservations = item.getReservationList();
 			for(int i = 0; i < reservations.size(); i++) {
@@ -44,8 +74,6 @@ public class RoomReservationPredicate implements Predicate<Room> {
 			}
 		}
 		
-		flag = flag && item.getDescription().fulfils(reservation.getCriteria());
-		
 		return flag;
 	}
 
@@ -0,0 +1,260 @@
+package controller.hrs;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import index.AvailabilityCalendar;
+import index.RoomAttributeIndex;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import model.room.RoomStatus;
+import persistence.Persistence;
+import persistence.Predicate;
+
+/**
+ * WaitlistAssigner assigns rooms to the {@link ReservationStatus#Waitlist} reservations in a single batch. Every reservation
+ * in the wait list is matched against every room that fulfils its criteria and is free for its dates, and the assignment
+ * is grown with augmenting paths: a reservation may take a room held by an earlier reservation of the batch if that
+ * reservation can be moved to another room. Unlike assigning the first room that fits to one reservation at a time, a room
+ * is not spent on a reservation that could have been placed elsewhere.<br />
+ * Reservations are matched in the order they were made, hence an earlier reservation never loses its place to a later one.
+ * The matching is planned against the {@link AvailabilityCalendar} as it was when the batch started, and the assignments
+ * are then booked through the {@link BookingEngine}, of which the shard owning each room checks again that it is free,
+ * bookings it has not persisted yet included. An assignment whose room has been booked in the meantime is dropped, and its
+ * reservation stays in the wait list for the next batch.
+ * @author YingHao
+ */
+public class WaitlistAssigner {
+	public final static String KEY_INTERVAL = "waitlist-assignment-interval";
+	public final static int DEFAULT_INTERVAL = 60;
+
+	private final Persistence persistence;
+	private final AvailabilityCalendar calendar;
+	private final RoomAttributeIndex index;
+	private final BookingEngine engine;
+
+	/**
+	 * WaitlistAssigner constructor.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param calendar - The AvailabilityCalendar to look up room availability from.
+	 * @param index - The RoomAttributeIndex to look up rooms fulfilling room criteria from.
+	 * @param engine - The BookingEngine to book the assigned rooms through.
+	 */
+	public WaitlistAssigner(Persistence persistence, AvailabilityCalendar calendar, RoomAttributeIndex index, BookingEngine engine) {
+		this.persistence = persistence;
+		this.calendar = calendar;
+		this.index = index;
+		this.engine = engine;
+	}
+
+	/**
+	 * Schedules the wait list to be assigned periodically on the specified executor, at the interval in minutes configured
+	 * with {@link #KEY_INTERVAL}.
+	 * @param executor - The executor to run the assignment on.
+	 * @return A future that can be used to cancel the schedule.
+	 */
+	public ScheduledFuture<?> schedule(ScheduledExecutorService executor) {
+		long interval = Long.parseLong(persistence.getConfiguration().getProperty(KEY_INTERVAL, Integer.toString(DEFAULT_INTERVAL)));
+
+		return executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					assign();
+				} catch(Exception e) {
+					// Keep the schedule running, the next run retries the reservations that were not assigned
+					e.printStackTrace();
+				}
+			}
+
+		}, interval, interval, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Assigns rooms to as many reservations in the wait list as possible and books the assignments through the booking
+	 * engine.
+	 * @return The number of reservations that were assigned a room.
+	 * @throws Exception
+	 */
+	public synchronized int assign() throws Exception {
+		Calendar midnight = Calendar.getInstance();
+		midnight.set(Calendar.HOUR_OF_DAY, 0);
+		midnight.set(Calendar.MINUTE, 0);
+		midnight.set(Calendar.SECOND, 0);
+		midnight.set(Calendar.MILLISECOND, 0);
+		Date today = midnight.getTime();
+
+		List<Reservation> waitlist = new ArrayList<Reservation>();
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				return item.getStatus() == ReservationStatus.Waitlist && item.getEndDate().after(today);
+			}
+
+		}, Reservation.class, false);
+		for(Reservation reservation: reservations)
+			waitlist.add(reservation);
+		Collections.sort(waitlist, new Comparator<Reservation>() {
+
+			@Override
+			public int compare(Reservation o1, Reservation o2) {
+				return Long.compare(o1.getIdentifier(), o2.getIdentifier());
+			}
+
+		});
+
+		List<Room> rooms = new ArrayList<Room>();
+		if(waitlist.size() > 0) {
+			Iterable<Room> roomList = persistence.search(new Predicate<Room>() {
+
+				@Override
+				public boolean test(Room item) {
+					return item.getStatus() != RoomStatus.Maintenance;
+				}
+
+			}, Room.class, false);
+			for(Room room: roomList)
+				rooms.add(room);
+		}
+
+		Matching matching = new Matching(waitlist, rooms);
+		// Loop through the wait list in the order the reservations were made and find an augmenting path for each
+		for(int i = 0; i < waitlist.size(); i++)
+			matching.augment(i, new boolean[rooms.size()]);
+
+		List<Reservation> assigned = new ArrayList<Reservation>();
+		List<Room> assignedRooms = new ArrayList<Room>();
+		for(int i = 0; i < waitlist.size(); i++) {
+			if(matching.rooms[i] >= 0) {
+				assigned.add(waitlist.get(i));
+				assignedRooms.add(rooms.get(matching.rooms[i]));
+			}
+		}
+
+		return engine.assignAll(assigned, assignedRooms);
+	}
+
+	/**
+	 * Matching holds the candidate rooms of every reservation in the wait list and the rooms tentatively assigned to them.
+	 * @author YingHao
+	 */
+	private class Matching {
+		private final List<Reservation> waitlist;
+		private final int[][] candidates;
+		private final int[] rooms;
+		private final List<List<Integer>> holds;
+
+		/**
+		 * Matching constructor. Finds the candidate rooms of every reservation, which are the rooms that fulfil its
+		 * criteria and are free for its dates before any reservation of the batch is assigned.
+		 * @param waitlist - The reservations in the wait list.
+		 * @param roomList - The rooms that can be assigned.
+		 */
+		public Matching(List<Reservation> waitlist, List<Room> roomList) {
+			this.waitlist = waitlist;
+			this.candidates = new int[waitlist.size()][];
+			this.rooms = new int[waitlist.size()];
+			this.holds = new ArrayList<List<Integer>>();
+
+			for(int i = 0; i < roomList.size(); i++)
+				this.holds.add(new ArrayList<Integer>());
+
+			for(int i = 0; i < waitlist.size(); i++) {
+				Reservation reservation = waitlist.get(i);
+				Predicate<Room> fulfils = index.getPredicate(reservation.getCriteria());
+				RoomReservationPredicate predicate = new RoomReservationPredicate(reservation, calendar);
+
+				List<Integer> list = new ArrayList<Integer>();
+				for(int j = 0; j < roomList.size(); j++)
+					if(fulfils.test(roomList.get(j)) && predicate.test(roomList.get(j)))
+						list.add(j);
+
+				this.candidates[i] = new int[list.size()];
+				for(int j = 0; j < list.size(); j++)
+					this.candidates[i][j] = list.get(j);
+				this.rooms[i] = -1;
+			}
+		}
+
+		/**
+		 * Attempts to assign a room to the specified reservation, moving at most one reservation of the batch that
+		 * holds a candidate room to another of its candidate rooms, recursively.
+		 * @param reservation - The position of the reservation in the wait list.
+		 * @param visited - The rooms already tried along the current path.
+		 * @return A flag indicating if the reservation has been assigned a room.
+		 */
+		private boolean augment(int reservation, boolean[] visited) {
+			boolean flag = false;
+
+			for(int i = 0; !flag && i < candidates[reservation].length; i++) {
+				int room = candidates[reservation][i];
+				if(!visited[room]) {
+					visited[room] = true;
+
+					// Find the reservations of the batch holding the room over the same nights
+					List<Integer> conflicts = new ArrayList<Integer>();
+					for(int other: holds.get(room))
+						if(overlaps(waitlist.get(other), waitlist.get(reservation)))
+							conflicts.add(other);
+
+					if(conflicts.size() == 0) {
+						flag = true;
+					}
+					else if(conflicts.size() == 1) {
+						int other = conflicts.get(0);
+						this.release(other);
+						if(augment(other, visited))
+							flag = true;
+						else
+							this.hold(other, room);
+					}
+
+					if(flag)
+						this.hold(reservation, room);
+				}
+			}
+
+			return flag;
+		}
+
+		/**
+		 * Tentatively assigns a room to a reservation.
+		 * @param reservation
+		 * @param room
+		 */
+		private void hold(int reservation, int room) {
+			rooms[reservation] = room;
+			holds.get(room).add(reservation);
+		}
+
+		/**
+		 * Releases the room tentatively assigned to a reservation.
+		 * @param reservation
+		 */
+		private void release(int reservation) {
+			holds.get(rooms[reservation]).remove(Integer.valueOf(reservation));
+			rooms[reservation] = -1;
+		}
+	}
+
+	/**
+	 * Gets a flag indicating if the stays of the specified reservations share a night.
+	 * @param r1
+	 * @param r2
+	 * @return flag
+	 */
+	private static boolean overlaps(Reservation r1, Reservation r2) {
+		return r1.getStartDate().before(r2.getEndDate()) && r2.getStartDate().before(r1.getEndDate());
+	}
+
+}
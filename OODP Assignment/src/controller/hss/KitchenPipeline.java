@@ -0,0 +1,479 @@
+package controller.hss;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import index.OpenOrderIndex;
+import model.reservation.Reservation;
+import model.service.fnb.OrderStatus;
+import model.service.fnb.ServiceOrder;
+import persistence.Persistence;
+import persistence.collection.LongList;
+import persistence.metrics.LatencyHistogram;
+
+/**
+ * KitchenPipeline moves the room service orders through the kitchen. Orders are published to a kitchen queue bounded by
+ * {@link #KEY_QUEUE_CAPACITY}, from which {@link #KEY_KITCHEN_WORKERS} kitchen workers take them to
+ * {@link OrderStatus#Preparing} and pass them on to a delivery queue of the same bound, from which
+ * {@link #KEY_DELIVERY_WORKERS} delivery workers take them to {@link OrderStatus#Delivered}, which charges them to the
+ * folios of their reservations. Status changes are handed to a single writer that persists them in batches of at most
+ * {@link #KEY_BATCH_SIZE}, each written with {@link Persistence#updateAll(java.util.Collection, Class)}. Publishing to a
+ * full kitchen queue waits up to {@link #KEY_PUBLISH_TIMEOUT} milliseconds for the workers to make room.<br />
+ * Workers take {@link #KEY_PREPARATION_TIME} and {@link #KEY_DELIVERY_TIME} milliseconds to advance an order, and skip
+ * orders that have been cancelled meanwhile. Open orders left by a previous run are published again by {@link #start()},
+ * and the metrics are exposed through {@link KitchenPipelineMXBean}.
+ * @author YingHao
+ */
+public class KitchenPipeline implements KitchenPipelineMXBean {
+	public final static String KEY_QUEUE_CAPACITY = "kitchen-queue-capacity";
+	public final static String KEY_KITCHEN_WORKERS = "kitchen-workers";
+	public final static String KEY_DELIVERY_WORKERS = "delivery-workers";
+	public final static String KEY_BATCH_SIZE = "kitchen-batch-size";
+	public final static String KEY_PREPARATION_TIME = "kitchen-preparation-time";
+	public final static String KEY_DELIVERY_TIME = "kitchen-delivery-time";
+	public final static String KEY_PUBLISH_TIMEOUT = "kitchen-publish-timeout";
+	public final static int DEFAULT_QUEUE_CAPACITY = 256;
+	public final static int DEFAULT_KITCHEN_WORKERS = 2;
+	public final static int DEFAULT_DELIVERY_WORKERS = 2;
+	public final static int DEFAULT_BATCH_SIZE = 32;
+	public final static int DEFAULT_PREPARATION_TIME = 0;
+	public final static int DEFAULT_DELIVERY_TIME = 0;
+	public final static int DEFAULT_PUBLISH_TIMEOUT = 1000;
+	private final static long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+	private final Persistence persistence;
+	private final OpenOrderIndex index;
+	private final BlockingQueue<Ticket> kitchen;
+	private final BlockingQueue<Ticket> delivery;
+	private final BlockingQueue<Change> changes;
+	private final List<Thread> threads;
+	private final int batchSize;
+	private final long publishTimeout;
+	private final AtomicLong published;
+	private final AtomicLong rejected;
+	private final AtomicLong prepared;
+	private final AtomicLong delivered;
+	private final AtomicLong failures;
+	private final AtomicLong batches;
+	private final LatencyHistogram leadTime;
+	private final LatencyHistogram batchLatency;
+	private long minute;
+	private long minuteCount;
+	private long lastMinuteCount;
+	private long peakCount;
+	private long peakMinute;
+
+	/**
+	 * KitchenPipeline constructor. The workers are not started until {@link #start()} is called.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param index - The OpenOrderIndex to look up the open orders left by a previous run from.
+	 */
+	public KitchenPipeline(Persistence persistence, OpenOrderIndex index) {
+		int capacity = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_QUEUE_CAPACITY, Integer.toString(DEFAULT_QUEUE_CAPACITY)));
+
+		this.persistence = persistence;
+		this.index = index;
+		this.kitchen = new ArrayBlockingQueue<Ticket>(capacity);
+		this.delivery = new ArrayBlockingQueue<Ticket>(capacity);
+		this.changes = new LinkedBlockingQueue<Change>();
+		this.threads = new ArrayList<Thread>();
+		this.batchSize = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE)));
+		this.publishTimeout = Long.parseLong(persistence.getConfiguration().getProperty(KEY_PUBLISH_TIMEOUT, Integer.toString(DEFAULT_PUBLISH_TIMEOUT)));
+		this.published = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.prepared = new AtomicLong();
+		this.delivered = new AtomicLong();
+		this.failures = new AtomicLong();
+		this.batches = new AtomicLong();
+		this.leadTime = new LatencyHistogram();
+		this.batchLatency = new LatencyHistogram();
+	}
+
+	/**
+	 * Starts the workers and the writer, and publishes the open orders left by a previous run. Orders being prepared are
+	 * passed on to the delivery workers.
+	 * @throws Exception
+	 */
+	public synchronized void start() throws Exception {
+		if(threads.isEmpty()) {
+			int kitchenWorkers = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_KITCHEN_WORKERS, Integer.toString(DEFAULT_KITCHEN_WORKERS)));
+			int deliveryWorkers = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_DELIVERY_WORKERS, Integer.toString(DEFAULT_DELIVERY_WORKERS)));
+			long preparationTime = Long.parseLong(persistence.getConfiguration().getProperty(KEY_PREPARATION_TIME, Integer.toString(DEFAULT_PREPARATION_TIME)));
+			long deliveryTime = Long.parseLong(persistence.getConfiguration().getProperty(KEY_DELIVERY_TIME, Integer.toString(DEFAULT_DELIVERY_TIME)));
+
+			for(int i = 0; i < kitchenWorkers; i++)
+				threads.add(new Thread(new Worker(kitchen, delivery, OrderStatus.Confirmed, OrderStatus.Preparing, preparationTime), "kitchen-" + i));
+			for(int i = 0; i < deliveryWorkers; i++)
+				threads.add(new Thread(new Worker(delivery, null, OrderStatus.Preparing, OrderStatus.Delivered, deliveryTime), "delivery-" + i));
+			threads.add(new Thread(new Writer(), "kitchen-writer"));
+			for(Thread thread: threads) {
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			// Loop through the open orders in the order they were placed
+			LongList open = index.getOpenOrders();
+			for(int i = 0; i < open.size(); i++) {
+				ServiceOrder order = persistence.retrieveByID(open.get(i), ServiceOrder.class);
+				if(order != null && order.getStatus() == OrderStatus.Preparing)
+					delivery.put(new Ticket(order));
+				else if(order != null)
+					this.publish(order);
+			}
+		}
+	}
+
+	/**
+	 * Stops the workers and the writer. Orders that have not been taken from the queues, or whose status changes have not
+	 * been persisted yet, are left open on file and are published again on the next start.
+	 */
+	public synchronized void shutdown() {
+		for(Thread thread: threads)
+			thread.interrupt();
+		threads.clear();
+		kitchen.clear();
+		delivery.clear();
+	}
+
+	/**
+	 * Publishes a persisted {@link OrderStatus#Confirmed} service order to the kitchen queue, waiting up to
+	 * {@link #KEY_PUBLISH_TIMEOUT} milliseconds if the queue is full.
+	 * @param order
+	 * @return A flag indicating if the order was published, false if the kitchen queue stayed full or the calling thread was
+	 * interrupted. An order that was not published stays open and is published again on the next start.
+	 */
+	public boolean publish(ServiceOrder order) {
+		boolean flag;
+
+		try {
+			flag = kitchen.offer(new Ticket(order), publishTimeout, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			flag = false;
+		}
+
+		if(flag)
+			published.incrementAndGet();
+		else
+			rejected.incrementAndGet();
+
+		return flag;
+	}
+
+	/**
+	 * Registers this pipeline on the platform MBean server, replacing any MBean registered under the same name.
+	 * @param name - The object name to register under.
+	 * @throws JMException
+	 */
+	public void registerMBean(ObjectName name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if(server.isRegistered(name))
+			server.unregisterMBean(name);
+		server.registerMBean(this, name);
+	}
+
+	/**
+	 * Persists a batch of status changes, the orders being prepared by themselves and the orders delivered together with
+	 * the reservations whose folios they are charged to. An order whose reservation could not be written is taken back to
+	 * {@link OrderStatus#Preparing}, which reverses its charge, and is left open to be published again on the next start.
+	 * @param batch
+	 */
+	private void persist(List<Change> batch) {
+		long start = System.nanoTime();
+
+		List<ServiceOrder> orders = new ArrayList<ServiceOrder>();
+		List<Reservation> reservations = new ArrayList<Reservation>();
+		List<Change> deliveries = new ArrayList<Change>();
+		for(Change change: batch) {
+			if(change.status == OrderStatus.Preparing)
+				orders.add(change.ticket.order);
+			else {
+				deliveries.add(change);
+				if(!reservations.contains(change.ticket.order.getReservation()))
+					reservations.add(change.ticket.order.getReservation());
+			}
+		}
+
+		// Orders being prepared are written before those delivered, as an order may be both in the same batch
+		if(orders.size() > 0) {
+			try {
+				persistence.updateAll(orders, ServiceOrder.class);
+				prepared.addAndGet(orders.size());
+			} catch(Exception e) {
+				// Write the orders one at a time, so that only the stale orders fail
+				for(ServiceOrder order: orders) {
+					try {
+						persistence.update(order, ServiceOrder.class);
+						prepared.incrementAndGet();
+					} catch(Exception ex) {
+						failures.incrementAndGet();
+					}
+				}
+			}
+		}
+
+		if(reservations.size() > 0) {
+			List<Reservation> failed = new ArrayList<Reservation>();
+			try {
+				persistence.updateAll(reservations, Reservation.class);
+			} catch(Exception e) {
+				// Write the reservations one at a time, so that only the orders of stale reservations fail
+				for(Reservation reservation: reservations) {
+					try {
+						persistence.update(reservation, Reservation.class);
+					} catch(Exception ex) {
+						failed.add(reservation);
+					}
+				}
+			}
+
+			long now = System.nanoTime();
+			for(Change change: deliveries) {
+				ServiceOrder order = change.ticket.order;
+				if(failed.contains(order.getReservation())) {
+					// Orders changed since they were delivered, such as those cancelled, are left as they are
+					synchronized(order.getReservation()) {
+						if(order.getStatus() == OrderStatus.Delivered)
+							order.setStatus(OrderStatus.Preparing);
+					}
+					failures.incrementAndGet();
+				}
+				else {
+					delivered.incrementAndGet();
+					leadTime.record(now - change.ticket.published);
+					this.countDelivered(System.currentTimeMillis());
+				}
+			}
+		}
+
+		batches.incrementAndGet();
+		batchLatency.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Counts a delivery in the minute of the specified time, keeping the peak number of deliveries in a minute.
+	 * @param time - The time of the delivery, in milliseconds since the epoch.
+	 */
+	private synchronized void countDelivered(long time) {
+		long current = time - time % MINUTE;
+
+		if(current != minute) {
+			lastMinuteCount = current - minute == MINUTE? minuteCount: 0;
+			minute = current;
+			minuteCount = 0;
+		}
+		minuteCount++;
+
+		if(minuteCount > peakCount) {
+			peakCount = minuteCount;
+			peakMinute = minute;
+		}
+	}
+
+	@Override
+	public long getPublished() {
+		return published.get();
+	}
+
+	@Override
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	@Override
+	public long getPrepared() {
+		return prepared.get();
+	}
+
+	@Override
+	public long getDelivered() {
+		return delivered.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public long getBatches() {
+		return batches.get();
+	}
+
+	@Override
+	public int getKitchenQueueDepth() {
+		return kitchen.size();
+	}
+
+	@Override
+	public int getDeliveryQueueDepth() {
+		return delivery.size();
+	}
+
+	@Override
+	public synchronized long getDeliveredLastMinute() {
+		long current = System.currentTimeMillis();
+		current -= current % MINUTE;
+
+		return current == minute? lastMinuteCount: current - minute == MINUTE? minuteCount: 0;
+	}
+
+	@Override
+	public synchronized long getPeakDeliveredPerMinute() {
+		return peakCount;
+	}
+
+	@Override
+	public synchronized long getPeakMinute() {
+		return peakMinute;
+	}
+
+	@Override
+	public double getMeanLeadTimeMillis() {
+		return leadTime.getMean() / 1000000;
+	}
+
+	@Override
+	public double getP99LeadTimeMillis() {
+		return leadTime.getValueAtPercentile(99) / 1000000.0;
+	}
+
+	@Override
+	public double getMaxLeadTimeMillis() {
+		return leadTime.getMax() / 1000000.0;
+	}
+
+	@Override
+	public double getMeanBatchMicros() {
+		return batchLatency.getMean() / 1000;
+	}
+
+	/**
+	 * Ticket is a service order travelling through the pipeline, together with the time it was published.
+	 * @author YingHao
+	 */
+	private static class Ticket {
+		private final ServiceOrder order;
+		private final long published;
+
+		/**
+		 * Ticket constructor.
+		 * @param order
+		 */
+		public Ticket(ServiceOrder order) {
+			this.order = order;
+			this.published = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Change is a status of a service order to be persisted.
+	 * @author YingHao
+	 */
+	private static class Change {
+		private final Ticket ticket;
+		private final OrderStatus status;
+
+		/**
+		 * Change constructor.
+		 * @param ticket
+		 * @param status - The status the order was advanced to.
+		 */
+		public Change(Ticket ticket, OrderStatus status) {
+			this.ticket = ticket;
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Worker takes the orders from a queue, advances them from one status to the next and passes them on to the next
+	 * queue, if any, handing the changes to the writer.
+	 * @author YingHao
+	 */
+	private class Worker implements Runnable {
+		private final BlockingQueue<Ticket> from;
+		private final BlockingQueue<Ticket> to;
+		private final OrderStatus current;
+		private final OrderStatus next;
+		private final long time;
+
+		/**
+		 * Worker constructor.
+		 * @param from - The queue to take the orders from.
+		 * @param to - The queue to pass the orders on to. Null if this is the last stage.
+		 * @param current - The status of the orders taken.
+		 * @param next - The status to advance the orders to.
+		 * @param time - The time taken to advance an order, in milliseconds.
+		 */
+		public Worker(BlockingQueue<Ticket> from, BlockingQueue<Ticket> to, OrderStatus current, OrderStatus next, long time) {
+			this.from = from;
+			this.to = to;
+			this.current = current;
+			this.next = next;
+			this.time = time;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(!Thread.currentThread().isInterrupted()) {
+					Ticket ticket = from.take();
+					if(time > 0)
+						Thread.sleep(time);
+
+					// The folio of the reservation is charged on delivery, hence the reservation is guarded while it changes
+					boolean advanced = false;
+					synchronized(ticket.order.getReservation()) {
+						if(ticket.order.getStatus() == current) {
+							ticket.order.setStatus(next);
+							advanced = true;
+						}
+					}
+
+					if(advanced) {
+						changes.put(new Change(ticket, next));
+						if(to != null)
+							to.put(ticket);
+					}
+				}
+			} catch(InterruptedException e) {
+				// Shut down
+			}
+		}
+	}
+
+	/**
+	 * Writer takes the status changes in batches of at most {@link KitchenPipeline#KEY_BATCH_SIZE} and persists them.
+	 * @author YingHao
+	 */
+	private class Writer implements Runnable {
+
+		@Override
+		public void run() {
+			try {
+				List<Change> batch = new ArrayList<Change>();
+				while(!Thread.currentThread().isInterrupted()) {
+					batch.add(changes.take());
+					changes.drainTo(batch, batchSize - 1);
+
+					persist(batch);
+					batch.clear();
+				}
+			} catch(InterruptedException e) {
+				// Shut down
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package controller.hss;
+
+/**
+ * KitchenPipelineMXBean is the management interface through which the metrics of a {@link KitchenPipeline} are exposed
+ * on the platform MBean server, e.g. for inspection with JConsole or VisualVM.
+ * @author YingHao
+ */
+public interface KitchenPipelineMXBean {
+
+	/**
+	 * Gets the number of service orders published to the pipeline.
+	 * @return published
+	 */
+	public long getPublished();
+
+	/**
+	 * Gets the number of service orders that could not be published as the kitchen queue stayed full.
+	 * @return rejected
+	 */
+	public long getRejected();
+
+	/**
+	 * Gets the number of service orders whose preparation has been persisted.
+	 * @return prepared
+	 */
+	public long getPrepared();
+
+	/**
+	 * Gets the number of service orders whose delivery has been persisted.
+	 * @return delivered
+	 */
+	public long getDelivered();
+
+	/**
+	 * Gets the number of status changes that could not be persisted.
+	 * @return failures
+	 */
+	public long getFailures();
+
+	/**
+	 * Gets the number of batches of status changes persisted.
+	 * @return batches
+	 */
+	public long getBatches();
+
+	/**
+	 * Gets the number of service orders waiting to be prepared.
+	 * @return count
+	 */
+	public int getKitchenQueueDepth();
+
+	/**
+	 * Gets the number of service orders waiting to be delivered.
+	 * @return count
+	 */
+	public int getDeliveryQueueDepth();
+
+	/**
+	 * Gets the number of service orders delivered in the last complete minute.
+	 * @return count
+	 */
+	public long getDeliveredLastMinute();
+
+	/**
+	 * Gets the highest number of service orders delivered in a minute, which is reached at peak meal times.
+	 * @return count
+	 */
+	public long getPeakDeliveredPerMinute();
+
+	/**
+	 * Gets the time of the minute in which the most service orders were delivered, in milliseconds since the epoch. 0 if
+	 * no service order has been delivered.
+	 * @return time
+	 */
+	public long getPeakMinute();
+
+	/**
+	 * Gets the mean time from publishing a service order until its delivery is persisted, in milliseconds.
+	 * @return duration
+	 */
+	public double getMeanLeadTimeMillis();
+
+	/**
+	 * Gets the 99th percentile of the time from publishing a service order until its delivery is persisted, in
+	 * milliseconds.
+	 * @return duration
+	 */
+	public double getP99LeadTimeMillis();
+
+	/**
+	 * Gets the longest time from publishing a service order until its delivery is persisted, in milliseconds.
+	 * @return duration
+	 */
+	public double getMaxLeadTimeMillis();
+
+	/**
+	 * Gets the mean duration of persisting a batch of status changes in microseconds.
+	 * @return duration
+	 */
+	public double getMeanBatchMicros();
+
+}
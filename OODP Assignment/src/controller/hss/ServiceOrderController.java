@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import controller.EntityController;
+import index.OpenOrderIndex;
 import model.reservation.Reservation;
 import model.reservation.ReservationStatus;
 import model.service.fnb.MenuItem;
@@ -15,22 +16,31 @@ import model.service.fnb.ServiceOrder;
 import persistence.EntityIterator;
 import persistence.Persistence;
 import persistence.Predicate;
+import persistence.collection.LongList;
 import view.Options;
 import view.View;
 
 public class ServiceOrderController extends EntityController<ServiceOrder> {
-	private final static String KEY_ID = "order id";
-	private final static String KEY_ROOM = "room number";
-	private final static String KEY_REMARKS = "remarks";
+	public final static String KEY_ID = "order id";
+	public final static String KEY_ROOM = "room number";
+	public final static String KEY_REMARKS = "remarks";
 	private EntityController<MenuItem> miController = null;
+	private final OpenOrderIndex index;
+	private final KitchenPipeline pipeline;
 	
 	/**
 	 * ServiceOrder Constructor
 	 * @param persistence
+	 * @param miController
+	 * @param index - The OpenOrderIndex to look up the service orders to be delivered from.
+	 * @param pipeline - The KitchenPipeline to publish the service orders placed to. Can be null, in which case the status
+	 * of the orders is only updated from the menu.
 	 */
-	public ServiceOrderController(Persistence persistence, EntityController<MenuItem> miController) {
+	public ServiceOrderController(Persistence persistence, EntityController<MenuItem> miController, OpenOrderIndex index, KitchenPipeline pipeline) {
 		super(persistence);
 		this.miController = miController;
+		this.index = index;
+		this.pipeline = pipeline;
 	}
 
 	@Override
@@ -100,7 +110,7 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 				
 				if (reservation != null) {
 					Options option = Options.No;
-					int items = 0;
+					List<ServiceOrder> placed = new ArrayList<ServiceOrder>();
 					do {
 						MenuItem item = miController.select(view);
 						if (item != null) {
@@ -112,16 +122,24 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 							svcOrder.setStatus(OrderStatus.Confirmed);
 							svcOrder.setRemarks(inputMap.get(KEY_REMARKS));
 							reservation.getOrderList().add(svcOrder);
-							items++;
+							placed.add(svcOrder);
 						}
 						
 						view.message("Do you want to add more items?");
 						option = view.options(Arrays.asList(Options.Yes, Options.No));
 					} while(option == Options.Yes);
 					
-					if (items > 0) {
+					if (placed.size() > 0) {
 						if (persistence.update(reservation, Reservation.class)) {
+							// The orders are persisted, hence they can be taken up by the kitchen
+							int rejected = 0;
+							if (pipeline != null)
+								for (ServiceOrder svcOrder: placed)
+									if (!pipeline.publish(svcOrder))
+										rejected++;
 							view.message("Ordered has been placed, it will be delivered to your room!");
+							if (rejected > 0)
+								view.message(rejected + " order(s) could not be sent to the kitchen as it is at capacity. They remain confirmed and are sent when the kitchen is restarted, or can be cancelled.");
 							valid = true;
 						}
 					}
@@ -133,7 +151,7 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 	}
 
 	/**
-	 * Retrieves and display all Service Order that isn't cancelled or delivered.
+	 * Retrieves and display all Service Order that isn't cancelled or delivered, in the order they were placed.
 	 */
 	@Override
 	protected boolean retrieve(View view) throws Exception {
@@ -141,17 +159,13 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 		
 		List entityList = new ArrayList();
 		
-		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
-			@Override
-			public boolean test(Reservation item) {
-				return item.getStatus() == ReservationStatus.CheckedIn;
-			}
-		}, Reservation.class, true);
-		
-		for (Reservation entity: reservations)
-			for (ServiceOrder item: entity.getOrderList())
-				if (item.getStatus() != OrderStatus.Cancelled && item.getStatus() != OrderStatus.Delivered)
-					entityList.add(item);
+		// Loop through the open orders only, each is retrieved through the primary index
+		LongList orders = index.getOpenOrders();
+		for (int i = 0; i < orders.size(); i++) {
+			ServiceOrder item = persistence.retrieveByID(orders.get(i), ServiceOrder.class);
+			if (item != null && item.getReservation() != null && item.getReservation().getStatus() == ReservationStatus.CheckedIn)
+				entityList.add(item);
+		}
 		
 		view.display(entityList);
 		
@@ -169,7 +183,28 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 	@Override
 	protected void delete(View view) throws Exception {
 		ServiceOrder so = select(view);
-		so.setStatus(OrderStatus.Cancelled);
+		
+		if (so != null) {
+			Persistence persistence = this.getPersistenceImpl();
+			
+			// The status is changed under the reservation, as the kitchen workers do, so that an order cancelled while it is
+			// being delivered is either reversed from the folio or skipped by the workers
+			boolean delivered;
+			synchronized (so.getReservation()) {
+				delivered = so.getStatus() == OrderStatus.Delivered;
+				so.setStatus(OrderStatus.Cancelled);
+			}
+			
+			// A charge reversed from the folio is written together with the reservation
+			boolean success;
+			if(delivered)
+				success = persistence.update(so.getReservation(), Reservation.class);
+			else
+				success = persistence.update(so, ServiceOrder.class);
+			
+			if(success)
+				view.message("Service order has been cancelled successfully!");
+		}
 	}
 	
 	/**
@@ -181,9 +216,23 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 		if (so != null) {
 			Persistence persistence = this.getPersistenceImpl();
 			
-			so.setStatus(view.options(Arrays.asList(OrderStatus.values())));
+			OrderStatus status = view.options(Arrays.asList(OrderStatus.values()));
 			
-			if(persistence.update(so, ServiceOrder.class))
+			// The status is read and changed under the reservation, as the kitchen workers do
+			boolean delivered;
+			synchronized (so.getReservation()) {
+				delivered = so.getStatus() == OrderStatus.Delivered;
+				so.setStatus(status);
+			}
+			
+			// A charge posted to or reversed from the folio is written together with the reservation
+			boolean success;
+			if(delivered || so.getStatus() == OrderStatus.Delivered)
+				success = persistence.update(so.getReservation(), Reservation.class);
+			else
+				success = persistence.update(so, ServiceOrder.class);
+			
+			if(success)
 				view.message("Service order status has been updated successfully!");
 		}
 	}
@@ -204,17 +253,14 @@ public class ServiceOrderController extends EntityController<ServiceOrder> {
 		do {
 			view.input(inputMap);
 			
-			EntityIterator<ServiceOrder> serviceorders = (EntityIterator<ServiceOrder>) persistence.search(new Predicate<ServiceOrder>() {
-				@Override
-				public boolean test(ServiceOrder item) {
-					return item.getIdentifier() == Long.parseLong(inputMap.get(KEY_ID));
-				}
-			}, ServiceOrder.class, false).iterator();
-			if(serviceorders.hasNext())
-				so = serviceorders.next();
-			else
+			// The identifier is parsed once and looked up through the primary index
+			try {
+				so = persistence.retrieveByID(Long.parseLong(inputMap.get(KEY_ID)), ServiceOrder.class);
+			} catch(NumberFormatException e) {
+				so = null;
+			}
+			if(so == null)
 				view.message("Service order does not exist. Please try again.\n");
-			serviceorders.close();
 		} while(so == null && !view.bailout());
 		
 		return so;
@@ -7,10 +7,9 @@ import java.util.List;
 import java.util.Map;
 
 import controller.EntityController;
+import index.Catalog;
 import model.service.fnb.MenuItem;
-import persistence.Entity;
 import persistence.Persistence;
-import persistence.Predicate;
 import view.View;
 
 /**
@@ -22,13 +21,16 @@ public class MenuItemController extends EntityController<MenuItem> {
 	public final static String KEY_PRICE = "price";
 	public final static String KEY_DESCRIPTION = "description";
 	public final static String KEY_ID = "ID of menu item";
+	private final Catalog catalog;
 	
 	/**
 	 * MenuItemController constructor.
 	 * @param persistence
+	 * @param catalog - The Catalog to look up menu items from.
 	 */
-	public MenuItemController(Persistence persistence) {
+	public MenuItemController(Persistence persistence, Catalog catalog) {
 		super(persistence);
+		this.catalog = catalog;
 	}
 	
 	@Override
@@ -59,16 +61,11 @@ public class MenuItemController extends EntityController<MenuItem> {
 				item.setDescription(inputMap.get(KEY_DESCRIPTION));
 				
 				// Search through the list ensuring there are no duplicate entries
-				long count = persistence.getCount(new Predicate<MenuItem>() {
-
-								@Override
-								public boolean test(MenuItem item) {
-									return item.getName().equals(inputMap.get(KEY_NAME));
-								}
-					
-							}, MenuItem.class, false);
+				boolean exists = false;
+				for(MenuItem other: catalog.getAll(MenuItem.class))
+					exists |= other.getName().equals(inputMap.get(KEY_NAME));
 				
-				if(count > 0) {
+				if(exists) {
 					view.message("The specified item name already exists, please update it instead");
 					valid = true;
 				}
@@ -89,13 +86,8 @@ public class MenuItemController extends EntityController<MenuItem> {
 	 */
 	@Override
 	protected boolean retrieve(View view) throws Exception {
-		Persistence persistence = this.getPersistenceImpl();
-		
 		// Store the menu items in an array list
-		List entityList = new ArrayList();
-		Iterable<MenuItem> items = persistence.search(null, MenuItem.class, false);
-		for(Entity entity: items)
-			entityList.add(entity);
+		List<MenuItem> entityList = new ArrayList<MenuItem>(catalog.getAll(MenuItem.class));
 		
 		// Call view display method for list of items
 		view.display(entityList);
@@ -161,12 +153,11 @@ public class MenuItemController extends EntityController<MenuItem> {
 		Map<String, String> inputMap = new LinkedHashMap<String, String>();
 		inputMap.put(KEY_ID, null);
 
-		Persistence persistence = this.getPersistenceImpl();
 		do {
 			view.input(inputMap);
 			
 			try {
-				item = persistence.retrieveByID(Long.parseLong(inputMap.get(KEY_ID)), MenuItem.class);
+				item = catalog.get(MenuItem.class, Long.parseLong(inputMap.get(KEY_ID)));
 				if(item == null)
 					view.error(Arrays.asList(KEY_ID));
 			} catch(NumberFormatException e) {
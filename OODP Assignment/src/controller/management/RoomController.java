@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import controller.EntityController;
+import index.RoomHistoryIndex;
 import model.reservation.Reservation;
 import model.reservation.ReservationStatus;
 import model.room.BedType;
@@ -31,15 +32,18 @@ public class RoomController extends EntityController<Room> {
 	private final static String KEY_SMOKING = "room smoking";
 	public final static String KEY_STATUS = "room status";
 	private EntityController<RoomType> rtController = null;
+	private final RoomHistoryIndex history;
 	
 	/**
 	 * RoomController constructor
 	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
 	 * @param rtController - The RoomType EntityController to allow RoomController to interact with for information sharing.
+	 * @param history - The RoomHistoryIndex to look up the reservations that stayed in a room from.
 	 */
-	public RoomController(Persistence persistence, EntityController<RoomType> rtController) {
+	public RoomController(Persistence persistence, EntityController<RoomType> rtController, RoomHistoryIndex history) {
 		super(persistence);
 		this.rtController = rtController;
+		this.history = history;
 	}
 	
 	@Override
@@ -54,7 +58,8 @@ public class RoomController extends EntityController<Room> {
 					"Retrieve/Search " + this.getEntityName().toLowerCase(),
 					"Update " + this.getEntityName().toLowerCase(),
 					"Update " + this.getEntityName().toLowerCase() + " status",
-					"Delete " + this.getEntityName().toLowerCase()
+					"Delete " + this.getEntityName().toLowerCase(),
+					"View " + this.getEntityName().toLowerCase() + " reservation history"
 				);
 	}
 
@@ -76,6 +81,9 @@ public class RoomController extends EntityController<Room> {
 		case 4:
 			delete(view);
 			break;
+		case 5:
+			viewHistory(view);
+			break;
 		}
 	}
 	
@@ -223,6 +231,21 @@ public class RoomController extends EntityController<Room> {
 			view.message("Room deleted successfully!");
 	}
 
+	/**
+	 * Prompts the user to select a Room and displays the reservations that were assigned to it.
+	 */
+	private void viewHistory(View view) throws Exception {
+		Room room = select(view);
+		
+		if(room != null) {
+			List<Reservation> reservations = history.getHistory(room);
+			if(reservations.size() > 0)
+				view.display(reservations);
+			else
+				view.message("Room has no reservation history.");
+		}
+	}
+
 	/**
 	 * Prompts the user to select a Room.
 	 */
@@ -7,11 +7,9 @@ import java.util.List;
 import java.util.Map;
 
 import controller.EntityController;
+import index.Catalog;
 import model.room.RoomType;
-import persistence.Entity;
-import persistence.EntityIterator;
 import persistence.Persistence;
-import persistence.Predicate;
 import view.View;
 
 /**
@@ -21,13 +19,16 @@ import view.View;
 public class RoomTypeController extends EntityController<RoomType> {
 	private final static String KEY_NAME = "room type name";
 	private final static String KEY_PRICE = "room price";
+	private final Catalog catalog;
 
 	/**
 	 * RoomTypeController constructor
 	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param catalog - The Catalog to look up room types from.
 	 */
-	public RoomTypeController(Persistence persistence) {
+	public RoomTypeController(Persistence persistence, Catalog catalog) {
 		super(persistence);
+		this.catalog = catalog;
 	}
 	
 	@Override
@@ -54,14 +55,7 @@ public class RoomTypeController extends EntityController<RoomType> {
 				RoomType roomType =  new RoomType(inputMap.get(KEY_NAME));
 				roomType.setPrice(Double.parseDouble(inputMap.get(KEY_PRICE)));
 				
-				long count = persistence.getCount(new Predicate<RoomType>() {
-					@Override
-					public boolean test(RoomType item) {
-						return item.getName().toUpperCase().equals(inputMap.get(KEY_NAME).toUpperCase());
-					}
-				}, RoomType.class, false);
-	
-				if (count > 0) {
+				if (find(inputMap.get(KEY_NAME)) != null) {
 					view.message("Room Type already exists, please update it instead.");
 					valid = true;
 				}
@@ -84,12 +78,7 @@ public class RoomTypeController extends EntityController<RoomType> {
 	 */
 	@Override
 	protected boolean retrieve(View view) throws Exception {
-		Persistence persistence = this.getPersistenceImpl();
-		
-		List entityList = new ArrayList();
-		Iterable<RoomType> roomTypes = persistence.search(null, RoomType.class, false);
-		for(Entity entity: roomTypes)
-			entityList.add(entity);
+		List<RoomType> entityList = new ArrayList<RoomType>(catalog.getAll(RoomType.class));
 		
 		view.display(entityList);
 		
@@ -150,23 +139,31 @@ public class RoomTypeController extends EntityController<RoomType> {
 		Map<String, String> inputMap = new LinkedHashMap<String, String>();
 		inputMap.put(KEY_NAME, null);
 
-		Persistence persistence = this.getPersistenceImpl();
 		do {
 			view.input(inputMap);
 			
-			EntityIterator<RoomType> roomTypes = (EntityIterator<RoomType>) persistence.search(new Predicate<RoomType>() {
-				@Override
-				public boolean test(RoomType item) {
-					return item.getName().toUpperCase().equals(inputMap.get(KEY_NAME).toUpperCase());
-				}
-			}, RoomType.class, false).iterator();
-			if(roomTypes.hasNext())
-				roomType = roomTypes.next();
-			else
+			roomType = find(inputMap.get(KEY_NAME));
+			if(roomType == null)
 				view.message("Room Type does not exist. Please try again.\n");
-			roomTypes.close();
 		} while(roomType == null && !view.bailout());
 		
 		return roomType;
 	}
+	
+	/**
+	 * Finds the RoomType with the specified name, ignoring case.
+	 * @param name
+	 * @return roomType, or null if there is no room type with the name.
+	 */
+	private RoomType find(String name) {
+		RoomType roomType = null;
+		for(RoomType item: catalog.getAll(RoomType.class)) {
+			if(item.getName().toUpperCase().equals(name.toUpperCase())) {
+				roomType = item;
+				break;
+			}
+		}
+		
+		return roomType;
+	}
 }
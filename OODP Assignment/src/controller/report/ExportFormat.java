@@ -0,0 +1,124 @@
+package controller.report;
+
+/**
+ * ExportFormat enumerates the file formats a report can be exported to, and formats the rows of a report written by a
+ * {@link ReportWriter}. Values are either null, a {@link Number}, a {@link Boolean} or a string.
+ * @author YingHao
+ */
+public enum ExportFormat {
+	CSV("csv") {
+		
+		@Override
+		public void appendHeader(StringBuilder builder, String[] columns) {
+			this.appendRow(builder, columns, columns);
+		}
+		
+		@Override
+		public void appendRow(StringBuilder builder, String[] columns, Object[] values) {
+			for(int i = 0; i < values.length; i++) {
+				if(i > 0)
+					builder.append(',');
+				
+				Object value = values[i];
+				if(value instanceof String) {
+					String text = (String) value;
+					// Values holding a delimiter, quote or line break are quoted, doubling the quotes they hold
+					if(text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0)
+						builder.append('"').append(text.replace("\"", "\"\"")).append('"');
+					else
+						builder.append(text);
+				}
+				else if(value != null) {
+					builder.append(value);
+				}
+			}
+			builder.append("\r\n");
+		}
+	
+	},
+	JSONLines("jsonl") {
+		
+		@Override
+		public void appendHeader(StringBuilder builder, String[] columns) {
+			// Every line is a self describing object, hence there is no header
+		}
+		
+		@Override
+		public void appendRow(StringBuilder builder, String[] columns, Object[] values) {
+			builder.append('{');
+			for(int i = 0; i < values.length; i++) {
+				if(i > 0)
+					builder.append(',');
+				this.appendString(builder, columns[i]);
+				builder.append(':');
+				
+				Object value = values[i];
+				if(value instanceof String)
+					this.appendString(builder, (String) value);
+				else
+					builder.append(value);
+			}
+			builder.append("}\n");
+		}
+		
+		/**
+		 * Appends the specified text as a JSON string.
+		 * @param builder
+		 * @param text
+		 */
+		private void appendString(StringBuilder builder, String text) {
+			builder.append('"');
+			for(int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if(c == '"' || c == '\\')
+					builder.append('\\').append(c);
+				else if(c == '\n')
+					builder.append("\\n");
+				else if(c == '\r')
+					builder.append("\\r");
+				else if(c == '\t')
+					builder.append("\\t");
+				else if(c < 0x20)
+					builder.append(String.format("\\u%04x", (int) c));
+				else
+					builder.append(c);
+			}
+			builder.append('"');
+		}
+	
+	};
+	
+	private final String extension;
+	
+	/**
+	 * ExportFormat constructor.
+	 * @param extension - The file name extension of the format.
+	 */
+	private ExportFormat(String extension) {
+		this.extension = extension;
+	}
+	
+	/**
+	 * Gets the file name extension of this format, without the dot.
+	 * @return extension
+	 */
+	public String getExtension() {
+		return extension;
+	}
+	
+	/**
+	 * Appends the header of a report, if this format has one.
+	 * @param builder - The builder to append to.
+	 * @param columns - The names of the columns.
+	 */
+	public abstract void appendHeader(StringBuilder builder, String[] columns);
+	
+	/**
+	 * Appends a row of a report, including its line separator.
+	 * @param builder - The builder to append to.
+	 * @param columns - The names of the columns.
+	 * @param values - The values of the row, one per column.
+	 */
+	public abstract void appendRow(StringBuilder builder, String[] columns, Object[] values);
+
+}
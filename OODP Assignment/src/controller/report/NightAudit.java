@@ -0,0 +1,558 @@
+package controller.report;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import controller.hrs.ExpirySweeper;
+import controller.hrs.ReservationArchiver;
+import index.OccupancyCube;
+import index.RoomAttributeIndex;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import persistence.Persistence;
+import persistence.Predicate;
+import persistence.StaleEntityException;
+
+/**
+ * NightAudit is the end of day batch job closing a business day. It runs a list of {@link Stage} instances, each of which
+ * may depend on stages added before it, on a pool of {@link #KEY_THREADS} threads, so that stages that do not depend on one
+ * another run in parallel. The stages are:
+ * <ul>
+ * <li>{@link #STAGE_EXPIRE} expires the no-shows through the {@link ExpirySweeper}.</li>
+ * <li>{@link #STAGE_POST_NIGHTS} posts the night of the day to the folio of every checked in reservation.</li>
+ * <li>{@link #STAGE_SNAPSHOT_ROOMS} writes the status of every room to a CSV file.</li>
+ * <li>{@link #STAGE_ROLL_OCCUPANCY} writes the occupancy of the day from the {@link OccupancyCube} to a CSV file, once the
+ * no-shows are expired.</li>
+ * <li>{@link #STAGE_ARCHIVE} archives the closed reservations through the {@link ReservationArchiver}, once the no-shows are
+ * expired.</li>
+ * </ul>
+ * Every stage completed is recorded to a checkpoint file of the day in the {@link #KEY_DIRECTORY} directory, and a run for a
+ * day that was interrupted, failed or timed out resumes with the stages that were not completed. Stages are idempotent, so
+ * a stage interrupted after its work was written is safe to run again. A run waits for at most {@link #KEY_TIMEOUT} minutes.
+ * @author YingHao
+ */
+public class NightAudit {
+	public final static String KEY_DIRECTORY = "night-audit-directory";
+	public final static String KEY_THREADS = "night-audit-threads";
+	public final static String KEY_TIMEOUT = "night-audit-timeout";
+	public final static String KEY_BATCH_SIZE = "night-audit-batch-size";
+	public final static String DEFAULT_DIRECTORY = "audit";
+	public final static int DEFAULT_THREADS = 4;
+	public final static int DEFAULT_TIMEOUT = 30;
+	public final static int DEFAULT_BATCH_SIZE = 100;
+	public final static String STAGE_EXPIRE = "expire-no-shows";
+	public final static String STAGE_POST_NIGHTS = "post-room-nights";
+	public final static String STAGE_SNAPSHOT_ROOMS = "snapshot-room-status";
+	public final static String STAGE_ROLL_OCCUPANCY = "roll-occupancy";
+	public final static String STAGE_ARCHIVE = "archive-closed-reservations";
+	private final Persistence persistence;
+	private final ReportExporter exporter;
+	private final Map<String, Stage> stages;
+	private final SimpleDateFormat sdf;
+	
+	/**
+	 * NightAudit constructor.
+	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param index - The RoomAttributeIndex to count rooms from.
+	 * @param cube - The OccupancyCube to roll the occupancy of the day from.
+	 * @param sweeper - The ExpirySweeper to expire no-shows with.
+	 * @param archiver - The ReservationArchiver to archive closed reservations with.
+	 */
+	public NightAudit(Persistence persistence, RoomAttributeIndex index, OccupancyCube cube, ExpirySweeper sweeper, ReservationArchiver archiver) {
+		this.persistence = persistence;
+		this.exporter = new ReportExporter(persistence, index, cube);
+		this.stages = new LinkedHashMap<String, Stage>();
+		this.sdf = new SimpleDateFormat(ReportWriter.DATE_FORMAT);
+		
+		this.addStage(new Stage(STAGE_EXPIRE) {
+			
+			@Override
+			public long run(Date day) throws Exception {
+				return sweeper.sweep();
+			}
+		
+		});
+		this.addStage(new Stage(STAGE_POST_NIGHTS) {
+			
+			@Override
+			public long run(Date day) throws Exception {
+				return postNights(day);
+			}
+		
+		});
+		this.addStage(new Stage(STAGE_SNAPSHOT_ROOMS) {
+			
+			@Override
+			public long run(Date day) throws Exception {
+				return snapshotRooms(day);
+			}
+		
+		});
+		this.addStage(new Stage(STAGE_ROLL_OCCUPANCY, STAGE_EXPIRE) {
+			
+			@Override
+			public long run(Date day) throws Exception {
+				return exporter.exportOccupancy(day, day, ExportFormat.CSV, getFile(day, "occupancy-", ".csv"));
+			}
+		
+		});
+		this.addStage(new Stage(STAGE_ARCHIVE, STAGE_EXPIRE) {
+			
+			@Override
+			public long run(Date day) throws Exception {
+				return archiver.archive();
+			}
+		
+		});
+	}
+	
+	/**
+	 * Adds a stage to run after the stages added before it. The dependencies of the stage must have been added.
+	 * @param stage
+	 */
+	public synchronized void addStage(Stage stage) {
+		if(stages.containsKey(stage.getName()))
+			throw new IllegalArgumentException("A stage named " + stage.getName() + " has already been added.");
+		for(String dependency: stage.getDependencies())
+			if(!stages.containsKey(dependency))
+				throw new IllegalArgumentException("The stage " + dependency + " must be added before " + stage.getName() + ".");
+		
+		stages.put(stage.getName(), stage);
+	}
+	
+	/**
+	 * Gets the names of the stages, in the order they were added.
+	 * @return names
+	 */
+	public synchronized List<String> getStageNames() {
+		return new ArrayList<String>(stages.keySet());
+	}
+	
+	/**
+	 * Runs the night audit for the specified day, skipping the stages completed by a previous run for the same day.
+	 * @param day - The business day to close.
+	 * @return The results of the stages, in the order they were added.
+	 * @throws Exception
+	 */
+	public synchronized List<StageResult> run(Date day) throws Exception {
+		File directory = new File(persistence.getConfiguration().getProperty(KEY_DIRECTORY, DEFAULT_DIRECTORY));
+		directory.mkdirs();
+		int threads = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_THREADS, Integer.toString(DEFAULT_THREADS)));
+		long timeout = Long.parseLong(persistence.getConfiguration().getProperty(KEY_TIMEOUT, Integer.toString(DEFAULT_TIMEOUT)));
+		
+		Checkpoint checkpoint = new Checkpoint(this.getFile(day, "night-audit-", ".checkpoint"));
+		Map<String, StageResult> results = new LinkedHashMap<String, StageResult>();
+		Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<String, CompletableFuture<Boolean>>();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			// Loop through the stages to start each of them once all its dependencies are done
+			for(Stage stage: stages.values()) {
+				StageResult result = new StageResult(stage.getName());
+				results.put(stage.getName(), result);
+				
+				List<CompletableFuture<Boolean>> dependencies = new ArrayList<CompletableFuture<Boolean>>();
+				for(String dependency: stage.getDependencies())
+					dependencies.add(futures.get(dependency));
+				
+				CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+				futures.put(stage.getName(), future);
+				CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()])).thenRunAsync(new Runnable() {
+					
+					@Override
+					public void run() {
+						future.complete(execute(stage, day, dependencies, checkpoint, result));
+					}
+				
+				}, executor);
+			}
+			
+			try {
+				CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).get(timeout, TimeUnit.MINUTES);
+			} catch(TimeoutException e) {
+				// Stages still running are left out of the checkpoint, hence they are run again by the next run for the day
+				for(StageResult result: results.values())
+					result.timeOut();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		return new ArrayList<StageResult>(results.values());
+	}
+	
+	/**
+	 * Runs a stage, unless it was completed by a previous run or a dependency did not succeed, and records its result.
+	 * @param stage
+	 * @param day - The business day to close.
+	 * @param dependencies - The futures of the dependencies of the stage.
+	 * @param checkpoint - The checkpoint of the day.
+	 * @param result - The result to record to.
+	 * @return A flag indicating if the stage is done.
+	 */
+	private boolean execute(Stage stage, Date day, List<CompletableFuture<Boolean>> dependencies, Checkpoint checkpoint, StageResult result) {
+		boolean done = false;
+		
+		boolean ready = true;
+		for(CompletableFuture<Boolean> dependency: dependencies)
+			ready = ready && dependency.join();
+		
+		long start = System.nanoTime();
+		try {
+			if(!ready) {
+				result.finish(StageStatus.Skipped, 0, 0, null);
+			}
+			else if(checkpoint.isCompleted(stage.getName())) {
+				result.finish(StageStatus.Resumed, checkpoint.getCount(stage.getName()), 0, null);
+				done = true;
+			}
+			else {
+				long count = stage.run(day);
+				checkpoint.complete(stage.getName(), count);
+				result.finish(StageStatus.Completed, count, System.nanoTime() - start, null);
+				done = true;
+			}
+		} catch(Exception e) {
+			result.finish(StageStatus.Failed, 0, System.nanoTime() - start, e);
+		}
+		
+		return done;
+	}
+	
+	/**
+	 * Posts the night of the specified day to the folio of every checked in reservation, up to its end date.
+	 * @param day - The business day to close.
+	 * @return The number of reservations posted to.
+	 * @throws Exception
+	 */
+	private long postNights(Date day) throws Exception {
+		long count = 0;
+		Date tomorrow = new Date(day.getTime() + TimeUnit.DAYS.toMillis(1));
+		
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+			
+			@Override
+			public boolean test(Reservation item) {
+				return item.getStatus() == ReservationStatus.CheckedIn;
+			}
+		
+		}, Reservation.class, false);
+		
+		List<Reservation> list = new ArrayList<Reservation>();
+		// Stores into temporary list as we can read from file and update at the same time
+		for(Reservation reservation: reservations)
+			list.add(reservation);
+		
+		int batchSize = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE)));
+		List<Reservation> batch = new ArrayList<Reservation>();
+		for(int i = 0; i < list.size(); i++) {
+			if(post(list.get(i), tomorrow))
+				batch.add(list.get(i));
+			
+			if(batch.size() == batchSize || (i == list.size() - 1 && batch.size() > 0)) {
+				try {
+					count += persistence.updateAll(batch, Reservation.class);
+				} catch(StaleEntityException e) {
+					// A reservation of the batch was written concurrently, post to fresh copies one at a time instead
+					for(Reservation reservation: batch) {
+						Reservation fresh = persistence.retrieveByID(reservation.getIdentifier(), Reservation.class);
+						if(fresh != null && fresh.getStatus() == ReservationStatus.CheckedIn && post(fresh, tomorrow) && 
+								persistence.update(fresh, Reservation.class))
+							count++;
+					}
+				}
+				batch.clear();
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Posts the nights of the specified reservation that ended by the specified date to its folio.
+	 * @param reservation
+	 * @param until - The date up to which nights are posted, exclusive.
+	 * @return A flag indicating if any night was posted.
+	 */
+	private static boolean post(Reservation reservation, Date until) {
+		boolean posted = false;
+		
+		Room room = reservation.getAssignedRoom();
+		if(room != null && room.getType() != null && reservation.getStartDate() != null && reservation.getEndDate() != null) {
+			Date end = reservation.getEndDate().before(until)? reservation.getEndDate(): until;
+			posted = reservation.getFolio().postNights(reservation.getStartDate(), end, room.getType().getPrice()) > 0;
+		}
+		
+		return posted;
+	}
+	
+	/**
+	 * Writes the number, room type and status of every room to a CSV file of the specified day.
+	 * @param day - The business day to close.
+	 * @return The number of rooms written.
+	 * @throws Exception
+	 */
+	private long snapshotRooms(Date day) throws Exception {
+		ReportWriter writer = new ReportWriter(this.getFile(day, "rooms-", ".csv"), ExportFormat.CSV, "room", "room_type", "status");
+		try {
+			Iterable<Room> rooms = persistence.search(null, Room.class, true);
+			for(Room room: rooms)
+				writer.write(room.getNumber(), room.getType() == null? null: room.getType().getName(), room.getStatus());
+		}
+		finally {
+			writer.close();
+		}
+		
+		return writer.getRowCount();
+	}
+	
+	/**
+	 * Gets a file of the specified day in the night audit directory.
+	 * @param day
+	 * @param prefix - The prefix of the file name.
+	 * @param suffix - The suffix of the file name.
+	 * @return file
+	 * @throws Exception
+	 */
+	public File getFile(Date day, String prefix, String suffix) throws Exception {
+		String date;
+		synchronized(sdf) {
+			date = sdf.format(day);
+		}
+		
+		return new File(persistence.getConfiguration().getProperty(KEY_DIRECTORY, DEFAULT_DIRECTORY), prefix + date + suffix);
+	}
+	
+	/**
+	 * Stage is a step of the night audit.
+	 * @author YingHao
+	 */
+	public static abstract class Stage {
+		private final String name;
+		private final List<String> dependencies;
+		
+		/**
+		 * Stage constructor.
+		 * @param name - The unique name of the stage, under which it is checkpointed.
+		 * @param dependencies - The names of the stages that have to be done before this stage is run.
+		 */
+		public Stage(String name, String... dependencies) {
+			this.name = name;
+			this.dependencies = Arrays.asList(dependencies);
+		}
+		
+		/**
+		 * Gets the name of this stage.
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Gets the names of the stages that have to be done before this stage is run.
+		 * @return dependencies
+		 */
+		public List<String> getDependencies() {
+			return dependencies;
+		}
+		
+		/**
+		 * Runs this stage. A stage must be safe to run again for the same day.
+		 * @param day - The business day to close.
+		 * @return The number of items processed.
+		 * @throws Exception
+		 */
+		public abstract long run(Date day) throws Exception;
+	}
+	
+	/**
+	 * StageStatus enumerates the outcomes of a stage in a run.
+	 * @author YingHao
+	 */
+	public enum StageStatus {
+		Completed,
+		Resumed,
+		Skipped,
+		Failed,
+		TimedOut
+	}
+	
+	/**
+	 * StageResult is the outcome and timing of a stage in a run.
+	 * @author YingHao
+	 */
+	public static class StageResult {
+		private final String name;
+		private StageStatus status;
+		private long count;
+		private long nanos;
+		private Exception error;
+		
+		/**
+		 * StageResult constructor.
+		 * @param name - The name of the stage.
+		 */
+		public StageResult(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Gets the name of the stage.
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Gets the outcome of the stage.
+		 * @return status
+		 */
+		public synchronized StageStatus getStatus() {
+			return status;
+		}
+		
+		/**
+		 * Gets the number of items processed by the stage.
+		 * @return count
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+		
+		/**
+		 * Gets the time the stage took to run, in milliseconds. 0 if it was not run.
+		 * @return millis
+		 */
+		public synchronized double getMillis() {
+			return nanos / 1000000.0;
+		}
+		
+		/**
+		 * Gets the exception the stage failed with.
+		 * @return error, or null if the stage did not fail.
+		 */
+		public synchronized Exception getError() {
+			return error;
+		}
+		
+		/**
+		 * Records the outcome of the stage.
+		 * @param status
+		 * @param count
+		 * @param nanos
+		 * @param error
+		 */
+		private synchronized void finish(StageStatus status, long count, long nanos, Exception error) {
+			if(this.status == null) {
+				this.status = status;
+				this.count = count;
+				this.nanos = nanos;
+				this.error = error;
+			}
+		}
+		
+		/**
+		 * Records the stage as timed out, unless it has finished.
+		 */
+		private synchronized void timeOut() {
+			this.finish(StageStatus.TimedOut, 0, 0, null);
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return name + ": " + status + ", " + count + " item(s) in " + String.format("%.1f", this.getMillis()) + " ms" + 
+					(error == null? "": " (" + error + ")");
+		}
+	}
+	
+	/**
+	 * Checkpoint records the stages completed for a day to a file, which is replaced atomically on every change.
+	 * @author YingHao
+	 */
+	private static class Checkpoint {
+		private final File file;
+		private final Properties completed;
+		
+		/**
+		 * Checkpoint constructor. Reads the stages completed from the specified file, if it exists.
+		 * @param file
+		 * @throws IOException
+		 */
+		public Checkpoint(File file) throws IOException {
+			this.file = file;
+			this.completed = new Properties();
+			
+			if(file.exists()) {
+				InputStream in = new FileInputStream(file);
+				try {
+					completed.load(in);
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+		
+		/**
+		 * Gets a flag indicating if the specified stage has been completed.
+		 * @param stage - The name of the stage.
+		 * @return flag
+		 */
+		public synchronized boolean isCompleted(String stage) {
+			return completed.containsKey(stage);
+		}
+		
+		/**
+		 * Gets the number of items the specified stage processed when it was completed.
+		 * @param stage - The name of the stage.
+		 * @return count
+		 */
+		public synchronized long getCount(String stage) {
+			return Long.parseLong(completed.getProperty(stage, "0"));
+		}
+		
+		/**
+		 * Records the specified stage as completed.
+		 * @param stage - The name of the stage.
+		 * @param count - The number of items processed.
+		 * @throws IOException
+		 */
+		public synchronized void complete(String stage, long count) throws IOException {
+			completed.setProperty(stage, Long.toString(count));
+			
+			File tmp = new File(file.getPath() + ".tmp");
+			OutputStream out = new FileOutputStream(tmp);
+			try {
+				completed.store(out, null);
+			}
+			finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+}
@@ -1,22 +1,34 @@
 package controller.report;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import controller.PersistenceController;
-import model.reservation.Reservation;
+import index.Catalog;
+import index.OccupancyCube;
+import index.RoomAttributeIndex;
 import model.reservation.ReservationStatus;
 import model.room.Room;
 import model.room.RoomStatus;
 import model.room.RoomType;
 import persistence.Persistence;
 import persistence.Predicate;
+import persistence.aggregate.Aggregation;
+import persistence.aggregate.Count;
+import persistence.aggregate.Filter;
+import persistence.aggregate.GroupBy;
+import persistence.aggregate.Join;
+import persistence.aggregate.Key;
 import view.View;
+import view.ViewWriter;
 
 /**
  * A controller reponsible for generating reports.
@@ -24,13 +36,32 @@ import view.View;
  *
  */
 public class ReportController extends PersistenceController {
+	public final static String DATE_FORMAT = "dd-MM-yyyy";
+	public final static String KEY_START_DATE = "start date(" + DATE_FORMAT + ")";
+	public final static String KEY_END_DATE = "end date(" + DATE_FORMAT + ")";
+	public final static String KEY_FILE = "file path";
+	private final RoomAttributeIndex index;
+	private final OccupancyCube cube;
+	private final ReportExporter exporter;
+	private final NightAudit audit;
+	private final Catalog catalog;
 
 	/**
 	 * ReportController constructor.
 	 * @param persistence - The Persistence API implementation class to interact with for entity persistency.
+	 * @param index - The RoomAttributeIndex to look up rooms by room type from.
+	 * @param cube - The OccupancyCube to sum the reservations of a date range from.
+	 * @param audit - The NightAudit to close the day with.
+	 * @param catalog - The Catalog to look up room types from.
 	 */
-	public ReportController(Persistence persistence) {
+	public ReportController(Persistence persistence, RoomAttributeIndex index, OccupancyCube cube, NightAudit audit,
+			Catalog catalog) {
 		super(persistence);
+		this.index = index;
+		this.cube = cube;
+		this.exporter = new ReportExporter(persistence, index, cube);
+		this.audit = audit;
+		this.catalog = catalog;
 	}
 
 	@Override
@@ -38,15 +69,21 @@ public class ReportController extends PersistenceController {
 		return Arrays.asList("View report for today", 
 								"View report for this week",
 								"View report for this month",
-								"View report for this year");
+								"View report for this year",
+								"Export report for a date range",
+								"Run night audit");
 	}
 
 	@Override
 	protected void safeOnOptionSelected(View view, int option) throws Exception {
 		if(option == 0)
 			viewReportForToday(view);
+		else if(option == 4)
+			exportReport(view);
+		else if(option == 5)
+			runNightAudit(view);
 		else {
-			SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy");
+			SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
 			Date end = sdf.parse(sdf.format(new Date()));
 			Date start = end;
 			
@@ -62,32 +99,98 @@ public class ReportController extends PersistenceController {
 	}
 	
 	/**
-	 * Displays room occupancy report for today.
+	 * Displays room occupancy report for today. The rooms are read in a single pass, grouping them by status and by room
+	 * type at once, and the report is rendered through a buffered writer.
 	 * @param view - A view interface that provides input/output.
 	 * @throws Exception 
 	 */
 	private void viewReportForToday(View view) throws Exception {
-		SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy");
-		view.message("----- Room Occupancy Report For " + sdf.format(new Date()) + " -----");
-		
-		int occupiedRoomCount = printRoomsWithStatus(view, RoomStatus.Occupied);
-		int vacantRoomCount = printRoomsWithStatus(view, RoomStatus.Vacant);
-		int maintenanceRoomCount = printRoomsWithStatus(view, RoomStatus.Maintenance);
-		
-		view.message("\n--- Room Occupancy By Room Type ---");
-		Iterable<RoomType> roomTypes = this.getPersistenceImpl().search(null, RoomType.class, false);
-		for(RoomType roomType: roomTypes)
-			printOccupancyByRoomType(view, roomType);
+		Persistence persistence = this.getPersistenceImpl();
+		Key<Room, Object> number = new Key<Room, Object>() {
+
+			@Override
+			public Object getKey(Room item) {
+				return item.getNumber();
+			}
+			
+		};
+		Key<Room, RoomType> type = new Key<Room, RoomType>() {
+
+			@Override
+			public RoomType getKey(Room item) {
+				return item.getType();
+			}
+			
+		};
 		
+		Aggregation<Room> aggregation = new Aggregation<Room>();
+		GroupBy<Room, RoomStatus, Join<Room>> byStatus = aggregation.add(new GroupBy<Room, RoomStatus, Join<Room>>(new Key<Room, RoomStatus>() {
+
+			@Override
+			public RoomStatus getKey(Room item) {
+				return item.getStatus();
+			}
+			
+		}, new Join<Room>(number, " ")));
+		GroupBy<Room, RoomType, Count<Room>> byRoomType = aggregation.add(new GroupBy<Room, RoomType, Count<Room>>(type, new Count<Room>()));
+		Filter<Room, GroupBy<Room, RoomType, Join<Room>>> occupiedByRoomType = aggregation.add(new Filter<Room, GroupBy<Room, RoomType, Join<Room>>>(new Predicate<Room>() {
+
+			@Override
+			public boolean test(Room item) {
+				return item.getStatus() == RoomStatus.Occupied;
+			}
+			
+		}, new GroupBy<Room, RoomType, Join<Room>>(type, new Join<Room>(number, " "))));
+		aggregation.over(persistence.search(null, Room.class, true));
 		
-		double occupancyRate = ((double)occupiedRoomCount / (occupiedRoomCount + vacantRoomCount + maintenanceRoomCount)) * 100;
-		view.message("\n----- Summary -----");
-		view.message("Number of occupied room(s): " + occupiedRoomCount);
-		view.message("Number of vacant room(s): " + vacantRoomCount);
-		view.message("Number of room(s) under maintenance: " + maintenanceRoomCount);
-		view.message("Percentage of room occupancy: " + 
-					String.format("%.2f", occupancyRate) +
-					"%\n");
+		SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy");
+		BufferedWriter writer = new BufferedWriter(new ViewWriter(view));
+		try {
+			writer.write("----- Room Occupancy Report For " + sdf.format(new Date()) + " -----");
+			writer.newLine();
+			
+			long[] counts = new long[RoomStatus.values().length];
+			for(RoomStatus status: Arrays.asList(RoomStatus.Occupied, RoomStatus.Vacant, RoomStatus.Maintenance)) {
+				Join<Room> rooms = byStatus.get(status);
+				counts[status.ordinal()] = rooms == null? 0: rooms.getCount();
+				writer.write(status + " Room(s): " + (rooms == null? "None": rooms.toString()));
+				writer.newLine();
+			}
+			
+			writer.newLine();
+			writer.write("--- Room Occupancy By Room Type ---");
+			writer.newLine();
+			for(RoomType roomType: catalog.getAll(RoomType.class)) {
+				Join<Room> occupied = occupiedByRoomType.getAggregate().get(roomType);
+				Count<Room> total = byRoomType.get(roomType);
+				writer.write(roomType.getName() + " rooms that are occupied: " + (occupied == null? "None": occupied.toString()));
+				writer.newLine();
+				writer.write("Total occupancy for " + roomType.getName() + " rooms: " + (occupied == null? 0: occupied.getCount()) + 
+						" out of " + (total == null? 0: total.getCount()));
+				writer.newLine();
+				writer.newLine();
+			}
+			
+			long occupiedRoomCount = counts[RoomStatus.Occupied.ordinal()];
+			long vacantRoomCount = counts[RoomStatus.Vacant.ordinal()];
+			long maintenanceRoomCount = counts[RoomStatus.Maintenance.ordinal()];
+			double occupancyRate = ((double)occupiedRoomCount / (occupiedRoomCount + vacantRoomCount + maintenanceRoomCount)) * 100;
+			writer.newLine();
+			writer.write("----- Summary -----");
+			writer.newLine();
+			writer.write("Number of occupied room(s): " + occupiedRoomCount);
+			writer.newLine();
+			writer.write("Number of vacant room(s): " + vacantRoomCount);
+			writer.newLine();
+			writer.write("Number of room(s) under maintenance: " + maintenanceRoomCount);
+			writer.newLine();
+			writer.write("Percentage of room occupancy: " + String.format("%.2f", occupancyRate) + "%");
+			writer.newLine();
+			writer.newLine();
+		}
+		finally {
+			writer.close();
+		}
 	}
 	
 	/**
@@ -100,26 +203,18 @@ public class ReportController extends PersistenceController {
 		SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy");
 		view.message("----- Room Occupancy Report(" + sdf.format(startDate) + " to " + sdf.format(endDate) + ") -----");
 	
-		Persistence persistence = this.getPersistenceImpl();
-		long totalRoomCount = persistence.getCount(null, Room.class, false);
-		Iterable<Reservation> fulfilledReservations = persistence.search(new ReservationPredicate(Arrays.asList(ReservationStatus.CheckedIn, ReservationStatus.CheckedOut), startDate, endDate), 
-				Reservation.class, false);
-		
-		int millis = 0;
-		long startMillis = startDate.getTime();
-		long endMillis = endDate.getTime();
-		for(Reservation reservation: fulfilledReservations)
-			millis += Math.min(endMillis, reservation.getEndDate().getTime()) - Math.max(startMillis, reservation.getStartDate().getTime());
+		long totalRoomCount = index.size();
+		// Room-nights of the range are summed from one row of the cube per day rather than read from the reservation file
+		long nights = cube.aggregate(startDate, endDate, null, Arrays.asList(ReservationStatus.CheckedIn, ReservationStatus.CheckedOut)).getNights();
+		long millis = nights * TimeUnit.DAYS.toMillis(1);
 	
 		long interval = endDate.getTime() - startDate.getTime();
 		long totalTime = totalRoomCount * interval;
 		view.message("Percentage of room occupancy: " + String.format("%.2f", ((double) millis / totalTime))+ "%");
 		view.message("Number of no show or expired reservations: " + 
-				persistence.getCount(new ReservationPredicate(Arrays.asList(ReservationStatus.Expired), startDate, endDate),
-				Reservation.class, false));
+				cube.aggregate(startDate, endDate, null, Arrays.asList(ReservationStatus.Expired)).getCount());
 		view.message("Number of cancelled reservations: " +
-				persistence.getCount(new ReservationPredicate(Arrays.asList(ReservationStatus.Cancelled), startDate, endDate),
-				Reservation.class, false));
+				cube.aggregate(startDate, endDate, null, Arrays.asList(ReservationStatus.Cancelled)).getCount());
 		
 		RoomType popular = getMostPopularRoomType(startDate, endDate);
 		if(popular != null)
@@ -128,67 +223,70 @@ public class ReportController extends PersistenceController {
 	}
 	
 	/**
-	 * Prints the rooms with the following status and returns the number of rooms printed.
+	 * Exports a report for a date range entered by the user to a file, in a format chosen by the user.
 	 * @param view - A view interface that provides input/output.
-	 * @param status - The rooms with this status will be printed out.
-	 * @return The number of rooms with the specified status.
+	 * @throws Exception
 	 */
-	private int printRoomsWithStatus(View view, RoomStatus status) throws Exception {
-		Persistence persistence = this.getPersistenceImpl();
+	private void exportReport(View view) throws Exception {
+		Map<String, String> inputMap = new LinkedHashMap<String, String>();
 		
-		String message = "";
-		int count = 0;
-		Iterable<Room> vacantRooms = persistence.search(new Predicate<Room>() {
-
-			@Override
-			public boolean test(Room item) {
-				return item.getStatus() == status;
-			}
-			
-		}, Room.class, false);
-		message = status + " Room(s): ";
-		for(Room room: vacantRooms) {
-			message += room.getNumber() + " ";
-			count++;
-		}
-		if(count == 0)
-			message += "None";
-		view.message(message);
+		inputMap.put(KEY_START_DATE, null);
+		inputMap.put(KEY_END_DATE, null);
+		inputMap.put(KEY_FILE, null);
 		
-		return count;
+		boolean valid = false;
+		do {
+			view.input(inputMap);
+			
+			try {
+				SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
+				Date startDate = sdf.parse(inputMap.get(KEY_START_DATE));
+				Date endDate = sdf.parse(inputMap.get(KEY_END_DATE));
+				File file = new File(inputMap.get(KEY_FILE));
+				
+				if(endDate.before(startDate)) {
+					view.message("Invalid end date, end date must be equals to or after start date.");
+				}
+				else if(file.isDirectory() || (file.getAbsoluteFile().getParentFile() != null && !file.getAbsoluteFile().getParentFile().isDirectory())) {
+					view.error(Arrays.asList(KEY_FILE));
+				}
+				else {
+					String report = view.options(Arrays.asList("Daily occupancy", "Reservation revenue", "Cancellations"));
+					ExportFormat format = view.options(Arrays.asList(ExportFormat.values()));
+					
+					if(report != null && format != null) {
+						long rows;
+						if(report.equals("Daily occupancy"))
+							rows = exporter.exportOccupancy(startDate, endDate, format, file);
+						else if(report.equals("Reservation revenue"))
+							rows = exporter.exportRevenue(startDate, endDate, format, file);
+						else
+							rows = exporter.exportCancellations(startDate, endDate, format, file);
+						
+						view.message(rows + " row(s) exported to " + file.getPath());
+					}
+					valid = true;
+				}
+			} catch(ParseException e) {
+				view.error(Arrays.asList(KEY_START_DATE, KEY_END_DATE));
+			}
+		} while(!valid && !view.bailout());
 	}
 	
 	/**
-	 * Prints the rooms with this room type and is occupied.
+	 * Runs the night audit for today and displays the outcome and timing of every stage.
 	 * @param view - A view interface that provides input/output.
-	 * @param roomType - The occupied rooms with this {@link RoomType} to print.
+	 * @throws Exception
 	 */
-	private void printOccupancyByRoomType(View view, RoomType roomType) throws Exception {
-		Persistence persistence = this.getPersistenceImpl();
-		Iterable<Room> rooms = persistence.search(new Predicate<Room>() {
-
-			@Override
-			public boolean test(Room item) {
-				return item.getType().equals(roomType);
-			}
-			
-		}, Room.class, true);
-		
-		long occupiedCount = 0;
-		long totalCount = 0;
-		String message = roomType.getName() + " rooms that are occupied: ";
-		for(Room room: rooms) {
-			totalCount++;
-			if(room.getStatus() == RoomStatus.Occupied) {
-				message += room.getNumber() + " ";
-				occupiedCount++;
-			}
-		}
-		if(occupiedCount == 0)
-			message += "None";
-		message += "\nTotal occupancy for " + roomType.getName() + " rooms: " + occupiedCount + " out of " + totalCount + "\n";
+	private void runNightAudit(View view) throws Exception {
+		SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
+		Date today = sdf.parse(sdf.format(new Date()));
 		
-		view.message(message);
+		view.message("----- Night Audit For " + new SimpleDateFormat("dd MMM yyyy").format(today) + " -----");
+		long start = System.nanoTime();
+		for(NightAudit.StageResult result: audit.run(today))
+			view.message(result.toString());
+		view.message("Night audit finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms\n");
 	}
 	
 	/**
@@ -201,25 +299,9 @@ public class ReportController extends PersistenceController {
 	private RoomType getMostPopularRoomType(Date startDate, Date endDate) throws Exception {
 		RoomType popular = null;
 		
-		Map<RoomType, Integer> map = new HashMap<RoomType, Integer>();
-		Persistence persistence = this.getPersistenceImpl();
-		Iterable<Reservation> reservations = persistence.search(new ReservationPredicate(Arrays.asList(ReservationStatus.values()), startDate, endDate), 
-				Reservation.class, false);
-		
-		for(Reservation reservation: reservations) {
-			RoomType roomType = reservation.getCriteria().getRoomType();
-			if(roomType != null) {
-				int count = 1;
-				if(map.containsKey(roomType))
-					count = count + map.get(roomType);
-				
-				map.put(roomType, count);
-			}
-		}
-		
-		int max = 0;
-		for(RoomType roomType: map.keySet()) {
-			int count = map.get(roomType);
+		long max = 0;
+		for(RoomType roomType: catalog.getAll(RoomType.class)) {
+			long count = cube.aggregate(startDate, endDate, roomType, Arrays.asList(ReservationStatus.values())).getCount();
 			if(count > max) {
 				max = count;
 				popular = roomType;
@@ -0,0 +1,160 @@
+package controller.report;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import index.OccupancyCube;
+import index.RoomAttributeIndex;
+import model.reservation.Folio;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import model.room.RoomType;
+import persistence.Persistence;
+
+/**
+ * ReportExporter exports reports over any date range to a file through a {@link ReportWriter}. Rows are written as they
+ * are read, from a search of the reservations overlapping with the date range, archived reservations included, or from the daily rows of the
+ * {@link OccupancyCube}, hence exporting years of data does not hold more than one row in memory.
+ * @author YingHao
+ */
+public class ReportExporter {
+	public final static String[] OCCUPANCY_COLUMNS = { "date", "rooms", "occupied", "occupancy", "booked", "arrivals", "cancelled", "expired", "revenue" };
+	public final static String[] REVENUE_COLUMNS = { "reservation", "guest", "room", "room_type", "start_date", "end_date", "status", "nights", "room_total", "service_total", "total" };
+	public final static String[] CANCELLATION_COLUMNS = { "reservation", "guest", "room_type", "start_date", "end_date", "status", "nights", "expected_revenue" };
+	private final static List<ReservationStatus> FULFILLED = Arrays.asList(ReservationStatus.CheckedIn, ReservationStatus.CheckedOut);
+	private final Persistence persistence;
+	private final RoomAttributeIndex index;
+	private final OccupancyCube cube;
+	
+	/**
+	 * ReportExporter constructor.
+	 * @param persistence - The Persistence API implementation to read reservations from.
+	 * @param index - The RoomAttributeIndex to count rooms from.
+	 * @param cube - The OccupancyCube to read the daily occupancy from.
+	 */
+	public ReportExporter(Persistence persistence, RoomAttributeIndex index, OccupancyCube cube) {
+		this.persistence = persistence;
+		this.index = index;
+		this.cube = cube;
+	}
+	
+	/**
+	 * Exports a row per day between the specified dates, holding the rooms occupied, booked, arrived, cancelled and expired
+	 * on that day and the room revenue of the night.
+	 * @param start - The first date, inclusive.
+	 * @param end - The last date, inclusive.
+	 * @param format - The format of the file.
+	 * @param file - The file to export to.
+	 * @return The number of rows exported.
+	 * @throws Exception
+	 */
+	public long exportOccupancy(Date start, Date end, ExportFormat format, File file) throws Exception {
+		ReportWriter writer = new ReportWriter(file, format, OCCUPANCY_COLUMNS);
+		try {
+			long rooms = index.size();
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(start);
+			
+			// Loop through the days of the range, a row of the cube per day
+			while(!calendar.getTime().after(end)) {
+				Date date = calendar.getTime();
+				OccupancyCube.Aggregate fulfilled = cube.getDay(date, null, FULFILLED);
+				
+				writer.write(date, rooms, fulfilled.getNights(),
+						rooms == 0? 0: round((double) fulfilled.getNights() / rooms * 100),
+						cube.getDay(date, null, Arrays.asList(ReservationStatus.Confirmed)).getNights(),
+						fulfilled.getCount(),
+						cube.getDay(date, null, Arrays.asList(ReservationStatus.Cancelled)).getCount(),
+						cube.getDay(date, null, Arrays.asList(ReservationStatus.Expired)).getCount(),
+						round(fulfilled.getRevenue()));
+				calendar.add(Calendar.DAY_OF_MONTH, 1);
+			}
+		}
+		finally {
+			writer.close();
+		}
+		
+		return writer.getRowCount();
+	}
+	
+	/**
+	 * Exports a row per checked in or checked out reservation overlapping with the specified dates, holding the charges
+	 * posted to its folio.
+	 * @param start - The start date of the range.
+	 * @param end - The end date of the range.
+	 * @param format - The format of the file.
+	 * @param file - The file to export to.
+	 * @return The number of rows exported.
+	 * @throws Exception
+	 */
+	public long exportRevenue(Date start, Date end, ExportFormat format, File file) throws Exception {
+		ReportWriter writer = new ReportWriter(file, format, REVENUE_COLUMNS);
+		try {
+			Iterable<Reservation> reservations = persistence.searchAll(new ReservationPredicate(FULFILLED, start, end), Reservation.class, false);
+			for(Reservation reservation: reservations) {
+				Room room = reservation.getAssignedRoom();
+				Folio folio = reservation.getFolio();
+				
+				writer.write(reservation.getIdentifier(),
+						reservation.getGuest() == null? null: reservation.getGuest().getName(),
+						room == null? null: room.getNumber(),
+						room == null || room.getType() == null? null: room.getType().getName(),
+						reservation.getStartDate(), reservation.getEndDate(), reservation.getStatus(),
+						folio.getNights(), round(folio.getRoomTotal()), round(folio.getServiceTotal()), round(folio.getTotal()));
+			}
+		}
+		finally {
+			writer.close();
+		}
+		
+		return writer.getRowCount();
+	}
+	
+	/**
+	 * Exports a row per cancelled or expired reservation overlapping with the specified dates, holding the room revenue
+	 * it would have made at the price of the room type requested.
+	 * @param start - The start date of the range.
+	 * @param end - The end date of the range.
+	 * @param format - The format of the file.
+	 * @param file - The file to export to.
+	 * @return The number of rows exported.
+	 * @throws Exception
+	 */
+	public long exportCancellations(Date start, Date end, ExportFormat format, File file) throws Exception {
+		ReportWriter writer = new ReportWriter(file, format, CANCELLATION_COLUMNS);
+		try {
+			Iterable<Reservation> reservations = persistence.searchAll(new ReservationPredicate(Arrays.asList(ReservationStatus.Cancelled, ReservationStatus.Expired), start, end), 
+					Reservation.class, false);
+			for(Reservation reservation: reservations) {
+				RoomType roomType = reservation.getCriteria() == null? null: reservation.getCriteria().getRoomType();
+				long nights = (reservation.getEndDate().getTime() - reservation.getStartDate().getTime()) / TimeUnit.DAYS.toMillis(1);
+				
+				writer.write(reservation.getIdentifier(),
+						reservation.getGuest() == null? null: reservation.getGuest().getName(),
+						roomType == null? null: roomType.getName(),
+						reservation.getStartDate(), reservation.getEndDate(), reservation.getStatus(),
+						nights, roomType == null? null: round(roomType.getPrice() * nights));
+			}
+		}
+		finally {
+			writer.close();
+		}
+		
+		return writer.getRowCount();
+	}
+	
+	/**
+	 * Rounds the specified amount to two decimal places.
+	 * @param amount
+	 * @return amount
+	 */
+	private static double round(double amount) {
+		return Math.round(amount * 100) / 100.0;
+	}
+
+}
@@ -0,0 +1,131 @@
+package controller.report;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * ReportWriter writes the rows of a report to a file in an {@link ExportFormat}. Every row is formatted into a reused
+ * builder and encoded as UTF-8 into a fixed direct buffer, which is written to a {@link FileChannel} whenever it fills up,
+ * hence the memory held does not depend on the number of rows written. Dates are written as yyyy-MM-dd.
+ * @author YingHao
+ */
+public class ReportWriter implements Closeable {
+	public final static String DATE_FORMAT = "yyyy-MM-dd";
+	public final static int BUFFER_SIZE = 64 * 1024;
+	private final FileChannel channel;
+	private final ExportFormat format;
+	private final String[] columns;
+	private final StringBuilder builder;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer buffer;
+	private final SimpleDateFormat sdf;
+	private long rows;
+	
+	/**
+	 * ReportWriter constructor. Creates or truncates the specified file and writes the header of the report.
+	 * @param file - The file to write to.
+	 * @param format - The format of the file.
+	 * @param columns - The names of the columns of the report.
+	 * @throws IOException
+	 */
+	public ReportWriter(File file, ExportFormat format, String... columns) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this.format = format;
+		this.columns = columns;
+		this.builder = new StringBuilder();
+		this.encoder = StandardCharsets.UTF_8.newEncoder();
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.sdf = new SimpleDateFormat(DATE_FORMAT);
+		this.rows = 0;
+		
+		try {
+			format.appendHeader(builder, columns);
+			this.encode();
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gets the number of rows written, excluding the header.
+	 * @return rows
+	 */
+	public long getRowCount() {
+		return rows;
+	}
+	
+	/**
+	 * Writes a row of the report.
+	 * @param values - The values of the row, one per column.
+	 * @throws IOException
+	 */
+	public void write(Object... values) throws IOException {
+		if(values.length != columns.length)
+			throw new IllegalArgumentException("Expected " + columns.length + " values but got " + values.length + ".");
+		
+		// Loop through the values to write the dates and enumerations as text
+		for(int i = 0; i < values.length; i++) {
+			if(values[i] instanceof Date)
+				values[i] = sdf.format((Date) values[i]);
+			else if(values[i] != null && !(values[i] instanceof Number) && !(values[i] instanceof Boolean))
+				values[i] = values[i].toString();
+		}
+		
+		format.appendRow(builder, columns, values);
+		this.encode();
+		rows++;
+	}
+	
+	/**
+	 * Encodes the content of the builder into the buffer, writing the buffer to the channel whenever it is full.
+	 * @throws IOException
+	 */
+	private void encode() throws IOException {
+		CharBuffer chars = CharBuffer.wrap(builder);
+		
+		CoderResult result = encoder.encode(chars, buffer, false);
+		while(result.isOverflow()) {
+			this.drain();
+			result = encoder.encode(chars, buffer, false);
+		}
+		builder.setLength(0);
+		
+		if(result.isError())
+			result.throwException();
+	}
+	
+	/**
+	 * Writes the content of the buffer to the channel.
+	 * @throws IOException
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			encoder.encode(CharBuffer.wrap(builder), buffer, true);
+			encoder.flush(buffer);
+			this.drain();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+}
@@ -5,13 +5,15 @@ import java.util.List;
 
 import model.reservation.Reservation;
 import model.reservation.ReservationStatus;
-import persistence.Predicate;
+import persistence.ZoneMap;
+import persistence.ZonePredicate;
 
 /**
- * ReservationPredicate for retrieving relevant information for report generation.
+ * ReservationPredicate for retrieving relevant information for report generation. Archive segments are skipped when none of
+ * their reservations can overlap with the date range.
  * @author YingHao
  */
-public class ReservationPredicate implements Predicate<Reservation> {
+public class ReservationPredicate implements ZonePredicate<Reservation> {
 	private final List<ReservationStatus> statuses;
 	private final Date startDate;
 	private final Date endDate;
@@ -45,5 +47,10 @@ public class ReservationPredicate implements Predicate<Reservation> {
 		
 		return flag;
 	}
+	
+	@Override
+	public boolean test(ZoneMap zone) {
+		return zone.overlaps("startDate", Long.MIN_VALUE, endDate.getTime()) && zone.overlaps("endDate", startDate.getTime(), Long.MAX_VALUE);
+	}
 
 }
@@ -0,0 +1,150 @@
+package index;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongLongMap;
+
+/**
+ * ArrivalIndex keeps the {@link ReservationStatus#Confirmed} reservations ordered by their start date, so that the
+ * reservations whose guests have not arrived by a point in time can be found without reading the reservation file.<br />
+ * It is registered as a {@link PersistenceListener} so that reservations confirmed, checked in, cancelled or expired through
+ * the persistence provider are reflected as soon as they are written.
+ * @author YingHao
+ */
+public class ArrivalIndex implements PersistenceListener {
+	private final TreeMap<Long, TreeSet<Long>> arrivals;
+	private final LongLongMap startDates;
+
+	/**
+	 * ArrivalIndex constructor. Builds the index from the confirmed reservations of the specified persistence provider and
+	 * registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the index from.
+	 * @throws Exception
+	 */
+	public ArrivalIndex(final Persistence persistence) throws Exception {
+		this.arrivals = new TreeMap<Long, TreeSet<Long>>();
+		this.startDates = new LongLongMap();
+
+		// Writes are held while the confirmed reservations are read, otherwise a reservation checked in meanwhile could be
+		// read as confirmed after its check in was notified, and the sweeper would expire a guest who has arrived
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(ArrivalIndex.this);
+				build(persistence);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Builds the index from the confirmed reservations of the specified persistence provider.
+	 * @param persistence
+	 * @throws Exception
+	 */
+	private void build(Persistence persistence) throws Exception {
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				return item.getStatus() == ReservationStatus.Confirmed;
+			}
+
+		}, Reservation.class, false);
+		for(Reservation reservation: reservations)
+			this.update(reservation);
+	}
+
+	/**
+	 * Gets the number of confirmed reservations.
+	 * @return count
+	 */
+	public synchronized int size() {
+		return startDates.size();
+	}
+
+	/**
+	 * Gets the confirmed reservations starting before the specified time.
+	 * @param time
+	 * @return A list of reservation identifiers, ordered by start date.
+	 */
+	public synchronized LongList getArrivalsBefore(Date time) {
+		LongList list = new LongList();
+
+		// Loop through the start dates before the specified time in ascending order
+		for(Map.Entry<Long, TreeSet<Long>> entry: arrivals.headMap(time.getTime()).entrySet())
+			for(long id: entry.getValue())
+				list.add(id);
+
+		return list;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.remove(id);
+	}
+
+	/**
+	 * Brings the entry of the specified reservation in line with its current status and start date.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		this.remove(reservation.getIdentifier());
+
+		if(reservation.getStatus() == ReservationStatus.Confirmed && reservation.getStartDate() != null) {
+			long start = reservation.getStartDate().getTime();
+			startDates.put(reservation.getIdentifier(), start);
+
+			TreeSet<Long> ids = arrivals.get(start);
+			if(ids == null) {
+				ids = new TreeSet<Long>();
+				arrivals.put(start, ids);
+			}
+			ids.add(reservation.getIdentifier());
+		}
+	}
+
+	/**
+	 * Removes the entry of the specified reservation, if any.
+	 * @param reservation - The identifier of the reservation.
+	 */
+	private void remove(long reservation) {
+		if(startDates.containsKey(reservation)) {
+			long start = startDates.get(reservation, 0);
+			startDates.remove(reservation);
+
+			TreeSet<Long> ids = arrivals.get(start);
+			ids.remove(reservation);
+			if(ids.isEmpty())
+				arrivals.remove(start);
+		}
+	}
+
+}
@@ -0,0 +1,359 @@
+package index;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongObjectMap;
+
+/**
+ * AvailabilityCalendar keeps one bitset per {@link Room} over epoch days, in which a bit is set for every night the room
+ * is booked by a {@link ReservationStatus#Confirmed} or {@link ReservationStatus#CheckedIn} reservation. Checking the
+ * availability of a room over a date range is then a scan over a few words of its bitset instead of a walk through its
+ * reservations.<br />
+ * The calendar covers a horizon of days starting from the current day, which can be configured with {@link #KEY_HORIZON},
+ * and moves forward as days pass.
+ * It is registered as a {@link PersistenceListener} so that reservations made, cancelled, expired or checked out through the
+ * persistence provider are reflected as soon as they are written.
+ * @author YingHao
+ */
+public class AvailabilityCalendar implements PersistenceListener {
+	public final static String KEY_HORIZON = "availability-horizon";
+	public final static int DEFAULT_HORIZON = 730;
+	private final static long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private long firstDay;
+	private long nextDay;
+	private final int horizon;
+	private final LongObjectMap<RoomCalendar> rooms;
+	private final LongObjectMap<Booking> bookings;
+
+	/**
+	 * AvailabilityCalendar constructor. Builds the calendar from the rooms and active reservations of the specified
+	 * persistence provider and registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the calendar from.
+	 * @throws Exception
+	 */
+	public AvailabilityCalendar(final Persistence persistence) throws Exception {
+		this.firstDay = epochDay(new Date());
+		this.nextDay = startOfDay(this.firstDay + 1);
+		this.horizon = Integer.parseInt(persistence.getConfiguration().getProperty(KEY_HORIZON, Integer.toString(DEFAULT_HORIZON)));
+		this.rooms = new LongObjectMap<RoomCalendar>();
+		this.bookings = new LongObjectMap<Booking>();
+
+		// A reservation read just before it is cancelled would book nights the cancellation has already released, hence the
+		// calendar is built while writes are held and only changes written after the build are notified
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(AvailabilityCalendar.this);
+				build(persistence);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Builds the calendar from the rooms and active reservations of the specified persistence provider.
+	 * @param persistence
+	 * @throws Exception
+	 */
+	private void build(Persistence persistence) throws Exception {
+		for(Room room: persistence.search(null, Room.class, false))
+			this.addRoom(room.getIdentifier());
+
+		final Date first = new Date(startOfDay(this.firstDay));
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				return isBooking(item.getStatus()) && item.getEndDate().after(first);
+			}
+
+		}, Reservation.class, false);
+		for(Reservation reservation: reservations)
+			this.update(reservation);
+	}
+
+	/**
+	 * Gets the number of days since the epoch of the specified date in the default time zone.
+	 * @param date
+	 * @return epoch day
+	 */
+	public static long epochDay(Date date) {
+		long time = date.getTime();
+
+		return Math.floorDiv(time + TimeZone.getDefault().getOffset(time), DAY);
+	}
+
+	/**
+	 * Gets the time at which the specified epoch day starts in the default time zone.
+	 * @param day - The epoch day.
+	 * @return time in milliseconds
+	 */
+	static long startOfDay(long day) {
+		long time = day * DAY;
+
+		return time - TimeZone.getDefault().getOffset(time);
+	}
+
+	/**
+	 * Gets the number of days covered by this calendar.
+	 * @return horizon
+	 */
+	public int getHorizon() {
+		return horizon;
+	}
+
+	/**
+	 * Gets a flag indicating if the nights between the specified dates fall within the horizon of this calendar. Availability
+	 * outside of the horizon must be determined from the reservations of the room instead.
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return flag
+	 */
+	public synchronized boolean covers(Date start, Date end) {
+		this.roll();
+
+		return epochDay(start) >= firstDay && epochDay(end) - firstDay <= horizon;
+	}
+
+	/**
+	 * Gets a flag indicating if the specified room is not booked on any night between the specified dates.
+	 * @param room - The identifier of the room.
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return flag
+	 * @throws IllegalArgumentException If the dates are not covered by this calendar.
+	 */
+	public synchronized boolean isAvailable(long room, Date start, Date end) {
+		if(!this.covers(start, end))
+			throw new IllegalArgumentException("The dates are outside of the horizon of the availability calendar.");
+
+		RoomCalendar calendar = this.rooms.get(room);
+
+		return calendar == null || isFree(calendar.nights, this.night(epochDay(start)), this.night(epochDay(end)));
+	}
+
+	/**
+	 * Gets a flag indicating if the specified room is not booked on any night between the specified dates, checking in the
+	 * same call that the dates are covered by this calendar, which may move forward a day between two calls.
+	 * @param room - The identifier of the room.
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return flag, or null if the dates are not covered by this calendar.
+	 */
+	public synchronized Boolean checkAvailability(long room, Date start, Date end) {
+		return this.covers(start, end)? this.isAvailable(room, start, end): null;
+	}
+
+	/**
+	 * Gets the identifiers of the rooms that are not booked on any night between the specified dates.
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return A list of room identifiers.
+	 * @throws IllegalArgumentException If the dates are not covered by this calendar.
+	 */
+	public synchronized LongList getAvailableRooms(Date start, Date end) {
+		if(!this.covers(start, end))
+			throw new IllegalArgumentException("The dates are outside of the horizon of the availability calendar.");
+
+		int from = this.night(epochDay(start));
+		int to = this.night(epochDay(end));
+
+		LongList available = new LongList();
+		// Loop through the bitset of every room
+		for(long room: this.rooms.keys())
+			if(isFree(this.rooms.get(room).nights, from, to))
+				available.add(room);
+
+		return available;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+		else if(entity instanceof Room)
+			this.addRoom(entity.getIdentifier());
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.release(id);
+		else if(entity instanceof Room)
+			this.rooms.remove(id);
+	}
+
+	/**
+	 * Moves the first day of this calendar forward to the current day once the day has changed, so that the horizon keeps
+	 * covering as many days ahead, and sets the nights of every booking again relative to it.
+	 */
+	private synchronized void roll() {
+		long now = System.currentTimeMillis();
+
+		if(now >= nextDay) {
+			long today = epochDay(new Date(now));
+			if(today > firstDay) {
+				firstDay = today;
+				// Loop through the bookings of every room, nights that have passed fall off the start of the bitset
+				for(long room: this.rooms.keys()) {
+					RoomCalendar calendar = this.rooms.get(room);
+					calendar.nights.clear();
+					for(int i = 0; i < calendar.reservations.size(); i++)
+						this.set(calendar.nights, this.bookings.get(calendar.reservations.get(i)));
+				}
+			}
+			nextDay = startOfDay(today + 1);
+		}
+	}
+
+	/**
+	 * Gets the index of the specified epoch day in the bitsets, clamped to the horizon.
+	 * @param day - The epoch day.
+	 * @return index
+	 */
+	private int night(long day) {
+		return (int) Math.max(0, Math.min(horizon, day - firstDay));
+	}
+
+	/**
+	 * Sets the nights of the specified booking that fall within the horizon.
+	 * @param nights
+	 * @param booking
+	 */
+	private void set(BitSet nights, Booking booking) {
+		int start = this.night(booking.start);
+		int end = this.night(booking.end);
+		if(start < end)
+			nights.set(start, end);
+	}
+
+	/**
+	 * Registers a room with an empty bitset if it is not yet present in this calendar.
+	 * @param room - The identifier of the room.
+	 */
+	private synchronized void addRoom(long room) {
+		if(this.rooms.get(room) == null)
+			this.rooms.put(room, new RoomCalendar());
+	}
+
+	/**
+	 * Brings the nights booked by the specified reservation in line with its current status, room and dates.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		this.release(reservation.getIdentifier());
+
+		Room room = reservation.getAssignedRoom();
+		if(isBooking(reservation.getStatus()) && room != null && reservation.getStartDate() != null && reservation.getEndDate() != null) {
+			Booking booking = new Booking(room.getIdentifier(), epochDay(reservation.getStartDate()), epochDay(reservation.getEndDate()));
+			this.bookings.put(reservation.getIdentifier(), booking);
+
+			this.addRoom(booking.room);
+			RoomCalendar calendar = this.rooms.get(booking.room);
+			calendar.reservations.add(reservation.getIdentifier());
+			this.set(calendar.nights, booking);
+		}
+	}
+
+	/**
+	 * Clears the nights booked by the specified reservation, if any.
+	 * @param reservation - The identifier of the reservation.
+	 */
+	private void release(long reservation) {
+		Booking booking = this.bookings.remove(reservation);
+
+		if(booking != null) {
+			RoomCalendar calendar = this.rooms.get(booking.room);
+			if(calendar != null) {
+				calendar.reservations.removeValue(reservation);
+				int start = this.night(booking.start);
+				int end = this.night(booking.end);
+				if(start < end) {
+					calendar.nights.clear(start, end);
+
+					// Restore nights shared with other bookings of the room, should any overlap
+					for(int i = 0; i < calendar.reservations.size(); i++) {
+						Booking other = this.bookings.get(calendar.reservations.get(i));
+						this.set(calendar.nights, new Booking(booking.room, Math.max(other.start, booking.start), Math.min(other.end, booking.end)));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets a flag indicating if the specified reservation status books the assigned room.
+	 * @param status
+	 * @return flag
+	 */
+	private static boolean isBooking(ReservationStatus status) {
+		return status == ReservationStatus.Confirmed || status == ReservationStatus.CheckedIn;
+	}
+
+	/**
+	 * Gets a flag indicating if no bit is set in the specified range of the bitset.
+	 * @param nights
+	 * @param from - Inclusive.
+	 * @param to - Exclusive.
+	 * @return flag
+	 */
+	private static boolean isFree(BitSet nights, int from, int to) {
+		int booked = nights.nextSetBit(from);
+
+		return booked < 0 || booked >= to;
+	}
+
+	/**
+	 * RoomCalendar holds the booked nights of a room together with the reservations booking them.
+	 * @author YingHao
+	 */
+	private static class RoomCalendar {
+		private final BitSet nights = new BitSet();
+		private final LongList reservations = new LongList();
+	}
+
+	/**
+	 * Booking is the range of nights booked by a reservation, in epoch days so that it outlives the first day of the calendar.
+	 * @author YingHao
+	 */
+	private static class Booking {
+		private final long room;
+		private final long start;
+		private final long end;
+
+		/**
+		 * Booking constructor.
+		 * @param room - The identifier of the booked room.
+		 * @param start - The epoch day of the first night, inclusive.
+		 * @param end - The epoch day of the last night, exclusive.
+		 */
+		public Booking(long room, long start, long end) {
+			this.room = room;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+}
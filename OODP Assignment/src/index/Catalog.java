@@ -0,0 +1,159 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import model.room.RoomType;
+import model.service.fnb.MenuItem;
+import persistence.Entity;
+import persistence.PersistAnnotation;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+
+/**
+ * Catalog holds small, rarely-changing reference data, such as the {@link RoomType} and {@link MenuItem} instances, fully
+ * in memory, so that listing and looking them up does not read their data files. The entities of every type are loaded
+ * once when the catalog is built, and are the canonical instances of types that are {@link PersistAnnotation#pinned()}.
+ * <br />
+ * Every type has a version that is bumped whenever an entity of the type is created, updated or deleted through the
+ * persistence provider. Values derived from the entities of a type, such as price quotes, are cached together with the
+ * version they were derived at and are derived again once the version has moved on.
+ * @author YingHao
+ */
+public class Catalog implements PersistenceListener {
+	private final Map<Class<?>, Entries> types;
+
+	/**
+	 * Catalog constructor. Loads all the entities of the specified types from the specified persistence provider and
+	 * registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to load the entities from.
+	 * @param types - The types of the entities to be held.
+	 * @throws Exception
+	 */
+	public Catalog(final Persistence persistence, final Class<?>... types) throws Exception {
+		this.types = new LinkedHashMap<Class<?>, Entries>();
+		for(Class<?> type: types)
+			this.types.put(type, new Entries());
+
+		// An entity read just before it is deleted would be listed again after its deletion was notified, hence the entities
+		// are loaded while writes are held
+		persistence.holdWrites(new Callable<Void>() {
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(Catalog.this);
+				for(Class<?> type: types)
+					for(Entity entity: persistence.search(null, (Class<Entity>) type, true))
+						put(type, entity);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Gets all the entities of the specified type.
+	 * @param type - A type held by this catalog.
+	 * @return An unmodifiable list of entities, in the order of their identifiers.
+	 * @throws IllegalArgumentException If the type is not held by this catalog.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends Entity> List<T> getAll(Class<T> type) {
+		return (List<T>) this.entries(type).list;
+	}
+
+	/**
+	 * Gets the entity of the specified type with the specified identifier.
+	 * @param type - A type held by this catalog.
+	 * @param id - Unique identifier
+	 * @return The entity, or null if there is no entity with the identifier.
+	 * @throws IllegalArgumentException If the type is not held by this catalog.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends Entity> T get(Class<T> type, long id) {
+		return (T) this.entries(type).entities.get(id);
+	}
+
+	/**
+	 * Gets the version of the specified type, which is bumped whenever an entity of the type is written.
+	 * @param type - A type held by this catalog.
+	 * @return version
+	 * @throws IllegalArgumentException If the type is not held by this catalog.
+	 */
+	public synchronized long getVersion(Class<?> type) {
+		return this.entries(type).version;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(types.containsKey(type))
+			this.put(type, entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(types.containsKey(type))
+			this.put(type, entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		Entries entries = types.get(type);
+
+		if(entries != null && entries.entities.remove(id) != null)
+			entries.changed();
+	}
+
+	/**
+	 * Adds or replaces the specified entity.
+	 * @param type
+	 * @param entity
+	 */
+	private synchronized void put(Class<?> type, Entity entity) {
+		Entries entries = types.get(type);
+
+		entries.entities.put(entity.getIdentifier(), entity);
+		entries.changed();
+	}
+
+	/**
+	 * Gets the entries of the specified type.
+	 * @param type
+	 * @return entries
+	 * @throws IllegalArgumentException If the type is not held by this catalog.
+	 */
+	private Entries entries(Class<?> type) {
+		Entries entries = types.get(type);
+		if(entries == null)
+			throw new IllegalArgumentException("The type " + type.getName() + " is not held by the catalog.");
+
+		return entries;
+	}
+
+	/**
+	 * Entries holds the entities of a type, a list of them that is replaced rather than changed so that it can be
+	 * handed out, and the version of the type.
+	 * @author YingHao
+	 */
+	private static class Entries {
+		private final TreeMap<Long, Entity> entities = new TreeMap<Long, Entity>();
+		private List<Entity> list = Collections.emptyList();
+		private long version = 0;
+
+		/**
+		 * Rebuilds the list of entities and bumps the version.
+		 */
+		public void changed() {
+			list = Collections.unmodifiableList(new ArrayList<Entity>(entities.values()));
+			version++;
+		}
+	}
+
+}
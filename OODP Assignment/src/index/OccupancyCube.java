@@ -0,0 +1,310 @@
+package index;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import model.room.RoomType;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.collection.LongObjectMap;
+
+/**
+ * OccupancyCube holds daily aggregates of the reservations keyed by date, {@link RoomType} and {@link ReservationStatus}.
+ * Every cell holds the room-nights stayed on the date, the number of reservations arriving on the date and the room
+ * revenue of the nights, so that a report over a week, a month or a year sums at most one row per day instead of reading
+ * the reservation history.<br />
+ * A reservation is aggregated under the room type of its criteria, or under no room type if any was accepted, and its
+ * nights are priced at the room type of its assigned room, falling back to the room type of its criteria. The cube is
+ * filled from the reservation history with {@link #backfill()} and is registered as a {@link PersistenceListener}, so that
+ * reservations made, checked in, checked out, cancelled or expired afterwards are applied as they are written.
+ * @author YingHao
+ */
+public class OccupancyCube implements PersistenceListener {
+	public final static long ANY_ROOM_TYPE = 0;
+
+	private final Persistence persistence;
+	private final TreeMap<Long, LongObjectMap<Cell[]>> days;
+	private final LongObjectMap<Stay> stays;
+
+	/**
+	 * OccupancyCube constructor. Fills the cube from the reservation history of the specified persistence provider and
+	 * registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the cube from.
+	 * @throws Exception
+	 */
+	public OccupancyCube(Persistence persistence) throws Exception {
+		this.persistence = persistence;
+		this.days = new TreeMap<Long, LongObjectMap<Cell[]>>();
+		this.stays = new LongObjectMap<Stay>();
+
+		// Changes notified before the backfill are read again from the history, which replaces the stays they applied
+		persistence.addListener(this);
+		this.backfill();
+	}
+
+	/**
+	 * Rebuilds the cube from all the reservations of the persistence provider, archived reservations included. Writes are
+	 * held while the history is read.
+	 * @throws Exception
+	 */
+	public void backfill() throws Exception {
+		// A reservation read before it is checked out, but applied after the check out was notified, would put its old stay
+		// back into the cells, hence no change may be notified while the history is read
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				synchronized(OccupancyCube.this) {
+					days.clear();
+					stays.clear();
+				}
+
+				for(Reservation reservation: persistence.searchAll(null, Reservation.class, true))
+					update(reservation);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Sums the cells of the specified room type and statuses between the specified dates.
+	 * @param start - The first date, inclusive.
+	 * @param end - The last date, inclusive.
+	 * @param roomType - The room type. Null for all room types.
+	 * @param statuses - The reservation statuses to sum.
+	 * @return The room-nights and revenue of the nights from the start date until the end date, exclusive, and the number
+	 * of reservations staying on any date between the start and end date.
+	 */
+	public synchronized Aggregate aggregate(Date start, Date end, RoomType roomType, Collection<ReservationStatus> statuses) {
+		Aggregate aggregate = new Aggregate();
+		long from = AvailabilityCalendar.epochDay(start);
+		long to = AvailabilityCalendar.epochDay(end);
+
+		// Reservations staying over the night before the start date overlap with the range as well
+		LongObjectMap<Cell[]> before = days.get(from - 1);
+		if(before != null)
+			aggregate.count += this.sum(before, roomType, statuses).nights;
+
+		// Loop through the days of the range, at most one row per day
+		for(Map.Entry<Long, LongObjectMap<Cell[]>> entry: days.subMap(from, true, to, true).entrySet()) {
+			Aggregate day = this.sum(entry.getValue(), roomType, statuses);
+			aggregate.count += day.count;
+			if(entry.getKey() < to) {
+				aggregate.nights += day.nights;
+				aggregate.revenue += day.revenue;
+			}
+		}
+
+		return aggregate;
+	}
+
+	/**
+	 * Gets the cells of the specified date.
+	 * @param date
+	 * @param roomType - The room type. Null for all room types.
+	 * @param statuses - The reservation statuses to sum.
+	 * @return The room-nights and revenue of the night of the date, and the number of reservations arriving on it.
+	 */
+	public synchronized Aggregate getDay(Date date, RoomType roomType, Collection<ReservationStatus> statuses) {
+		Aggregate aggregate = new Aggregate();
+
+		LongObjectMap<Cell[]> row = days.get(AvailabilityCalendar.epochDay(date));
+		if(row != null) {
+			aggregate = this.sum(row, roomType, statuses);
+		}
+
+		return aggregate;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.apply(stays.remove(id), -1);
+	}
+
+	/**
+	 * Sums the cells of a row.
+	 * @param row
+	 * @param roomType - The room type. Null for all room types.
+	 * @param statuses
+	 * @return aggregate, of which the count is the number of arrivals.
+	 */
+	private Aggregate sum(LongObjectMap<Cell[]> row, RoomType roomType, Collection<ReservationStatus> statuses) {
+		Aggregate aggregate = new Aggregate();
+
+		long[] types = roomType == null? row.keys(): new long[] { roomType.getIdentifier() };
+		for(long type: types) {
+			Cell[] cells = row.get(type);
+			if(cells != null) {
+				for(ReservationStatus status: statuses) {
+					Cell cell = cells[status.ordinal()];
+					if(cell != null) {
+						aggregate.nights += cell.nights;
+						aggregate.count += cell.arrivals;
+						aggregate.revenue += cell.revenue;
+					}
+				}
+			}
+		}
+
+		return aggregate;
+	}
+
+	/**
+	 * Replaces the stay of the specified reservation with its current status, room type and dates.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		this.apply(stays.remove(reservation.getIdentifier()), -1);
+
+		if(reservation.getStatus() != null && reservation.getStartDate() != null && reservation.getEndDate() != null) {
+			RoomType criteria = reservation.getCriteria() == null? null: reservation.getCriteria().getRoomType();
+			Room room = reservation.getAssignedRoom();
+			RoomType priced = room != null && room.getDescription() != null && room.getType() != null? room.getType(): criteria;
+
+			Stay stay = new Stay(criteria == null? ANY_ROOM_TYPE: criteria.getIdentifier(), reservation.getStatus(),
+					AvailabilityCalendar.epochDay(reservation.getStartDate()), AvailabilityCalendar.epochDay(reservation.getEndDate()),
+					priced == null? 0: priced.getPrice());
+			stays.put(reservation.getIdentifier(), stay);
+			this.apply(stay, 1);
+		}
+	}
+
+	/**
+	 * Adds or subtracts a stay from the cells of its dates.
+	 * @param stay - The stay. Ignored if null.
+	 * @param sign - 1 to add, -1 to subtract.
+	 */
+	private void apply(Stay stay, int sign) {
+		if(stay != null) {
+			this.cell(stay.start, stay).arrivals += sign;
+			for(long day = stay.start; day < stay.end; day++) {
+				Cell cell = this.cell(day, stay);
+				cell.nights += sign;
+				cell.revenue += sign * stay.price;
+			}
+		}
+	}
+
+	/**
+	 * Gets the cell of a stay on the specified date, creating it if absent.
+	 * @param day - The epoch day.
+	 * @param stay
+	 * @return cell
+	 */
+	private Cell cell(long day, Stay stay) {
+		LongObjectMap<Cell[]> row = days.get(day);
+		if(row == null) {
+			row = new LongObjectMap<Cell[]>();
+			days.put(day, row);
+		}
+
+		Cell[] cells = row.get(stay.roomType);
+		if(cells == null) {
+			cells = new Cell[ReservationStatus.values().length];
+			row.put(stay.roomType, cells);
+		}
+
+		Cell cell = cells[stay.status.ordinal()];
+		if(cell == null) {
+			cell = new Cell();
+			cells[stay.status.ordinal()] = cell;
+		}
+
+		return cell;
+	}
+
+	/**
+	 * Aggregate is a sum of cells of the cube.
+	 * @author YingHao
+	 */
+	public static class Aggregate {
+		private long nights;
+		private long count;
+		private double revenue;
+
+		/**
+		 * Gets the number of room-nights.
+		 * @return nights
+		 */
+		public long getNights() {
+			return nights;
+		}
+
+		/**
+		 * Gets the number of reservations.
+		 * @return count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the room revenue of the nights.
+		 * @return revenue
+		 */
+		public double getRevenue() {
+			return revenue;
+		}
+	}
+
+	/**
+	 * Cell holds the aggregates of a date, room type and reservation status.
+	 * @author YingHao
+	 */
+	private static class Cell {
+		private long nights;
+		private long arrivals;
+		private double revenue;
+	}
+
+	/**
+	 * Stay is the contribution of a reservation to the cube.
+	 * @author YingHao
+	 */
+	private static class Stay {
+		private final long roomType;
+		private final ReservationStatus status;
+		private final long start;
+		private final long end;
+		private final double price;
+
+		/**
+		 * Stay constructor.
+		 * @param roomType - The identifier of the room type, or {@link OccupancyCube#ANY_ROOM_TYPE}.
+		 * @param status
+		 * @param start - The epoch day of the first night, inclusive.
+		 * @param end - The epoch day of the last night, exclusive.
+		 * @param price - The price per night.
+		 */
+		public Stay(long roomType, ReservationStatus status, long start, long end, double price) {
+			this.roomType = roomType;
+			this.status = status;
+			this.start = start;
+			this.end = end;
+			this.price = price;
+		}
+	}
+
+}
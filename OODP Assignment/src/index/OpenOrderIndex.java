@@ -0,0 +1,209 @@
+package index;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import model.service.fnb.OrderStatus;
+import model.service.fnb.ServiceOrder;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongObjectMap;
+
+/**
+ * OpenOrderIndex keeps the service orders that are neither {@link OrderStatus#Delivered} nor {@link OrderStatus#Cancelled}
+ * by their status, each ordered by the time the orders were placed, so that the kitchen lists the pending orders without
+ * reading the reservations they were placed under.<br />
+ * It is registered as a {@link PersistenceListener} so that orders placed, prepared, delivered or cancelled through the
+ * persistence provider are reflected as soon as they are written.
+ * @author YingHao
+ */
+public class OpenOrderIndex implements PersistenceListener {
+	private final Map<OrderStatus, TreeMap<Long, TreeSet<Long>>> orders;
+	private final LongObjectMap<Open> entries;
+
+	/**
+	 * OpenOrderIndex constructor. Builds the index from the open service orders of the specified persistence provider and
+	 * registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the index from.
+	 * @throws Exception
+	 */
+	public OpenOrderIndex(final Persistence persistence) throws Exception {
+		this.orders = new EnumMap<OrderStatus, TreeMap<Long, TreeSet<Long>>>(OrderStatus.class);
+		this.entries = new LongObjectMap<Open>();
+
+		// Writes are held while the open orders are read, otherwise an order delivered or cancelled meanwhile could be read as
+		// open after its closing was notified, and be listed to the kitchen again
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(OpenOrderIndex.this);
+				build(persistence);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Builds the index from the open service orders of the specified persistence provider.
+	 * @param persistence
+	 * @throws Exception
+	 */
+	private void build(Persistence persistence) throws Exception {
+		Iterable<ServiceOrder> orders = persistence.search(new Predicate<ServiceOrder>() {
+
+			@Override
+			public boolean test(ServiceOrder item) {
+				return isOpen(item.getStatus());
+			}
+
+		}, ServiceOrder.class, false);
+		for(ServiceOrder order: orders)
+			this.update(order);
+	}
+
+	/**
+	 * Gets the number of open service orders.
+	 * @return count
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the open service orders in any of the specified statuses.
+	 * @param statuses
+	 * @return A list of service order identifiers, ordered by the time the orders were placed.
+	 */
+	public synchronized LongList getOrders(OrderStatus... statuses) {
+		LongList list = new LongList();
+
+		// Merge the orders of the statuses by the time they were placed
+		TreeMap<Long, TreeSet<Long>> merged = new TreeMap<Long, TreeSet<Long>>();
+		for(OrderStatus status: statuses) {
+			TreeMap<Long, TreeSet<Long>> byTime = orders.get(status);
+			if(byTime != null) {
+				for(Map.Entry<Long, TreeSet<Long>> entry: byTime.entrySet()) {
+					TreeSet<Long> ids = merged.get(entry.getKey());
+					if(ids == null) {
+						ids = new TreeSet<Long>();
+						merged.put(entry.getKey(), ids);
+					}
+					ids.addAll(entry.getValue());
+				}
+			}
+		}
+
+		for(TreeSet<Long> ids: merged.values())
+			for(long id: ids)
+				list.add(id);
+
+		return list;
+	}
+
+	/**
+	 * Gets all the open service orders.
+	 * @return A list of service order identifiers, ordered by the time the orders were placed.
+	 */
+	public LongList getOpenOrders() {
+		return this.getOrders(OrderStatus.Confirmed, OrderStatus.Preparing);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof ServiceOrder)
+			this.update((ServiceOrder) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof ServiceOrder)
+			this.update((ServiceOrder) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof ServiceOrder)
+			this.remove(id);
+	}
+
+	/**
+	 * Brings the entry of the specified service order in line with its current status.
+	 * @param order
+	 */
+	private synchronized void update(ServiceOrder order) {
+		this.remove(order.getIdentifier());
+
+		if(isOpen(order.getStatus())) {
+			Date timestamp = order.getTimestamp();
+			Open open = new Open(order.getStatus(), timestamp == null? 0: timestamp.getTime());
+			entries.put(order.getIdentifier(), open);
+
+			TreeMap<Long, TreeSet<Long>> byTime = orders.get(open.status);
+			if(byTime == null) {
+				byTime = new TreeMap<Long, TreeSet<Long>>();
+				orders.put(open.status, byTime);
+			}
+			TreeSet<Long> ids = byTime.get(open.timestamp);
+			if(ids == null) {
+				ids = new TreeSet<Long>();
+				byTime.put(open.timestamp, ids);
+			}
+			ids.add(order.getIdentifier());
+		}
+	}
+
+	/**
+	 * Removes the entry of the specified service order, if any.
+	 * @param order - The identifier of the service order.
+	 */
+	private void remove(long order) {
+		Open open = entries.remove(order);
+
+		if(open != null) {
+			TreeMap<Long, TreeSet<Long>> byTime = orders.get(open.status);
+			TreeSet<Long> ids = byTime.get(open.timestamp);
+			ids.remove(order);
+			if(ids.isEmpty())
+				byTime.remove(open.timestamp);
+		}
+	}
+
+	/**
+	 * Gets a flag indicating if a service order of the specified status is still to be delivered.
+	 * @param status
+	 * @return flag
+	 */
+	private static boolean isOpen(OrderStatus status) {
+		return status == OrderStatus.Confirmed || status == OrderStatus.Preparing;
+	}
+
+	/**
+	 * Open holds the status of an open service order and the time it was placed.
+	 * @author YingHao
+	 */
+	private static class Open {
+		private final OrderStatus status;
+		private final long timestamp;
+
+		/**
+		 * Open constructor.
+		 * @param status
+		 * @param timestamp - The time the order was placed, in milliseconds.
+		 */
+		public Open(OrderStatus status, long timestamp) {
+			this.status = status;
+			this.timestamp = timestamp;
+		}
+	}
+
+}
@@ -0,0 +1,247 @@
+package index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import model.room.BedType;
+import model.room.Room;
+import model.room.RoomDescription;
+import model.room.RoomType;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongLongMap;
+
+/**
+ * RoomAttributeIndex is an in-memory bitmap index over the {@link RoomDescription} of every {@link Room}. Each room is
+ * given a dense position, and one bitset is kept per view, {@link RoomType}, {@link BedType}, wifi and smoking, in which
+ * the bit at the position of a room is set if the room has that attribute. Finding the rooms that fulfil a set of room
+ * criteria is then an intersection of a few bitsets instead of a comparison of every room description.<br />
+ * Views are indexed case-insensitively, as they are compared by {@link RoomDescription#fulfils(RoomDescription)}. The index
+ * is registered as a {@link PersistenceListener} so that rooms created, updated or deleted through the persistence provider,
+ * along with the description they cascade to, are reflected as soon as they are written.
+ * @author YingHao
+ */
+public class RoomAttributeIndex implements PersistenceListener {
+	private final LongLongMap positions;
+	private final LongList rooms;
+	private final BitSet present;
+	private final Map<String, BitSet> views;
+	private final Map<Long, BitSet> roomTypes;
+	private final Map<BedType, BitSet> bedTypes;
+	private final BitSet wifi;
+	private final BitSet smoking;
+
+	/**
+	 * RoomAttributeIndex constructor. Builds the index from the rooms of the specified persistence provider and registers
+	 * itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the index from.
+	 * @throws Exception
+	 */
+	public RoomAttributeIndex(final Persistence persistence) throws Exception {
+		this.positions = new LongLongMap();
+		this.rooms = new LongList();
+		this.present = new BitSet();
+		this.views = new HashMap<String, BitSet>();
+		this.roomTypes = new HashMap<Long, BitSet>();
+		this.bedTypes = new EnumMap<BedType, BitSet>(BedType.class);
+		this.wifi = new BitSet();
+		this.smoking = new BitSet();
+
+		// Writes are held while the rooms are read, otherwise a room read before it was deleted would be indexed again after
+		// its deletion was notified, and be offered to guests
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(RoomAttributeIndex.this);
+				for(Room room: persistence.search(null, Room.class, false))
+					put(room);
+
+				return null;
+			}
+
+		});
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Room)
+			this.put((Room) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Room)
+			this.put((Room) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Room)
+			this.remove(id);
+	}
+
+	/**
+	 * Indexes the attributes of the specified room, replacing those indexed previously for the room. A room written
+	 * without its description loaded keeps the attributes indexed previously.
+	 * @param room - A managed room.
+	 */
+	private synchronized void put(Room room) {
+		RoomDescription description = room.getDescription();
+		if(description == null)
+			return;
+
+		this.remove(room.getIdentifier());
+
+		// Reuse the position of a deleted room to keep the bitsets dense
+		int position = present.nextClearBit(0);
+		if(position < rooms.size())
+			rooms.set(position, room.getIdentifier());
+		else
+			rooms.add(room.getIdentifier());
+		positions.put(room.getIdentifier(), position);
+		present.set(position);
+
+		if(description.getView() != null)
+			bitset(views, description.getView().toLowerCase()).set(position);
+		if(description.getRoomType() != null)
+			bitset(roomTypes, description.getRoomType().getIdentifier()).set(position);
+		if(description.getBedType() != null)
+			bitset(bedTypes, description.getBedType()).set(position);
+		wifi.set(position, description.isWifi());
+		smoking.set(position, description.isSmoking());
+	}
+
+	/**
+	 * Removes the specified room from the index.
+	 * @param room - The identifier of the room.
+	 */
+	private synchronized void remove(long room) {
+		if(positions.containsKey(room)) {
+			int position = (int) positions.get(room, -1);
+			positions.remove(room);
+			present.clear(position);
+
+			// Loop through every attribute bitset to clear the position
+			for(BitSet bitset: views.values())
+				bitset.clear(position);
+			for(BitSet bitset: roomTypes.values())
+				bitset.clear(position);
+			for(BitSet bitset: bedTypes.values())
+				bitset.clear(position);
+			wifi.clear(position);
+			smoking.clear(position);
+		}
+	}
+
+	/**
+	 * Gets the number of indexed rooms.
+	 * @return count
+	 */
+	public synchronized int size() {
+		return positions.size();
+	}
+
+	/**
+	 * Gets the number of rooms that fulfil the specified room criteria.
+	 * @param criteria - The room criteria, of which unspecified attributes match any room.
+	 * @return count
+	 */
+	public synchronized int getCount(RoomDescription criteria) {
+		return this.match(criteria).cardinality();
+	}
+
+	/**
+	 * Gets the identifiers of the rooms that fulfil the specified room criteria.
+	 * @param criteria - The room criteria, of which unspecified attributes match any room.
+	 * @return A list of room identifiers.
+	 */
+	public synchronized LongList getRooms(RoomDescription criteria) {
+		BitSet matches = this.match(criteria);
+
+		LongList list = new LongList(matches.cardinality());
+		// Loop through the set bits and map each position back to its room
+		for(int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+			list.add(rooms.get(i));
+
+		return list;
+	}
+
+	/**
+	 * Gets a predicate accepting the rooms that fulfilled the specified room criteria at the time of the call. As it only
+	 * requires the identifier of the room, it can be evaluated before the references of the room are loaded.
+	 * @param criteria - The room criteria, of which unspecified attributes match any room.
+	 * @return A room predicate.
+	 */
+	public Predicate<Room> getPredicate(RoomDescription criteria) {
+		long[] matches = this.getRooms(criteria).toArray();
+		Arrays.sort(matches);
+
+		return new Predicate<Room>() {
+
+			@Override
+			public boolean test(Room item) {
+				return Arrays.binarySearch(matches, item.getIdentifier()) >= 0;
+			}
+
+		};
+	}
+
+	/**
+	 * Intersects the bitsets of the specified room criteria.
+	 * @param criteria
+	 * @return A new bitset of the positions of the matching rooms.
+	 */
+	private BitSet match(RoomDescription criteria) {
+		BitSet matches = (BitSet) present.clone();
+
+		if(criteria.getView() != null)
+			and(matches, views.get(criteria.getView().toLowerCase()));
+		if(criteria.getRoomType() != null)
+			and(matches, roomTypes.get(criteria.getRoomType().getIdentifier()));
+		if(criteria.getBedType() != null)
+			and(matches, bedTypes.get(criteria.getBedType()));
+		if(criteria.isWifi())
+			matches.and(wifi);
+		if(criteria.isSmoking())
+			matches.and(smoking);
+
+		return matches;
+	}
+
+	/**
+	 * Intersects the specified bitset with an attribute bitset, which is treated as empty if no room has the attribute.
+	 * @param matches
+	 * @param attribute - Can be null.
+	 */
+	private static void and(BitSet matches, BitSet attribute) {
+		if(attribute == null)
+			matches.clear();
+		else
+			matches.and(attribute);
+	}
+
+	/**
+	 * Gets the bitset of the specified attribute value, creating it if absent.
+	 * @param bitsets
+	 * @param key
+	 * @return bitset
+	 */
+	private static <K> BitSet bitset(Map<K, BitSet> bitsets, K key) {
+		BitSet bitset = bitsets.get(key);
+		if(bitset == null) {
+			bitset = new BitSet();
+			bitsets.put(key, bitset);
+		}
+
+		return bitset;
+	}
+
+}
@@ -0,0 +1,167 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import model.reservation.Reservation;
+import model.room.Room;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.collection.LongList;
+import persistence.collection.LongLongMap;
+import persistence.collection.LongObjectMap;
+
+/**
+ * RoomHistoryIndex keeps, for every {@link Room}, the identifiers of the reservations that were ever assigned to it. A
+ * room only holds the reservations booking it, hence the reservations that stayed in a room are looked up here, archived
+ * reservations included, without reading the reservation history.<br />
+ * As the history is read in full to build the index, and writes are held while it is read, it is only built when it is
+ * first looked up. It is registered as a
+ * {@link PersistenceListener} so that reservations assigned a room through the persistence provider are reflected as soon
+ * as they are written.
+ * @author YingHao
+ */
+public class RoomHistoryIndex implements PersistenceListener {
+	private final Persistence persistence;
+	private final LongObjectMap<LongList> rooms;
+	private final LongLongMap assigned;
+	private volatile boolean built;
+
+	/**
+	 * RoomHistoryIndex constructor. Registers itself to be notified of changes to the reservations of the specified
+	 * persistence provider.
+	 * @param persistence - The Persistence API implementation to build the index from.
+	 */
+	public RoomHistoryIndex(Persistence persistence) {
+		this.persistence = persistence;
+		this.rooms = new LongObjectMap<LongList>();
+		this.assigned = new LongLongMap();
+		this.built = false;
+
+		// Reservations changed before the index is built are read again by the build, which finds them in their latest room
+		persistence.addListener(this);
+	}
+
+	/**
+	 * Builds the index from all the reservations of the persistence provider, archived reservations included, if it has
+	 * not been built. Writes are held while the history is read.
+	 * @throws Exception
+	 */
+	public void build() throws Exception {
+		if(!built) {
+			// A reservation read before it was moved to another room, but applied after the move was notified, would be put
+			// back into the history of its former room, hence no change may be notified while the history is read
+			persistence.holdWrites(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					if(!built) {
+						for(Reservation reservation: persistence.searchAll(null, Reservation.class, false))
+							update(reservation);
+						built = true;
+					}
+
+					return null;
+				}
+
+			});
+		}
+	}
+
+	/**
+	 * Gets the identifiers of the reservations that were assigned to the specified room, building the index if it has not
+	 * been built.
+	 * @param room
+	 * @return A list of reservation identifiers in the order the reservations were made.
+	 * @throws Exception
+	 */
+	public LongList getReservations(Room room) throws Exception {
+		LongList reservations = new LongList();
+
+		this.build();
+		synchronized(this) {
+			LongList list = rooms.get(room.getIdentifier());
+			if(list != null)
+				reservations.addAll(list);
+		}
+		reservations.sort();
+
+		return reservations;
+	}
+
+	/**
+	 * Gets the reservations that were assigned to the specified room, retrieving them from the persistence provider.
+	 * @param room
+	 * @return A list of reservations in the order they were made.
+	 * @throws Exception
+	 */
+	public List<Reservation> getHistory(Room room) throws Exception {
+		List<Reservation> history = new ArrayList<Reservation>();
+
+		LongList reservations = this.getReservations(room);
+		for(int i = 0; i < reservations.size(); i++) {
+			Reservation reservation = persistence.retrieveByID(reservations.get(i), Reservation.class);
+			if(reservation != null)
+				history.add(reservation);
+		}
+
+		return history;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.remove(id);
+		else if(entity instanceof Room)
+			rooms.remove(id);
+	}
+
+	/**
+	 * Records the room assigned to the specified reservation, moving it from the room it was assigned to before if any.
+	 * A reservation keeps its assigned room once it is closed, hence it stays in the history of the room.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		Room room = reservation.getAssignedRoom();
+
+		if(room != null && assigned.get(reservation.getIdentifier(), 0) != room.getIdentifier()) {
+			this.remove(reservation.getIdentifier());
+
+			LongList list = rooms.get(room.getIdentifier());
+			if(list == null) {
+				list = new LongList();
+				rooms.put(room.getIdentifier(), list);
+			}
+			list.add(reservation.getIdentifier());
+			assigned.put(reservation.getIdentifier(), room.getIdentifier());
+		}
+	}
+
+	/**
+	 * Removes the specified reservation from the history of the room it was assigned to.
+	 * @param reservation - The identifier of the reservation.
+	 */
+	private void remove(long reservation) {
+		if(assigned.containsKey(reservation)) {
+			LongList list = rooms.get(assigned.get(reservation, 0));
+			if(list != null)
+				list.removeValue(reservation);
+			assigned.remove(reservation);
+		}
+	}
+
+}
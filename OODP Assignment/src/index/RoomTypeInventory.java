@@ -0,0 +1,445 @@
+package index;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.Room;
+import model.room.RoomStatus;
+import model.room.RoomType;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongObjectMap;
+
+/**
+ * RoomTypeInventory keeps, for every {@link RoomType}, the number of rooms of that type and the number of them booked on
+ * each night. Booked counts are held in a segment tree over epoch days supporting range increments and range maximum, so
+ * that the fewest rooms of a type that are free on any night of a stay is found in O(log D) for a horizon of D days,
+ * without reading the room or reservation files. As a guest needs the same room on every night of the stay, it is an
+ * upper bound of the rooms that can be reserved, and no room can be reserved when it is 0.<br />
+ * Rooms under {@link RoomStatus#Maintenance} are not counted. The inventory covers the same horizon as the
+ * {@link AvailabilityCalendar}, configured with {@link AvailabilityCalendar#KEY_HORIZON}, which moves forward as days
+ * pass. It is registered as a {@link PersistenceListener} so that reservations made, cancelled, expired or checked out are
+ * reflected as soon as they are written.
+ * @author YingHao
+ */
+public class RoomTypeInventory implements PersistenceListener {
+	private long firstDay;
+	private long nextDay;
+	private final int horizon;
+	private final LongObjectMap<Inventory> types;
+	private final LongObjectMap<RoomEntry> rooms;
+	private final LongObjectMap<Booking> bookings;
+
+	/**
+	 * RoomTypeInventory constructor. Builds the inventory from the rooms and active reservations of the specified
+	 * persistence provider and registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the inventory from.
+	 * @throws Exception
+	 */
+	public RoomTypeInventory(final Persistence persistence) throws Exception {
+		this.firstDay = AvailabilityCalendar.epochDay(new Date());
+		this.nextDay = AvailabilityCalendar.startOfDay(this.firstDay + 1);
+		this.horizon = Integer.parseInt(persistence.getConfiguration().getProperty(AvailabilityCalendar.KEY_HORIZON,
+				Integer.toString(AvailabilityCalendar.DEFAULT_HORIZON)));
+		this.types = new LongObjectMap<Inventory>();
+		this.rooms = new LongObjectMap<RoomEntry>();
+		this.bookings = new LongObjectMap<Booking>();
+
+		// Booked counts are incremented and decremented rather than set, so a stale reservation read after its cancellation was
+		// notified would leave its nights counted for good. Writes are held while building so that no event overlaps the scan.
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(RoomTypeInventory.this);
+				build(persistence);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Builds the inventory from the rooms and active reservations of the specified persistence provider.
+	 * @param persistence
+	 * @throws Exception
+	 */
+	private void build(Persistence persistence) throws Exception {
+		for(Room room: persistence.search(null, Room.class, false))
+			this.update(room);
+
+		final Date first = new Date(AvailabilityCalendar.startOfDay(this.firstDay));
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				return isBooking(item.getStatus()) && item.getEndDate().after(first);
+			}
+
+		}, Reservation.class, false);
+		for(Reservation reservation: reservations)
+			this.update(reservation);
+	}
+
+	/**
+	 * Gets a flag indicating if the nights between the specified dates fall within the horizon of this inventory.
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return flag
+	 */
+	public synchronized boolean covers(Date start, Date end) {
+		this.roll();
+
+		return AvailabilityCalendar.epochDay(start) >= firstDay && AvailabilityCalendar.epochDay(end) - firstDay <= horizon;
+	}
+
+	/**
+	 * Gets the number of rooms of the specified room type that are not under maintenance.
+	 * @param roomType
+	 * @return count
+	 */
+	public synchronized int getRoomCount(RoomType roomType) {
+		Inventory inventory = this.types.get(roomType.getIdentifier());
+
+		return inventory == null? 0: inventory.rooms;
+	}
+
+	/**
+	 * Gets the fewest rooms of the specified room type that are free on any night between the specified dates, checking in
+	 * the same call that the dates are covered by this inventory, which may move forward a day between two calls.
+	 * @param roomType
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return count, or -1 if the dates are not covered by this inventory.
+	 */
+	public synchronized int checkAvailableCount(RoomType roomType, Date start, Date end) {
+		return this.covers(start, end)? this.getAvailableCount(roomType, start, end): -1;
+	}
+
+	/**
+	 * Gets the fewest rooms of the specified room type that are free on any night between the specified dates.
+	 * @param roomType
+	 * @param start - The start date of the stay.
+	 * @param end - The end date of the stay, exclusive.
+	 * @return count
+	 * @throws IllegalArgumentException If the dates are not covered by this inventory.
+	 */
+	public synchronized int getAvailableCount(RoomType roomType, Date start, Date end) {
+		if(!this.covers(start, end))
+			throw new IllegalArgumentException("The dates are outside of the horizon of the room type inventory.");
+
+		int count = 0;
+		Inventory inventory = this.types.get(roomType.getIdentifier());
+		if(inventory != null) {
+			int from = this.night(AvailabilityCalendar.epochDay(start));
+			int to = this.night(AvailabilityCalendar.epochDay(end));
+			count = inventory.rooms - (from < to? inventory.booked.max(from, to): 0);
+		}
+
+		return Math.max(0, count);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+		else if(entity instanceof Room)
+			this.update((Room) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+		else if(entity instanceof Room)
+			this.update((Room) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.release(id);
+		else if(entity instanceof Room)
+			this.removeRoom(id);
+	}
+
+	/**
+	 * Brings the room type and status of the specified room in line with the inventory, moving its bookings to its new
+	 * room type if it has changed.
+	 * @param room
+	 */
+	private synchronized void update(Room room) {
+		long type = room.getDescription() == null || room.getDescription().getRoomType() == null? 0: room.getDescription().getRoomType().getIdentifier();
+		boolean counted = room.getStatus() != RoomStatus.Maintenance;
+
+		RoomEntry entry = this.rooms.get(room.getIdentifier());
+		if(entry == null) {
+			entry = new RoomEntry();
+			this.rooms.put(room.getIdentifier(), entry);
+		}
+		else if(entry.type != type || entry.counted != counted) {
+			this.inventory(entry.type).rooms -= entry.counted? 1: 0;
+			// Loop through the bookings of the room to move them to its new room type
+			for(int i = 0; entry.type != type && i < entry.reservations.size(); i++) {
+				Booking booking = this.bookings.get(entry.reservations.get(i));
+				this.book(entry.type, booking, -1);
+				this.book(type, booking, 1);
+			}
+		}
+		else {
+			entry = null;
+		}
+
+		if(entry != null) {
+			entry.type = type;
+			entry.counted = counted;
+			this.inventory(type).rooms += counted? 1: 0;
+		}
+	}
+
+	/**
+	 * Removes the specified room from the inventory.
+	 * @param room - The identifier of the room.
+	 */
+	private void removeRoom(long room) {
+		RoomEntry entry = this.rooms.remove(room);
+
+		if(entry != null) {
+			this.inventory(entry.type).rooms -= entry.counted? 1: 0;
+			while(entry.reservations.size() > 0)
+				this.release(entry.reservations.get(0));
+		}
+	}
+
+	/**
+	 * Brings the nights booked by the specified reservation in line with its current status, room and dates.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		this.release(reservation.getIdentifier());
+
+		Room room = reservation.getAssignedRoom();
+		if(isBooking(reservation.getStatus()) && room != null && reservation.getStartDate() != null && reservation.getEndDate() != null) {
+			Booking booking = new Booking(room.getIdentifier(), AvailabilityCalendar.epochDay(reservation.getStartDate()),
+					AvailabilityCalendar.epochDay(reservation.getEndDate()));
+			this.bookings.put(reservation.getIdentifier(), booking);
+
+			RoomEntry entry = this.rooms.get(booking.room);
+			if(entry == null) {
+				this.update(room);
+				entry = this.rooms.get(booking.room);
+			}
+			entry.reservations.add(reservation.getIdentifier());
+			this.book(entry.type, booking, 1);
+		}
+	}
+
+	/**
+	 * Releases the nights booked by the specified reservation, if any.
+	 * @param reservation - The identifier of the reservation.
+	 */
+	private void release(long reservation) {
+		Booking booking = this.bookings.remove(reservation);
+
+		if(booking != null) {
+			RoomEntry entry = this.rooms.get(booking.room);
+			if(entry != null) {
+				entry.reservations.removeValue(reservation);
+				this.book(entry.type, booking, -1);
+			}
+		}
+	}
+
+	/**
+	 * Adds the specified count to the nights of a booking for a room type.
+	 * @param type - The identifier of the room type.
+	 * @param booking
+	 * @param count
+	 */
+	private void book(long type, Booking booking, int count) {
+		int start = this.night(booking.start);
+		int end = this.night(booking.end);
+		if(start < end)
+			this.inventory(type).booked.add(start, end, count);
+	}
+
+	/**
+	 * Gets the index of the specified epoch day in the segment trees, clamped to the horizon.
+	 * @param day - The epoch day.
+	 * @return index
+	 */
+	private int night(long day) {
+		return (int) Math.max(0, Math.min(horizon, day - firstDay));
+	}
+
+	/**
+	 * Moves the first day of this inventory forward to the current day once the day has changed, so that the horizon keeps
+	 * covering as many days ahead, and counts every booking again relative to it.
+	 */
+	private synchronized void roll() {
+		long now = System.currentTimeMillis();
+
+		if(now >= nextDay) {
+			long today = AvailabilityCalendar.epochDay(new Date(now));
+			if(today > firstDay) {
+				firstDay = today;
+				for(long type: this.types.keys())
+					this.types.get(type).booked = new SegmentTree(Math.max(1, horizon));
+				// Loop through the bookings, nights that have passed fall off the start of the segment trees
+				for(long reservation: this.bookings.keys()) {
+					Booking booking = this.bookings.get(reservation);
+					this.book(this.rooms.get(booking.room).type, booking, 1);
+				}
+			}
+			nextDay = AvailabilityCalendar.startOfDay(today + 1);
+		}
+	}
+
+	/**
+	 * Gets the inventory of the specified room type, creating it if absent.
+	 * @param type - The identifier of the room type.
+	 * @return inventory
+	 */
+	private Inventory inventory(long type) {
+		Inventory inventory = this.types.get(type);
+		if(inventory == null) {
+			inventory = new Inventory(horizon);
+			this.types.put(type, inventory);
+		}
+
+		return inventory;
+	}
+
+	/**
+	 * Gets a flag indicating if the specified reservation status books the assigned room.
+	 * @param status
+	 * @return flag
+	 */
+	private static boolean isBooking(ReservationStatus status) {
+		return status == ReservationStatus.Confirmed || status == ReservationStatus.CheckedIn;
+	}
+
+	/**
+	 * Inventory holds the number of rooms of a room type and the number of them booked on each night.
+	 * @author YingHao
+	 */
+	private static class Inventory {
+		private int rooms;
+		private SegmentTree booked;
+
+		/**
+		 * Inventory constructor.
+		 * @param horizon - The number of nights.
+		 */
+		public Inventory(int horizon) {
+			this.rooms = 0;
+			this.booked = new SegmentTree(Math.max(1, horizon));
+		}
+	}
+
+	/**
+	 * RoomEntry holds the room type of a room, whether it is counted and the reservations booking it.
+	 * @author YingHao
+	 */
+	private static class RoomEntry {
+		private long type;
+		private boolean counted;
+		private final LongList reservations = new LongList();
+	}
+
+	/**
+	 * Booking is the range of nights booked by a reservation, in epoch days so that it outlives the first day of the inventory.
+	 * @author YingHao
+	 */
+	private static class Booking {
+		private final long room;
+		private final long start;
+		private final long end;
+
+		/**
+		 * Booking constructor.
+		 * @param room - The identifier of the booked room.
+		 * @param start - The epoch day of the first night, inclusive.
+		 * @param end - The epoch day of the last night, exclusive.
+		 */
+		public Booking(long room, long start, long end) {
+			this.room = room;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * SegmentTree holds a count per night and supports adding to a range of nights and finding the maximum count over a
+	 * range of nights, both in O(log D), with lazily propagated range increments.
+	 * @author YingHao
+	 */
+	static class SegmentTree {
+		private final int size;
+		private final int[] max;
+		private final int[] pending;
+
+		/**
+		 * SegmentTree constructor.
+		 * @param size - The number of nights.
+		 */
+		public SegmentTree(int size) {
+			this.size = size;
+			this.max = new int[4 * size];
+			this.pending = new int[4 * size];
+		}
+
+		/**
+		 * Adds a count to every night in the specified range.
+		 * @param from - Inclusive.
+		 * @param to - Exclusive.
+		 * @param count
+		 */
+		public void add(int from, int to, int count) {
+			this.add(1, 0, size, from, to, count);
+		}
+
+		/**
+		 * Gets the maximum count of the nights in the specified range.
+		 * @param from - Inclusive.
+		 * @param to - Exclusive.
+		 * @return max
+		 */
+		public int max(int from, int to) {
+			return this.max(1, 0, size, from, to);
+		}
+
+		private void add(int node, int low, int high, int from, int to, int count) {
+			if(from <= low && high <= to) {
+				max[node] += count;
+				pending[node] += count;
+			}
+			else if(from < high && low < to) {
+				int middle = (low + high) >>> 1;
+				this.add(2 * node, low, middle, from, to, count);
+				this.add(2 * node + 1, middle, high, from, to, count);
+				max[node] = pending[node] + Math.max(max[2 * node], max[2 * node + 1]);
+			}
+		}
+
+		private int max(int node, int low, int high, int from, int to) {
+			int value = Integer.MIN_VALUE;
+
+			if(from <= low && high <= to)
+				value = max[node];
+			else if(from < high && low < to) {
+				int middle = (low + high) >>> 1;
+				value = pending[node] + Math.max(this.max(2 * node, low, middle, from, to), this.max(2 * node + 1, middle, high, from, to));
+			}
+
+			return value;
+		}
+	}
+
+}
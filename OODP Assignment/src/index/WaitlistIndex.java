@@ -0,0 +1,243 @@
+package index;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.BedType;
+import model.room.Room;
+import model.room.RoomDescription;
+import model.room.RoomType;
+import persistence.Entity;
+import persistence.Persistence;
+import persistence.PersistenceListener;
+import persistence.Predicate;
+import persistence.collection.LongList;
+import persistence.collection.LongObjectMap;
+
+/**
+ * WaitlistIndex keeps the {@link ReservationStatus#Waitlist} reservations in buckets by the {@link RoomType} and
+ * {@link BedType} of their criteria, each ordered by the time the reservations were made, together with the nights they
+ * are staying. Finding the reservations that a freed room may be assigned to then examines only the buckets that the room
+ * fits and the reservations staying over the freed nights, without reading the reservation file.<br />
+ * It is registered as a {@link PersistenceListener} so that reservations entering and leaving the wait list through the
+ * persistence provider are reflected as soon as they are written.
+ * @author YingHao
+ */
+public class WaitlistIndex implements PersistenceListener {
+	private final static long ANY_ROOM_TYPE = 0;
+
+	private final LongObjectMap<Waiting> entries;
+	private final Map<Bucket, TreeSet<Long>> buckets;
+
+	/**
+	 * WaitlistIndex constructor. Builds the index from the reservations in the wait list of the specified persistence
+	 * provider and registers itself to be notified of subsequent changes.
+	 * @param persistence - The Persistence API implementation to build the index from.
+	 * @throws Exception
+	 */
+	public WaitlistIndex(final Persistence persistence) throws Exception {
+		this.entries = new LongObjectMap<Waiting>();
+		this.buckets = new HashMap<Bucket, TreeSet<Long>>();
+
+		// Writes are held while the wait list is read, otherwise a reservation assigned a room meanwhile could be read as
+		// still waiting after its assignment was notified, and be offered another room
+		persistence.holdWrites(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				persistence.addListener(WaitlistIndex.this);
+				build(persistence);
+
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Builds the index from the reservations in the wait list of the specified persistence provider.
+	 * @param persistence
+	 * @throws Exception
+	 */
+	private void build(Persistence persistence) throws Exception {
+		Iterable<Reservation> reservations = persistence.search(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				return item.getStatus() == ReservationStatus.Waitlist;
+			}
+
+		}, Reservation.class, false);
+		for(Reservation reservation: reservations)
+			this.update(reservation);
+	}
+
+	/**
+	 * Gets the number of reservations in the wait list.
+	 * @return count
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the reservations in the wait list whose room type and bed type criteria the specified room fulfils and who are
+	 * staying on any night between the specified dates. The remaining criteria and the availability of the room must
+	 * still be checked against the reservations themselves.
+	 * @param room - The room that has been freed.
+	 * @param start - The first freed night.
+	 * @param end - The end of the freed nights, exclusive.
+	 * @return A list of reservation identifiers in the order the reservations were made.
+	 */
+	public synchronized LongList getCandidates(Room room, Date start, Date end) {
+		long from = AvailabilityCalendar.epochDay(start);
+		long to = AvailabilityCalendar.epochDay(end);
+
+		RoomDescription description = room.getDescription();
+		long roomType = description.getRoomType() == null? ANY_ROOM_TYPE: description.getRoomType().getIdentifier();
+
+		// Merge the buckets the room fits in, which are ordered by the time the reservations were made
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for(long type: new long[] { roomType, ANY_ROOM_TYPE })
+			for(BedType bedType: new BedType[] { description.getBedType(), null })
+				this.collect(new Bucket(type, bedType), from, to, ids);
+
+		LongList candidates = new LongList(ids.size());
+		for(long id: ids)
+			candidates.add(id);
+
+		return candidates;
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onCreated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onUpdated(T entity, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.update((Reservation) entity);
+	}
+
+	@Override
+	public synchronized <T extends Entity> void onDeleted(T entity, long id, Class<T> type) {
+		if(entity instanceof Reservation)
+			this.remove(id);
+	}
+
+	/**
+	 * Adds the reservations of the specified bucket staying on any night between the specified epoch days.
+	 * @param bucket
+	 * @param from - Inclusive.
+	 * @param to - Exclusive.
+	 * @param ids - The set to add the identifiers of the reservations to.
+	 */
+	private void collect(Bucket bucket, long from, long to, TreeSet<Long> ids) {
+		TreeSet<Long> bucketIds = buckets.get(bucket);
+
+		if(bucketIds != null) {
+			for(long id: bucketIds) {
+				Waiting waiting = entries.get(id);
+				if(waiting.start < to && waiting.end > from)
+					ids.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Brings the entry of the specified reservation in line with its current status, criteria and dates.
+	 * @param reservation
+	 */
+	private synchronized void update(Reservation reservation) {
+		this.remove(reservation.getIdentifier());
+
+		if(reservation.getStatus() == ReservationStatus.Waitlist && reservation.getStartDate() != null && reservation.getEndDate() != null) {
+			RoomDescription criteria = reservation.getCriteria();
+			Bucket bucket = new Bucket(criteria.getRoomType() == null? ANY_ROOM_TYPE: criteria.getRoomType().getIdentifier(), criteria.getBedType());
+			Waiting waiting = new Waiting(bucket, AvailabilityCalendar.epochDay(reservation.getStartDate()),
+					AvailabilityCalendar.epochDay(reservation.getEndDate()));
+			entries.put(reservation.getIdentifier(), waiting);
+
+			TreeSet<Long> ids = buckets.get(bucket);
+			if(ids == null) {
+				ids = new TreeSet<Long>();
+				buckets.put(bucket, ids);
+			}
+			ids.add(reservation.getIdentifier());
+		}
+	}
+
+	/**
+	 * Removes the entry of the specified reservation, if any.
+	 * @param reservation - The identifier of the reservation.
+	 */
+	private void remove(long reservation) {
+		Waiting waiting = entries.remove(reservation);
+
+		if(waiting != null) {
+			TreeSet<Long> ids = buckets.get(waiting.bucket);
+			ids.remove(reservation);
+			if(ids.isEmpty())
+				buckets.remove(waiting.bucket);
+		}
+	}
+
+	/**
+	 * Bucket is the room type and bed type criteria shared by the reservations of a bucket, of which either may be any.
+	 * @author YingHao
+	 */
+	private static class Bucket {
+		private final long roomType;
+		private final BedType bedType;
+
+		/**
+		 * Bucket constructor.
+		 * @param roomType - The identifier of the room type, or {@link WaitlistIndex#ANY_ROOM_TYPE}.
+		 * @param bedType - The bed type. Null for any.
+		 */
+		public Bucket(long roomType, BedType bedType) {
+			this.roomType = roomType;
+			this.bedType = bedType;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Bucket && ((Bucket) obj).roomType == roomType && ((Bucket) obj).bedType == bedType;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(roomType) + (bedType == null? 0: bedType.hashCode());
+		}
+	}
+
+	/**
+	 * Waiting is the bucket of a reservation in the wait list and the nights it is staying.
+	 * @author YingHao
+	 */
+	private static class Waiting {
+		private final Bucket bucket;
+		private final long start;
+		private final long end;
+
+		/**
+		 * Waiting constructor.
+		 * @param bucket - The bucket of the reservation.
+		 * @param start - The epoch day of the first night, inclusive.
+		 * @param end - The epoch day of the last night, exclusive.
+		 */
+		public Waiting(Bucket bucket, long start, long end) {
+			this.bucket = bucket;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+}
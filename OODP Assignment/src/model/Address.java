@@ -1,14 +1,18 @@
 package model;
 
 import persistence.Entity;
+import persistence.PersistAnnotation;
 
 /**
  * Address is an {@link Entity} class that encapsulates information about an Address.
  * @author YingHao
  */
 public class Address extends Entity {
+	@PersistAnnotation(intern = true)
 	private String country;
+	@PersistAnnotation(intern = true)
 	private String city;
+	@PersistAnnotation(intern = true)
 	private String state;
 	private String street;
 	private String unitNumber;
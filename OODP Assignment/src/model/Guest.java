@@ -14,6 +14,7 @@ public class Guest extends Entity {
 	)
 	private final BillingInformation billing;
 	private final String identification;
+	@PersistAnnotation(intern = true)
 	private final String nationality;
 	private String name;
 	private String contactNo;
@@ -0,0 +1,86 @@
+package model.reservation;
+
+import java.util.Date;
+
+import persistence.Entity;
+
+/**
+ * ChargeLine is an {@link Entity} class that encapsulates a charge posted to a {@link Folio}, together with the balance of
+ * the folio after the charge. Charge lines are never changed once posted, a charge is reversed by posting a negative one.
+ * @author YingHao
+ */
+public class ChargeLine extends Entity {
+	private final ChargeType type;
+	private final String description;
+	private final Date date;
+	private final double amount;
+	private final double balance;
+	
+	/**
+	 * ChargeLine constructor. For Persistence API usage.
+	 */
+	protected ChargeLine() {
+		this.type = null;
+		this.description = null;
+		this.date = null;
+		this.amount = 0;
+		this.balance = 0;
+	}
+	
+	/**
+	 * ChargeLine constructor.
+	 * @param type - The kind of charge.
+	 * @param description - The description of the charge.
+	 * @param date - The date the charge applies to.
+	 * @param amount - The amount charged.
+	 * @param balance - The balance of the folio after the charge.
+	 */
+	public ChargeLine(ChargeType type, String description, Date date, double amount, double balance) {
+		this.type = type;
+		this.description = description;
+		this.date = date;
+		this.amount = amount;
+		this.balance = balance;
+	}
+	
+	/**
+	 * Gets the kind of charge.
+	 * @return type
+	 */
+	public ChargeType getType() {
+		return type;
+	}
+	
+	/**
+	 * Gets the description of the charge.
+	 * @return description
+	 */
+	public String getDescription() {
+		return description;
+	}
+	
+	/**
+	 * Gets the date the charge applies to.
+	 * @return date
+	 */
+	public Date getDate() {
+		return date;
+	}
+	
+	/**
+	 * Gets the amount charged.
+	 * @return amount
+	 */
+	public double getAmount() {
+		return amount;
+	}
+	
+	/**
+	 * Gets the balance of the folio after the charge.
+	 * @return balance
+	 */
+	public double getBalance() {
+		return balance;
+	}
+
+}
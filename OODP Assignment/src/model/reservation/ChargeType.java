@@ -0,0 +1,19 @@
+package model.reservation;
+
+/**
+ * ChargeType is an enumeration that specifies the kinds of charges posted to a {@link Folio}.
+ * @author YingHao
+ */
+public enum ChargeType {
+	
+	/**
+	 * Specifies that a charge is for a night stayed in the assigned room.
+	 */
+	Night,
+	
+	/**
+	 * Specifies that a charge is for a delivered service order.
+	 */
+	Service;
+
+}
@@ -0,0 +1,144 @@
+package model.reservation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.service.fnb.ServiceOrder;
+import persistence.CascadeType;
+import persistence.Entity;
+import persistence.PersistAnnotation;
+
+/**
+ * Folio is an {@link Entity} class that encapsulates the ledger of charges of a {@link Reservation}. Charges are appended as
+ * {@link ChargeLine} instances when a night is posted or a service order is delivered, and the totals are kept as charges
+ * are posted, hence billing does not walk the nights and service orders of the reservation.
+ * @author YingHao
+ */
+public class Folio extends Entity {
+	@PersistAnnotation(
+			type = ChargeLine.class,
+			cascade = {CascadeType.Create, CascadeType.Delete}
+	)
+	private final List<ChargeLine> lines;
+	private Date postedUntil;
+	private int nights;
+	private int services;
+	private double roomTotal;
+	private double serviceTotal;
+	
+	/**
+	 * Folio constructor. Creates an empty folio.
+	 */
+	public Folio() {
+		this.lines = new ArrayList<ChargeLine>();
+	}
+	
+	/**
+	 * Gets the charges posted to this folio, in the order they were posted.
+	 * @return lines
+	 */
+	public List<ChargeLine> getLines() {
+		return Collections.unmodifiableList(lines);
+	}
+	
+	/**
+	 * Gets the date up to which nights have been posted, exclusive.
+	 * @return postedUntil, or null if no night has been posted.
+	 */
+	public Date getPostedUntil() {
+		return postedUntil;
+	}
+	
+	/**
+	 * Gets the number of nights posted.
+	 * @return nights
+	 */
+	public int getNights() {
+		return nights;
+	}
+	
+	/**
+	 * Gets the number of service orders charged, less those reversed.
+	 * @return services
+	 */
+	public int getServices() {
+		return services;
+	}
+	
+	/**
+	 * Gets the total of the nights posted.
+	 * @return roomTotal
+	 */
+	public double getRoomTotal() {
+		return roomTotal;
+	}
+	
+	/**
+	 * Gets the total of the service orders charged.
+	 * @return serviceTotal
+	 */
+	public double getServiceTotal() {
+		return serviceTotal;
+	}
+	
+	/**
+	 * Gets the balance of this folio.
+	 * @return total
+	 */
+	public double getTotal() {
+		return roomTotal + serviceTotal;
+	}
+	
+	/**
+	 * Posts a charge for every night from the specified start date, or from the last night posted if later, up to the
+	 * specified date.
+	 * @param start - The first night of the stay.
+	 * @param until - The date up to which nights are posted, exclusive.
+	 * @param price - The price per night.
+	 * @return The number of nights posted.
+	 */
+	public int postNights(Date start, Date until, double price) {
+		int count = 0;
+		
+		long day = TimeUnit.DAYS.toMillis(1);
+		long night = postedUntil != null && postedUntil.after(start)? postedUntil.getTime(): start.getTime();
+		// Loop through the nights that have not been posted, a night is posted only once a full day has passed
+		for(; night + day <= until.getTime(); night += day) {
+			roomTotal += price;
+			nights++;
+			lines.add(new ChargeLine(ChargeType.Night, "Night", new Date(night), price, getTotal()));
+			count++;
+		}
+		
+		if(count > 0)
+			postedUntil = new Date(night);
+		
+		return count;
+	}
+	
+	/**
+	 * Posts a charge for the specified delivered service order.
+	 * @param order
+	 */
+	public void post(ServiceOrder order) {
+		double price = order.getItem().getPrice();
+		serviceTotal += price;
+		services++;
+		lines.add(new ChargeLine(ChargeType.Service, order.getItem().getName(), new Date(), price, getTotal()));
+	}
+	
+	/**
+	 * Posts a negative charge reversing the charge of the specified service order, which is no longer delivered.
+	 * @param order
+	 */
+	public void reverse(ServiceOrder order) {
+		double price = order.getItem().getPrice();
+		serviceTotal -= price;
+		services--;
+		lines.add(new ChargeLine(ChargeType.Service, "Reversal of " + order.getItem().getName(), new Date(), -price, getTotal()));
+	}
+
+}
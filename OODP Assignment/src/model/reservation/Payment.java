@@ -1,11 +1,8 @@
 package model.reservation;
 
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import model.room.Room;
-import model.service.fnb.OrderStatus;
-import model.service.fnb.ServiceOrder;
 import persistence.Entity;
 import persistence.PersistAnnotation;
 
@@ -62,23 +59,15 @@ public class Payment extends Entity {
 	}
 	
 	/**
-	 * Gets the total sum for this payment instance.
+	 * Gets the total sum for this payment instance, from the balances of the folios of the reservations.
 	 * @return totalSum
 	 */
 	public double getTotalSum() {
 		double totalSum = 0;
 		
-		for(Reservation reservation: reservations) {
-			// Loop through all reservations and add up all the room prices
-			long numOfDays = (reservation.getEndDate().getTime() - reservation.getStartDate().getTime()) / TimeUnit.DAYS.toMillis(1);
-			totalSum += reservation.getAssignedRoom().getType().getPrice() * numOfDays;
-			
-			for(ServiceOrder order: reservation.getOrderList()) {
-				// Loop through all the service orders and add up all the service orders.
-				if(order.getStatus() == OrderStatus.Delivered)
-					totalSum += order.getItem().getPrice();
-			}
-		}
+		// Loop through all reservations and add up the balances of their folios
+		for(Reservation reservation: reservations)
+			totalSum += reservation.getFolio().getTotal();
 		
 		// Perform discount operation
 		if(discountType != null) {
@@ -100,27 +89,50 @@ public class Payment extends Entity {
 		builder.append("Total number of rooms: " + reservations.size() + "\n");
 		for(Reservation reservation: reservations) {
 			builder.append("\n");
-			double roomSubTotal = 0;
 			Room room = reservation.getAssignedRoom();
+			Folio folio = reservation.getFolio();
 			
-			long days = (reservation.getEndDate().getTime() - reservation.getStartDate().getTime()) / TimeUnit.DAYS.toMillis(1);
 			builder.append("----- Room " + room.getNumber() + " -----\n");
-			builder.append("Cost per night: " + room.getType().getPrice() + "\n");
-			builder.append("Number of nights stayed: " + days + "\n");
-			roomSubTotal = days * room.getType().getPrice();
+			builder.append("Number of nights stayed: " + folio.getNights() + "\n");
+			
+			// Loop through the nights posted, printing the price they were charged at for every run of nights at the same price
+			int nights = 0;
+			double price = 0;
+			for(ChargeLine line: folio.getLines()) {
+				if(line.getType() == ChargeType.Night) {
+					if(nights > 0 && line.getAmount() != price) {
+						builder.append("Cost per night: " + price + " (" + nights + " night(s))\n");
+						nights = 0;
+					}
+					price = line.getAmount();
+					nights++;
+				}
+			}
+			if(nights > 0)
+				builder.append("Cost per night: " + price + " (" + nights + " night(s))\n");
 			
-			int count = 0;
+			int orders = 0;
 			builder.append("--- Service Orders ---\n");
-			for(ServiceOrder order: reservation.getOrderList()) {
-				// Loop through all the service orders and count the number of delivered service order.
-				if(order.getStatus() == OrderStatus.Delivered) {
-					count++;
-					builder.append("Service Order " + count + ": " + order.getItem().getName() + "($" + order.getItem().getPrice() + ")\n");
-					roomSubTotal += order.getItem().getPrice();
+			for(ChargeLine line: folio.getLines()) {
+				// Loop through the charges posted for service orders, leaving the reversals to be listed separately
+				if(line.getType() == ChargeType.Service && line.getAmount() >= 0) {
+					orders++;
+					builder.append("Service Order " + orders + ": " + line.getDescription() + "($" + line.getAmount() + ")\n");
+				}
+			}
+			
+			int reversals = 0;
+			for(ChargeLine line: folio.getLines()) {
+				// Loop through the charges reversed for service orders that are no longer delivered
+				if(line.getType() == ChargeType.Service && line.getAmount() < 0) {
+					if(reversals == 0)
+						builder.append("--- Reversals ---\n");
+					reversals++;
+					builder.append("Reversal " + reversals + ": " + line.getDescription() + "($" + line.getAmount() + ")\n");
 				}
 			}
-			builder.append("Total number of room service orders placed: " + count + "\n");
-			builder.append("The subtotal for this room is $" + String.format("%.2f", roomSubTotal) + "\n");
+			builder.append("Total number of room service orders charged: " + folio.getServices() + "\n");
+			builder.append("The subtotal for this room is $" + String.format("%.2f", folio.getTotal()) + "\n");
 		}
 		
 		builder.append("\n");
@@ -11,6 +11,7 @@ import model.StatusEntity;
 import model.room.Room;
 import model.room.RoomDescription;
 import model.room.RoomStatus;
+import model.service.fnb.OrderStatus;
 import model.service.fnb.ServiceOrder;
 import persistence.CascadeType;
 import persistence.PersistAnnotation;
@@ -43,6 +44,10 @@ public class Reservation extends StatusEntity<ReservationStatus> {
 	)
 	private Room assignedRoom;
 	private Payment payment;
+	@PersistAnnotation(
+			cascade = {CascadeType.Create, CascadeType.Update, CascadeType.Delete}
+	)
+	private Folio folio;
 	
 	/**
 	 * Reservation constructor. For Persistence API usage.
@@ -63,6 +68,7 @@ public class Reservation extends StatusEntity<ReservationStatus> {
 		this.criteria = new RoomDescription();
 		this.billingInformation = new BillingInformation();
 		this.orders = new ArrayList<ServiceOrder>();
+		this.folio = new Folio();
 		this.setStatus(ReservationStatus.Waitlist);
 	}
 	
@@ -98,6 +104,22 @@ public class Reservation extends StatusEntity<ReservationStatus> {
 		return orders;
 	}
 	
+	/**
+	 * Gets the folio holding the charges of this reservation. Reservations persisted without a folio are given one,
+	 * to which the service orders delivered so far are posted.
+	 * @return folio
+	 */
+	public Folio getFolio() {
+		if(folio == null) {
+			folio = new Folio();
+			for(ServiceOrder order: orders)
+				if(order.getStatus() == OrderStatus.Delivered)
+					folio.post(order);
+		}
+		
+		return folio;
+	}
+	
 	/**
 	 * Gets the number of children.
 	 * @return numOfChildren
@@ -179,7 +201,7 @@ public class Reservation extends StatusEntity<ReservationStatus> {
 	 */
 	public void setAssignedRoom(Room room) {
 		if(this.assignedRoom != null)
-			this.assignedRoom.getReservationList().remove(this);
+			this.assignedRoom.removeReservation(this);
 		
 		if(room == null) {
 			this.setStatus(ReservationStatus.Waitlist);
@@ -187,7 +209,7 @@ public class Reservation extends StatusEntity<ReservationStatus> {
 		else {
 			this.assignedRoom = room;
 			this.setStatus(ReservationStatus.Confirmed);
-			this.assignedRoom.getReservationList().add(this);
+			this.assignedRoom.addReservation(this);
 		}
 	}
 	
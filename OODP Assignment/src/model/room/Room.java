@@ -5,11 +5,15 @@ import java.util.List;
 
 import model.StatusEntity;
 import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
 import persistence.CascadeType;
 import persistence.PersistAnnotation;
 
 /**
- * Room is a {@link StatusEntity} class that encapsulates information about a Room.
+ * Room is a {@link StatusEntity} class that encapsulates information about a Room.<br />
+ * A Room only holds the reservations that book it, which are those {@link ReservationStatus#Confirmed} or
+ * {@link ReservationStatus#CheckedIn}, so that loading a room does not load its reservation history. The reservations that
+ * stayed in a room are looked up with {@link index.RoomHistoryIndex} instead.
  * @author Yijie
  */
 public class Room extends StatusEntity<RoomStatus> {
@@ -50,11 +54,49 @@ public class Room extends StatusEntity<RoomStatus> {
 	}
 	
 	/**
-	 * Gets a list of {@link Reservation} associated with this Room instance.
-	 * @return reservations
+	 * Gets a list of {@link Reservation} booking this Room instance. Reservations that no longer book this room, such as
+	 * those read from data written before reservations were removed as they were closed, are left out of the list but
+	 * not removed from this room.
+	 * @return A new list of reservations.
 	 */
 	public List<Reservation> getReservationList() {
-		return reservations;
+		List<Reservation> list = new ArrayList<Reservation>(reservations.size());
+		
+		// Loop through the reservations to leave out those closed, keeping the order of the rest
+		for(Reservation reservation: reservations)
+			if(reservation.getStatus() == ReservationStatus.Confirmed || reservation.getStatus() == ReservationStatus.CheckedIn)
+				list.add(reservation);
+		
+		return list;
+	}
+	
+	/**
+	 * Adds a {@link Reservation} booking this Room instance.
+	 * @param reservation
+	 */
+	public void addReservation(Reservation reservation) {
+		reservations.add(reservation);
+	}
+	
+	/**
+	 * Removes a {@link Reservation} that no longer books this Room instance. The last reservation is moved into its place,
+	 * hence the reservations are not kept in the order they were added.
+	 * @param reservation
+	 * @return A flag indicating if the reservation was removed.
+	 */
+	public boolean removeReservation(Reservation reservation) {
+		boolean removed = false;
+		
+		// Loop through the reservations booking this room, which are few as closed reservations are not kept
+		for(int i = reservations.size() - 1; !removed && i >= 0; i--) {
+			if(reservations.get(i).equals(reservation)) {
+				reservations.set(i, reservations.get(reservations.size() - 1));
+				reservations.remove(reservations.size() - 1);
+				removed = true;
+			}
+		}
+		
+		return removed;
 	}
 
 	/**
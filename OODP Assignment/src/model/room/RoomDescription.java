@@ -1,6 +1,7 @@
 package model.room;
 
 import persistence.Entity;
+import persistence.PersistAnnotation;
 
 /**
  * RoomDescription is an {@link Entity} that encapsulates description about a {@link Room}.
@@ -8,6 +9,7 @@ import persistence.Entity;
  */
 public class RoomDescription extends Entity {
 	
+	@PersistAnnotation(intern = true)
 	private String view;
 	private RoomType type;
 	private BedType bedType;
@@ -1,11 +1,13 @@
 package model.room;
 
 import persistence.Entity;
+import persistence.PersistAnnotation;
 
 /**
  * Room Type is an {@link Entity} class that encapsulates the information of a Room Type.
  * @author Yijie
  */
+@PersistAnnotation(pinned = true)
 public class RoomType extends Entity {
 	private final String name;
 	private double price;
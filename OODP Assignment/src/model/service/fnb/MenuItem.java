@@ -1,11 +1,13 @@
 package model.service.fnb;
 
 import persistence.Entity;
+import persistence.PersistAnnotation;
 
 /**
  * MenuItem is an {@link Entity} class that encapsulates information about a menu item.
  * @author YingHao
  */
+@PersistAnnotation(pinned = true)
 public class MenuItem extends Entity {
 	private final String name;
 	private double price;
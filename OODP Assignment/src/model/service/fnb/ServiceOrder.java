@@ -62,6 +62,23 @@ public class ServiceOrder extends StatusEntity<OrderStatus> {
 		return timestamp;
 	}
 	
+	/**
+	 * Sets the status. Delivering the order charges it to the folio of its reservation, while changing the status of a
+	 * delivered order reverses the charge.
+	 * @param status
+	 */
+	@Override
+	public void setStatus(OrderStatus status) {
+		if(reservation != null && status != this.getStatus()) {
+			if(status == OrderStatus.Delivered)
+				reservation.getFolio().post(this);
+			else if(this.getStatus() == OrderStatus.Delivered)
+				reservation.getFolio().reverse(this);
+		}
+		
+		super.setStatus(status);
+	}
+	
 	/**
 	 * Gets the room where this order is to be served.
 	 * @return room
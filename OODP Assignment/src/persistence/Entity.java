@@ -9,12 +9,14 @@ package persistence;
 @PersistAnnotation
 public abstract class Entity {
 	private final long _id;
+	private final long _version;
 	
 	/**
 	 * Default constructor.
 	 */
 	public Entity() {
 		this._id = Long.MIN_VALUE;
+		this._version = 0;
 	}
 	
 	/**
@@ -25,6 +27,15 @@ public abstract class Entity {
 		return this._id;
 	}
 	
+	/**
+	 * Gets the version, which is incremented every time this entity is updated. An update of an entity whose version
+	 * differs from the stored one is rejected with a {@link StaleEntityException}.
+	 * @return version
+	 */
+	public long getVersion() {
+		return this._version;
+	}
+	
 	/**
 	 * Gets whether this entity is a managed entity.
 	 * @return Managed status
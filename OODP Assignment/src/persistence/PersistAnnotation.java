@@ -16,6 +16,8 @@ import java.util.Collection;
  * 	<li>persist - Click on {@link PersistAnnotation#persist} for more details.</li>
  * 	<li>cascade - Click on {@link PersistAnnotation#cascade} for more details.</li>
  * 	<li>type - Click on {@link PersistAnnotation#type} for more details.</li>
+ * 	<li>pinned - Click on {@link PersistAnnotation#pinned} for more details.</li>
+ * 	<li>intern - Click on {@link PersistAnnotation#intern} for more details.</li>
  * </ul>
  * Example of annotation usage:
  * <code>
@@ -74,4 +76,20 @@ public @interface PersistAnnotation {
 	 * This has no effect for class-level declaration and fields that are not of Collection types.
 	 */
 	Class<? extends Entity> type() default Entity.class;
+	
+	/**
+	 * Indicates that instances of a class are small, rarely-changing reference data that should be pinned in memory,
+	 * such that every reference to the same identifier resolves to one canonical instance.
+	 * This declaration can only be used in class-level declaration.
+	 * Defaults to false.
+	 */
+	boolean pinned() default false;
+	
+	/**
+	 * Indicates that a String field holds low-cardinality values, such as country names, which should be
+	 * deduplicated during deserialization.
+	 * This has no effect for fields that are not of String type.
+	 * Defaults to false.
+	 */
+	boolean intern() default false;
 }
@@ -1,6 +1,10 @@
 package persistence;
 
+import java.util.Collection;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import persistence.metrics.PersistenceMetrics;
 
 /**
  * Persistence is an interface representing a generic contract for persisting an Entity.
@@ -21,9 +25,22 @@ public interface Persistence {
 	 * @param entity - Entity to be updated. Must be a managed entity.
 	 * @param type - Type of the entity to be updated.
 	 * @return Success status of the update operation.
+	 * @throws StaleEntityException This exception is thrown when the entity, or an entity reference cascaded on update, has
+	 * been updated since it was loaded.
 	 */
 	public <T extends Entity> boolean update(T entity, Class<T> type) throws Exception;
 	
+	/**
+	 * Updates a batch of entities of the same type in a single write. Entity references that are cascaded on update are
+	 * written in the same batch, together with the other references of their type.
+	 * @param entities - Entities to be updated. Unmanaged entities are ignored.
+	 * @param type - Type of the entities to be updated.
+	 * @return The number of entities updated.
+	 * @throws StaleEntityException This exception is thrown when an entity has been updated since it was loaded, in which
+	 * case none of the entities is written.
+	 */
+	public <T extends Entity> int updateAll(Collection<T> entities, Class<T> type) throws Exception;
+	
 	/**
 	 * Deletes an entity.
 	 * @param entity - Entity to be deleted. Must be a managed entity.
@@ -41,6 +58,17 @@ public interface Persistence {
 	 */
 	public <T extends Entity> Iterable<T> search(Predicate<T> predicate, Class<T> type, boolean loadBeforePredicate) throws Exception;
 	
+	/**
+	 * Searches through the given type, including the entities that have been archived with {@link #archive(Collection, Class, String)},
+	 * and returns the matching entities. Archive segments that cannot hold a matching entity according to their {@link ZoneMap}
+	 * are skipped when the predicate is a {@link ZonePredicate}.
+	 * @param predicate - Predicate indicating which entities to be accepted or rejected. Can be null, of which the entire list belonging to the specified type is retrieved.
+	 * @param type - Type of entity to be searched.
+	 * @param loadBeforePredicate - Indicates if all entity references should be loaded during predicate evaluation or after predicate evaluation.
+	 * @return An {@link Iterable} that represents the managed entities that matches the given predicate, the entities that have not been archived first.
+	 */
+	public <T extends Entity> Iterable<T> searchAll(Predicate<T> predicate, Class<T> type, boolean loadBeforePredicate) throws Exception;
+	
 	/**
 	 * Searches through the given type and applying {@link Predicate#test(Object)} and returning the number of matching entities.
 	 * @param predicate - Predicate indicating which entities to be accepted or rejected. Can be null, of which the entire list belonging to the specified type is counted.
@@ -54,10 +82,24 @@ public interface Persistence {
 	 * Retrieves a given entity via its unique identifier.
 	 * @param id - Unique identifier
 	 * @param type - Type of the entity to be retrieved.
-	 * @return A managed entity with the unique identifier or null if it does not exists.
+	 * @return A managed entity with the unique identifier or null if it does not exists. Entities that have been archived
+	 * are retrieved from the archive.
 	 */
 	public <T extends Entity> T retrieveByID(long id, Class<T> type) throws Exception;
 	
+	/**
+	 * Moves entities out of the data searched by {@link #search(Predicate, Class, boolean)} into the specified archive segment,
+	 * together with the entity references they own, which are those cascaded on delete. Archived entities are still
+	 * retrieved by {@link #retrieveByID(long, Class)} and searched by {@link #searchAll(Predicate, Class, boolean)}, but are no
+	 * longer updated or deleted.
+	 * @param entities - Loaded entities to be archived. Unmanaged entities and entities that have already been archived are ignored.
+	 * @param type - Type of the entities to be archived.
+	 * @param segment - The name of the archive segment, such as the month of the entities.
+	 * @return The number of entities archived, excluding the references they own.
+	 * @throws UnsupportedOperationException This exception is thrown when the persistence provider does not support archiving.
+	 */
+	public <T extends Entity> int archive(Collection<T> entities, Class<T> type, String segment) throws Exception;
+	
 	/**
 	 * Retrieves configuration loaded from the configuration file.
 	 * This is a read-only copy of our properties.
@@ -65,5 +107,35 @@ public interface Persistence {
 	 * @throws UnsupportedOperationException This exception is thrown when the persistence provider does not support retrieving of configurations.
 	 */
 	public Properties getConfiguration() throws UnsupportedOperationException;
+	
+	/**
+	 * Retrieves a snapshot of the metrics recorded by this persistence provider, such as per-operation latencies
+	 * and I/O counters for each entity type.
+	 * @return An immutable snapshot of the current metrics.
+	 * @throws UnsupportedOperationException This exception is thrown when the persistence provider does not record metrics.
+	 */
+	public PersistenceMetrics getMetrics() throws UnsupportedOperationException;
+	
+	/**
+	 * Registers a listener to be notified of every entity created, updated or deleted through this persistence provider.
+	 * @param listener - The listener to be registered.
+	 */
+	public void addListener(PersistenceListener listener);
+	
+	/**
+	 * Removes a listener registered with {@link #addListener(PersistenceListener)}.
+	 * @param listener - The listener to be removed.
+	 */
+	public void removeListener(PersistenceListener listener);
+	
+	/**
+	 * Runs the specified task while no entity can be written through this persistence provider. Listeners are notified
+	 * while the write is held, hence a listener registered by the task and built from the data it reads is notified of
+	 * exactly the changes written after that data, none of which can be overwritten by a stale read.
+	 * @param task - The task to run, typically registering and building a listener.
+	 * @return The result of the task.
+	 * @throws Exception Any exception thrown by the task.
+	 */
+	public <V> V holdWrites(Callable<V> task) throws Exception;
 
 }
@@ -0,0 +1,33 @@
+package persistence;
+
+/**
+ * PersistenceListener is an interface for receiving notifications of entities written through a {@link Persistence}
+ * provider, including entities written by cascade. Notifications are delivered synchronously after the write succeeds,
+ * one at a time, so listeners may keep in-memory indexes in step with the persisted data.
+ * @author YingHao
+ */
+public interface PersistenceListener {
+	
+	/**
+	 * Invoked after an entity has been created.
+	 * @param entity - The managed entity that was created.
+	 * @param type - Type of the entity that was created.
+	 */
+	public <T extends Entity> void onCreated(T entity, Class<T> type);
+	
+	/**
+	 * Invoked after an entity has been updated.
+	 * @param entity - The managed entity that was updated.
+	 * @param type - Type of the entity that was updated.
+	 */
+	public <T extends Entity> void onUpdated(T entity, Class<T> type);
+	
+	/**
+	 * Invoked after an entity has been deleted.
+	 * @param entity - The entity that was deleted, which is no longer managed.
+	 * @param id - The unique identifier the entity had before it was deleted.
+	 * @param type - Type of the entity that was deleted.
+	 */
+	public <T extends Entity> void onDeleted(T entity, long id, Class<T> type);
+
+}
@@ -0,0 +1,29 @@
+package persistence;
+
+/**
+ * StaleEntityException is an exception class generated during update operations when the version of
+ * an entity differs from the stored version, which means it has been updated by another writer since it was loaded.
+ * @author YingHao
+ * @see Entity#getVersion()
+ */
+public class StaleEntityException extends Exception {
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4926730573198016415L;
+	public final Entity entity;
+	public final long version;
+	
+	/**
+	 * StaleEntityException constructor.
+	 * @param entity - The entity that is out of date.
+	 * @param version - The stored version of the entity.
+	 */
+	public StaleEntityException(Entity entity, long version) {
+		super("The " + entity.getClass().getSimpleName() + " instance with identifier " + entity.getIdentifier() + " is at version " +
+				entity.getVersion() + " but has been updated to version " + version + ".");
+		this.entity = entity;
+		this.version = version;
+	}
+
+}
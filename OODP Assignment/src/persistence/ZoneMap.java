@@ -0,0 +1,117 @@
+package persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * ZoneMap holds the number of entities in a segment of archived data and the smallest and largest value of some of their
+ * fields, such as their identifiers and dates. A segment whose range of a field does not overlap with the values sought
+ * cannot hold a matching entity, hence it does not need to be read.
+ * @author YingHao
+ * @see ZonePredicate
+ */
+public class ZoneMap {
+	private final static String KEY_COUNT = "count";
+	private final static String SUFFIX_MIN = ".min";
+	private final static String SUFFIX_MAX = ".max";
+	private final Map<String, long[]> ranges;
+	private long count;
+	
+	/**
+	 * ZoneMap constructor. Creates an empty zone map.
+	 */
+	public ZoneMap() {
+		this.ranges = new LinkedHashMap<String, long[]>();
+		this.count = 0;
+	}
+	
+	/**
+	 * ZoneMap constructor. Creates a zone map from properties written by {@link #toProperties()}.
+	 * @param properties
+	 */
+	public ZoneMap(Properties properties) {
+		this();
+		
+		this.count = Long.parseLong(properties.getProperty(KEY_COUNT, "0"));
+		for(String key: properties.stringPropertyNames()) {
+			if(key.endsWith(SUFFIX_MIN)) {
+				String field = key.substring(0, key.length() - SUFFIX_MIN.length());
+				String max = properties.getProperty(field + SUFFIX_MAX);
+				if(max != null)
+					ranges.put(field, new long[] { Long.parseLong(properties.getProperty(key)), Long.parseLong(max) });
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of entities in the segment.
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Adds an entity to the segment.
+	 */
+	public void increment() {
+		count++;
+	}
+	
+	/**
+	 * Widens the range of a field to include the specified value.
+	 * @param field - The name of the field.
+	 * @param value - The value of the field, dates as milliseconds since the epoch.
+	 */
+	public void include(String field, long value) {
+		long[] range = ranges.get(field);
+		if(range == null)
+			ranges.put(field, new long[] { value, value });
+		else {
+			range[0] = Math.min(range[0], value);
+			range[1] = Math.max(range[1], value);
+		}
+	}
+	
+	/**
+	 * Gets a flag indicating if the range of a field overlaps with the specified range. A field without a range, such as
+	 * one holding no value in the segment, is assumed to overlap.
+	 * @param field - The name of the field.
+	 * @param min - The smallest value sought, inclusive.
+	 * @param max - The largest value sought, inclusive.
+	 * @return flag
+	 */
+	public boolean overlaps(String field, long min, long max) {
+		long[] range = ranges.get(field);
+		
+		return range == null || (range[0] <= max && min <= range[1]);
+	}
+	
+	/**
+	 * Gets a flag indicating if the range of a field includes the specified value.
+	 * @param field - The name of the field.
+	 * @param value
+	 * @return flag
+	 */
+	public boolean contains(String field, long value) {
+		return this.overlaps(field, value, value);
+	}
+	
+	/**
+	 * Writes this zone map to properties.
+	 * @return properties
+	 */
+	public Properties toProperties() {
+		Properties properties = new Properties();
+		
+		properties.setProperty(KEY_COUNT, Long.toString(count));
+		for(Map.Entry<String, long[]> entry: ranges.entrySet()) {
+			properties.setProperty(entry.getKey() + SUFFIX_MIN, Long.toString(entry.getValue()[0]));
+			properties.setProperty(entry.getKey() + SUFFIX_MAX, Long.toString(entry.getValue()[1]));
+		}
+		
+		return properties;
+	}
+
+}
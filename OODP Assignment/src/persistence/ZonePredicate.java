@@ -0,0 +1,18 @@
+package persistence;
+
+/**
+ * ZonePredicate is a {@link Predicate} that can also tell from the {@link ZoneMap} of a segment of archived data whether the
+ * segment may hold an item passing the predicate, so that segments that cannot are not read.
+ * @author YingHao
+ * @param <T>
+ */
+public interface ZonePredicate<T> extends Predicate<T> {
+	
+	/**
+	 * Test if a segment with the specified zone map may hold an item passing the predicate condition.
+	 * @param zone - The zone map of the segment.
+	 * @return A flag indicating if the segment has to be read.
+	 */
+	public boolean test(ZoneMap zone);
+
+}
@@ -0,0 +1,23 @@
+package persistence.aggregate;
+
+/**
+ * Aggregate is an interface for accumulating a result from items fed to it one at a time, so that several results can be
+ * computed in a single pass over the items of a search.
+ * @author YingHao
+ * @param <T>
+ */
+public interface Aggregate<T> {
+	
+	/**
+	 * Accumulates the specified item.
+	 * @param item
+	 */
+	public void accept(T item);
+	
+	/**
+	 * Creates an empty aggregate computing the same result as this aggregate, used by {@link GroupBy} for every group.
+	 * @return aggregate
+	 */
+	public Aggregate<T> newInstance();
+
+}
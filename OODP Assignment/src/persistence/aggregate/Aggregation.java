@@ -0,0 +1,56 @@
+package persistence.aggregate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregation is an {@link Aggregate} feeding every item accepted to each of a list of aggregates, so that all of them are
+ * computed in one pass over the items.
+ * @author YingHao
+ * @param <T>
+ */
+public class Aggregation<T> implements Aggregate<T> {
+	private final List<Aggregate<T>> aggregates;
+	
+	/**
+	 * Aggregation constructor. Creates an aggregation without any aggregate.
+	 */
+	public Aggregation() {
+		this.aggregates = new ArrayList<Aggregate<T>>();
+	}
+	
+	/**
+	 * Adds an aggregate to this aggregation.
+	 * @param aggregate
+	 * @return The aggregate added.
+	 */
+	public <A extends Aggregate<T>> A add(A aggregate) {
+		aggregates.add(aggregate);
+		return aggregate;
+	}
+	
+	/**
+	 * Feeds every item of the specified iterable to the aggregates of this aggregation, in a single pass.
+	 * @param items - The items, such as the result of {@link persistence.Persistence#search}.
+	 */
+	public void over(Iterable<T> items) {
+		for(T item: items)
+			this.accept(item);
+	}
+	
+	@Override
+	public void accept(T item) {
+		for(int i = 0; i < aggregates.size(); i++)
+			aggregates.get(i).accept(item);
+	}
+	
+	@Override
+	public Aggregation<T> newInstance() {
+		Aggregation<T> aggregation = new Aggregation<T>();
+		for(Aggregate<T> aggregate: aggregates)
+			aggregation.add(aggregate.newInstance());
+		
+		return aggregation;
+	}
+
+}
@@ -0,0 +1,29 @@
+package persistence.aggregate;
+
+/**
+ * Count is an {@link Aggregate} counting the items accepted.
+ * @author YingHao
+ * @param <T>
+ */
+public class Count<T> implements Aggregate<T> {
+	private long count;
+	
+	/**
+	 * Gets the number of items accepted.
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public void accept(T item) {
+		count++;
+	}
+	
+	@Override
+	public Count<T> newInstance() {
+		return new Count<T>();
+	}
+
+}
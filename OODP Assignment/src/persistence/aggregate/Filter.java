@@ -0,0 +1,45 @@
+package persistence.aggregate;
+
+import persistence.Predicate;
+
+/**
+ * Filter is an {@link Aggregate} passing only the items that satisfy a {@link Predicate} on to another aggregate.
+ * @author YingHao
+ * @param <T>
+ * @param <A>
+ */
+public class Filter<T, A extends Aggregate<T>> implements Aggregate<T> {
+	private final Predicate<T> predicate;
+	private final A aggregate;
+	
+	/**
+	 * Filter constructor.
+	 * @param predicate - The condition an item has to satisfy to be accumulated.
+	 * @param aggregate - The aggregate accumulating the items satisfying the condition.
+	 */
+	public Filter(Predicate<T> predicate, A aggregate) {
+		this.predicate = predicate;
+		this.aggregate = aggregate;
+	}
+	
+	/**
+	 * Gets the aggregate accumulating the items satisfying the condition.
+	 * @return aggregate
+	 */
+	public A getAggregate() {
+		return aggregate;
+	}
+	
+	@Override
+	public void accept(T item) {
+		if(predicate.test(item))
+			aggregate.accept(item);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Filter<T, A> newInstance() {
+		return new Filter<T, A>(predicate, (A) aggregate.newInstance());
+	}
+
+}
@@ -0,0 +1,68 @@
+package persistence.aggregate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GroupBy is an {@link Aggregate} grouping the items accepted by a {@link Key} and accumulating every group with its own
+ * instance of an aggregate, created from a prototype with {@link Aggregate#newInstance()}. Groups are kept in the order
+ * their first item was accepted.
+ * @author YingHao
+ * @param <T>
+ * @param <K>
+ * @param <A>
+ */
+public class GroupBy<T, K, A extends Aggregate<T>> implements Aggregate<T> {
+	private final Key<T, K> key;
+	private final A prototype;
+	private final Map<K, A> groups;
+	
+	/**
+	 * GroupBy constructor.
+	 * @param key - The key of the group of an item.
+	 * @param prototype - The aggregate of which an empty instance accumulates every group.
+	 */
+	public GroupBy(Key<T, K> key, A prototype) {
+		this.key = key;
+		this.prototype = prototype;
+		this.groups = new LinkedHashMap<K, A>();
+	}
+	
+	/**
+	 * Gets the keys of the groups.
+	 * @return keys
+	 */
+	public Set<K> getKeys() {
+		return Collections.unmodifiableSet(groups.keySet());
+	}
+	
+	/**
+	 * Gets the aggregate of the specified group.
+	 * @param key
+	 * @return The aggregate of the group, or null if no item has the key.
+	 */
+	public A get(K key) {
+		return groups.get(key);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public void accept(T item) {
+		K group = key.getKey(item);
+		
+		A aggregate = groups.get(group);
+		if(aggregate == null) {
+			aggregate = (A) prototype.newInstance();
+			groups.put(group, aggregate);
+		}
+		aggregate.accept(item);
+	}
+	
+	@Override
+	public GroupBy<T, K, A> newInstance() {
+		return new GroupBy<T, K, A>(key, prototype);
+	}
+
+}
@@ -0,0 +1,51 @@
+package persistence.aggregate;
+
+/**
+ * Join is an {@link Aggregate} joining a value of the items accepted into a string, in the order they are accepted.
+ * @author YingHao
+ * @param <T>
+ */
+public class Join<T> implements Aggregate<T> {
+	private final Key<T, ?> key;
+	private final String delimiter;
+	private final StringBuilder builder;
+	private long count;
+	
+	/**
+	 * Join constructor.
+	 * @param key - The value of an item to be joined.
+	 * @param delimiter - The delimiter between two values.
+	 */
+	public Join(Key<T, ?> key, String delimiter) {
+		this.key = key;
+		this.delimiter = delimiter;
+		this.builder = new StringBuilder();
+	}
+	
+	/**
+	 * Gets the number of items accepted.
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	@Override
+	public void accept(T item) {
+		if(count > 0)
+			builder.append(delimiter);
+		builder.append(key.getKey(item));
+		count++;
+	}
+	
+	@Override
+	public Join<T> newInstance() {
+		return new Join<T>(key, delimiter);
+	}
+	
+	@Override
+	public String toString() {
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,18 @@
+package persistence.aggregate;
+
+/**
+ * Key is an interface for deriving a value of an item, such as the key of its group.
+ * @author YingHao
+ * @param <T>
+ * @param <K>
+ */
+public interface Key<T, K> {
+	
+	/**
+	 * Gets the key of the specified item.
+	 * @param item
+	 * @return key
+	 */
+	public K getKey(T item);
+
+}
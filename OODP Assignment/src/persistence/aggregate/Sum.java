@@ -0,0 +1,38 @@
+package persistence.aggregate;
+
+/**
+ * Sum is an {@link Aggregate} summing a value of the items accepted.
+ * @author YingHao
+ * @param <T>
+ */
+public class Sum<T> implements Aggregate<T> {
+	private final Value<T> value;
+	private double sum;
+	
+	/**
+	 * Sum constructor.
+	 * @param value - The value of an item to be summed.
+	 */
+	public Sum(Value<T> value) {
+		this.value = value;
+	}
+	
+	/**
+	 * Gets the sum of the values of the items accepted.
+	 * @return sum
+	 */
+	public double getSum() {
+		return sum;
+	}
+	
+	@Override
+	public void accept(T item) {
+		sum += value.getValue(item);
+	}
+	
+	@Override
+	public Sum<T> newInstance() {
+		return new Sum<T>(value);
+	}
+
+}
@@ -0,0 +1,17 @@
+package persistence.aggregate;
+
+/**
+ * Value is an interface for deriving a numeric value of an item to be summed.
+ * @author YingHao
+ * @param <T>
+ */
+public interface Value<T> {
+	
+	/**
+	 * Gets the value of the specified item.
+	 * @param item
+	 * @return value
+	 */
+	public double getValue(T item);
+
+}
@@ -0,0 +1,45 @@
+package persistence.collection;
+
+/**
+ * HashUtil is an auxiliary class that provides the hashing and sizing functions shared by the
+ * open-addressing collections in this package.
+ * @author YingHao
+ */
+final class HashUtil {
+	private final static int MAX_CAPACITY = 1 << 30;
+
+	private HashUtil() {
+	}
+
+	/**
+	 * Scrambles the bits of the specified key so that sequential identifiers are spread evenly across the table.
+	 * @param key
+	 * @return A well distributed hash value.
+	 */
+	static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+
+		return (int) (h ^ (h >>> 16));
+	}
+
+	/**
+	 * Gets the smallest power of two table size that can hold the expected number of entries
+	 * without exceeding the load factor.
+	 * @param expected - The expected number of entries.
+	 * @param loadFactor - The maximum ratio of entries to slots.
+	 * @return table size
+	 */
+	static int tableSize(int expected, float loadFactor) {
+		long required = Math.max(2, (long) Math.ceil(Math.max(expected, 1) / loadFactor));
+		if(required > MAX_CAPACITY)
+			throw new IllegalArgumentException("Too many entries: " + expected);
+
+		int capacity = Integer.highestOneBit((int) required);
+		if(capacity < required)
+			capacity <<= 1;
+
+		return capacity;
+	}
+
+}
@@ -0,0 +1,195 @@
+package persistence.collection;
+
+import java.util.Arrays;
+
+/**
+ * LongList is a growable array of primitive long values, used in place of a {@link java.util.List}
+ * of {@link Long} to hold identifiers without boxing.<br />
+ * This class is not thread-safe.
+ * @author YingHao
+ */
+public class LongList {
+	private final static long[] EMPTY = new long[0];
+
+	private long[] elements;
+	private int size;
+
+	/**
+	 * LongList constructor.
+	 */
+	public LongList() {
+		this.elements = EMPTY;
+	}
+
+	/**
+	 * LongList constructor.
+	 * @param capacity - The initial capacity.
+	 */
+	public LongList(int capacity) {
+		this.elements = capacity == 0? EMPTY: new long[capacity];
+	}
+
+	/**
+	 * Ensures the backing array can hold at least the specified number of elements.
+	 * @param capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity > elements.length)
+			elements = Arrays.copyOf(elements, Math.max(capacity, Math.max(8, elements.length + (elements.length >> 1))));
+	}
+
+	/**
+	 * Checks that the specified index refers to an existing element.
+	 * @param index
+	 */
+	private void checkIndex(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	/**
+	 * Appends a value to the end of this list.
+	 * @param value
+	 */
+	public void add(long value) {
+		ensureCapacity(size + 1);
+		elements[size++] = value;
+	}
+
+	/**
+	 * Appends all values of the specified list to the end of this list.
+	 * @param list
+	 */
+	public void addAll(LongList list) {
+		ensureCapacity(size + list.size);
+		System.arraycopy(list.elements, 0, elements, size, list.size);
+		size += list.size;
+	}
+
+	/**
+	 * Gets the value at the specified index.
+	 * @param index
+	 * @return value
+	 */
+	public long get(int index) {
+		checkIndex(index);
+		return elements[index];
+	}
+
+	/**
+	 * Replaces the value at the specified index.
+	 * @param index
+	 * @param value
+	 * @return The value previously at the index.
+	 */
+	public long set(int index, long value) {
+		checkIndex(index);
+		long previous = elements[index];
+		elements[index] = value;
+
+		return previous;
+	}
+
+	/**
+	 * Removes the value at the specified index, shifting subsequent values to the left.
+	 * @param index
+	 * @return The removed value.
+	 */
+	public long removeAt(int index) {
+		checkIndex(index);
+		long removed = elements[index];
+
+		int moved = size - index - 1;
+		if(moved > 0)
+			System.arraycopy(elements, index + 1, elements, index, moved);
+		size--;
+
+		return removed;
+	}
+
+	/**
+	 * Removes the first occurrence of the specified value.
+	 * @param value
+	 * @return A flag indicating if the value was found and removed.
+	 */
+	public boolean removeValue(long value) {
+		int index = indexOf(value);
+		if(index >= 0)
+			removeAt(index);
+
+		return index >= 0;
+	}
+
+	/**
+	 * Gets the index of the first occurrence of the specified value.
+	 * @param value
+	 * @return The index, or -1 if the value is not present.
+	 */
+	public int indexOf(long value) {
+		for(int i = 0; i < size; i++)
+			if(elements[i] == value)
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Gets a flag indicating if the specified value is present.
+	 * @param value
+	 * @return flag
+	 */
+	public boolean contains(long value) {
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * Gets the number of values.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a flag indicating if this list has no values.
+	 * @return flag
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Sorts the values of this list in ascending order.
+	 */
+	public void sort() {
+		Arrays.sort(elements, 0, size);
+	}
+
+	/**
+	 * Gets a copy of the values of this list.
+	 * @return An array of values.
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for(int i = 0; i < size; i++) {
+			if(i > 0)
+				builder.append(", ");
+			builder.append(elements[i]);
+		}
+
+		return builder.append("]").toString();
+	}
+
+}
@@ -0,0 +1,254 @@
+package persistence.collection;
+
+import java.util.Arrays;
+
+/**
+ * LongLongMap is an open-addressing hash map with primitive long keys and values, suitable for
+ * identifier to offset or identifier to identifier lookups without boxing.<br />
+ * Collisions are resolved with linear probing and removals use backward shifting. A key of 0 is
+ * used to mark empty slots, hence the mapping for key 0 is stored separately.<br />
+ * This class is not thread-safe.
+ * @author YingHao
+ */
+public class LongLongMap {
+	private final static int DEFAULT_CAPACITY = 16;
+	private final static float LOAD_FACTOR = 0.6f;
+	private final static long FREE_KEY = 0;
+
+	private long[] keys;
+	private long[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+	private boolean hasFreeKey;
+	private long freeValue;
+
+	/**
+	 * LongLongMap constructor.
+	 */
+	public LongLongMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * LongLongMap constructor.
+	 * @param expected - The expected number of entries, used to size the backing arrays.
+	 */
+	public LongLongMap(int expected) {
+		allocate(HashUtil.tableSize(expected, LOAD_FACTOR));
+	}
+
+	/**
+	 * Allocates the backing arrays with the specified capacity. Capacity must be a power of two.
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		this.values = new long[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Gets the slot index of the specified key, or the index of the empty slot where it would be inserted.
+	 * Must not be called with {@link #FREE_KEY}.
+	 * @param key
+	 * @return slot index
+	 */
+	private int find(long key) {
+		int pos = HashUtil.mix(key) & mask;
+		while(keys[pos] != FREE_KEY && keys[pos] != key)
+			pos = (pos + 1) & mask;
+
+		return pos;
+	}
+
+	/**
+	 * Gets the value mapped to the specified key.
+	 * @param key
+	 * @param defaultValue - The value to return if the key is not present.
+	 * @return The mapped value or defaultValue if the key is not present.
+	 */
+	public long get(long key, long defaultValue) {
+		if(key == FREE_KEY)
+			return hasFreeKey? freeValue: defaultValue;
+
+		int pos = find(key);
+		return keys[pos] == FREE_KEY? defaultValue: values[pos];
+	}
+
+	/**
+	 * Gets a flag indicating if the specified key is present.
+	 * @param key
+	 * @return flag
+	 */
+	public boolean containsKey(long key) {
+		if(key == FREE_KEY)
+			return hasFreeKey;
+
+		return keys[find(key)] != FREE_KEY;
+	}
+
+	/**
+	 * Maps the specified value to the specified key.
+	 * @param key
+	 * @param value
+	 * @return A flag indicating if the key was newly added.
+	 */
+	public boolean put(long key, long value) {
+		boolean added;
+
+		if(key == FREE_KEY) {
+			added = !hasFreeKey;
+			hasFreeKey = true;
+			freeValue = value;
+			if(added)
+				size++;
+		}
+		else {
+			int pos = find(key);
+			added = keys[pos] == FREE_KEY;
+
+			keys[pos] = key;
+			values[pos] = value;
+			if(added && ++size > threshold)
+				rehash(keys.length << 1);
+		}
+
+		return added;
+	}
+
+	/**
+	 * Adds the specified delta to the value mapped to the specified key, treating absent keys as 0.
+	 * @param key
+	 * @param delta
+	 * @return The updated value.
+	 */
+	public long add(long key, long delta) {
+		long value = get(key, 0) + delta;
+		put(key, value);
+
+		return value;
+	}
+
+	/**
+	 * Removes the mapping for the specified key.
+	 * @param key
+	 * @return A flag indicating if the key was present.
+	 */
+	public boolean remove(long key) {
+		boolean removed = false;
+
+		if(key == FREE_KEY) {
+			removed = hasFreeKey;
+			hasFreeKey = false;
+			freeValue = 0;
+		}
+		else {
+			int pos = find(key);
+			if(keys[pos] != FREE_KEY) {
+				removed = true;
+				shiftKeys(pos);
+			}
+		}
+
+		if(removed)
+			size--;
+
+		return removed;
+	}
+
+	/**
+	 * Closes the gap left at the specified slot by shifting subsequent entries of the same probe
+	 * sequence backwards.
+	 * @param pos - The slot that was vacated.
+	 */
+	private void shiftKeys(int pos) {
+		int last, slot;
+		while(true) {
+			last = pos;
+			pos = (pos + 1) & mask;
+			while(true) {
+				if(keys[pos] == FREE_KEY) {
+					keys[last] = FREE_KEY;
+					values[last] = 0;
+					return;
+				}
+
+				// Entries may only move back if their home slot is not between the vacated slot and their current slot
+				slot = HashUtil.mix(keys[pos]) & mask;
+				if(last <= pos? (last >= slot || slot > pos): (last >= slot && slot > pos))
+					break;
+				pos = (pos + 1) & mask;
+			}
+
+			keys[last] = keys[pos];
+			values[last] = values[pos];
+		}
+	}
+
+	/**
+	 * Resizes the backing arrays and reinserts all entries.
+	 * @param capacity - The new capacity, must be a power of two.
+	 */
+	private void rehash(int capacity) {
+		long[] oldKeys = this.keys;
+		long[] oldValues = this.values;
+
+		allocate(capacity);
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] != FREE_KEY) {
+				int pos = find(oldKeys[i]);
+				keys[pos] = oldKeys[i];
+				values[pos] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a flag indicating if this map has no entries.
+	 * @return flag
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		if(size > 0) {
+			Arrays.fill(keys, FREE_KEY);
+			Arrays.fill(values, 0);
+			hasFreeKey = false;
+			freeValue = 0;
+			size = 0;
+		}
+	}
+
+	/**
+	 * Gets a snapshot of the keys present in this map, in no particular order.
+	 * @return An array of keys.
+	 */
+	public long[] keys() {
+		long[] snapshot = new long[size];
+
+		int j = 0;
+		if(hasFreeKey)
+			snapshot[j++] = FREE_KEY;
+		for(int i = 0; i < keys.length; i++)
+			if(keys[i] != FREE_KEY)
+				snapshot[j++] = keys[i];
+
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,231 @@
+package persistence.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LongObjectMap is an open-addressing hash map keyed by primitive long values.
+ * Unlike a {@link java.util.HashMap} keyed by {@link Long}, lookups do not box the key and entries
+ * are stored in two parallel arrays instead of one node object per entry.<br />
+ * Collisions are resolved with linear probing and removals use backward shifting, hence no tombstones
+ * are left behind. Null values are not supported, {@link #put(long, Object)} with a null value behaves
+ * like {@link #remove(long)}.<br />
+ * This class is not thread-safe.
+ * @author YingHao
+ *
+ * @param <V>
+ */
+public class LongObjectMap<V> {
+	private final static int DEFAULT_CAPACITY = 16;
+	private final static float LOAD_FACTOR = 0.6f;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+
+	/**
+	 * LongObjectMap constructor.
+	 */
+	public LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * LongObjectMap constructor.
+	 * @param expected - The expected number of entries, used to size the backing arrays.
+	 */
+	public LongObjectMap(int expected) {
+		allocate(HashUtil.tableSize(expected, LOAD_FACTOR));
+	}
+
+	/**
+	 * Allocates the backing arrays with the specified capacity. Capacity must be a power of two.
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Gets the slot index of the specified key, or the index of the empty slot where it would be inserted.
+	 * @param key
+	 * @return slot index
+	 */
+	private int find(long key) {
+		int pos = HashUtil.mix(key) & mask;
+		while(values[pos] != null && keys[pos] != key)
+			pos = (pos + 1) & mask;
+
+		return pos;
+	}
+
+	/**
+	 * Gets the value mapped to the specified key.
+	 * @param key
+	 * @return The mapped value or null if the key is not present.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		return (V) values[find(key)];
+	}
+
+	/**
+	 * Gets a flag indicating if the specified key is present.
+	 * @param key
+	 * @return flag
+	 */
+	public boolean containsKey(long key) {
+		return values[find(key)] != null;
+	}
+
+	/**
+	 * Maps the specified value to the specified key.
+	 * @param key
+	 * @param value - The value to map. Passing null removes the mapping.
+	 * @return The previous value mapped to the key or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if(value == null)
+			return remove(key);
+
+		int pos = find(key);
+		V previous = (V) values[pos];
+
+		keys[pos] = key;
+		values[pos] = value;
+		if(previous == null && ++size > threshold)
+			rehash(keys.length << 1);
+
+		return previous;
+	}
+
+	/**
+	 * Removes the mapping for the specified key.
+	 * @param key
+	 * @return The value that was mapped to the key or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int pos = find(key);
+		V previous = (V) values[pos];
+
+		if(previous != null) {
+			size--;
+			shiftKeys(pos);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Closes the gap left at the specified slot by shifting subsequent entries of the same probe
+	 * sequence backwards.
+	 * @param pos - The slot that was vacated.
+	 */
+	private void shiftKeys(int pos) {
+		int last, slot;
+		while(true) {
+			last = pos;
+			pos = (pos + 1) & mask;
+			while(true) {
+				if(values[pos] == null) {
+					keys[last] = 0;
+					values[last] = null;
+					return;
+				}
+
+				// Entries may only move back if their home slot is not between the vacated slot and their current slot
+				slot = HashUtil.mix(keys[pos]) & mask;
+				if(last <= pos? (last >= slot || slot > pos): (last >= slot && slot > pos))
+					break;
+				pos = (pos + 1) & mask;
+			}
+
+			keys[last] = keys[pos];
+			values[last] = values[pos];
+		}
+	}
+
+	/**
+	 * Resizes the backing arrays and reinserts all entries.
+	 * @param capacity - The new capacity, must be a power of two.
+	 */
+	private void rehash(int capacity) {
+		long[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+
+		allocate(capacity);
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldValues[i] != null) {
+				int pos = find(oldKeys[i]);
+				keys[pos] = oldKeys[i];
+				values[pos] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a flag indicating if this map has no entries.
+	 * @return flag
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		if(size > 0) {
+			Arrays.fill(keys, 0);
+			Arrays.fill(values, null);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Gets a snapshot of the keys present in this map, in no particular order.
+	 * @return An array of keys.
+	 */
+	public long[] keys() {
+		long[] snapshot = new long[size];
+
+		int j = 0;
+		for(int i = 0; i < keys.length; i++)
+			if(values[i] != null)
+				snapshot[j++] = keys[i];
+
+		return snapshot;
+	}
+
+	/**
+	 * Gets a snapshot of the values present in this map, in no particular order.
+	 * @return A list of values.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		List<V> snapshot = new ArrayList<V>(size);
+
+		for(int i = 0; i < values.length; i++)
+			if(values[i] != null)
+				snapshot.add((V) values[i]);
+
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,57 @@
+package persistence.collection;
+
+/**
+ * StringInternTable deduplicates equal String instances through a bounded, direct-mapped table.
+ * Unlike {@link String#intern()}, the table never grows beyond its capacity: a value that collides
+ * with a different value simply replaces it, so high-cardinality input degrades to no deduplication
+ * rather than unbounded memory use.<br />
+ * Concurrent use is safe without locking as Strings are immutable; a lost race only costs a
+ * missed deduplication.
+ * @author YingHao
+ */
+public class StringInternTable {
+	private final String[] table;
+	private final int mask;
+
+	/**
+	 * StringInternTable constructor.
+	 * @param capacity - The maximum number of distinct values retained, rounded up to a power of two.
+	 */
+	public StringInternTable(int capacity) {
+		int size = HashUtil.tableSize(capacity, 1f);
+
+		this.table = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Gets the canonical instance of the specified value.
+	 * @param value
+	 * @return An instance equal to value, which is shared with previous callers whenever possible.
+	 */
+	public String intern(String value) {
+		String canonical = value;
+
+		if(value != null) {
+			int hash = value.hashCode();
+			int pos = (hash ^ (hash >>> 16)) & mask;
+
+			String cached = table[pos];
+			if(value.equals(cached))
+				canonical = cached;
+			else
+				table[pos] = value;
+		}
+
+		return canonical;
+	}
+
+	/**
+	 * Gets the capacity of this table.
+	 * @return capacity
+	 */
+	public int capacity() {
+		return table.length;
+	}
+
+}
@@ -1,8 +1,12 @@
 package persistence.file.text;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
 import persistence.Entity;
 import persistence.Predicate;
+import persistence.metrics.TypeMetrics;
 
 /**
  * EntityIterable fulfils the contract of an Iterable by providing an EntityIterator as 
@@ -15,9 +19,10 @@ import persistence.Predicate;
  */
 public class FileEntityIterable<T extends Entity> implements Iterable<T> {
 	private final FilePersistence persistence;
-	private final File file;
+	private final List<File> files;
 	private final Predicate<T> predicate;
 	private final boolean loadR;
+	private final TypeMetrics metrics;
 	
 	/**
 	 * EntityIterable constructor.
@@ -25,18 +30,32 @@ public class FileEntityIterable<T extends Entity> implements Iterable<T> {
 	 * @param file - The file to be deserialized.
 	 * @param predicate - The predicate for entity to pass through to determine whether they are accepted or rejected.
 	 * @param loadR - Indicates if all entity references should be loaded during predicate evaluation or after predicate evaluation.
+	 * @param metrics - The metrics of the type being searched.
+	 */
+	public FileEntityIterable(FilePersistence persistence, File file, Predicate<T> predicate, boolean loadR, TypeMetrics metrics) {
+		this(persistence, Arrays.asList(file), predicate, loadR, metrics);
+	}
+	
+	/**
+	 * EntityIterable constructor for a list of files, which are read one after another.
+	 * @param persistence - The persistence instance to be used for deserializing entity instances.
+	 * @param files - The files to be deserialized, in order.
+	 * @param predicate - The predicate for entity to pass through to determine whether they are accepted or rejected.
+	 * @param loadR - Indicates if all entity references should be loaded during predicate evaluation or after predicate evaluation.
+	 * @param metrics - The metrics of the type being searched.
 	 */
-	public FileEntityIterable(FilePersistence persistence, File file, Predicate predicate, boolean loadR) {
+	public FileEntityIterable(FilePersistence persistence, List<File> files, Predicate<T> predicate, boolean loadR, TypeMetrics metrics) {
 		this.persistence = persistence;
-		this.file = file;
+		this.files = files;
 		this.predicate = predicate;
 		this.loadR = loadR;
+		this.metrics = metrics;
 	}
 
 	@Override
 	public FileEntityIterator<T> iterator() {
 		try {
-			return new FileEntityIterator<T>(persistence, file, predicate, loadR);
+			return new FileEntityIterator<T>(persistence, files, predicate, loadR, metrics);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
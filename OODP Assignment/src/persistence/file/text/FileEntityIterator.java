@@ -5,9 +5,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
 import persistence.Entity;
 import persistence.EntityIterator;
 import persistence.Predicate;
+import persistence.metrics.OperationType;
+import persistence.metrics.TypeMetrics;
 
 /**
  * EntityIterator represents a pointer to an open file with a collection of entity.
@@ -22,26 +27,50 @@ public class FileEntityIterator<T extends Entity> implements EntityIterator<T> {
 	private final FilePersistence persistence;
 	private final Predicate<T> predicate;
 	private final boolean loadR;
+	private final TypeMetrics metrics;
+	private final Iterator<File> files;
+	private final long start;
+	private boolean measured;
 	private BufferedReader reader;
 	private T entity;
 	
 	/**
 	 * EntityIterator constructor.
 	 * @param persistence - The persistence instance to be used for deserializing entity instances.
-	 * @param file - The file to be deserialized.
+	 * @param files - The files to be deserialized, read one after another. Files that do not exist are skipped.
 	 * @param predicate - The predicate for entity to pass through to determine whether they are accepted or rejected.
 	 * @param loadR - Indicates if all entity references should be loaded during predicate evaluation or after predicate evaluation.
+	 * @param metrics - The metrics of the type being searched. The search is measured until this iterator is exhausted or closed.
 	 * @throws IOException 
 	 */
-	public FileEntityIterator(FilePersistence persistence, File file, Predicate predicate, boolean loadR) throws Exception {
+	public FileEntityIterator(FilePersistence persistence, List<File> files, Predicate<T> predicate, boolean loadR, TypeMetrics metrics) throws Exception {
 		this.persistence = persistence;
-		try {
-			this.reader = new BufferedReader(new FileReader(file));
-		} catch(FileNotFoundException e) {
-			this.reader = null;
-		}
+		this.metrics = metrics;
+		this.files = files.iterator();
+		this.start = System.nanoTime();
+		this.measured = false;
+		this.reader = null;
 		this.predicate = predicate;
 		this.loadR = loadR;
+		this.open();
+	}
+	
+	/**
+	 * Opens the next file that exists, if any.
+	 * @throws IOException
+	 */
+	private void open() throws IOException {
+		if(this.reader != null)
+			this.reader.close();
+		
+		this.reader = null;
+		while(this.reader == null && files.hasNext()) {
+			try {
+				this.reader = new BufferedReader(new FileReader(files.next()));
+			} catch(FileNotFoundException e) {
+				this.reader = null;
+			}
+		}
 	}
 
 	@Override
@@ -51,20 +80,29 @@ public class FileEntityIterator<T extends Entity> implements EntityIterator<T> {
 		if(this.entity == null && reader != null) {
 			try {
 				String entityString = null;
-				while(this.entity == null && ((entityString = reader.readLine()) != null)) {
-					T next = persistence.deserialize(entityString, loadR, false);
-					if(predicate == null || predicate.test(next)) {
-						if(!loadR)
-							this.entity = persistence.deserialize(entityString, true, false);
-						else
-							this.entity = next;
+				while(this.entity == null && reader != null) {
+					entityString = reader.readLine();
+					if(entityString == null) {
+						// Reached the end of the file, continue with the next file
+						this.open();
+					}
+					else {
+						metrics.lineRead(entityString.length());
+						T next = persistence.deserialize(entityString, loadR, false);
+						if(predicate == null || predicate.test(next)) {
+							if(!loadR)
+								this.entity = persistence.deserialize(entityString, true, false);
+							else
+								this.entity = next;
+						}
 					}
 				}
 				
-				// Reached the end of the file, close iterator.
-				if(this.entity == null && entityString == null)
+				// Reached the end of the last file, close iterator.
+				if(this.entity == null)
 					this.close();
 			} catch(Exception e) {
+				this.measure(false);
 				throw new RuntimeException(e);
 			}
 		}
@@ -82,8 +120,22 @@ public class FileEntityIterator<T extends Entity> implements EntityIterator<T> {
 
 	@Override
 	public void close() throws Exception {
-		reader.close();
+		if(reader != null)
+			reader.close();
+		reader = null;
 		entity = null;
+		this.measure(true);
+	}
+	
+	/**
+	 * Records the duration of this search, once.
+	 * @param success - A flag indicating if the search completed without throwing.
+	 */
+	private void measure(boolean success) {
+		if(!measured) {
+			measured = true;
+			metrics.getOperation(OperationType.Search).record(start, success);
+		}
 	}
 
 }
@@ -8,6 +8,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Array;
@@ -21,18 +23,36 @@ import java.nio.file.StandardCopyOption;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
+import javax.management.ObjectName;
+
 import persistence.CascadeType;
 import persistence.Entity;
 import persistence.PersistAnnotation;
 import persistence.Persistence;
+import persistence.PersistenceListener;
 import persistence.Predicate;
+import persistence.StaleEntityException;
 import persistence.UnresolvedEntityException;
+import persistence.ZoneMap;
+import persistence.ZonePredicate;
+import persistence.collection.LongObjectMap;
+import persistence.collection.StringInternTable;
+import persistence.metrics.MetricsRegistry;
+import persistence.metrics.OperationMetrics;
+import persistence.metrics.OperationType;
+import persistence.metrics.PersistenceMetrics;
+import persistence.metrics.TypeMetrics;
 
 /**
  * FilePersistence is an implementation of Persistence interface providing a persistence contract
@@ -47,7 +67,11 @@ public class FilePersistence implements Persistence {
 	public final static String KEY_DATA_EXT = "data-ext";
 	public final static String KEY_TMP_DIR = "tmp-directory";
 	public final static String KEY_TMP_EXT = "tmp-ext";
+	public final static String KEY_INTERN_TABLE_SIZE = "intern-table-size";
 	public final static String KEY_AUTO_ID = "{type}.auto-id";
+	public final static String KEY_ARCHIVE_DIR = "archive-directory";
+	public final static String ARCHIVE_DIR = "archive";
+	public final static String ZONE_EXT = ".zone";
 	public final static String AUTO_ID_TYPE_REGEX = "{type}";
 	public final static Properties DEFAULT_CONFIGURATION;
 	
@@ -63,13 +87,22 @@ public class FilePersistence implements Persistence {
 		DEFAULT_CONFIGURATION.setProperty(KEY_FIELD_DELIMITER, "|");
 		DEFAULT_CONFIGURATION.setProperty(KEY_KV_DELIMITER, ":");
 		DEFAULT_CONFIGURATION.setProperty(KEY_ARRAY_DELIMITER, ";");
+		DEFAULT_CONFIGURATION.setProperty(KEY_INTERN_TABLE_SIZE, "1024");
 	}
 	
 	private final File configurationFile;
 	private final Properties configuration;
 	private final Map<Class<?>, Field[]> fCache;
 	private final Map<Field, PersistAnnotation> pmCache;
-	private final Map<Class<?>, Map<Long, SoftReference<Entity>>> entityCache;
+	private final Map<Class<?>, LongObjectMap<SoftReference<Entity>>> entityCache;
+	private final Map<Class<?>, LongObjectMap<Entity>> pinnedCache;
+	private final StringInternTable internTable;
+	private final MetricsRegistry metrics;
+	private final Object writeLock;
+	private final List<PersistenceListener> listeners;
+	private final Map<File, ZoneMap> zoneMaps;
+	private final Map<File, PrimaryIndex> primaryIndexes;
+	private Map<Class<?>, LongObjectMap<Entity>> batch;
 	
 	/**
 	 * FilePersistence constructor.
@@ -79,9 +112,15 @@ public class FilePersistence implements Persistence {
 	public FilePersistence(File configurationFile) throws Exception {
 		this.configurationFile = configurationFile;
 		this.configuration = new Properties(DEFAULT_CONFIGURATION);
-		this.fCache = new HashMap<Class<?>, Field[]>();
-		this.pmCache = new HashMap<Field, PersistAnnotation>();
-		this.entityCache = new HashMap<Class<?>, Map<Long, SoftReference<Entity>>>();
+		this.fCache = Collections.synchronizedMap(new HashMap<Class<?>, Field[]>());
+		this.pmCache = Collections.synchronizedMap(new HashMap<Field, PersistAnnotation>());
+		this.entityCache = new HashMap<Class<?>, LongObjectMap<SoftReference<Entity>>>();
+		this.pinnedCache = new HashMap<Class<?>, LongObjectMap<Entity>>();
+		this.metrics = new MetricsRegistry();
+		this.writeLock = new Object();
+		this.listeners = new CopyOnWriteArrayList<PersistenceListener>();
+		this.zoneMaps = Collections.synchronizedMap(new HashMap<File, ZoneMap>());
+		this.primaryIndexes = Collections.synchronizedMap(new HashMap<File, PrimaryIndex>());
 		
 		AutoCloseable stream = null;
 		try {
@@ -104,11 +143,17 @@ public class FilePersistence implements Persistence {
 				stream.close();
 		}
 		
+		this.internTable = new StringInternTable(Integer.parseInt(this.configuration.getProperty(KEY_INTERN_TABLE_SIZE)));
+		
 		File dataDir = new File(this.configuration.getProperty(KEY_DATA_DIR));
 		File tmpDir = new File(this.configuration.getProperty(KEY_TMP_DIR));
 		
 		dataDir.mkdir();
 		tmpDir.mkdir();
+		
+		// Expose metrics on the platform MBean server, one MBean per configuration file
+		this.metrics.registerMBean(new ObjectName("persistence:type=FilePersistence,config=" +
+													ObjectName.quote(this.configurationFile.getAbsolutePath())));
 	}
 	
 	/**
@@ -133,6 +178,91 @@ public class FilePersistence implements Persistence {
 							this.configuration.getProperty(KEY_TMP_EXT));
 	}
 	
+	/**
+	 * Gets the directory holding the archive segments, configured with {@link #KEY_ARCHIVE_DIR} and defaulting to the
+	 * {@link #ARCHIVE_DIR} directory within the data directory.
+	 * @return Archive directory.
+	 */
+	private File getArchiveDirectory() {
+		return new File(this.configuration.getProperty(KEY_ARCHIVE_DIR, 
+							this.configuration.getProperty(KEY_DATA_DIR) + File.separator + ARCHIVE_DIR));
+	}
+	
+	/**
+	 * Gets the names of the archive segments, in ascending order.
+	 * @return A list of segment names.
+	 */
+	private List<String> getSegments() {
+		List<String> segments = new ArrayList<String>();
+		
+		File[] directories = this.getArchiveDirectory().listFiles();
+		if(directories != null)
+			for(File directory: directories)
+				if(directory.isDirectory())
+					segments.add(directory.getName());
+		Collections.sort(segments);
+		
+		return segments;
+	}
+	
+	/**
+	 * Gets the file of an archive segment for the specified type.
+	 * @param type
+	 * @param segment - The name of the archive segment.
+	 * @param extension - The extension of the file, {@link #KEY_DATA_EXT} for data or {@link #ZONE_EXT} for the zone map.
+	 * @return Archive file for the specified type.
+	 */
+	private <T extends Entity> File getArchiveFile(Class<T> type, String segment, String extension) {
+		return new File(this.getArchiveDirectory(), segment + File.separator + 
+							type.getName().toLowerCase().replace(".", "-") + extension);
+	}
+	
+	/**
+	 * Gets the zone map of an archive segment for a type, reading it from its file the first time.
+	 * @param file - The zone map file.
+	 * @return The zone map, empty if the file does not exist.
+	 * @throws IOException
+	 */
+	private ZoneMap getZoneMap(File file) throws IOException {
+		ZoneMap zone = this.zoneMaps.get(file);
+		
+		if(zone == null) {
+			Properties properties = new Properties();
+			if(file.exists()) {
+				InputStream in = new FileInputStream(file);
+				try {
+					properties.load(in);
+				} finally {
+					in.close();
+				}
+			}
+			
+			zone = new ZoneMap(properties);
+			this.zoneMaps.put(file, zone);
+		}
+		
+		return zone;
+	}
+	
+	/**
+	 * Gets the primary index of a data file or archive file, building it from the file if it has not been built or the
+	 * file has been replaced since.
+	 * @param file
+	 * @return The primary index of the file.
+	 * @throws IOException
+	 */
+	private PrimaryIndex getPrimaryIndex(File file) throws IOException {
+		PrimaryIndex index = this.primaryIndexes.get(file);
+		
+		if(index == null || !index.isCurrent(file)) {
+			index = new PrimaryIndex(file, this.configuration.getProperty(KEY_FIELD_DELIMITER), 
+										this.configuration.getProperty(KEY_KV_DELIMITER));
+			this.primaryIndexes.put(file, index);
+		}
+		
+		return index;
+	}
+	
 	/**
 	 * Gets the fields declared for the specified type.
 	 * @param type
@@ -203,26 +333,45 @@ public class FilePersistence implements Persistence {
 	}
 	
 	/**
-	 * Gets an entity from cache.
+	 * Gets a flag indicating if instances of the specified type are pinned reference data.
+	 * @param type
+	 * @return flag
+	 * @see PersistAnnotation#pinned()
+	 */
+	private boolean isPinned(Class<?> type) {
+		PersistAnnotation meta = type.getAnnotation(PersistAnnotation.class);
+		
+		return meta != null && meta.pinned();
+	}
+	
+	/**
+	 * Gets an entity from cache. Pinned types are resolved from the pinned cache, which holds strong references.
 	 * @param type - The type of entity to retrieve.
 	 * @param id - The identifier for the entity.
 	 * @return A managed entity residing in the cache.
 	 */
+	@SuppressWarnings("unchecked")
 	private <T extends Entity> T getEntityFromCache(Class<T> type, long id) {
 		T entity = null;
-		
-		if(this.entityCache.containsKey(type)) {
-			Map<Long, SoftReference<Entity>> idMap = this.entityCache.get(type);
-			
-			if(idMap.containsKey(id)) {
+
+		LongObjectMap<SoftReference<Entity>> idMap = this.entityCache.get(type);
+		if(this.isPinned(type)) {
+			LongObjectMap<Entity> pins = this.pinnedCache.get(type);
+			if(pins != null)
+				entity = (T) pins.get(id);
+		}
+		else if(idMap != null) {
+			SoftReference<Entity> reference = idMap.get(id);
+
+			if(reference != null) {
 				// Attempts to retrieve entity from soft reference
-				entity = (T) idMap.get(id).get();
+				entity = (T) reference.get();
 				// Remove soft reference from cache if it gets invalid
 				if(entity == null)
 					idMap.remove(id);
 			}
 		}
-		
+
 		return entity;
 	}
 	
@@ -232,18 +381,46 @@ public class FilePersistence implements Persistence {
 	 * @param entity - The entity to be added into cache.
 	 */
 	private <T extends Entity> void setEntityToCache(Class<T> type , T entity) {
-		Map<Long, SoftReference<Entity>> idMap;
-		
-		if(this.entityCache.containsKey(type))
-			idMap = this.entityCache.get(type);
+		if(this.isPinned(type)) {
+			LongObjectMap<Entity> pins = this.pinnedCache.get(type);
+			if(pins == null) {
+				pins = new LongObjectMap<Entity>();
+				this.pinnedCache.put(type, pins);
+			}
+			
+			// Pinned entities are held strongly as the canonical instance for their identifier.
+			pins.put(entity.getIdentifier(), entity);
+		}
 		else {
-			// Creates a new map for the specific type.
-			idMap = new HashMap<Long, SoftReference<Entity>>();
-			this.entityCache.put(type, idMap);
+			LongObjectMap<SoftReference<Entity>> idMap = this.entityCache.get(type);
+			
+			if(idMap == null) {
+				// Creates a new map for the specific type.
+				idMap = new LongObjectMap<SoftReference<Entity>>();
+				this.entityCache.put(type, idMap);
+			}
+			
+			// Adds a new soft reference for the entity into cache.
+			idMap.put(entity.getIdentifier(), new SoftReference<Entity>(entity));
+		}
+	}
+	
+	/**
+	 * Pins the specified entity as the canonical instance for its identifier. If a canonical instance is already
+	 * pinned, its fields are refreshed from the specified entity instead so that existing references observe the change.
+	 * @param type - The pinned type of the entity.
+	 * @param entity - A managed entity.
+	 */
+	private <T extends Entity> void pin(Class<T> type, T entity) throws NoSuchMethodException, SecurityException, IllegalAccessException {
+		synchronized(this.entityCache) {
+			T canonical = this.getEntityFromCache(type, entity.getIdentifier());
+			
+			if(canonical == null)
+				this.setEntityToCache(type, entity);
+			else if(canonical != entity)
+				for(Field field: this.getFieldsForType(type))
+					field.set(canonical, field.get(entity));
 		}
-		
-		// Adds a new soft reference for the entity into cache.
-		idMap.put(entity.getIdentifier(), new SoftReference<Entity>(entity));
 	}
 	
 	/**
@@ -270,14 +447,18 @@ public class FilePersistence implements Persistence {
 			if(reference.isManaged()) {
 				// Cascade as update if reference is already managed and metadata contains a
 				// CascadeType.Update option
-				if(CascadeType.cascade(metadata.cascade(), CascadeType.Update))
+				if(CascadeType.cascade(metadata.cascade(), CascadeType.Update)) {
 					update(reference, type);
+					this.metrics.getTypeMetrics(type).cascaded();
+				}
 			}
 			else {
 				// Cascade as create if reference is not managed and metadata contains a
 				// CascadeType.Create option
-				if(CascadeType.cascade(metadata.cascade(), CascadeType.Create))
+				if(CascadeType.cascade(metadata.cascade(), CascadeType.Create)) {
 					create(reference, type);
+					this.metrics.getTypeMetrics(type).cascaded();
+				}
 				else
 					// Unable to persist Entity with unmanaged references
 					throw new UnresolvedEntityException();
@@ -317,7 +498,7 @@ public class FilePersistence implements Persistence {
 	 * @return
 	 * @throws Exception 
 	 */
-	private <T extends Entity> StringBuilder serialize(T entity) throws Exception {
+	<T extends Entity> StringBuilder serialize(T entity) throws Exception {
 		Class<?> actualType = entity.getClass();
 		StringBuilder builder = new StringBuilder(actualType.getName());
 		
@@ -378,7 +559,7 @@ public class FilePersistence implements Persistence {
 		Object value = null;
 		
 		if(type.equals(String.class))
-			value = valueString;
+			value = metadata.intern()? this.internTable.intern(valueString): valueString;
 		else if(type.equals(Byte.TYPE) || type.equals(Byte.class))
 			value = Byte.parseByte(valueString);
 		else if(type.equals(Short.TYPE) || type.equals(Short.class))
@@ -407,12 +588,14 @@ public class FilePersistence implements Persistence {
 			if(Entity.class.isAssignableFrom(type)) {
 				long id = Long.parseLong(valueString);
 				
-				// Attempts to load entity from cache and will retrieve from data file as a fallback
+				// Attempts to load entity from cache and will retrieve from data file as a fallback. The data file is
+				// read outside of the cache lock, retrieveByID resolves concurrent loads to a single cached instance.
 				synchronized(this.entityCache) {
 					value = this.getEntityFromCache(type, id);
-					if(value == null)
-						value = this.retrieveByID(id, type);
 				}
+				this.metrics.getTypeMetrics(type).cacheLookup(value != null);
+				if(value == null)
+					value = this.retrieveByID(id, type);
 			}
 			else if(type.isArray() || List.class.isAssignableFrom(type)) {
 				Class componentType = type.isArray()? type.getComponentType():
@@ -453,6 +636,7 @@ public class FilePersistence implements Persistence {
 	 * @throws IllegalArgumentException 
 	 * @throws NumberFormatException 
 	 */
+	@SuppressWarnings("unchecked")
 	<T extends Entity> T deserialize(String entityString, boolean loadR, boolean partial) throws NumberFormatException, IllegalArgumentException, Exception {
 		String[] arrString = entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)));
 		Class type = Class.forName(arrString[0]);
@@ -466,6 +650,9 @@ public class FilePersistence implements Persistence {
 		}
 		
 		long id = Long.parseLong(kvMap.get("_id"));
+		boolean pinned = this.isPinned(type);
+		boolean pin = false;
+		this.metrics.getTypeMetrics(type).entityDeserialized();
 		// Search cache for entity or create a new entity in cache
 		T entity = null;
 		if(loadR) {
@@ -474,67 +661,123 @@ public class FilePersistence implements Persistence {
 				if(entity == null) {
 					entity = (T) this.createEntity(type, id);
 					this.setEntityToCache(type, entity);
+					pinned = false;
 				}
 			}
 		}
 		else {
-			entity = (T) this.createEntity(type, id);
+			// Pinned types resolve to their canonical instance even when references are not loaded
+			if(pinned) {
+				synchronized(this.entityCache) {
+					entity = (T) this.getEntityFromCache(type, id);
+				}
+			}
+			
+			if(entity == null) {
+				entity = (T) this.createEntity(type, id);
+				pin = pinned;
+				pinned = false;
+			}
 		}
 		
-		// Probe for generics and retrieve the actual types whenever it contains generics. Supports up to one generic only.
-		Class genericType = null;
-		Type gType = type.getGenericSuperclass();
-		if(gType instanceof ParameterizedType) {
-			ParameterizedType pType = (ParameterizedType) gType;
-			genericType = (Class) pType.getActualTypeArguments()[0];
-		}
-		// Loop through all fields and attempt to initialize them if they are present in kvMap
-		for(Field field: fields) {
-			if(kvMap.containsKey(field.getName())) {
-				if(!partial || field.get(entity) == null) {
-					PersistAnnotation metadata = this.getFieldPersistenceMetadata(field);
-					field.set(entity, this.deserialize(genericType, field.getType(), metadata, kvMap.get(field.getName()), loadR));
+		// A canonical pinned instance is already populated and kept current by create and update
+		if(!pinned) {
+			// Probe for generics and retrieve the actual types whenever it contains generics. Supports up to one generic only.
+			Class genericType = null;
+			Type gType = type.getGenericSuperclass();
+			if(gType instanceof ParameterizedType) {
+				ParameterizedType pType = (ParameterizedType) gType;
+				genericType = (Class) pType.getActualTypeArguments()[0];
+			}
+			// Loop through all fields and attempt to initialize them if they are present in kvMap
+			for(Field field: fields) {
+				if(kvMap.containsKey(field.getName())) {
+					if(!partial || field.get(entity) == null) {
+						PersistAnnotation metadata = this.getFieldPersistenceMetadata(field);
+						field.set(entity, this.deserialize(genericType, field.getType(), metadata, kvMap.get(field.getName()), loadR));
+					}
 				}
 			}
 		}
+		
+		// The first instance of pinned reference data becomes canonical on this path as well, unless another thread won
+		if(pin) {
+			synchronized(this.entityCache) {
+				T canonical = (T) this.getEntityFromCache(type, id);
+				if(canonical == null)
+					this.setEntityToCache(type, entity);
+				else
+					entity = canonical;
+			}
+		}
 			
 		return entity;
 	}
 
 	@Override
 	public <T extends Entity> T create(T entity, Class<T> type) throws Exception {
-		// Retrieve last auto generated identifier and increment it to get identifier for new entity
-		Field idField = getFieldsForType(Entity.class)[0];
-		String idKey = KEY_AUTO_ID.replace(AUTO_ID_TYPE_REGEX, type.getName().toLowerCase());
-		long identifier = Long.parseLong(this.configuration.getProperty(idKey, Long.toString(0))) + 1;
-		idField.set(entity, identifier);
-		
-		// Obtain a reference to the data file and attempts to create it.
-		File dataFile = this.getDataFile(type);
-		dataFile.createNewFile();
-		
-		// Obtain a writer for the data file
-		BufferedWriter writer = new BufferedWriter(new FileWriter(this.getDataFile(type), true));
-		try {
-			// Writes the serialized entity into the data file
-			writer.write(this.serialize(entity).toString());
-			writer.newLine();
-		} catch(IOException e) {
-			// Unmanage entity and rethrow exception
-			idField.set(entity, Long.MIN_VALUE);
-			throw e;
-		} finally {
-			writer.close();
-		}
-		
-		// Save auto generated identifier in configuration file
-		this.configuration.setProperty(idKey, Long.toString(identifier));
-		// Obtain output stream for configuration file and save configurations
-		FileOutputStream out = new FileOutputStream(this.configurationFile);
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.Create, type);
+		long start = System.nanoTime();
+		boolean completed = false;
 		try {
-			this.configuration.store(out, null);
+			// Writers are serialized so that cascades and the temporary file of a type are never shared between threads
+			synchronized(this.writeLock) {
+				// Retrieve last auto generated identifier and increment it to get identifier for new entity
+				Field idField = getFieldsForType(Entity.class)[0];
+				String idKey = KEY_AUTO_ID.replace(AUTO_ID_TYPE_REGEX, type.getName().toLowerCase());
+				long identifier = Long.parseLong(this.configuration.getProperty(idKey, Long.toString(0))) + 1;
+				idField.set(entity, identifier);
+				
+				// Obtain a reference to the data file and attempts to create it.
+				File dataFile = this.getDataFile(type);
+				dataFile.createNewFile();
+				
+				// The entity is appended at the end of the data file, a current primary index is kept current
+				long offset = dataFile.length();
+				PrimaryIndex index = this.primaryIndexes.get(dataFile);
+				if(index != null && !index.isCurrent(dataFile))
+					index = null;
+				
+				// Obtain a writer for the data file
+				BufferedWriter writer = new BufferedWriter(new FileWriter(this.getDataFile(type), true));
+				try {
+					// Writes the serialized entity into the data file
+					String entityString = this.serialize(entity).toString();
+					writer.write(entityString);
+					writer.newLine();
+					this.metrics.getTypeMetrics(type).lineWritten(entityString.length());
+				} catch(Exception e) {
+					// Unmanage entity and rethrow exception, which includes a cascaded update of a stale reference
+					idField.set(entity, Long.MIN_VALUE);
+					throw e;
+				} finally {
+					writer.close();
+				}
+				
+				if(index != null)
+					index.append(identifier, offset, dataFile);
+				
+				// Pinned reference data becomes the canonical instance as soon as it is managed
+				if(this.isPinned(type))
+					this.pin(type, entity);
+				
+				// Save auto generated identifier in configuration file
+				this.configuration.setProperty(idKey, Long.toString(identifier));
+				// Obtain output stream for configuration file and save configurations
+				FileOutputStream out = new FileOutputStream(this.configurationFile);
+				try {
+					this.configuration.store(out, null);
+				} finally {
+					out.close();
+				}
+				
+				for(PersistenceListener listener: this.listeners)
+					listener.onCreated(entity, type);
+			}
+			
+			completed = true;
 		} finally {
-			out.close();
+			operation.record(start, completed);
 		}
 		
 		return entity;
@@ -544,134 +787,325 @@ public class FilePersistence implements Persistence {
 	public <T extends Entity> boolean update(T entity, Class<T> type) throws Exception {
 		boolean success = false;
 		
-		if(entity.isManaged()) {
-			// Get references to data and temporary file for the specified type
-			File dataFile = this.getDataFile(type);
-			File tmpFile = this.getTemporaryFile(type);
-			
-			// Move and rename data file to temporary file
-			Files.move(dataFile.toPath(), tmpFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-			
-			// Create new file and write data from temporary file to new file. Replace entity matching the specified
-			// entity's identifier with serialized data.
-			dataFile.createNewFile();
-			BufferedReader reader = new BufferedReader(new FileReader(tmpFile));
-			BufferedWriter writer = new BufferedWriter(new FileWriter(dataFile));
-			try {
-				String entityString = null;
-				while((entityString = reader.readLine()) != null) {
-					long _id = Long.parseLong(entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)))[1]
-							.split(this.configuration.getProperty(KEY_KV_DELIMITER))[1]);
-					if(_id == entity.getIdentifier()) {
-						writer.write(this.serialize(entity).toString());
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.Update, type);
+		long start = System.nanoTime();
+		boolean completed = false;
+		try {
+			synchronized(this.writeLock) {
+				if(entity.isManaged()) {
+					if(this.batch != null) {
+						// Cascaded while writing a batch, the entity is written together with the others of its type
+						this.enqueue(entity, type);
 						success = true;
 					}
 					else {
-						writer.write(entityString);
+						LongObjectMap<T> entities = new LongObjectMap<T>(1);
+						entities.put(entity.getIdentifier(), entity);
+						success = this.write(type, entities) > 0;
 					}
-					
-					writer.newLine();
 				}
-			} finally {
-				reader.close();
-				writer.close();
 			}
 			
-			// Delete temporary file
-			tmpFile.delete();
+			completed = true;
+		} finally {
+			operation.record(start, completed);
 		}
 		
 		return success;
 	}
-
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
-	public <T extends Entity> boolean delete(T entity, Class<T> type) throws Exception {
-		boolean success = false;
+	public <T extends Entity> int updateAll(Collection<T> entities, Class<T> type) throws Exception {
+		int count = 0;
 		
-		if(entity.isManaged()) {
-			// Get references to data and temporary file for the specified type
-			File dataFile = this.getDataFile(type);
-			File tmpFile = this.getTemporaryFile(type);
-			
-			// Move and rename data file to temporary file
-			Files.move(dataFile.toPath(), tmpFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-			
-			// Create new file and write data from temporary file to new file, ignoring entity string that matches
-			// the specified entity's identifier.
-			dataFile.createNewFile();
-			BufferedReader reader = new BufferedReader(new FileReader(tmpFile));
-			BufferedWriter writer = new BufferedWriter(new FileWriter(dataFile));
-			try {
-				String entityString = null;
-				while((entityString = reader.readLine()) != null) {
-					long _id = Long.parseLong(entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)))[1]
-							.split(this.configuration.getProperty(KEY_KV_DELIMITER))[1]);
-					if(_id == entity.getIdentifier()) {
-						success = true;
-						// Unmanage entity
-						getFieldsForType(Entity.class)[0].set(entity, Long.MIN_VALUE);
-						
-						// Remove entity from cache
-						synchronized(this.entityCache) {
-							if(this.entityCache.containsKey(type)) {
-								Map<Long, SoftReference<Entity>> idMap = this.entityCache.get(type);
-								idMap.remove(entity.getIdentifier());
-							}
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.Update, type);
+		long start = System.nanoTime();
+		boolean completed = false;
+		try {
+			synchronized(this.writeLock) {
+				boolean outermost = this.batch == null;
+				if(outermost)
+					this.batch = new LinkedHashMap<Class<?>, LongObjectMap<Entity>>();
+				
+				try {
+					for(T entity: entities) {
+						if(entity.isManaged()) {
+							this.enqueue(entity, type);
+							count++;
 						}
 					}
-					else {
-						writer.write(entityString);
-						writer.newLine();
+					
+					if(outermost) {
+						// Write the queued entities type by type. References cascaded while serializing are queued
+						// for a later round, hence each data file is rewritten once for every round it takes part in.
+						boolean first = true;
+						while(!this.batch.isEmpty()) {
+							Class next = this.batch.keySet().iterator().next();
+							int written = this.write(next, this.batch.remove(next));
+							if(first)
+								count = written;
+							first = false;
+						}
 					}
+				} finally {
+					if(outermost)
+						this.batch = null;
 				}
-			} finally {
-				reader.close();
-				writer.close();
 			}
 			
-			if(success) {
-				Field[] fields = this.getFieldsForType(type);
-				for(Field field: fields) {
-					// Delete fields with cascade delete annotations and update fields with cascade update annotations.
-					PersistAnnotation metadata = this.getFieldPersistenceMetadata(field);
+			completed = true;
+		} finally {
+			operation.record(start, completed);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Queues an entity to be written by the batch update in progress, replacing an earlier queued copy.
+	 * @param entity - The managed entity.
+	 * @param type - Type of the entity.
+	 */
+	private void enqueue(Entity entity, Class<?> type) {
+		LongObjectMap<Entity> queued = this.batch.get(type);
+		if(queued == null) {
+			queued = new LongObjectMap<Entity>();
+			this.batch.put(type, queued);
+		}
+		
+		queued.put(entity.getIdentifier(), entity);
+	}
+	
+	/**
+	 * Rewrites the data file of the specified type, replacing the entities matching the identifiers of the specified
+	 * entities with their serialized data and incrementing their versions. Must be called while holding the write lock.<br />
+	 * The data file is left untouched if the version of any of the entities differs from its stored version, or if any
+	 * entity reference cascaded while serializing them is stale, in which case the versions of the entities are restored.
+	 * The versions of several entities are all checked before the first is serialized, so that no reference is cascaded
+	 * on behalf of a write that is then rejected.<br />
+	 * As every entity read with its references loaded is the instance held by the identity cache, an update through this
+	 * provider also brings the cached instance to the stored version. The versions therefore only detect writes made
+	 * outside the cache, by another process or through an instance read without its references, and do not detect two
+	 * threads of this process changing the same cached instance.
+	 * @param type - Type of the entities.
+	 * @param entities - The managed entities to write, keyed by identifier.
+	 * @return The number of entities written.
+	 * @throws StaleEntityException
+	 * @throws Exception
+	 */
+	private <T extends Entity> int write(Class<T> type, LongObjectMap<T> entities) throws Exception {
+		List<T> written = new ArrayList<T>();
+		
+		// Get references to data and temporary file for the specified type
+		File dataFile = this.getDataFile(type);
+		File tmpFile = this.getTemporaryFile(type);
+		
+		Field versionField = this.getFieldsForType(Entity.class)[1];
+		String kvDelimiter = this.configuration.getProperty(KEY_KV_DELIMITER);
+		if(entities.size() > 1)
+			this.checkVersions(dataFile, entities, versionField.getName() + kvDelimiter);
+		
+		// Write data from data file to temporary file. Replace entities matching the specified
+		// entities' identifiers with serialized data.
+		BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+		BufferedWriter writer = new BufferedWriter(new FileWriter(tmpFile));
+		TypeMetrics typeMetrics = this.metrics.getTypeMetrics(type);
+		try {
+			String entityString = null;
+			while((entityString = reader.readLine()) != null) {
+				typeMetrics.lineRead(entityString.length());
+				String[] arrString = entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)), 4);
+				long _id = Long.parseLong(arrString[1].split(kvDelimiter)[1]);
+				T entity = entities.get(_id);
+				if(entity != null) {
+					// The version follows the identifier, data written before versions were introduced is at version 0
+					long version = 0;
+					if(arrString.length > 2 && arrString[2].startsWith(versionField.getName() + kvDelimiter))
+						version = Long.parseLong(arrString[2].substring(versionField.getName().length() + kvDelimiter.length()));
+					if(version != entity.getVersion())
+						throw new StaleEntityException(entity, version);
 					
-					Class fType = field.getType();
-					Object value = field.get(entity);
+					versionField.set(entity, version + 1);
+					written.add(entity);
+					entityString = this.serialize(entity).toString();
+				}
+				
+				writer.write(entityString);
+				writer.newLine();
+				typeMetrics.lineWritten(entityString.length());
+			}
+		} catch(Exception e) {
+			// Nothing has been written, restore the versions of the entities
+			for(T entity: written)
+				versionField.set(entity, entity.getVersion() - 1);
+			throw e;
+		} finally {
+			reader.close();
+			writer.close();
+		}
+		
+		// Replace data file with temporary file. Readers that have already opened the data file keep
+		// reading the version they opened.
+		Files.move(tmpFile.toPath(), dataFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		this.primaryIndexes.remove(dataFile);
+		
+		for(T entity: written) {
+			// Keep the canonical instance of pinned reference data current
+			if(this.isPinned(type))
+				this.pin(type, entity);
+			
+			for(PersistenceListener listener: this.listeners)
+				listener.onUpdated(entity, type);
+		}
+		
+		return written.size();
+	}
+	
+	/**
+	 * Reads the stored versions of the specified entities from a data file, without serializing any of them.
+	 * @param dataFile
+	 * @param entities - The managed entities to check, keyed by identifier.
+	 * @param versionKey - The key of the version field, followed by the key value delimiter.
+	 * @throws StaleEntityException This exception is thrown when the version of an entity differs from its stored version.
+	 * @throws Exception
+	 */
+	private <T extends Entity> void checkVersions(File dataFile, LongObjectMap<T> entities, String versionKey) throws Exception {
+		String kvDelimiter = this.configuration.getProperty(KEY_KV_DELIMITER);
+		BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+		try {
+			String entityString = null;
+			while((entityString = reader.readLine()) != null) {
+				String[] arrString = entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)), 4);
+				T entity = entities.get(Long.parseLong(arrString[1].split(kvDelimiter)[1]));
+				if(entity != null) {
+					long version = 0;
+					if(arrString.length > 2 && arrString[2].startsWith(versionKey))
+						version = Long.parseLong(arrString[2].substring(versionKey.length()));
+					if(version != entity.getVersion())
+						throw new StaleEntityException(entity, version);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Override
+	public <T extends Entity> boolean delete(T entity, Class<T> type) throws Exception {
+		boolean success = false;
+		
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.Delete, type);
+		long start = System.nanoTime();
+		boolean completed = false;
+		try {
+			synchronized(this.writeLock) {
+				if(entity.isManaged()) {
+					long identifier = entity.getIdentifier();
 					
-					if(value != null) {
-						if(Entity.class.isAssignableFrom(fType)) {
-							if(CascadeType.cascade(metadata.cascade(), CascadeType.Delete))
-								this.delete((Entity) value, fType);
-							else if(CascadeType.cascade(metadata.cascade(), CascadeType.Update))
-								this.update((Entity) value, fType);
+					// Get references to data and temporary file for the specified type
+					File dataFile = this.getDataFile(type);
+					File tmpFile = this.getTemporaryFile(type);
+					
+					// Write data from data file to temporary file, ignoring entity string that matches
+					// the specified entity's identifier.
+					BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+					BufferedWriter writer = new BufferedWriter(new FileWriter(tmpFile));
+					TypeMetrics typeMetrics = this.metrics.getTypeMetrics(type);
+					try {
+						String entityString = null;
+						while((entityString = reader.readLine()) != null) {
+							typeMetrics.lineRead(entityString.length());
+							long _id = Long.parseLong(entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)))[1]
+									.split(this.configuration.getProperty(KEY_KV_DELIMITER))[1]);
+							if(_id == entity.getIdentifier()) {
+								success = true;
+								// Unmanage entity
+								getFieldsForType(Entity.class)[0].set(entity, Long.MIN_VALUE);
+								
+								// Remove entity from cache, keyed by the identifier it had before being unmanaged
+								synchronized(this.entityCache) {
+									LongObjectMap<SoftReference<Entity>> idMap = this.entityCache.get(type);
+									if(idMap != null)
+										idMap.remove(_id);
+									LongObjectMap<Entity> pins = this.pinnedCache.get(type);
+									if(pins != null)
+										pins.remove(_id);
+								}
+							}
+							else {
+								writer.write(entityString);
+								writer.newLine();
+								typeMetrics.lineWritten(entityString.length());
+							}
 						}
-						else if(fType.isArray() || List.class.isAssignableFrom(fType)) {
-							Class componentType = type.isArray()? type.getComponentType():
-								metadata.type();
+					} finally {
+						reader.close();
+						writer.close();
+					}
+					
+					if(success) {
+						Field[] fields = this.getFieldsForType(type);
+						for(Field field: fields) {
+							// Delete fields with cascade delete annotations and update fields with cascade update annotations.
+							PersistAnnotation metadata = this.getFieldPersistenceMetadata(field);
 							
-							if(Entity.class.isAssignableFrom(componentType)) {
-								// Cast the references as a List
-								List items = null;
-								if(type.isArray())
-									items = Arrays.asList((Object[]) value);
-								else
-									items = (List) value;
-								
-								// Loop through all items and delete
-								for(Object item: items) {
-									if(CascadeType.cascade(metadata.cascade(), CascadeType.Delete))
-										this.delete((Entity) item, componentType);
-									else if(CascadeType.cascade(metadata.cascade(), CascadeType.Update))
-										this.update((Entity) item, componentType);
+							Class fType = field.getType();
+							Object value = field.get(entity);
+							
+							if(value != null) {
+								if(Entity.class.isAssignableFrom(fType)) {
+									if(CascadeType.cascade(metadata.cascade(), CascadeType.Delete)) {
+										this.delete((Entity) value, fType);
+										this.metrics.getTypeMetrics(fType).cascaded();
+									}
+									else if(CascadeType.cascade(metadata.cascade(), CascadeType.Update)) {
+										this.update((Entity) value, fType);
+										this.metrics.getTypeMetrics(fType).cascaded();
+									}
+								}
+								else if(fType.isArray() || List.class.isAssignableFrom(fType)) {
+									Class componentType = type.isArray()? type.getComponentType():
+										metadata.type();
+									
+									if(Entity.class.isAssignableFrom(componentType)) {
+										// Cast the references as a List
+										List items = null;
+										if(type.isArray())
+											items = Arrays.asList((Object[]) value);
+										else
+											items = (List) value;
+										
+										// Loop through all items and delete
+										for(Object item: items) {
+											if(CascadeType.cascade(metadata.cascade(), CascadeType.Delete)) {
+												this.delete((Entity) item, componentType);
+												this.metrics.getTypeMetrics(componentType).cascaded();
+											}
+											else if(CascadeType.cascade(metadata.cascade(), CascadeType.Update)) {
+												this.update((Entity) item, componentType);
+												this.metrics.getTypeMetrics(componentType).cascaded();
+											}
+										}
+									}
 								}
 							}
 						}
 					}
+					
+					// Replace data file with temporary file
+					Files.move(tmpFile.toPath(), dataFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+					this.primaryIndexes.remove(dataFile);
+					
+					if(success)
+						for(PersistenceListener listener: this.listeners)
+							listener.onDeleted(entity, identifier, type);
 				}
 			}
 			
-			// Delete temporary file
-			tmpFile.delete();
+			completed = true;
+		} finally {
+			operation.record(start, completed);
 		}
 		
 		return success;
@@ -680,7 +1114,24 @@ public class FilePersistence implements Persistence {
 	@Override
 	public <T extends Entity> Iterable<T> search(Predicate<T> predicate, Class<T> type, boolean loadBeforePredicate)
 			throws Exception {
-		return new FileEntityIterable(this, this.getDataFile(type), predicate, loadBeforePredicate);
+		return new FileEntityIterable<T>(this, this.getDataFile(type), predicate, loadBeforePredicate, this.metrics.getTypeMetrics(type));
+	}
+
+	@Override
+	public <T extends Entity> Iterable<T> searchAll(Predicate<T> predicate, Class<T> type, boolean loadBeforePredicate)
+			throws Exception {
+		List<File> files = new ArrayList<File>();
+		files.add(this.getDataFile(type));
+		
+		// Loop through the archive segments, skipping those whose zone map rules out a match
+		for(String segment: this.getSegments()) {
+			File file = this.getArchiveFile(type, segment, this.configuration.getProperty(KEY_DATA_EXT));
+			if(file.exists() && (!(predicate instanceof ZonePredicate) || 
+					((ZonePredicate<T>) predicate).test(this.getZoneMap(this.getArchiveFile(type, segment, ZONE_EXT)))))
+				files.add(file);
+		}
+		
+		return new FileEntityIterable<T>(this, files, predicate, loadBeforePredicate, this.metrics.getTypeMetrics(type));
 	}
 
 	@Override
@@ -688,22 +1139,33 @@ public class FilePersistence implements Persistence {
 			throws Exception {
 		int count = 0;
 		
-		// Read data file and deserializes each entity.
-		File dataFile = this.getDataFile(type);
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.GetCount, type);
+		long start = System.nanoTime();
+		boolean completed = false;
 		try {
-			BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+			// Read data file and deserializes each entity.
+			File dataFile = this.getDataFile(type);
 			try {
-				String entityString = null;
-				while((entityString = reader.readLine()) != null) {
-					T entity = this.deserialize(entityString, loadBeforePredicate, false);
-					if(predicate == null || predicate.test(entity))
-						count++;
+				BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+				TypeMetrics typeMetrics = this.metrics.getTypeMetrics(type);
+				try {
+					String entityString = null;
+					while((entityString = reader.readLine()) != null) {
+						typeMetrics.lineRead(entityString.length());
+						T entity = this.deserialize(entityString, loadBeforePredicate, false);
+						if(predicate == null || predicate.test(entity))
+							count++;
+					}
+				} finally {
+					reader.close();
 				}
-			} finally {
-				reader.close();
+			} catch(FileNotFoundException e) {
+				count = 0;
 			}
-		} catch(FileNotFoundException e) {
-			count = 0;
+			
+			completed = true;
+		} finally {
+			operation.record(start, completed);
 		}
 		
 		return count;
@@ -713,38 +1175,304 @@ public class FilePersistence implements Persistence {
 	public <T extends Entity> T retrieveByID(long id, Class<T> type) throws Exception {
 		T entity = null;
 		
-		// Read data file and find matching IDs to deserialize
-		File dataFile = this.getDataFile(type);
-		BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.RetrieveByID, type);
+		long start = System.nanoTime();
+		boolean completed = false;
 		try {
-			String entityString = null;
-			while((entityString = reader.readLine()) != null) {
-				long _id = Long.parseLong(entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)))[1]
-											.split(this.configuration.getProperty(KEY_KV_DELIMITER))[1]);
-				if(_id == id) {
-					// Deserialize data into entity for matching IDs.
+			entity = this.retrieveByID(this.getDataFile(type), id, type);
+			
+			// Fall through to the archive segments whose identifiers may include the identifier, the latest first
+			List<String> segments = entity == null? this.getSegments(): Collections.<String>emptyList();
+			for(int i = segments.size() - 1; entity == null && i >= 0; i--) {
+				if(this.getZoneMap(this.getArchiveFile(type, segments.get(i), ZONE_EXT)).contains("_id", id))
+					entity = this.retrieveByID(this.getArchiveFile(type, segments.get(i), this.configuration.getProperty(KEY_DATA_EXT)), id, type);
+			}
+			
+			completed = true;
+		} finally {
+			operation.record(start, completed);
+		}
+		
+		return entity;
+	}
+	
+	/**
+	 * Finds the line of the entity with the specified identifier in the specified file through the primary index of the
+	 * file, and deserializes it.
+	 * @param file - The data file or archive file to read.
+	 * @param id - Unique identifier
+	 * @param type - Type of the entity to be retrieved.
+	 * @return A managed entity with the unique identifier or null if it is not in the file.
+	 * @throws Exception
+	 */
+	private <T extends Entity> T retrieveByID(File file, long id, Class<T> type) throws Exception {
+		T entity = null;
+		
+		try {
+			long offset = file.exists()? this.getPrimaryIndex(file).getOffset(id): -1;
+			if(offset >= 0) {
+				String entityString = null;
+				FileInputStream in = new FileInputStream(file);
+				try {
+					in.getChannel().position(offset);
+					entityString = new BufferedReader(new InputStreamReader(in)).readLine();
+				} finally {
+					in.close();
+				}
+				
+				String[] arrString = entityString == null? new String[0]: 
+											entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)), 3);
+				if(arrString.length > 1 && arrString[1].equals("_id" + this.configuration.getProperty(KEY_KV_DELIMITER) + id)) {
+					this.metrics.getTypeMetrics(type).lineRead(entityString.length());
 					entity = this.deserialize(entityString, true, false);
-					break;
+				}
+				else {
+					// The file has been replaced since the index was read, fall back to reading the file
+					this.primaryIndexes.remove(file);
+					entity = this.scanForID(file, id, type);
 				}
 			}
-		} finally {
-			reader.close();
+		} catch(FileNotFoundException e) {
+			entity = null;
+		}
+		
+		return entity;
+	}
+	
+	/**
+	 * Reads the specified file to find and deserialize the entity with the specified identifier.
+	 * @param file - The data file or archive file to read.
+	 * @param id - Unique identifier
+	 * @param type - Type of the entity to be retrieved.
+	 * @return A managed entity with the unique identifier or null if it is not in the file.
+	 * @throws Exception
+	 */
+	private <T extends Entity> T scanForID(File file, long id, Class<T> type) throws Exception {
+		T entity = null;
+		
+		// Read data file and find matching IDs to deserialize
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			TypeMetrics typeMetrics = this.metrics.getTypeMetrics(type);
+			try {
+				String entityString = null;
+				while((entityString = reader.readLine()) != null) {
+					typeMetrics.lineRead(entityString.length());
+					long _id = Long.parseLong(entityString.split(Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER)))[1]
+												.split(this.configuration.getProperty(KEY_KV_DELIMITER))[1]);
+					if(_id == id) {
+						// Deserialize data into entity for matching IDs.
+						entity = this.deserialize(entityString, true, false);
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch(FileNotFoundException e) {
+			entity = null;
 		}
 		
 		return entity;
 	}
 	
+	@Override
+	public <T extends Entity> int archive(Collection<T> entities, Class<T> type, String segment) throws Exception {
+		int count = 0;
+		
+		OperationMetrics operation = this.metrics.getOperationMetrics(OperationType.Archive, type);
+		long start = System.nanoTime();
+		boolean completed = false;
+		try {
+			synchronized(this.writeLock) {
+				// Gather the entities together with the references they own, type by type
+				Map<Class<?>, LongObjectMap<Entity>> owned = new LinkedHashMap<Class<?>, LongObjectMap<Entity>>();
+				owned.put(type, new LongObjectMap<Entity>());
+				for(T entity: entities)
+					if(entity.isManaged())
+						this.own(entity, type, owned);
+				
+				for(Map.Entry<Class<?>, LongObjectMap<Entity>> entry: owned.entrySet()) {
+					int moved = this.moveToArchive(entry.getKey().asSubclass(Entity.class), entry.getValue(), segment);
+					if(entry.getKey().equals(type))
+						count = moved;
+				}
+			}
+			
+			completed = true;
+		} finally {
+			operation.record(start, completed);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Adds an entity and the entity references it owns, which are those cascaded on delete, to the specified map.
+	 * @param entity - A loaded managed entity.
+	 * @param type - Type of the entity.
+	 * @param owned - The entities gathered so far, keyed by type and identifier.
+	 * @throws Exception
+	 */
+	private void own(Entity entity, Class<?> type, Map<Class<?>, LongObjectMap<Entity>> owned) throws Exception {
+		LongObjectMap<Entity> entities = owned.get(type);
+		if(entities == null) {
+			entities = new LongObjectMap<Entity>();
+			owned.put(type, entities);
+		}
+		
+		if(!entities.containsKey(entity.getIdentifier())) {
+			entities.put(entity.getIdentifier(), entity);
+			
+			// Loop through the fields to follow the references cascaded on delete
+			for(Field field: this.getFieldsForType(entity.getClass())) {
+				PersistAnnotation metadata = this.getFieldPersistenceMetadata(field);
+				Object value = field.get(entity);
+				
+				if(value != null && CascadeType.cascade(metadata.cascade(), CascadeType.Delete)) {
+					if(value instanceof Entity) {
+						if(((Entity) value).isManaged())
+							this.own((Entity) value, field.getType(), owned);
+					}
+					else if(value instanceof List) {
+						for(Object item: (List) value)
+							if(item instanceof Entity && ((Entity) item).isManaged())
+								this.own((Entity) item, metadata.type(), owned);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Moves the lines of the specified entities from the data file of their type to the archive file of the specified
+	 * segment, and widens the zone map of the segment with their identifiers and dates. The archive file is appended to
+	 * and the zone map replaced before the data file is replaced. Must be called while holding the write lock.
+	 * @param type - Type of the entities.
+	 * @param entities - The entities to move, keyed by identifier.
+	 * @param segment - The name of the archive segment.
+	 * @return The number of entities moved.
+	 * @throws Exception
+	 */
+	private <T extends Entity> int moveToArchive(Class<T> type, LongObjectMap<Entity> entities, String segment) throws Exception {
+		List<String> moved = new ArrayList<String>();
+		
+		File dataFile = this.getDataFile(type);
+		File tmpFile = this.getTemporaryFile(type);
+		if(entities.size() > 0 && dataFile.exists()) {
+			File zoneFile = this.getArchiveFile(type, segment, ZONE_EXT);
+			ZoneMap zone = new ZoneMap(this.getZoneMap(zoneFile).toProperties());
+			
+			// Only identifiers and dates are mapped, as they are what archived data is looked up by
+			List<String> mapped = new ArrayList<String>();
+			for(Field field: this.getFieldsForType(type))
+				if(Date.class.isAssignableFrom(field.getType()) || field.getName().equals("_id"))
+					mapped.add(field.getName());
+			
+			String fieldDelimiter = Pattern.quote(this.configuration.getProperty(KEY_FIELD_DELIMITER));
+			String kvDelimiter = this.configuration.getProperty(KEY_KV_DELIMITER);
+			BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+			BufferedWriter writer = new BufferedWriter(new FileWriter(tmpFile));
+			TypeMetrics typeMetrics = this.metrics.getTypeMetrics(type);
+			try {
+				String entityString = null;
+				while((entityString = reader.readLine()) != null) {
+					typeMetrics.lineRead(entityString.length());
+					String[] arrString = entityString.split(fieldDelimiter);
+					long _id = Long.parseLong(arrString[1].split(kvDelimiter)[1]);
+					if(entities.containsKey(_id)) {
+						moved.add(entityString);
+						zone.increment();
+						for(int i = 1; i < arrString.length; i++) {
+							String[] kvPair = arrString[i].split(Pattern.quote(kvDelimiter));
+							if(kvPair.length == 2 && mapped.contains(kvPair[0]))
+								zone.include(kvPair[0], Long.parseLong(kvPair[1]));
+						}
+					}
+					else {
+						writer.write(entityString);
+						writer.newLine();
+						typeMetrics.lineWritten(entityString.length());
+					}
+				}
+			} finally {
+				reader.close();
+				writer.close();
+			}
+			
+			if(moved.size() > 0) {
+				File archiveFile = this.getArchiveFile(type, segment, this.configuration.getProperty(KEY_DATA_EXT));
+				archiveFile.getParentFile().mkdirs();
+				writer = new BufferedWriter(new FileWriter(archiveFile, true));
+				try {
+					for(String line: moved) {
+						writer.write(line);
+						writer.newLine();
+						typeMetrics.lineWritten(line.length());
+					}
+				} finally {
+					writer.close();
+				}
+				this.primaryIndexes.remove(archiveFile);
+				
+				// Replace the zone map as a whole, a reader never sees it half written
+				File tmpZoneFile = new File(zoneFile.getPath() + this.configuration.getProperty(KEY_TMP_EXT));
+				FileOutputStream out = new FileOutputStream(tmpZoneFile);
+				try {
+					zone.toProperties().store(out, null);
+				} finally {
+					out.close();
+				}
+				Files.move(tmpZoneFile.toPath(), zoneFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				this.zoneMaps.put(zoneFile, zone);
+				
+				// Replace data file with temporary file, the entities are now only read from the archive
+				Files.move(tmpFile.toPath(), dataFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				this.primaryIndexes.remove(dataFile);
+			}
+			else {
+				tmpFile.delete();
+			}
+		}
+		
+		return moved.size();
+	}
+	
 	@Override
 	public Properties getConfiguration() {
 		return new Properties(this.configuration);
 	}
 	
+	@Override
+	public PersistenceMetrics getMetrics() {
+		return this.metrics.snapshot();
+	}
+	
+	@Override
+	public void addListener(PersistenceListener listener) {
+		this.listeners.add(listener);
+	}
+	
+	@Override
+	public void removeListener(PersistenceListener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	@Override
+	public <V> V holdWrites(Callable<V> task) throws Exception {
+		// Every writer notifies the listeners before it releases the write lock
+		synchronized(this.writeLock) {
+			return task.call();
+		}
+	}
+	
 	/**
 	 * Clears the cache of this FilePersistence. Call this method to guarantee receiving fresh data.
 	 */
 	public void clear() {
 		synchronized(this.entityCache) {
 			this.entityCache.clear();
+			this.pinnedCache.clear();
 		}
 	}
 	
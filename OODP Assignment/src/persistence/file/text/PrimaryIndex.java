@@ -0,0 +1,123 @@
+package persistence.file.text;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import persistence.collection.LongLongMap;
+
+/**
+ * PrimaryIndex maps the identifiers of the entities in a data file to the byte offset of their line, so that an entity
+ * is read by seeking to its line instead of reading the file up to it. The index is built by reading the file once and
+ * holds the length and last modified time of the file it was built from, hence an index of a file that has since been
+ * replaced is detected with {@link #isCurrent(File)}.
+ * @author YingHao
+ */
+public class PrimaryIndex {
+	private final LongLongMap offsets;
+	private long length;
+	private long lastModified;
+	
+	/**
+	 * PrimaryIndex constructor. Reads the specified file to map the identifiers to the offsets of their lines.
+	 * @param file - The data file or archive file.
+	 * @param fieldDelimiter - The delimiter between the fields of a line.
+	 * @param kvDelimiter - The delimiter between the name and value of a field.
+	 * @throws IOException
+	 */
+	public PrimaryIndex(File file, String fieldDelimiter, String kvDelimiter) throws IOException {
+		this.offsets = new LongLongMap();
+		
+		// The file is stamped before it is read, an index stamped with a file it was not read from is never current
+		this.length = file.length();
+		this.lastModified = file.lastModified();
+		
+		// Identifiers and delimiters are ASCII, hence lines are decoded byte for byte without decoding the whole file
+		Pattern fields = Pattern.compile(Pattern.quote(fieldDelimiter));
+		Pattern kv = Pattern.compile(Pattern.quote(kvDelimiter));
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+		try {
+			byte[] line = new byte[256];
+			int size = 0;
+			long offset = 0;
+			long position = 0;
+			int b;
+			while((b = in.read()) != -1) {
+				position++;
+				if(b == '\n') {
+					this.put(new String(line, 0, size, StandardCharsets.ISO_8859_1), offset, fields, kv);
+					size = 0;
+					offset = position;
+				}
+				else if(b != '\r') {
+					if(size == line.length) {
+						byte[] grown = new byte[line.length * 2];
+						System.arraycopy(line, 0, grown, 0, size);
+						line = grown;
+					}
+					line[size++] = (byte) b;
+				}
+			}
+			if(size > 0)
+				this.put(new String(line, 0, size, StandardCharsets.ISO_8859_1), offset, fields, kv);
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Maps the identifier of the specified line to its offset.
+	 * @param line
+	 * @param offset
+	 * @param fields
+	 * @param kv
+	 */
+	private void put(String line, long offset, Pattern fields, Pattern kv) {
+		String[] arrString = fields.split(line, 3);
+		if(arrString.length > 1)
+			this.offsets.put(Long.parseLong(kv.split(arrString[1], 2)[1]), offset);
+	}
+	
+	/**
+	 * Gets the offset of the line of the specified identifier.
+	 * @param id
+	 * @return The offset, or -1 if the identifier is not in the file.
+	 */
+	public synchronized long getOffset(long id) {
+		return this.offsets.get(id, -1);
+	}
+	
+	/**
+	 * Maps an identifier to the offset of a line appended to the file, and stamps the index with the file as appended.
+	 * @param id
+	 * @param offset - The length of the file before the line was appended.
+	 * @param file
+	 */
+	public synchronized void append(long id, long offset, File file) {
+		this.offsets.put(id, offset);
+		this.length = file.length();
+		this.lastModified = file.lastModified();
+	}
+	
+	/**
+	 * Gets a flag indicating if this index was built from the current content of the specified file.
+	 * @param file
+	 * @return flag
+	 */
+	public synchronized boolean isCurrent(File file) {
+		return this.length == file.length() && this.lastModified == file.lastModified();
+	}
+	
+	/**
+	 * Gets the number of identifiers in the index.
+	 * @return size
+	 */
+	public synchronized int size() {
+		return this.offsets.size();
+	}
+
+}
@@ -0,0 +1,144 @@
+package persistence.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram records latencies into log-linear buckets in the style of HdrHistogram.
+ * Every power of two is divided into {@link #SUB_BUCKETS} linear sub-buckets, bounding the relative error of
+ * any reported value to roughly 6% while covering the whole positive long range in a fixed number of buckets.<br />
+ * Recording is lock-free and does not allocate, so it is safe to call on hot paths from multiple threads.
+ * @author YingHao
+ */
+public class LatencyHistogram {
+	private final static int SUB_BUCKET_BITS = 4;
+	private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private final static int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong totalCount;
+	private final AtomicLong totalValue;
+	private final AtomicLong maxValue;
+
+	/**
+	 * LatencyHistogram constructor.
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.totalCount = new AtomicLong();
+		this.totalValue = new AtomicLong();
+		this.maxValue = new AtomicLong();
+	}
+
+	/**
+	 * Gets the bucket index of the specified value.
+	 * @param value - A non-negative value.
+	 * @return bucket index
+	 */
+	static int indexOf(long value) {
+		int index;
+
+		if(value < SUB_BUCKETS)
+			index = (int) Math.max(value, 0);
+		else {
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			index = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Gets the lowest value that is recorded into the specified bucket.
+	 * @param index - bucket index
+	 * @return lowest equivalent value
+	 */
+	static long valueOf(int index) {
+		long value;
+
+		if(index < SUB_BUCKETS)
+			value = index;
+		else {
+			int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			value = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Records a value.
+	 * @param value - The value to record, typically a latency in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0);
+
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+
+		long max;
+		while(value > (max = maxValue.get()) && !maxValue.compareAndSet(max, value));
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 * @return count
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 * @return max
+	 */
+	public long getMax() {
+		return maxValue.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded values.
+	 * @return mean, or 0 when nothing has been recorded.
+	 */
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0? 0: (double) totalValue.get() / count;
+	}
+
+	/**
+	 * Gets the value at the specified percentile.
+	 * @param percentile - A percentile between 0 and 100.
+	 * @return The lowest equivalent value of the bucket holding the percentile, or 0 when nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long value = 0;
+
+		long count = totalCount.get();
+		if(count > 0) {
+			long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+
+			long seen = 0;
+			for(int i = 0; i < BUCKET_COUNT && seen < target; i++) {
+				seen += counts.get(i);
+				if(seen >= target)
+					value = Math.min(valueOf(i), getMax());
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * Discards all recorded values.
+	 */
+	public void reset() {
+		for(int i = 0; i < BUCKET_COUNT; i++)
+			counts.set(i, 0);
+		totalCount.set(0);
+		totalValue.set(0);
+		maxValue.set(0);
+	}
+
+}
@@ -0,0 +1,191 @@
+package persistence.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * MetricsRegistry holds the live metrics of a persistence implementation, one {@link TypeMetrics} per entity type.
+ * @author YingHao
+ */
+public class MetricsRegistry implements PersistenceMetricsMXBean {
+	private final ConcurrentHashMap<Class<?>, TypeMetrics> types;
+
+	/**
+	 * MetricsRegistry constructor.
+	 */
+	public MetricsRegistry() {
+		this.types = new ConcurrentHashMap<Class<?>, TypeMetrics>();
+	}
+
+	/**
+	 * Gets the metrics of the specified entity type, creating them if they do not exist.
+	 * @param type
+	 * @return type metrics
+	 */
+	public TypeMetrics getTypeMetrics(Class<?> type) {
+		TypeMetrics metrics = types.get(type);
+
+		if(metrics == null) {
+			TypeMetrics created = new TypeMetrics();
+			metrics = types.putIfAbsent(type, created);
+			if(metrics == null)
+				metrics = created;
+		}
+
+		return metrics;
+	}
+
+	/**
+	 * Gets the metrics of an operation for the specified entity type.
+	 * @param operation
+	 * @param type
+	 * @return operation metrics
+	 */
+	public OperationMetrics getOperationMetrics(OperationType operation, Class<?> type) {
+		return getTypeMetrics(type).getOperation(operation);
+	}
+
+	/**
+	 * Takes an immutable snapshot of the current metrics.
+	 * @return snapshot
+	 */
+	public PersistenceMetrics snapshot() {
+		Map<String, PersistenceMetrics.TypeSnapshot> snapshots = new HashMap<String, PersistenceMetrics.TypeSnapshot>();
+		for(Map.Entry<Class<?>, TypeMetrics> entry: types.entrySet()) {
+			String name = entry.getKey().getSimpleName();
+			snapshots.put(name, new PersistenceMetrics.TypeSnapshot(name, entry.getValue()));
+		}
+
+		return new PersistenceMetrics(snapshots);
+	}
+
+	/**
+	 * Registers this registry on the platform MBean server, replacing any MBean registered under the same name.
+	 * @param name - The object name to register under.
+	 * @throws JMException
+	 */
+	public void registerMBean(ObjectName name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if(server.isRegistered(name))
+			server.unregisterMBean(name);
+		server.registerMBean(this, name);
+	}
+
+	/**
+	 * Gets the metrics of the entity type with the specified simple name.
+	 * @param type - The simple name of an entity type.
+	 * @return type metrics, or null if the type has not been measured.
+	 */
+	private TypeMetrics findTypeMetrics(String type) {
+		TypeMetrics metrics = null;
+
+		for(Map.Entry<Class<?>, TypeMetrics> entry: types.entrySet()) {
+			if(entry.getKey().getSimpleName().equals(type))
+				metrics = entry.getValue();
+		}
+
+		return metrics;
+	}
+
+	@Override
+	public long getBytesRead() {
+		return snapshot().getBytesRead();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return snapshot().getBytesWritten();
+	}
+
+	@Override
+	public long getLinesParsed() {
+		return snapshot().getLinesParsed();
+	}
+
+	@Override
+	public long getEntitiesDeserialized() {
+		return snapshot().getEntitiesDeserialized();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return snapshot().getCacheHits();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return snapshot().getCacheMisses();
+	}
+
+	@Override
+	public long getCascadeFanOut() {
+		return snapshot().getCascadeFanOut();
+	}
+
+	@Override
+	public String[] getOperationSummaries() {
+		List<String> summaries = new ArrayList<String>();
+
+		for(PersistenceMetrics.TypeSnapshot type: snapshot().getTypes()) {
+			for(OperationType operation: OperationType.values()) {
+				PersistenceMetrics.OperationSnapshot snapshot = type.getOperation(operation);
+				if(snapshot.getCalls() > 0)
+					summaries.add(String.format("%s.%s: calls=%d errors=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+							type.getName(), operation, snapshot.getCalls(), snapshot.getErrors(), snapshot.getMean() / 1000,
+							snapshot.getP50() / 1000.0, snapshot.getP90() / 1000.0, snapshot.getP99() / 1000.0,
+							snapshot.getP999() / 1000.0, snapshot.getMax() / 1000.0));
+			}
+		}
+
+		return summaries.toArray(new String[summaries.size()]);
+	}
+
+	@Override
+	public String[] getTypeSummaries() {
+		List<String> summaries = new ArrayList<String>();
+
+		for(PersistenceMetrics.TypeSnapshot type: snapshot().getTypes())
+			summaries.add(String.format("%s: bytesRead=%d bytesWritten=%d linesParsed=%d entitiesDeserialized=%d cacheHits=%d cacheMisses=%d cascades=%d",
+					type.getName(), type.getBytesRead(), type.getBytesWritten(), type.getLinesParsed(),
+					type.getEntitiesDeserialized(), type.getCacheHits(), type.getCacheMisses(), type.getCascades()));
+
+		return summaries.toArray(new String[summaries.size()]);
+	}
+
+	@Override
+	public long getCallCount(String operation, String type) {
+		long calls = 0;
+
+		TypeMetrics metrics = findTypeMetrics(type);
+		if(metrics != null)
+			calls = metrics.getOperation(OperationType.valueOf(operation)).getCalls();
+
+		return calls;
+	}
+
+	@Override
+	public double getLatencyPercentileMicros(String operation, String type, double percentile) {
+		double latency = 0;
+
+		TypeMetrics metrics = findTypeMetrics(type);
+		if(metrics != null)
+			latency = metrics.getOperation(OperationType.valueOf(operation)).getLatency().getValueAtPercentile(percentile) / 1000.0;
+
+		return latency;
+	}
+
+	@Override
+	public void reset() {
+		for(TypeMetrics metrics: types.values())
+			metrics.reset();
+	}
+
+}
@@ -0,0 +1,65 @@
+package persistence.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OperationMetrics accumulates the call count, failure count and latency distribution of one
+ * {@link OperationType} for one entity type.
+ * @author YingHao
+ */
+public class OperationMetrics {
+	private final AtomicLong errors;
+	private final LatencyHistogram latency;
+
+	/**
+	 * OperationMetrics constructor.
+	 */
+	public OperationMetrics() {
+		this.errors = new AtomicLong();
+		this.latency = new LatencyHistogram();
+	}
+
+	/**
+	 * Records a completed call.
+	 * @param startNanos - The value of {@link System#nanoTime()} when the call started.
+	 * @param success - A flag indicating if the call completed without throwing.
+	 */
+	public void record(long startNanos, boolean success) {
+		latency.record(System.nanoTime() - startNanos);
+		if(!success)
+			errors.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of calls.
+	 * @return calls
+	 */
+	public long getCalls() {
+		return latency.getCount();
+	}
+
+	/**
+	 * Gets the number of calls that threw an exception.
+	 * @return errors
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * Gets the latency distribution in nanoseconds.
+	 * @return latency
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Discards all recorded values.
+	 */
+	public void reset() {
+		errors.set(0);
+		latency.reset();
+	}
+
+}
@@ -0,0 +1,47 @@
+package persistence.metrics;
+
+import persistence.Persistence;
+
+/**
+ * OperationType is an enumeration that specifies the {@link Persistence} operations that are measured.
+ * @author YingHao
+ */
+public enum OperationType {
+
+	/**
+	 * {@link Persistence#create(persistence.Entity, Class)}
+	 */
+	Create,
+
+	/**
+	 * {@link Persistence#update(persistence.Entity, Class)}
+	 */
+	Update,
+
+	/**
+	 * {@link Persistence#delete(persistence.Entity, Class)}
+	 */
+	Delete,
+
+	/**
+	 * {@link Persistence#search(persistence.Predicate, Class, boolean)}, measured from the start of the search
+	 * until its iterator is exhausted or closed.
+	 */
+	Search,
+
+	/**
+	 * {@link Persistence#getCount(persistence.Predicate, Class, boolean)}
+	 */
+	GetCount,
+
+	/**
+	 * {@link Persistence#retrieveByID(long, Class)}
+	 */
+	RetrieveByID,
+
+	/**
+	 * {@link Persistence#archive(java.util.Collection, Class, String)}
+	 */
+	Archive;
+
+}
@@ -0,0 +1,370 @@
+package persistence.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PersistenceMetrics is an immutable point-in-time snapshot of the metrics of a {@link MetricsRegistry}.
+ * @author YingHao
+ */
+public class PersistenceMetrics {
+	private final Map<String, TypeSnapshot> types;
+
+	/**
+	 * PersistenceMetrics constructor.
+	 * @param types - The snapshot of each entity type, keyed by simple name.
+	 */
+	PersistenceMetrics(Map<String, TypeSnapshot> types) {
+		this.types = Collections.unmodifiableMap(new TreeMap<String, TypeSnapshot>(types));
+	}
+
+	/**
+	 * Gets the snapshots of all measured entity types, ordered by name.
+	 * @return types
+	 */
+	public Collection<TypeSnapshot> getTypes() {
+		return types.values();
+	}
+
+	/**
+	 * Gets the snapshot of the specified entity type.
+	 * @param type - The simple name of an entity type.
+	 * @return type snapshot, or null if the type has not been measured.
+	 */
+	public TypeSnapshot getType(String type) {
+		return types.get(type);
+	}
+
+	/**
+	 * Gets the snapshot of the specified entity type.
+	 * @param type
+	 * @return type snapshot, or null if the type has not been measured.
+	 */
+	public TypeSnapshot getType(Class<?> type) {
+		return getType(type.getSimpleName());
+	}
+
+	/**
+	 * Gets the approximate number of bytes read across all entity types.
+	 * @return bytesRead
+	 */
+	public long getBytesRead() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getBytesRead();
+		return total;
+	}
+
+	/**
+	 * Gets the approximate number of bytes written across all entity types.
+	 * @return bytesWritten
+	 */
+	public long getBytesWritten() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getBytesWritten();
+		return total;
+	}
+
+	/**
+	 * Gets the number of lines read from data files across all entity types.
+	 * @return linesParsed
+	 */
+	public long getLinesParsed() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getLinesParsed();
+		return total;
+	}
+
+	/**
+	 * Gets the number of entities deserialized across all entity types.
+	 * @return entitiesDeserialized
+	 */
+	public long getEntitiesDeserialized() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getEntitiesDeserialized();
+		return total;
+	}
+
+	/**
+	 * Gets the number of identity cache hits across all entity types.
+	 * @return cacheHits
+	 */
+	public long getCacheHits() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getCacheHits();
+		return total;
+	}
+
+	/**
+	 * Gets the number of identity cache misses across all entity types.
+	 * @return cacheMisses
+	 */
+	public long getCacheMisses() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getCacheMisses();
+		return total;
+	}
+
+	/**
+	 * Gets the number of operations cascaded to referenced entities across all entity types.
+	 * @return cascadeFanOut
+	 */
+	public long getCascadeFanOut() {
+		long total = 0;
+		for(TypeSnapshot type: types.values())
+			total += type.getCascades();
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append(String.format("%-20s %-12s %10s %8s %10s %10s %10s %10s %10s%n",
+				"Type", "Operation", "Calls", "Errors", "Mean(us)", "p50(us)", "p99(us)", "p99.9(us)", "Max(us)"));
+		// Loop through each measured operation
+		for(TypeSnapshot type: types.values()) {
+			for(OperationType operation: OperationType.values()) {
+				OperationSnapshot snapshot = type.getOperation(operation);
+				if(snapshot.getCalls() > 0)
+					builder.append(String.format("%-20s %-12s %s%n", type.getName(), operation, snapshot));
+			}
+		}
+
+		builder.append(String.format("%n%-20s %12s %12s %10s %12s %10s %10s %10s%n",
+				"Type", "Read(B)", "Written(B)", "Lines", "Entities", "Hits", "Misses", "Cascades"));
+		// Loop through each measured type
+		for(TypeSnapshot type: types.values())
+			builder.append(type).append(String.format("%n"));
+
+		return builder.toString();
+	}
+
+	/**
+	 * TypeSnapshot is a snapshot of the metrics of one entity type.
+	 * @author YingHao
+	 */
+	public final static class TypeSnapshot {
+		private final String name;
+		private final Map<OperationType, OperationSnapshot> operations;
+		private final long bytesRead;
+		private final long bytesWritten;
+		private final long linesParsed;
+		private final long entitiesDeserialized;
+		private final long cacheHits;
+		private final long cacheMisses;
+		private final long cascades;
+
+		/**
+		 * TypeSnapshot constructor.
+		 * @param name - The simple name of the entity type.
+		 * @param metrics - The live metrics of the entity type.
+		 */
+		TypeSnapshot(String name, TypeMetrics metrics) {
+			this.name = name;
+			this.operations = new EnumMap<OperationType, OperationSnapshot>(OperationType.class);
+			for(OperationType operation: OperationType.values())
+				operations.put(operation, new OperationSnapshot(metrics.getOperation(operation)));
+			this.bytesRead = metrics.getBytesRead();
+			this.bytesWritten = metrics.getBytesWritten();
+			this.linesParsed = metrics.getLinesParsed();
+			this.entitiesDeserialized = metrics.getEntitiesDeserialized();
+			this.cacheHits = metrics.getCacheHits();
+			this.cacheMisses = metrics.getCacheMisses();
+			this.cascades = metrics.getCascades();
+		}
+
+		/**
+		 * Gets the simple name of the entity type.
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the snapshot of the specified operation.
+		 * @param operation
+		 * @return operation snapshot
+		 */
+		public OperationSnapshot getOperation(OperationType operation) {
+			return operations.get(operation);
+		}
+
+		/**
+		 * Gets the approximate number of bytes read.
+		 * @return bytesRead
+		 */
+		public long getBytesRead() {
+			return bytesRead;
+		}
+
+		/**
+		 * Gets the approximate number of bytes written.
+		 * @return bytesWritten
+		 */
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		/**
+		 * Gets the number of lines read from data files.
+		 * @return linesParsed
+		 */
+		public long getLinesParsed() {
+			return linesParsed;
+		}
+
+		/**
+		 * Gets the number of entities deserialized.
+		 * @return entitiesDeserialized
+		 */
+		public long getEntitiesDeserialized() {
+			return entitiesDeserialized;
+		}
+
+		/**
+		 * Gets the number of identity cache hits.
+		 * @return cacheHits
+		 */
+		public long getCacheHits() {
+			return cacheHits;
+		}
+
+		/**
+		 * Gets the number of identity cache misses.
+		 * @return cacheMisses
+		 */
+		public long getCacheMisses() {
+			return cacheMisses;
+		}
+
+		/**
+		 * Gets the number of operations cascaded onto entities of this type from entities referencing them.
+		 * @return cascades
+		 */
+		public long getCascades() {
+			return cascades;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-20s %12d %12d %10d %12d %10d %10d %10d", name, bytesRead, bytesWritten,
+					linesParsed, entitiesDeserialized, cacheHits, cacheMisses, cascades);
+		}
+
+	}
+
+	/**
+	 * OperationSnapshot is a snapshot of the metrics of one operation for one entity type.
+	 * Latencies are in nanoseconds.
+	 * @author YingHao
+	 */
+	public final static class OperationSnapshot {
+		private final long calls;
+		private final long errors;
+		private final double mean;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long p999;
+		private final long max;
+
+		/**
+		 * OperationSnapshot constructor.
+		 * @param metrics - The live metrics of the operation.
+		 */
+		OperationSnapshot(OperationMetrics metrics) {
+			LatencyHistogram latency = metrics.getLatency();
+
+			this.calls = metrics.getCalls();
+			this.errors = metrics.getErrors();
+			this.mean = latency.getMean();
+			this.p50 = latency.getValueAtPercentile(50);
+			this.p90 = latency.getValueAtPercentile(90);
+			this.p99 = latency.getValueAtPercentile(99);
+			this.p999 = latency.getValueAtPercentile(99.9);
+			this.max = latency.getMax();
+		}
+
+		/**
+		 * Gets the number of calls.
+		 * @return calls
+		 */
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * Gets the number of calls that threw an exception.
+		 * @return errors
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Gets the mean latency.
+		 * @return mean
+		 */
+		public double getMean() {
+			return mean;
+		}
+
+		/**
+		 * Gets the median latency.
+		 * @return p50
+		 */
+		public long getP50() {
+			return p50;
+		}
+
+		/**
+		 * Gets the 90th percentile latency.
+		 * @return p90
+		 */
+		public long getP90() {
+			return p90;
+		}
+
+		/**
+		 * Gets the 99th percentile latency.
+		 * @return p99
+		 */
+		public long getP99() {
+			return p99;
+		}
+
+		/**
+		 * Gets the 99.9th percentile latency.
+		 * @return p999
+		 */
+		public long getP999() {
+			return p999;
+		}
+
+		/**
+		 * Gets the maximum latency.
+		 * @return max
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f", calls, errors, mean / 1000,
+					p50 / 1000.0, p99 / 1000.0, p999 / 1000.0, max / 1000.0);
+		}
+
+	}
+
+}
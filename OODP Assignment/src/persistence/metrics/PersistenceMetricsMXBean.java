@@ -0,0 +1,86 @@
+package persistence.metrics;
+
+/**
+ * PersistenceMetricsMXBean is the management interface through which persistence metrics are exposed
+ * on the platform MBean server, e.g. for inspection with JConsole or VisualVM.
+ * @author YingHao
+ */
+public interface PersistenceMetricsMXBean {
+
+	/**
+	 * Gets the approximate number of bytes read across all entity types.
+	 * @return bytesRead
+	 */
+	public long getBytesRead();
+
+	/**
+	 * Gets the approximate number of bytes written across all entity types.
+	 * @return bytesWritten
+	 */
+	public long getBytesWritten();
+
+	/**
+	 * Gets the number of lines read from data files across all entity types.
+	 * @return linesParsed
+	 */
+	public long getLinesParsed();
+
+	/**
+	 * Gets the number of entities deserialized across all entity types.
+	 * @return entitiesDeserialized
+	 */
+	public long getEntitiesDeserialized();
+
+	/**
+	 * Gets the number of identity cache hits across all entity types.
+	 * @return cacheHits
+	 */
+	public long getCacheHits();
+
+	/**
+	 * Gets the number of identity cache misses across all entity types.
+	 * @return cacheMisses
+	 */
+	public long getCacheMisses();
+
+	/**
+	 * Gets the number of operations cascaded to referenced entities across all entity types.
+	 * @return cascadeFanOut
+	 */
+	public long getCascadeFanOut();
+
+	/**
+	 * Gets one line per measured operation and entity type, listing call count, errors and latency percentiles.
+	 * @return operation summaries
+	 */
+	public String[] getOperationSummaries();
+
+	/**
+	 * Gets one line per entity type, listing its I/O, parsing, caching and cascading counters.
+	 * @return type summaries
+	 */
+	public String[] getTypeSummaries();
+
+	/**
+	 * Gets the number of calls of an operation for an entity type.
+	 * @param operation - The name of an {@link OperationType}.
+	 * @param type - The simple name of an entity type.
+	 * @return calls, or 0 if the operation has not been called for the type.
+	 */
+	public long getCallCount(String operation, String type);
+
+	/**
+	 * Gets a latency percentile of an operation for an entity type.
+	 * @param operation - The name of an {@link OperationType}.
+	 * @param type - The simple name of an entity type.
+	 * @param percentile - A percentile between 0 and 100.
+	 * @return latency in microseconds, or 0 if the operation has not been called for the type.
+	 */
+	public double getLatencyPercentileMicros(String operation, String type, double percentile);
+
+	/**
+	 * Discards all recorded metrics.
+	 */
+	public void reset();
+
+}
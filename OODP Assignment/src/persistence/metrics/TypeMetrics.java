@@ -0,0 +1,159 @@
+package persistence.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TypeMetrics accumulates the I/O, parsing, caching and cascading counters of one entity type.
+ * @author YingHao
+ */
+public class TypeMetrics {
+	private final OperationMetrics[] operations;
+	private final AtomicLong bytesRead;
+	private final AtomicLong bytesWritten;
+	private final AtomicLong linesParsed;
+	private final AtomicLong entitiesDeserialized;
+	private final AtomicLong cacheHits;
+	private final AtomicLong cacheMisses;
+	private final AtomicLong cascades;
+
+	/**
+	 * TypeMetrics constructor.
+	 */
+	public TypeMetrics() {
+		this.operations = new OperationMetrics[OperationType.values().length];
+		for(int i = 0; i < operations.length; i++)
+			operations[i] = new OperationMetrics();
+
+		this.bytesRead = new AtomicLong();
+		this.bytesWritten = new AtomicLong();
+		this.linesParsed = new AtomicLong();
+		this.entitiesDeserialized = new AtomicLong();
+		this.cacheHits = new AtomicLong();
+		this.cacheMisses = new AtomicLong();
+		this.cascades = new AtomicLong();
+	}
+
+	/**
+	 * Gets the metrics of the specified operation.
+	 * @param operation
+	 * @return operation metrics
+	 */
+	public OperationMetrics getOperation(OperationType operation) {
+		return operations[operation.ordinal()];
+	}
+
+	/**
+	 * Records a line read from a data file.
+	 * @param chars - The length of the line excluding the line terminator.
+	 */
+	public void lineRead(int chars) {
+		linesParsed.incrementAndGet();
+		bytesRead.addAndGet(chars + 1);
+	}
+
+	/**
+	 * Records a line written to a data file.
+	 * @param chars - The length of the line excluding the line terminator.
+	 */
+	public void lineWritten(int chars) {
+		bytesWritten.addAndGet(chars + 1);
+	}
+
+	/**
+	 * Records an entity deserialized from its string representation.
+	 */
+	public void entityDeserialized() {
+		entitiesDeserialized.incrementAndGet();
+	}
+
+	/**
+	 * Records an identity cache lookup made while resolving an entity reference.
+	 * @param hit - A flag indicating if the entity was found in cache.
+	 */
+	public void cacheLookup(boolean hit) {
+		if(hit)
+			cacheHits.incrementAndGet();
+		else
+			cacheMisses.incrementAndGet();
+	}
+
+	/**
+	 * Records a create, update or delete cascaded onto an entity of this type from an entity referencing it.
+	 */
+	public void cascaded() {
+		cascades.incrementAndGet();
+	}
+
+	/**
+	 * Gets the approximate number of bytes read, counting one byte per character and line terminator.
+	 * @return bytesRead
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * Gets the approximate number of bytes written, counting one byte per character and line terminator.
+	 * @return bytesWritten
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * Gets the number of lines read from data files.
+	 * @return linesParsed
+	 */
+	public long getLinesParsed() {
+		return linesParsed.get();
+	}
+
+	/**
+	 * Gets the number of entities deserialized.
+	 * @return entitiesDeserialized
+	 */
+	public long getEntitiesDeserialized() {
+		return entitiesDeserialized.get();
+	}
+
+	/**
+	 * Gets the number of identity cache hits.
+	 * @return cacheHits
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Gets the number of identity cache misses.
+	 * @return cacheMisses
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	/**
+	 * Gets the number of operations cascaded onto entities of this type from entities referencing them.
+	 * @return cascades
+	 */
+	public long getCascades() {
+		return cascades.get();
+	}
+
+	/**
+	 * Discards all recorded values.
+	 */
+	public void reset() {
+		for(OperationMetrics operation: operations)
+			operation.reset();
+
+		bytesRead.set(0);
+		bytesWritten.set(0);
+		linesParsed.set(0);
+		entitiesDeserialized.set(0);
+		cacheHits.set(0);
+		cacheMisses.set(0);
+		cascades.set(0);
+	}
+
+}
@@ -0,0 +1,21 @@
+package view;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Script is an interface that supplies the answers of a {@link ScriptedView}, either from a prepared list of
+ * answers or generated on demand from the prompt being answered.
+ * @author YingHao
+ */
+public interface Script {
+
+	/**
+	 * Gets the answer to the specified prompt.
+	 * @param prompt - The field requested through {@link View#input(Map)}, or the last message displayed before
+	 * {@link View#options(List)} is requested. Null if no message has been displayed yet.
+	 * @return The answer, or null if this script has no answer to the prompt.
+	 */
+	public String answer(String prompt);
+
+}
@@ -0,0 +1,227 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import controller.Controller;
+
+/**
+ * ScriptedView is a headless View whose user input is answered by a {@link Script} and whose output is recorded
+ * instead of being printed. Answers to {@link View#options(List)} may be the 1-based position of an option, as on the
+ * console, or the text of the option. A ScriptedView holds the state of a single session only, hence sessions
+ * can be replayed in parallel against a shared Persistence by giving each thread its own ScriptedView.
+ * @author YingHao
+ */
+public class ScriptedView extends View {
+	public final static String KEY_OPTION = ConsoleView.KEY_OPTION;
+
+	private final Controller controller;
+	private final Script script;
+	private final List<Object> outputs;
+	private String prompt;
+	private int errors;
+	private boolean exhausted;
+
+	/**
+	 * ScriptedView constructor.
+	 * @param controller - The controller backing this view, used by {@link ScriptedView#display()}.
+	 * @param title - The title for this ScriptedView instance.
+	 * @param script - The script from which to read user input.
+	 */
+	public ScriptedView(Controller controller, String title, Script script) {
+		super(title);
+		this.controller = controller;
+		this.script = script;
+		this.outputs = new ArrayList<Object>();
+		this.prompt = null;
+		this.errors = 0;
+		this.exhausted = false;
+	}
+
+	/**
+	 * ScriptedView constructor for a prepared list of answers, which are consumed in order regardless of the prompt.
+	 * @param controller - The controller backing this view, used by {@link ScriptedView#display()}.
+	 * @param title - The title for this ScriptedView instance.
+	 * @param answers - The answers in the order they are requested.
+	 */
+	public ScriptedView(Controller controller, String title, Iterable<String> answers) {
+		this(controller, title, new Script() {
+			private final Iterator<String> iterator = answers.iterator();
+
+			@Override
+			public String answer(String prompt) {
+				return iterator.hasNext()? iterator.next(): null;
+			}
+
+		});
+	}
+
+	/**
+	 * Displays the options of the backing controller and replays the selections of the script until the exit
+	 * option is selected.
+	 */
+	public void display() {
+		int option;
+
+		String title = this.getTitle();
+		List<String> options = controller.getOptions();
+		do {
+			outputs.add("==========" + title + "==========");
+
+			// Loop through and record the list of options
+			for(int i = 0; i < options.size(); i++)
+				outputs.add((i + 1) + ") " + options.get(i));
+
+			outputs.add((options.size() + 1) + ") Exit from " + title);
+
+			do {
+				String answer = answer(KEY_OPTION);
+				outputs.add("Please select an option: " + answer);
+				try {
+					option = Integer.parseInt(answer);
+				} catch(NumberFormatException e) {
+					option = -1;
+				}
+
+				if(option < 1 || option > options.size() + 1)
+					error(Arrays.asList(KEY_OPTION));
+				else if(option <= options.size())
+					controller.onOptionSelected(this, option - 1);
+			} while(option < 1 || option > options.size() + 1);
+
+		} while(option != options.size() + 1);
+	}
+
+	@Override
+	public void input(Map<String, String> input) {
+		Iterable<String> keyset = input.keySet();
+
+		// Loop through the requested fields and answer each from the script.
+		for(String key: keyset) {
+			String answer = answer(key);
+			outputs.add("Enter " + key + ": " + answer);
+			input.put(key, answer);
+		}
+	}
+
+	@Override
+	public void error(List<String> invalidFields) {
+		errors++;
+		outputs.add("One or all of the following fields are invalid: " + invalidFields);
+	}
+
+	@Override
+	public void display(Object object) {
+		outputs.add(object);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void display(List objList) {
+		if(objList.size() > 0)
+			for(Object object: objList)
+				outputs.add(object);
+		else
+			outputs.add("There is no data to be displayed.");
+	}
+
+	@Override
+	public void message(String message) {
+		this.prompt = message;
+		outputs.add(message);
+	}
+
+	@Override
+	public boolean bailout() {
+		message("Do you want to retry?");
+
+		return options(Arrays.asList(Options.Yes, Options.No)) == Options.No;
+	}
+
+	@Override
+	public <T> T options(List<T> options) {
+		T selected = null;
+
+		for(int i = 0; i < options.size(); i++)
+			outputs.add((i + 1) + ") " + options.get(i).toString());
+
+		do {
+			String answer = answer(this.prompt);
+			outputs.add("Select an option: " + answer);
+			try {
+				selected = options.get(Integer.parseInt(answer) - 1);
+			} catch(NumberFormatException | IndexOutOfBoundsException e) {
+				// Match the answer against the text of the options
+				selected = null;
+				for(int i = 0; selected == null && i < options.size(); i++)
+					if(options.get(i).toString().equalsIgnoreCase(answer))
+						selected = options.get(i);
+			}
+
+			if(selected == null) {
+				error(Arrays.asList(KEY_OPTION));
+				this.prompt = KEY_OPTION;
+			}
+		} while(selected == null);
+
+		return selected;
+	}
+
+	/**
+	 * Gets the recorded output of this view in the order it was produced. Messages, prompts and answers are recorded
+	 * as strings while displayed objects are recorded as they are.
+	 * @return An unmodifiable list of outputs.
+	 */
+	public List<Object> getOutputs() {
+		return Collections.unmodifiableList(outputs);
+	}
+
+	/**
+	 * Gets the recorded output of this view as it would have been printed on the console.
+	 * @return A string transcript.
+	 */
+	public String getTranscript() {
+		StringBuilder builder = new StringBuilder();
+		for(Object output: outputs)
+			builder.append(output).append(System.lineSeparator());
+
+		return builder.toString();
+	}
+
+	/**
+	 * Gets the number of times invalid fields were reported to this view.
+	 * @return count
+	 */
+	public int getErrorCount() {
+		return errors;
+	}
+
+	/**
+	 * Gets a flag indicating if the script had no answer to a prompt of this view.
+	 * @return flag
+	 */
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * Gets the answer to the specified prompt from the script.
+	 * @param prompt
+	 * @return answer
+	 * @throws IllegalStateException If the script has no answer, which ends the session.
+	 */
+	private String answer(String prompt) {
+		String answer = script.answer(prompt);
+		if(answer == null) {
+			exhausted = true;
+			throw new IllegalStateException("The script has no answer for: " + prompt);
+		}
+
+		return answer;
+	}
+
+}
@@ -0,0 +1,48 @@
+package view;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * ViewWriter is a {@link Writer} that displays the text written to it as a message of a {@link View} when it is flushed,
+ * so that a report can be rendered through a {@link java.io.BufferedWriter} and displayed at once.
+ * @author YingHao
+ */
+public class ViewWriter extends Writer {
+	private final View view;
+	private final StringBuilder builder;
+	
+	/**
+	 * ViewWriter constructor.
+	 * @param view - The view to display the text written to.
+	 */
+	public ViewWriter(View view) {
+		this.view = view;
+		this.builder = new StringBuilder();
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		builder.append(cbuf, off, len);
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		// A message is displayed on its own line, hence the last line separator is dropped
+		int length = builder.length();
+		if(length > 0 && builder.charAt(length - 1) == '\n')
+			length--;
+		if(length > 0 && builder.charAt(length - 1) == '\r')
+			length--;
+		
+		if(builder.length() > 0)
+			view.message(builder.substring(0, length));
+		builder.setLength(0);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.flush();
+	}
+
+}
@@ -0,0 +1,60 @@
+package index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link RoomTypeInventory.SegmentTree} of booked counts per night against a plain array.
+ * @author YingHao
+ */
+public class SegmentTreeTest {
+
+	@Test
+	public void maxOverOverlappingIncrements() {
+		RoomTypeInventory.SegmentTree tree = new RoomTypeInventory.SegmentTree(10);
+		tree.add(0, 5, 1);
+		tree.add(3, 8, 1);
+		tree.add(4, 6, 2);
+
+		assertEquals(1, tree.max(0, 3));
+		assertEquals(2, tree.max(3, 4));
+		assertEquals(4, tree.max(0, 10));
+		assertEquals(4, tree.max(4, 5));
+		assertEquals(3, tree.max(5, 6));
+		assertEquals(1, tree.max(6, 8));
+		assertEquals(0, tree.max(8, 10));
+
+		// Releasing a booking lowers the maximum again
+		tree.add(4, 6, -2);
+		assertEquals(2, tree.max(0, 10));
+	}
+
+	@Test
+	public void matchesArrayUnderRandomRanges() {
+		int size = 365;
+		RoomTypeInventory.SegmentTree tree = new RoomTypeInventory.SegmentTree(size);
+		int[] nights = new int[size];
+		Random random = new Random(11);
+
+		for(int i = 0; i < 5000; i++) {
+			int from = random.nextInt(size);
+			int to = from + 1 + random.nextInt(size - from);
+			if(random.nextBoolean()) {
+				int count = random.nextInt(5) - 2;
+				tree.add(from, to, count);
+				for(int night = from; night < to; night++)
+					nights[night] += count;
+			}
+			else {
+				int max = Integer.MIN_VALUE;
+				for(int night = from; night < to; night++)
+					max = Math.max(max, nights[night]);
+				assertEquals(max, tree.max(from, to));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package persistence.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LongList}.
+ * @author YingHao
+ */
+public class LongListTest {
+
+	@Test
+	public void growsBeyondItsInitialCapacity() {
+		LongList list = new LongList(2);
+		for(long i = 0; i < 100; i++)
+			list.add(i);
+
+		assertEquals(100, list.size());
+		assertEquals(99, list.get(99));
+	}
+
+	@Test
+	public void removeShiftsLaterValuesLeft() {
+		LongList list = new LongList();
+		for(long value: new long[] { 5, 6, 7, 6 })
+			list.add(value);
+
+		assertEquals(6, list.removeAt(1));
+		assertArrayEquals(new long[] { 5, 7, 6 }, list.toArray());
+
+		assertTrue(list.removeValue(6));
+		assertFalse(list.removeValue(6));
+		assertArrayEquals(new long[] { 5, 7 }, list.toArray());
+	}
+
+	@Test
+	public void sortsOnlyTheUsedValues() {
+		LongList list = new LongList(16);
+		for(long value: new long[] { 3, -1, 2 })
+			list.add(value);
+		list.sort();
+
+		assertArrayEquals(new long[] { -1, 2, 3 }, list.toArray());
+	}
+
+	@Test
+	public void addAllAppends() {
+		LongList list = new LongList();
+		list.add(1);
+		LongList other = new LongList();
+		other.add(2);
+		other.add(3);
+		list.addAll(other);
+
+		assertArrayEquals(new long[] { 1, 2, 3 }, list.toArray());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void getBeyondSizeFails() {
+		LongList list = new LongList();
+		list.add(1);
+		list.clear();
+		list.get(0);
+	}
+
+}
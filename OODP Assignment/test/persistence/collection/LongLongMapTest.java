@@ -0,0 +1,115 @@
+package persistence.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LongLongMap}, in particular that removals close the gaps of colliding probe sequences.
+ * @author YingHao
+ */
+public class LongLongMapTest {
+
+	@Test
+	public void removeShiftsCollidingKeysBack() {
+		LongLongMap map = new LongLongMap(LongObjectMapTest.EXPECTED);
+		long[] keys = LongObjectMapTest.keysWithHomeSlot(7, 5);
+		for(long key: keys)
+			map.put(key, key * 10);
+
+		assertTrue(map.remove(keys[1]));
+		assertFalse(map.containsKey(keys[1]));
+		assertEquals(-1, map.get(keys[1], -1));
+		for(int i = 0; i < keys.length; i++)
+			if(i != 1)
+				assertEquals(keys[i] * 10, map.get(keys[i], -1));
+
+		assertFalse(map.remove(keys[1]));
+		assertEquals(4, map.size());
+	}
+
+	@Test
+	public void removeShiftsAcrossTheEndOfTheTable() {
+		LongLongMap map = new LongLongMap(LongObjectMapTest.EXPECTED);
+		long[] wrapped = LongObjectMapTest.keysWithHomeSlot(15, 3);
+		long[] first = LongObjectMapTest.keysWithHomeSlot(0, 1);
+		for(long key: wrapped)
+			map.put(key, key);
+		map.put(first[0], first[0]);
+
+		map.remove(wrapped[1]);
+		assertEquals(wrapped[0], map.get(wrapped[0], -1));
+		assertEquals(wrapped[2], map.get(wrapped[2], -1));
+		assertEquals(first[0], map.get(first[0], -1));
+
+		map.remove(wrapped[0]);
+		map.remove(wrapped[2]);
+		assertEquals(first[0], map.get(first[0], -1));
+	}
+
+	@Test
+	public void freeKeyIsStoredSeparately() {
+		LongLongMap map = new LongLongMap(LongObjectMapTest.EXPECTED);
+		assertEquals(-1, map.get(0, -1));
+
+		assertTrue(map.put(0, 5));
+		assertFalse(map.put(0, 6));
+		assertEquals(6, map.get(0, -1));
+		assertEquals(1, map.size());
+		assertEquals(1, map.keys().length);
+
+		assertTrue(map.remove(0));
+		assertFalse(map.containsKey(0));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void addTreatsAbsentKeysAsZero() {
+		LongLongMap map = new LongLongMap(LongObjectMapTest.EXPECTED);
+		assertEquals(3, map.add(9, 3));
+		assertEquals(1, map.add(9, -2));
+		assertEquals(1, map.get(9, -1));
+	}
+
+	@Test
+	public void matchesHashMapUnderRandomOperations() {
+		matchesHashMap(LongObjectMapTest.wrappingKeys(), 7);
+		long[] keys = new long[512];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = i;
+		matchesHashMap(keys, 8);
+	}
+
+	/**
+	 * Applies random puts and removals of the specified keys to a map and a {@link HashMap}, and compares them.
+	 * @param keys
+	 * @param seed
+	 */
+	private static void matchesHashMap(long[] keys, long seed) {
+		LongLongMap map = new LongLongMap(LongObjectMapTest.EXPECTED);
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		Random random = new Random(seed);
+
+		for(int i = 0; i < 200000; i++) {
+			long key = keys[random.nextInt(keys.length)];
+			if(random.nextInt(3) == 0)
+				assertEquals(expected.remove(key) != null, map.remove(key));
+			else
+				assertEquals(expected.put(key, (long) i) == null, map.put(key, i));
+		}
+
+		assertEquals(expected.size(), map.size());
+		for(long key: keys) {
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+			if(expected.containsKey(key))
+				assertEquals(expected.get(key).longValue(), map.get(key, -1));
+		}
+	}
+
+}
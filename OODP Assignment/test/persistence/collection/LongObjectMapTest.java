@@ -0,0 +1,164 @@
+package persistence.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LongObjectMap}, in particular that removals close the gaps of colliding probe sequences.
+ * @author YingHao
+ */
+public class LongObjectMapTest {
+	// Maps expecting 9 entries are backed by a table of 16 slots
+	final static int EXPECTED = 9;
+	private final static int MASK = 15;
+
+	/**
+	 * Finds keys whose home slot in a table of 16 slots is the specified slot.
+	 * @param slot
+	 * @param count
+	 * @return keys
+	 */
+	static long[] keysWithHomeSlot(int slot, int count) {
+		long[] keys = new long[count];
+
+		int found = 0;
+		for(long key = 1; found < count; key++)
+			if((HashUtil.mix(key) & MASK) == slot)
+				keys[found++] = key;
+
+		return keys;
+	}
+
+	@Test
+	public void removeShiftsCollidingKeysBack() {
+		LongObjectMap<String> map = new LongObjectMap<String>(EXPECTED);
+		long[] keys = keysWithHomeSlot(3, 4);
+		for(long key: keys)
+			map.put(key, "v" + key);
+
+		// Removing the head of the probe sequence must leave every later key reachable
+		assertEquals("v" + keys[0], map.remove(keys[0]));
+		assertNull(map.get(keys[0]));
+		for(int i = 1; i < keys.length; i++)
+			assertEquals("v" + keys[i], map.get(keys[i]));
+
+		assertEquals("v" + keys[2], map.remove(keys[2]));
+		assertEquals("v" + keys[1], map.get(keys[1]));
+		assertEquals("v" + keys[3], map.get(keys[3]));
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void removeShiftsAcrossTheEndOfTheTable() {
+		LongObjectMap<String> map = new LongObjectMap<String>(EXPECTED);
+		// Keys homed at the last slot wrap around to the start of the table
+		long[] wrapped = keysWithHomeSlot(MASK, 3);
+		long[] first = keysWithHomeSlot(0, 1);
+		for(long key: wrapped)
+			map.put(key, "v" + key);
+		map.put(first[0], "v" + first[0]);
+
+		map.remove(wrapped[0]);
+		for(int i = 1; i < wrapped.length; i++)
+			assertEquals("v" + wrapped[i], map.get(wrapped[i]));
+		assertEquals("v" + first[0], map.get(first[0]));
+
+		map.remove(wrapped[1]);
+		map.remove(wrapped[2]);
+		assertEquals("v" + first[0], map.get(first[0]));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void removeKeepsWrappedAndHomedKeysApart() {
+		LongObjectMap<String> map = new LongObjectMap<String>(EXPECTED);
+		long[] wrapped = keysWithHomeSlot(MASK, 3);
+		for(long key: wrapped)
+			map.put(key, "v" + key);
+
+		// The last key wrapped past the vacated slot and must move back into it
+		map.remove(wrapped[1]);
+		assertEquals("v" + wrapped[0], map.get(wrapped[0]));
+		assertEquals("v" + wrapped[2], map.get(wrapped[2]));
+
+		// A key in its home slot must not move back across the end of the table
+		map.clear();
+		long[] first = keysWithHomeSlot(0, 1);
+		map.put(wrapped[0], "v" + wrapped[0]);
+		map.put(first[0], "v" + first[0]);
+		map.remove(wrapped[0]);
+		assertEquals("v" + first[0], map.get(first[0]));
+	}
+
+	@Test
+	public void keyZeroAndNullValues() {
+		LongObjectMap<String> map = new LongObjectMap<String>(EXPECTED);
+		map.put(0, "zero");
+		assertEquals("zero", map.get(0));
+		assertTrue(map.containsKey(0));
+
+		// A null value removes the mapping
+		assertEquals("zero", map.put(0, null));
+		assertFalse(map.containsKey(0));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void matchesHashMapUnderRandomOperations() {
+		// At most 9 keys never outgrow 16 slots, homed around the end of the table their probe sequences keep wrapping
+		matchesHashMap(wrappingKeys(), 42);
+		// A larger key space goes through rehashes as well
+		long[] keys = new long[512];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = i;
+		matchesHashMap(keys, 43);
+	}
+
+	/**
+	 * Gets 9 keys homed at the last three and the first slot of a table of 16 slots.
+	 * @return keys
+	 */
+	static long[] wrappingKeys() {
+		long[] keys = new long[EXPECTED];
+		int i = 0;
+		for(int slot: new int[] { 13, 14, 15, 0 })
+			for(long key: keysWithHomeSlot(slot, slot == 15? 3: 2))
+				keys[i++] = key;
+
+		return keys;
+	}
+
+	/**
+	 * Applies random puts and removals of the specified keys to a map and a {@link HashMap}, and compares them.
+	 * @param keys
+	 * @param seed
+	 */
+	private static void matchesHashMap(long[] keys, long seed) {
+		LongObjectMap<Long> map = new LongObjectMap<Long>(EXPECTED);
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+		Random random = new Random(seed);
+
+		for(int i = 0; i < 200000; i++) {
+			long key = keys[random.nextInt(keys.length)];
+			if(random.nextInt(3) == 0)
+				assertEquals(expected.remove(key), map.remove(key));
+			else
+				assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+		}
+
+		assertEquals(expected.size(), map.size());
+		for(long key: keys)
+			assertEquals(expected.get(key), map.get(key));
+		assertEquals(expected.size(), map.keys().length);
+		assertEquals(expected.size(), map.values().size());
+	}
+
+}
@@ -0,0 +1,78 @@
+package persistence.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ * @author YingHao
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsRoundDownWithinTheirRelativeError() {
+		for(long value = 0; value < 1 << 20; value += 1 + value / 7) {
+			long lowest = LatencyHistogram.valueOf(LatencyHistogram.indexOf(value));
+			assertTrue(lowest <= value);
+			assertTrue(value - lowest <= value / 16);
+		}
+
+		// The largest value still falls into the last bucket
+		long lowest = LatencyHistogram.valueOf(LatencyHistogram.indexOf(Long.MAX_VALUE));
+		assertTrue(lowest > 0 && Long.MAX_VALUE - lowest <= Long.MAX_VALUE / 16);
+	}
+
+	@Test
+	public void percentilesOfAUniformDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long value = 1; value <= 1000; value++)
+			histogram.record(value);
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(500.5, histogram.getMean(), 1e-9);
+		assertWithin(500, histogram.getValueAtPercentile(50));
+		assertWithin(990, histogram.getValueAtPercentile(99));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertWithin(1000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void percentilesOfASkewedDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 0; i < 990; i++)
+			histogram.record(100);
+		for(int i = 0; i < 10; i++)
+			histogram.record(1000000);
+
+		assertWithin(100, histogram.getValueAtPercentile(50));
+		assertWithin(100, histogram.getValueAtPercentile(99));
+		assertWithin(1000000, histogram.getValueAtPercentile(99.9));
+	}
+
+	@Test
+	public void emptyAndResetHistograms() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertEquals(0, histogram.getMean(), 0);
+
+		histogram.record(-5);
+		assertEquals(0, histogram.getValueAtPercentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	/**
+	 * Asserts that a reported value is the lowest value of the bucket holding the expected value.
+	 * @param expected
+	 * @param actual
+	 */
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected about " + expected + " but was " + actual, actual <= expected && expected - actual <= expected / 16);
+	}
+
+}
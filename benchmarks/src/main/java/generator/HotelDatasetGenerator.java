@@ -0,0 +1,749 @@
+package generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import model.Address;
+import model.BillingInformation;
+import model.Guest;
+import model.reservation.DiscountType;
+import model.reservation.Payment;
+import model.reservation.PaymentType;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.BedType;
+import model.room.Room;
+import model.room.RoomDescription;
+import model.room.RoomStatus;
+import model.room.RoomType;
+import model.service.fnb.MenuItem;
+import model.service.fnb.OrderStatus;
+import model.service.fnb.ServiceOrder;
+import persistence.Entity;
+import persistence.collection.LongList;
+import persistence.file.text.FilePersistence;
+
+/**
+ * HotelDatasetGenerator writes a deterministic synthetic hotel dataset in the FilePersistence text format,
+ * together with a persistence.cfg whose auto generated identifiers continue after the generated records.<br />
+ * Reservation history is simulated day by day across all rooms, so records are streamed to disk in booking order
+ * and only the per-room state of the current day is held in memory. The same seed and reference date always
+ * produce the same files.<br />
+ * Usage: <code>java -cp benchmarks/target/benchmarks.jar generator.HotelDatasetGenerator out=dataset rooms=2000 years=10 guests=100000</code>
+ * @author YingHao
+ */
+public class HotelDatasetGenerator {
+	private final static String[][] ROOM_TYPES = {
+			{ "Normal Room", "375.0" }, { "Family Room", "750.0" }, { "Family Suite", "1000.0" },
+			{ "Luxurious Suite", "1275.0" }, { "Grand Club Room", "1500.0" }, { "Presidential Suite", "3000.0" },
+			{ "Chairman Suite", "7500.0" } };
+	private final static String[] VIEWS = { "Seaside", "Poolside", "Garden", "City", "None" };
+	private final static String[] NATIONALITIES = { "Singaporean", "Malaysian", "Indonesian", "Chinese", "Indian", "Australian", "Japanese", "British" };
+	private final static String[] FIRST_NAMES = { "Tan", "Lim", "Wong", "Lee", "Ng", "Goh", "Chua", "Ong", "Kumar", "Smith" };
+	private final static String[] LAST_NAMES = { "Ying Hao", "Yijie", "Xuan Yin", "Wei Ming", "Mei Ling", "Jia Hui", "Raj", "John", "Siew Lan" };
+	private final static String[] STREETS = { "Tampines Street 45", "Jelapang Road", "Fajar Road", "Bedok North Avenue 3", "Jurong West Street 91", "Orchard Road" };
+	private final static String[] MENU_ITEMS = { "Foie gras", "Sambal chilli fried rice", "Roasted cauliflower", "Dory dippers",
+			"Churros & chocolate", "Buttermilk waffles", "Expresso", "Hot chocolate drink", "Laksa", "Chicken rice" };
+	private final static String[] REMARKS = { "Less spicy", "No ice", "More chocolate", "Extra cutlery" };
+
+	private long seed;
+	private Date today;
+	private int rooms;
+	private int roomsPerFloor;
+	private int roomTypes;
+	private int menuItems;
+	private int guests;
+	private int years;
+	private int futureDays;
+	private double occupancy;
+	private int averageNights;
+	private double cancelledRate;
+	private double expiredRate;
+	private double waitlistPerDay;
+	private double ordersPerStay;
+	private double discountRate;
+
+	private Random random;
+	private long[] dayMillis;
+	private int todayIndex;
+
+	/**
+	 * HotelDatasetGenerator constructor. Defaults to a hotel the size of the sample data with three years of history.
+	 */
+	public HotelDatasetGenerator() {
+		this.seed = 42;
+		this.today = new Date();
+		this.rooms = 48;
+		this.roomsPerFloor = 8;
+		this.roomTypes = ROOM_TYPES.length;
+		this.menuItems = 8;
+		this.guests = 1000;
+		this.years = 3;
+		this.futureDays = 90;
+		this.occupancy = 0.75;
+		this.averageNights = 3;
+		this.cancelledRate = 0.10;
+		this.expiredRate = 0.03;
+		this.waitlistPerDay = 1;
+		this.ordersPerStay = 1.5;
+		this.discountRate = 0.1;
+	}
+
+	/**
+	 * Sets the random seed.
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the reference date that separates history from future bookings. Defaults to the current date.
+	 * @param today
+	 */
+	public void setToday(Date today) {
+		this.today = today;
+	}
+
+	/**
+	 * Sets the number of rooms.
+	 * @param rooms
+	 */
+	public void setRooms(int rooms) {
+		this.rooms = rooms;
+	}
+
+	/**
+	 * Sets the number of rooms per floor. Room numbers are the floor, starting from 02, followed by the room on that floor.
+	 * @param roomsPerFloor
+	 */
+	public void setRoomsPerFloor(int roomsPerFloor) {
+		this.roomsPerFloor = roomsPerFloor;
+	}
+
+	/**
+	 * Sets the number of room types.
+	 * @param roomTypes
+	 */
+	public void setRoomTypes(int roomTypes) {
+		this.roomTypes = roomTypes;
+	}
+
+	/**
+	 * Sets the number of menu items.
+	 * @param menuItems
+	 */
+	public void setMenuItems(int menuItems) {
+		this.menuItems = menuItems;
+	}
+
+	/**
+	 * Sets the number of guests.
+	 * @param guests
+	 */
+	public void setGuests(int guests) {
+		this.guests = guests;
+	}
+
+	/**
+	 * Sets the years of reservation history before the reference date.
+	 * @param years
+	 */
+	public void setYears(int years) {
+		this.years = years;
+	}
+
+	/**
+	 * Sets the number of days after the reference date that already have bookings.
+	 * @param futureDays
+	 */
+	public void setFutureDays(int futureDays) {
+		this.futureDays = futureDays;
+	}
+
+	/**
+	 * Sets the target fraction of room-nights that are occupied.
+	 * @param occupancy - A value between 0 and 1, exclusive.
+	 */
+	public void setOccupancy(double occupancy) {
+		this.occupancy = occupancy;
+	}
+
+	/**
+	 * Sets the average number of nights per stay.
+	 * @param averageNights
+	 */
+	public void setAverageNights(int averageNights) {
+		this.averageNights = averageNights;
+	}
+
+	/**
+	 * Sets the fraction of bookings that are cancelled.
+	 * @param cancelledRate
+	 */
+	public void setCancelledRate(double cancelledRate) {
+		this.cancelledRate = cancelledRate;
+	}
+
+	/**
+	 * Sets the fraction of past bookings whose guest never checked in.
+	 * @param expiredRate
+	 */
+	public void setExpiredRate(double expiredRate) {
+		this.expiredRate = expiredRate;
+	}
+
+	/**
+	 * Sets the average number of reservations placed on the waitlist per day.
+	 * @param waitlistPerDay
+	 */
+	public void setWaitlistPerDay(double waitlistPerDay) {
+		this.waitlistPerDay = waitlistPerDay;
+	}
+
+	/**
+	 * Sets the average number of service orders per stay.
+	 * @param ordersPerStay
+	 */
+	public void setOrdersPerStay(double ordersPerStay) {
+		this.ordersPerStay = ordersPerStay;
+	}
+
+	/**
+	 * Sets the fraction of payments that receive a discount.
+	 * @param discountRate
+	 */
+	public void setDiscountRate(double discountRate) {
+		this.discountRate = discountRate;
+	}
+
+	/**
+	 * Writes the dataset into the data and tmp subdirectories of the specified directory, along with its persistence.cfg.
+	 * @param directory
+	 * @return The writers of every entity type, in the order the types were written, each holding its type and the number
+	 * of records written.
+	 * @throws IOException
+	 */
+	public List<RecordWriter> generate(File directory) throws IOException {
+		File dataDir = new File(directory, "data");
+		File tmpDir = new File(directory, "tmp");
+		dataDir.mkdirs();
+		tmpDir.mkdirs();
+
+		this.random = new Random(seed);
+		this.initializeCalendar();
+
+		List<RecordWriter> writers = new ArrayList<RecordWriter>();
+		RecordWriter roomTypeWriter = new RecordWriter(dataDir, RoomType.class, writers);
+		RecordWriter descriptionWriter = new RecordWriter(dataDir, RoomDescription.class, writers);
+		RecordWriter roomWriter = new RecordWriter(dataDir, Room.class, writers);
+		RecordWriter menuItemWriter = new RecordWriter(dataDir, MenuItem.class, writers);
+		RecordWriter addressWriter = new RecordWriter(dataDir, Address.class, writers);
+		RecordWriter billingWriter = new RecordWriter(dataDir, BillingInformation.class, writers);
+		RecordWriter guestWriter = new RecordWriter(dataDir, Guest.class, writers);
+		RecordWriter reservationWriter = new RecordWriter(dataDir, Reservation.class, writers);
+		RecordWriter orderWriter = new RecordWriter(dataDir, ServiceOrder.class, writers);
+		RecordWriter paymentWriter = new RecordWriter(dataDir, Payment.class, writers);
+		try {
+			this.writeReferenceData(roomTypeWriter, menuItemWriter);
+			long[] roomDescriptions = this.writeRoomDescriptions(descriptionWriter);
+			this.writeGuests(guestWriter, billingWriter, addressWriter);
+
+			// Per room state of the simulation: the day index from which it is free and its active reservations
+			int[] freeFrom = new int[rooms];
+			boolean[] occupied = new boolean[rooms];
+			LongList[] active = new LongList[rooms];
+			for(int i = 0; i < rooms; i++)
+				active[i] = new LongList();
+
+			double arrival = Math.min(1, occupancy / (averageNights * (1 - occupancy)));
+			int lastDay = todayIndex + futureDays;
+			// Loop through each day and book the rooms that are free on that day
+			for(int day = 0; day <= lastDay; day++) {
+				for(int room = 0; room < rooms; room++) {
+					if(freeFrom[room] <= day && random.nextDouble() < arrival) {
+						int nights = 1 + random.nextInt(2 * averageNights - 1);
+						ReservationStatus status = this.nextStatus(day, day + nights);
+
+						long id = this.writeReservation(reservationWriter, descriptionWriter, billingWriter, addressWriter,
+								orderWriter, paymentWriter, status, room, roomTypeOf(room), day, nights);
+						if(status == ReservationStatus.Confirmed || status == ReservationStatus.CheckedIn)
+							active[room].add(id);
+						if(status == ReservationStatus.CheckedIn)
+							occupied[room] = true;
+						// Cancelled and expired bookings leave the room free for other guests
+						if(status != ReservationStatus.Cancelled && status != ReservationStatus.Expired)
+							freeFrom[room] = day + nights;
+					}
+				}
+
+				int waitlisted = (int) (waitlistPerDay * 2 * random.nextDouble() + 0.5);
+				for(int i = 0; i < waitlisted; i++) {
+					ReservationStatus status = day > todayIndex? ReservationStatus.Waitlist: ReservationStatus.Expired;
+					this.writeReservation(reservationWriter, descriptionWriter, billingWriter, addressWriter,
+							orderWriter, paymentWriter, status, -1, 1 + random.nextInt(roomTypes), day, 1 + random.nextInt(2 * averageNights - 1));
+				}
+			}
+
+			this.writeRooms(roomWriter, roomDescriptions, occupied, active);
+		} finally {
+			for(RecordWriter writer: writers)
+				writer.close();
+		}
+
+		this.writeConfiguration(new File(directory, "persistence.cfg"), dataDir, tmpDir, writers);
+
+		return writers;
+	}
+
+	/**
+	 * Precomputes the local midnight of every simulated day, as stored by the application.
+	 */
+	private void initializeCalendar() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(today);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		long midnight = calendar.getTimeInMillis();
+		calendar.add(Calendar.YEAR, -years);
+
+		LongList days = new LongList();
+		// Loop through the history up to the reference date
+		while(calendar.getTimeInMillis() < midnight) {
+			days.add(calendar.getTimeInMillis());
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		todayIndex = days.size();
+
+		// Future bookings start up to futureDays ahead and may last up to the longest stay beyond that
+		for(int i = 0; i <= futureDays + 2 * averageNights; i++) {
+			days.add(calendar.getTimeInMillis());
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		dayMillis = days.toArray();
+	}
+
+	/**
+	 * Picks the status of a booking for a room over the specified days.
+	 * @param start - The day index of check in.
+	 * @param end - The day index of check out.
+	 * @return status
+	 */
+	private ReservationStatus nextStatus(int start, int end) {
+		ReservationStatus status;
+
+		double roll = random.nextDouble();
+		if(roll < cancelledRate)
+			status = ReservationStatus.Cancelled;
+		else if(start <= todayIndex && roll < cancelledRate + expiredRate)
+			status = ReservationStatus.Expired;
+		else if(end <= todayIndex)
+			status = ReservationStatus.CheckedOut;
+		else if(start <= todayIndex)
+			status = ReservationStatus.CheckedIn;
+		else
+			status = ReservationStatus.Confirmed;
+
+		return status;
+	}
+
+	/**
+	 * Gets the room type identifier of the specified room, spreading the more expensive types thinner.
+	 * @param room - The index of the room.
+	 * @return room type identifier
+	 */
+	private long roomTypeOf(int room) {
+		// Half the rooms are of the first type, a quarter of the second and so on
+		int type = 1;
+		int remaining = room;
+		int span = Math.max(1, rooms / 2);
+		while(type < roomTypes && remaining >= span) {
+			remaining -= span;
+			span = Math.max(1, span / 2);
+			type++;
+		}
+		return type;
+	}
+
+	/**
+	 * Writes the room types and menu items.
+	 * @param roomTypeWriter
+	 * @param menuItemWriter
+	 * @throws IOException
+	 */
+	private void writeReferenceData(RecordWriter roomTypeWriter, RecordWriter menuItemWriter) throws IOException {
+		for(int i = 0; i < roomTypes; i++) {
+			String[] type = ROOM_TYPES[i % ROOM_TYPES.length];
+			String name = i < ROOM_TYPES.length? type[0]: type[0] + " " + (i / ROOM_TYPES.length + 1);
+			StringBuilder record = roomTypeWriter.next();
+			field(record, "name", name);
+			field(record, "price", type[1]);
+			roomTypeWriter.write(record);
+		}
+
+		for(int i = 0; i < menuItems; i++) {
+			String name = MENU_ITEMS[i % MENU_ITEMS.length];
+			if(i >= MENU_ITEMS.length)
+				name += " " + (i / MENU_ITEMS.length + 1);
+			StringBuilder record = menuItemWriter.next();
+			field(record, "name", name);
+			field(record, "price", Double.toString((5 + random.nextInt(400)) * 0.25));
+			field(record, "description", "House special " + name.toLowerCase());
+			menuItemWriter.write(record);
+		}
+	}
+
+	/**
+	 * Writes the descriptions of every room.
+	 * @param writer
+	 * @return The description identifier of each room.
+	 * @throws IOException
+	 */
+	private long[] writeRoomDescriptions(RecordWriter writer) throws IOException {
+		long[] descriptions = new long[rooms];
+
+		for(int room = 0; room < rooms; room++) {
+			StringBuilder record = writer.next();
+			descriptions[room] = writer.getCount();
+			field(record, "view", VIEWS[random.nextInt(VIEWS.length)]);
+			field(record, "type", roomTypeOf(room));
+			field(record, "bedType", BedType.values()[random.nextInt(BedType.values().length)]);
+			field(record, "wifi", random.nextInt(4) != 0);
+			field(record, "smoking", random.nextInt(4) == 0);
+			writer.write(record);
+		}
+
+		return descriptions;
+	}
+
+	/**
+	 * Writes the guests along with their billing information.
+	 * @param guestWriter
+	 * @param billingWriter
+	 * @param addressWriter
+	 * @throws IOException
+	 */
+	private void writeGuests(RecordWriter guestWriter, RecordWriter billingWriter, RecordWriter addressWriter) throws IOException {
+		for(int i = 0; i < guests; i++) {
+			long billing = this.writeBilling(billingWriter, addressWriter);
+			StringBuilder record = guestWriter.next();
+			long id = guestWriter.getCount();
+			field(record, "billing", billing);
+			field(record, "identification", String.format("S%07d%c", id, (char) ('A' + id % 26)));
+			field(record, "nationality", NATIONALITIES[random.nextInt(NATIONALITIES.length)]);
+			field(record, "name", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+			field(record, "contactNo", 80000000 + random.nextInt(20000000));
+			field(record, "emailAddress", "guest" + id + "@example.com");
+			field(record, "gender", random.nextBoolean()? 'M': 'F');
+			guestWriter.write(record);
+		}
+	}
+
+	/**
+	 * Writes a billing information along with its address.
+	 * @param billingWriter
+	 * @param addressWriter
+	 * @return The billing information identifier.
+	 * @throws IOException
+	 */
+	private long writeBilling(RecordWriter billingWriter, RecordWriter addressWriter) throws IOException {
+		StringBuilder address = addressWriter.next();
+		field(address, "country", "Singapore");
+		field(address, "city", "Singapore");
+		field(address, "state", "Singapore");
+		field(address, "street", STREETS[random.nextInt(STREETS.length)]);
+		field(address, "unitNumber", "Blk " + (1 + random.nextInt(999)) + " #" + String.format("%02d", 1 + random.nextInt(30)) + "-" + (1 + random.nextInt(300)));
+		field(address, "postalCode", 100000 + random.nextInt(800000));
+		addressWriter.write(address);
+
+		StringBuilder billing = billingWriter.next();
+		field(billing, "address", addressWriter.getCount());
+		field(billing, "creditCardNo", "4" + (100000000000000L + (random.nextLong() & Long.MAX_VALUE) % 900000000000000L));
+		field(billing, "cvv", String.format("%03d", random.nextInt(1000)));
+		billingWriter.write(billing);
+
+		return billingWriter.getCount();
+	}
+
+	/**
+	 * Writes a reservation along with its criteria, billing information, service orders and payment.
+	 * @param room - The index of the assigned room, or -1 for a reservation without one.
+	 * @param roomType - The room type identifier requested.
+	 * @param day - The day index of check in.
+	 * @param nights - The number of nights.
+	 * @return The reservation identifier.
+	 * @throws IOException
+	 */
+	private long writeReservation(RecordWriter reservationWriter, RecordWriter descriptionWriter, RecordWriter billingWriter,
+			RecordWriter addressWriter, RecordWriter orderWriter, RecordWriter paymentWriter, ReservationStatus status,
+			int room, long roomType, int day, int nights) throws IOException {
+		StringBuilder criteria = descriptionWriter.next();
+		field(criteria, "type", roomType);
+		if(random.nextInt(3) == 0)
+			field(criteria, "bedType", BedType.values()[random.nextInt(BedType.values().length)]);
+		field(criteria, "wifi", false);
+		field(criteria, "smoking", false);
+		descriptionWriter.write(criteria);
+		long criteriaId = descriptionWriter.getCount();
+
+		long billing = this.writeBilling(billingWriter, addressWriter);
+
+		StringBuilder record = reservationWriter.next();
+		long id = reservationWriter.getCount();
+		field(record, "status", status);
+		field(record, "guest", 1 + random.nextInt(guests));
+		field(record, "criteria", criteriaId);
+		field(record, "billingInformation", billing);
+
+		// Guests order room service only while staying
+		StringBuilder orders = new StringBuilder();
+		if(status == ReservationStatus.CheckedOut || status == ReservationStatus.CheckedIn) {
+			int count = (int) (ordersPerStay * 2 * random.nextDouble() + 0.5);
+			// Orders of guests still staying are placed no later than the reference date
+			long stayEnd = status == ReservationStatus.CheckedIn? dayMillis[todayIndex + 1]: dayMillis[day + nights];
+			for(int i = 0; i < count; i++) {
+				OrderStatus orderStatus = OrderStatus.Delivered;
+				if(random.nextInt(20) == 0)
+					orderStatus = OrderStatus.Cancelled;
+				else if(status == ReservationStatus.CheckedIn && i == count - 1)
+					orderStatus = random.nextBoolean()? OrderStatus.Confirmed: OrderStatus.Preparing;
+
+				StringBuilder order = orderWriter.next();
+				field(order, "status", orderStatus);
+				field(order, "reservation", id);
+				field(order, "item", 1 + random.nextInt(menuItems));
+				field(order, "timestamp", dayMillis[day] + (long) (random.nextDouble() * (stayEnd - dayMillis[day])));
+				field(order, "room", room + 1);
+				if(random.nextInt(4) == 0)
+					field(order, "remarks", REMARKS[random.nextInt(REMARKS.length)]);
+				orderWriter.write(order);
+
+				if(orders.length() > 0)
+					orders.append(';');
+				orders.append(orderWriter.getCount());
+			}
+		}
+		field(record, "orders", orders);
+		field(record, "numOfChildren", random.nextInt(4) == 0? 1 + random.nextInt(2): 0);
+		field(record, "numOfAdult", 1 + random.nextInt(2));
+		field(record, "startDate", dayMillis[day]);
+		field(record, "endDate", dayMillis[day + nights]);
+		if(room >= 0)
+			field(record, "assignedRoom", room + 1);
+
+		if(status == ReservationStatus.CheckedOut) {
+			StringBuilder payment = paymentWriter.next();
+			field(payment, "reservations", id);
+			if(random.nextDouble() < discountRate) {
+				boolean percentage = random.nextBoolean();
+				field(payment, "discountType", percentage? DiscountType.PERCENTAGE: DiscountType.FIXED);
+				field(payment, "discountValue", percentage? 5.0 * (1 + random.nextInt(4)): 50.0 * (1 + random.nextInt(4)));
+			}
+			else
+				field(payment, "discountValue", 0.0);
+			field(payment, "paymentType", random.nextInt(3) == 0? PaymentType.Cash: PaymentType.CreditCard);
+			paymentWriter.write(payment);
+
+			field(record, "payment", paymentWriter.getCount());
+		}
+		reservationWriter.write(record);
+
+		return id;
+	}
+
+	/**
+	 * Writes the rooms, once their active reservations are known.
+	 * @param writer
+	 * @param descriptions - The description identifier of each room.
+	 * @param occupied - A flag per room indicating if a guest is checked in.
+	 * @param active - The confirmed and checked in reservations of each room.
+	 * @throws IOException
+	 */
+	private void writeRooms(RecordWriter writer, long[] descriptions, boolean[] occupied, LongList[] active) throws IOException {
+		for(int room = 0; room < rooms; room++) {
+			StringBuilder record = writer.next();
+			field(record, "status", occupied[room]? RoomStatus.Occupied: RoomStatus.Vacant);
+			field(record, "number", String.format("%02d%02d", 2 + room / roomsPerFloor, 1 + room % roomsPerFloor));
+
+			StringBuilder reservations = new StringBuilder();
+			for(int i = 0; i < active[room].size(); i++) {
+				if(i > 0)
+					reservations.append(';');
+				reservations.append(active[room].get(i));
+			}
+			field(record, "reservations", reservations);
+			field(record, "description", descriptions[room]);
+			writer.write(record);
+		}
+	}
+
+	/**
+	 * Writes the persistence configuration with the data directories and the auto generated identifier of every type.
+	 * @param file
+	 * @param dataDir
+	 * @param tmpDir
+	 * @param writers
+	 * @throws IOException
+	 */
+	private void writeConfiguration(File file, File dataDir, File tmpDir, List<RecordWriter> writers) throws IOException {
+		Properties configuration = new Properties();
+		configuration.setProperty(FilePersistence.KEY_DATA_DIR, dataDir.getAbsolutePath());
+		configuration.setProperty(FilePersistence.KEY_TMP_DIR, tmpDir.getAbsolutePath());
+		for(RecordWriter writer: writers)
+			configuration.setProperty(FilePersistence.KEY_AUTO_ID.replace(FilePersistence.AUTO_ID_TYPE_REGEX,
+					writer.getType().getName().toLowerCase()), Long.toString(writer.getCount()));
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			configuration.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Appends a field to a record.
+	 * @param record
+	 * @param name
+	 * @param value
+	 */
+	private static void field(StringBuilder record, String name, Object value) {
+		record.append('|').append(name).append(':').append(value);
+	}
+
+	/**
+	 * Generates a dataset from key=value arguments, e.g. <code>out=dataset seed=7 rooms=2000 years=10 today=2016-04-05</code>.
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		HotelDatasetGenerator generator = new HotelDatasetGenerator();
+		File directory = new File("dataset");
+
+		// Loop through each argument and apply it to the generator
+		for(String arg: args) {
+			String[] kv = arg.split("=", 2);
+			if(kv.length != 2)
+				throw new IllegalArgumentException("Expected key=value but was " + arg);
+
+			switch(kv[0]) {
+			case "out": directory = new File(kv[1]); break;
+			case "seed": generator.setSeed(Long.parseLong(kv[1])); break;
+			case "today": generator.setToday(parseDate(kv[1])); break;
+			case "rooms": generator.setRooms(Integer.parseInt(kv[1])); break;
+			case "roomsPerFloor": generator.setRoomsPerFloor(Integer.parseInt(kv[1])); break;
+			case "roomTypes": generator.setRoomTypes(Integer.parseInt(kv[1])); break;
+			case "menuItems": generator.setMenuItems(Integer.parseInt(kv[1])); break;
+			case "guests": generator.setGuests(Integer.parseInt(kv[1])); break;
+			case "years": generator.setYears(Integer.parseInt(kv[1])); break;
+			case "futureDays": generator.setFutureDays(Integer.parseInt(kv[1])); break;
+			case "occupancy": generator.setOccupancy(Double.parseDouble(kv[1])); break;
+			case "averageNights": generator.setAverageNights(Integer.parseInt(kv[1])); break;
+			case "cancelledRate": generator.setCancelledRate(Double.parseDouble(kv[1])); break;
+			case "expiredRate": generator.setExpiredRate(Double.parseDouble(kv[1])); break;
+			case "waitlistPerDay": generator.setWaitlistPerDay(Double.parseDouble(kv[1])); break;
+			case "ordersPerStay": generator.setOrdersPerStay(Double.parseDouble(kv[1])); break;
+			case "discountRate": generator.setDiscountRate(Double.parseDouble(kv[1])); break;
+			default: throw new IllegalArgumentException("Unknown option " + kv[0]);
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		for(RecordWriter writer: generator.generate(directory))
+			System.out.printf("%-20s %,12d%n", writer.getType().getSimpleName(), writer.getCount());
+		System.out.printf("Generated into %s in %,d ms%n", directory.getAbsolutePath(), System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Parses a date in yyyy-MM-dd format.
+	 * @param value
+	 * @return date
+	 * @throws ParseException
+	 */
+	private static Date parseDate(String value) throws ParseException {
+		return new SimpleDateFormat("yyyy-MM-dd").parse(value);
+	}
+
+	/**
+	 * RecordWriter streams the records of one entity type into its data file and allocates their identifiers.
+	 * @author YingHao
+	 */
+	public static class RecordWriter {
+		private final Class<? extends Entity> type;
+		private final BufferedWriter writer;
+		private long count;
+
+		/**
+		 * RecordWriter constructor.
+		 * @param dataDir - The data directory.
+		 * @param type - The entity type written.
+		 * @param writers - The list to register this writer in.
+		 * @throws IOException
+		 */
+		RecordWriter(File dataDir, Class<? extends Entity> type, List<RecordWriter> writers) throws IOException {
+			this.type = type;
+			// Data files are named the same way FilePersistence resolves them
+			this.writer = new BufferedWriter(new FileWriter(new File(dataDir,
+					type.getName().toLowerCase().replace(".", "-") + FilePersistence.DEFAULT_CONFIGURATION.getProperty(FilePersistence.KEY_DATA_EXT))), 1 << 16);
+			this.count = 0;
+			writers.add(this);
+		}
+
+		/**
+		 * Allocates the next identifier and starts its record.
+		 * @return A record holding the class name and identifier.
+		 */
+		StringBuilder next() {
+			count++;
+			return new StringBuilder(128).append(type.getName()).append("|_id:").append(count);
+		}
+
+		/**
+		 * Writes a record.
+		 * @param record
+		 * @throws IOException
+		 */
+		void write(StringBuilder record) throws IOException {
+			writer.append(record);
+			writer.newLine();
+		}
+
+		/**
+		 * Closes the data file.
+		 * @throws IOException
+		 */
+		void close() throws IOException {
+			writer.close();
+		}
+
+		/**
+		 * Gets the entity type written.
+		 * @return type
+		 */
+		public Class<? extends Entity> getType() {
+			return type;
+		}
+
+		/**
+		 * Gets the number of records written, which is also the last identifier allocated.
+		 * @return count
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+}
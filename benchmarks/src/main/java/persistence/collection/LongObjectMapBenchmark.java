@@ -0,0 +1,98 @@
+package persistence.collection;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LongObjectMapBenchmark compares {@link LongObjectMap} against a boxed {@link HashMap} for the identity cache
+ * access pattern: lookups of known identifiers and put/remove churn. Run with <code>-prof gc</code> to compare
+ * allocation per operation; see {@link MemoryFootprint} for the retained size per entry.
+ * @author YingHao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OperationsPerInvocation(LongObjectMapBenchmark.BATCH)
+public class LongObjectMapBenchmark {
+	final static int BATCH = 1024;
+
+	@Param({ "1000", "100000", "1000000" })
+	private int size;
+
+	private LongObjectMap<Object> primitive;
+	private HashMap<Long, Object> boxed;
+	private long[] lookups;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		primitive = new LongObjectMap<Object>();
+		boxed = new HashMap<Long, Object>();
+		Object value = new Object();
+		for(long id = 1; id <= size; id++) {
+			primitive.put(id, value);
+			boxed.put(id, value);
+		}
+
+		Random random = new Random(size);
+		lookups = new long[BATCH];
+		for(int i = 0; i < BATCH; i++)
+			lookups[i] = 1 + random.nextInt(size);
+	}
+
+	@Benchmark
+	public int getPrimitive() {
+		int found = 0;
+		for(long id: lookups)
+			if(primitive.get(id) != null)
+				found++;
+		return found;
+	}
+
+	@Benchmark
+	public int getBoxed() {
+		int found = 0;
+		for(long id: lookups)
+			if(boxed.get(id) != null)
+				found++;
+		return found;
+	}
+
+	@Benchmark
+	public int putRemovePrimitive() {
+		Object value = lookups;
+		for(long id: lookups) {
+			primitive.put(id + size, value);
+			primitive.remove(id + size);
+		}
+		return primitive.size();
+	}
+
+	@Benchmark
+	public int putRemoveBoxed() {
+		Object value = lookups;
+		for(long id: lookups) {
+			boxed.put(id + size, value);
+			boxed.remove(id + size);
+		}
+		return boxed.size();
+	}
+
+}
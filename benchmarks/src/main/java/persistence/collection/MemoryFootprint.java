@@ -0,0 +1,98 @@
+package persistence.collection;
+
+import java.util.HashMap;
+
+/**
+ * MemoryFootprint reports the retained heap per entry of the primitive collections against their boxed
+ * {@link HashMap} equivalents. Retained size is measured as the difference in used heap after a full
+ * collection, so run it on an otherwise idle JVM, e.g.
+ * <code>java -cp benchmarks/target/benchmarks.jar persistence.collection.MemoryFootprint 1000000</code>.
+ * @author YingHao
+ */
+public class MemoryFootprint {
+	private static volatile Object retained;
+
+	/**
+	 * Builds one collection of the specified size.
+	 * @author YingHao
+	 */
+	private interface Fixture {
+		public Object build(int size);
+	}
+
+	public static void main(String[] args) {
+		int size = args.length > 0? Integer.parseInt(args[0]): 1000000;
+		final Object value = new Object();
+
+		report("LongObjectMap<Object>", size, new Fixture() {
+			@Override
+			public Object build(int size) {
+				LongObjectMap<Object> map = new LongObjectMap<Object>();
+				for(long id = 1; id <= size; id++)
+					map.put(id, value);
+				return map;
+			}
+		});
+		report("HashMap<Long, Object>", size, new Fixture() {
+			@Override
+			public Object build(int size) {
+				HashMap<Long, Object> map = new HashMap<Long, Object>();
+				for(long id = 1; id <= size; id++)
+					map.put(id, value);
+				return map;
+			}
+		});
+		report("LongLongMap", size, new Fixture() {
+			@Override
+			public Object build(int size) {
+				LongLongMap map = new LongLongMap();
+				for(long id = 1; id <= size; id++)
+					map.put(id, id);
+				return map;
+			}
+		});
+		report("HashMap<Long, Long>", size, new Fixture() {
+			@Override
+			public Object build(int size) {
+				HashMap<Long, Long> map = new HashMap<Long, Long>();
+				for(long id = 1; id <= size; id++)
+					map.put(id, id);
+				return map;
+			}
+		});
+	}
+
+	/**
+	 * Prints the retained bytes per entry of the collection built by the specified fixture.
+	 * @param name
+	 * @param size
+	 * @param fixture
+	 */
+	private static void report(String name, int size, Fixture fixture) {
+		long before = usedHeap();
+		// Keep the collection reachable until it has been measured
+		retained = fixture.build(size);
+		long after = usedHeap();
+		retained = null;
+
+		System.out.printf("%-24s %,12d entries %8.1f bytes/entry%n", name, size, (double) (after - before) / size);
+	}
+
+	/**
+	 * Gets the used heap after repeatedly requesting a full collection.
+	 * @return used bytes
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
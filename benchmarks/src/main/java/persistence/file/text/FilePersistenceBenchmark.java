@@ -0,0 +1,166 @@
+package persistence.file.text;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.Address;
+import model.Guest;
+import persistence.Predicate;
+
+/**
+ * FilePersistenceBenchmark measures every {@link FilePersistence} operation against a {@link GuestDataset}
+ * of the configured size. A {@link Guest} cascades to its BillingInformation and Address, so write operations
+ * touch three data files as they do in the application.<br />
+ * Run a subset with, for example, <code>java -jar benchmarks/target/benchmarks.jar FilePersistenceBenchmark -p size=10,1000</code>.
+ * @author YingHao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilePersistenceBenchmark {
+	@Param({ "10", "100", "1000", "10000", "100000", "1000000" })
+	private int size;
+
+	private File directory;
+	private FilePersistence persistence;
+	private Guest guest;
+	private Address address;
+	private String guestString;
+	private Predicate<Guest> predicate;
+	private long created;
+
+	/**
+	 * Writes the dataset and opens a FilePersistence over it.
+	 * @throws Exception
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("persistence-benchmark").toFile();
+		GuestDataset dataset = new GuestDataset(directory, size);
+		dataset.write();
+
+		persistence = new FilePersistence(dataset.getConfigurationFile());
+		// Benchmark against the record in the middle of the data file, as lookups scan sequentially
+		guest = persistence.retrieveByID(size / 2 + 1, Guest.class);
+		address = guest.getBillingInformation().getAddress();
+		guestString = persistence.serialize(guest).toString();
+		predicate = new Predicate<Guest>() {
+			@Override
+			public boolean test(Guest item) {
+				return "Malaysian".equals(item.getNationality());
+			}
+		};
+	}
+
+	/**
+	 * Removes the dataset.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		GuestDataset.delete(directory);
+	}
+
+	/**
+	 * Creates a guest. The dataset grows by one record per invocation, which is negligible against the
+	 * append-only cost of create.
+	 * @return guest
+	 * @throws Exception
+	 */
+	@Benchmark
+	public Guest create() throws Exception {
+		Guest guest = new Guest(GuestDataset.identification(size + ++created), "Singaporean");
+		guest.setName("Benchmark Guest");
+		guest.setGender('F');
+		guest.getBillingInformation().setCreditCardNumber("4000000000000000");
+		guest.getBillingInformation().getAddress().setCountry("Singapore");
+
+		return persistence.create(guest, Guest.class);
+	}
+
+	@Benchmark
+	public boolean update() throws Exception {
+		return persistence.update(guest, Guest.class);
+	}
+
+	@Benchmark
+	public boolean delete(DeleteState state) throws Exception {
+		return persistence.delete(state.guest, Guest.class);
+	}
+
+	@Benchmark
+	public Guest retrieveByID() throws Exception {
+		return persistence.retrieveByID(guest.getIdentifier(), Guest.class);
+	}
+
+	@Benchmark
+	public void searchLoadBeforePredicate(Blackhole blackhole) throws Exception {
+		for(Guest item: persistence.search(predicate, Guest.class, true))
+			blackhole.consume(item);
+	}
+
+	@Benchmark
+	public void searchLoadAfterPredicate(Blackhole blackhole) throws Exception {
+		for(Guest item: persistence.search(predicate, Guest.class, false))
+			blackhole.consume(item);
+	}
+
+	@Benchmark
+	public long getCount() throws Exception {
+		return persistence.getCount(predicate, Guest.class, false);
+	}
+
+	/**
+	 * Serializes an address. Serializing a guest would cascade updates to its references, which is what
+	 * {@link #update()} measures, so an entity without references isolates the serialization itself.
+	 * @return serialized address
+	 * @throws Exception
+	 */
+	@Benchmark
+	public StringBuilder serialize() throws Exception {
+		return persistence.serialize(address);
+	}
+
+	@Benchmark
+	public Guest deserialize() throws Exception {
+		return persistence.deserialize(guestString, false, false);
+	}
+
+	@Benchmark
+	public Guest deserializeLoadReferences() throws Exception {
+		return persistence.deserialize(guestString, true, false);
+	}
+
+	/**
+	 * DeleteState supplies a freshly created guest to every delete invocation so that the dataset keeps its size.
+	 * @author YingHao
+	 */
+	@State(Scope.Thread)
+	public static class DeleteState {
+		private Guest guest;
+
+		@Setup(Level.Invocation)
+		public void setUp(FilePersistenceBenchmark benchmark) throws Exception {
+			guest = benchmark.create();
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package persistence.file.text;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import model.Address;
+import model.BillingInformation;
+import model.Guest;
+
+/**
+ * GuestDataset writes a deterministic dataset of {@link Guest} records, together with their
+ * {@link BillingInformation} and {@link Address}, directly in the FilePersistence text format.
+ * Records are streamed to disk so that datasets of millions of records do not need to fit in memory.
+ * @author YingHao
+ */
+public class GuestDataset {
+	private final static String[] NATIONALITIES = { "Singaporean", "Malaysian", "Indonesian", "Chinese", "Indian", "Australian" };
+	private final static String[] STREETS = { "Tampines Street 45", "Jelapang Road", "Fajar Road", "Bedok North Avenue 3", "Jurong West Street 91" };
+	private final static char[] GENDERS = { 'M', 'F' };
+
+	private final File directory;
+	private final int size;
+
+	/**
+	 * GuestDataset constructor.
+	 * @param directory - The directory holding the configuration, data and temporary files.
+	 * @param size - The number of records to write per type.
+	 */
+	public GuestDataset(File directory, int size) {
+		this.directory = directory;
+		this.size = size;
+	}
+
+	/**
+	 * Gets the configuration file of this dataset.
+	 * @return configuration file
+	 */
+	public File getConfigurationFile() {
+		return new File(directory, "persistence.cfg");
+	}
+
+	/**
+	 * Gets the number of records per type.
+	 * @return size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Writes the data files and a configuration file whose auto generated identifiers continue after the dataset.
+	 * @throws IOException
+	 */
+	public void write() throws IOException {
+		File dataDir = new File(directory, "data");
+		File tmpDir = new File(directory, "tmp");
+		dataDir.mkdirs();
+		tmpDir.mkdirs();
+
+		Random random = new Random(size);
+		BufferedWriter guests = new BufferedWriter(new FileWriter(new File(dataDir, "model-guest.data")));
+		BufferedWriter billings = new BufferedWriter(new FileWriter(new File(dataDir, "model-billinginformation.data")));
+		BufferedWriter addresses = new BufferedWriter(new FileWriter(new File(dataDir, "model-address.data")));
+		try {
+			// Loop through each record, sharing one identifier across the three types
+			for(long id = 1; id <= size; id++) {
+				guests.write(guestRecord(id, random));
+				guests.newLine();
+				billings.write("model.BillingInformation|_id:" + id + "|address:" + id +
+						"|creditCardNo:4" + (100000000000000L + random.nextInt(Integer.MAX_VALUE)) +
+						"|cvv:" + (100 + random.nextInt(900)));
+				billings.newLine();
+				addresses.write("model.Address|_id:" + id + "|country:Singapore|city:Singapore|state:Singapore" +
+						"|street:" + STREETS[random.nextInt(STREETS.length)] +
+						"|unitNumber:Blk " + (1 + random.nextInt(999)) + " #" + (1 + random.nextInt(30)) + "-" + (1 + random.nextInt(300)) +
+						"|postalCode:" + (100000 + random.nextInt(800000)));
+				addresses.newLine();
+			}
+		} finally {
+			guests.close();
+			billings.close();
+			addresses.close();
+		}
+
+		Properties configuration = new Properties();
+		configuration.setProperty(FilePersistence.KEY_DATA_DIR, dataDir.getAbsolutePath());
+		configuration.setProperty(FilePersistence.KEY_TMP_DIR, tmpDir.getAbsolutePath());
+		configuration.setProperty("model.guest.auto-id", Integer.toString(size));
+		configuration.setProperty("model.billinginformation.auto-id", Integer.toString(size));
+		configuration.setProperty("model.address.auto-id", Integer.toString(size));
+		FileOutputStream out = new FileOutputStream(getConfigurationFile());
+		try {
+			configuration.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Gets the identification of the guest with the specified identifier.
+	 * @param id
+	 * @return identification
+	 */
+	public static String identification(long id) {
+		return String.format("S%07dA", id);
+	}
+
+	/**
+	 * Builds the serialized record of a guest.
+	 * @param id
+	 * @param random
+	 * @return record
+	 */
+	private static String guestRecord(long id, Random random) {
+		return "model.Guest|_id:" + id + "|billing:" + id +
+				"|identification:" + identification(id) +
+				"|nationality:" + NATIONALITIES[random.nextInt(NATIONALITIES.length)] +
+				"|name:Guest " + id +
+				"|contactNo:" + (80000000 + random.nextInt(20000000)) +
+				"|emailAddress:guest" + id + "@example.com" +
+				"|gender:" + GENDERS[random.nextInt(GENDERS.length)];
+	}
+
+	/**
+	 * Deletes the specified file or directory, including its contents.
+	 * @param file
+	 */
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null)
+			for(File child: children)
+				delete(child);
+		file.delete();
+	}
+
+}
@@ -0,0 +1,480 @@
+package workload;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import controller.Controller;
+import controller.PersistenceController;
+import controller.hrs.BookingEngine;
+import controller.hrs.CheckInCheckOutController;
+import controller.hrs.ExpirySweeper;
+import controller.hrs.ReservationController;
+import controller.hrs.WaitlistAssigner;
+import controller.hss.ServiceOrderController;
+import controller.management.GuestController;
+import controller.management.MenuItemController;
+import generator.HotelDatasetGenerator;
+import index.ArrivalIndex;
+import index.AvailabilityCalendar;
+import index.Catalog;
+import index.OpenOrderIndex;
+import index.RoomAttributeIndex;
+import index.RoomTypeInventory;
+import index.WaitlistIndex;
+import model.reservation.Reservation;
+import model.reservation.ReservationStatus;
+import model.room.RoomType;
+import model.service.fnb.MenuItem;
+import persistence.Predicate;
+import persistence.file.text.FilePersistence;
+import persistence.file.text.GuestDataset;
+import persistence.metrics.LatencyHistogram;
+import view.Options;
+import view.ScriptedView;
+
+/**
+ * FrontDeskLoadDriver replays a mixed front-desk workload through {@link ReservationController},
+ * {@link CheckInCheckOutController} and {@link ServiceOrderController}. Every thread runs one session after another,
+ * each driven by a {@link ScriptedView}, against a single shared {@link FilePersistence}, and the driver reports the
+ * operations per second and latency percentiles of every operation.<br />
+ * The dataset is generated by {@link HotelDatasetGenerator} for today's date unless an existing dataset is specified,
+ * which is modified by the run.<br />
+ * Usage: <code>java -cp benchmarks/target/benchmarks.jar workload.FrontDeskLoadDriver threads=8 seconds=60 rooms=48 years=0
+ * mix=Reserve:30,Cancel:10,CheckIn:20,CheckOut:15,Order:25</code>
+ * @author YingHao
+ */
+public class FrontDeskLoadDriver {
+
+	/**
+	 * Operation is an enumeration of the front-desk operations replayed by the driver.
+	 * @author YingHao
+	 */
+	public enum Operation {
+		Reserve, Cancel, CheckIn, CheckOut, Order
+	}
+
+	private final FilePersistence persistence;
+	private final ReservationController rController;
+	private final CheckInCheckOutController cController;
+	private final ServiceOrderController soController;
+	private final int[] mix;
+	private final long guests;
+	private final long menuItems;
+	private final Pool<Long> cancellable;
+	private final Pool<Long> arrivals;
+	private final Pool<Stay> stays;
+	private final LatencyHistogram[] latencies;
+	private final AtomicLongArray errors;
+	private volatile boolean measuring;
+
+	/**
+	 * FrontDeskLoadDriver constructor.
+	 * @param configurationFile - The configuration file of the dataset.
+	 * @param mix - The relative weight of each operation, indexed by ordinal.
+	 * @throws Exception
+	 */
+	public FrontDeskLoadDriver(File configurationFile, int[] mix) throws Exception {
+		this.persistence = new FilePersistence(configurationFile);
+		GuestController gController = new GuestController(this.persistence);
+		RoomAttributeIndex index = new RoomAttributeIndex(this.persistence);
+		AvailabilityCalendar calendar = new AvailabilityCalendar(this.persistence);
+		Catalog catalog = new Catalog(this.persistence, RoomType.class, MenuItem.class);
+		RoomTypeInventory inventory = new RoomTypeInventory(this.persistence);
+		BookingEngine engine = new BookingEngine(this.persistence, calendar, index, inventory);
+		this.rController = new ReservationController(this.persistence, gController, calendar, inventory,
+				new WaitlistIndex(this.persistence), new WaitlistAssigner(this.persistence, calendar, index, engine), engine, catalog);
+		this.cController = new CheckInCheckOutController(this.persistence, gController, this.rController, index,
+				new ExpirySweeper(this.persistence, new ArrivalIndex(this.persistence), engine), engine);
+		this.soController = new ServiceOrderController(this.persistence, new MenuItemController(this.persistence, catalog),
+				new OpenOrderIndex(this.persistence), null);
+		this.mix = mix;
+		this.guests = Long.parseLong(this.persistence.getConfiguration().getProperty("model.guest.auto-id", "0"));
+		this.menuItems = Long.parseLong(this.persistence.getConfiguration().getProperty("model.service.fnb.menuitem.auto-id", "0"));
+		this.cancellable = new Pool<Long>();
+		this.arrivals = new Pool<Long>();
+		this.stays = new Pool<Stay>();
+		this.latencies = new LatencyHistogram[Operation.values().length];
+		for(int i = 0; i < this.latencies.length; i++)
+			this.latencies[i] = new LatencyHistogram();
+		this.errors = new AtomicLongArray(Operation.values().length);
+		this.measuring = false;
+	}
+
+	/**
+	 * Fills the pools of reservations, arrivals and stays that operations are drawn from with today's state of the dataset.
+	 * @throws Exception
+	 */
+	public void prepare() throws Exception {
+		final long today = today().getTime();
+		final List<Long> arrivalIds = new ArrayList<Long>();
+		final List<Long> stayIds = new ArrayList<Long>();
+
+		// Collect identifiers in a single pass that does not load references
+		persistence.getCount(new Predicate<Reservation>() {
+
+			@Override
+			public boolean test(Reservation item) {
+				ReservationStatus status = item.getStatus();
+				if((status == ReservationStatus.Confirmed || status == ReservationStatus.Waitlist) &&
+						item.getStartDate().getTime() >= today) {
+					cancellable.add(item.getIdentifier());
+					if(item.getStartDate().getTime() == today)
+						arrivalIds.add(item.getIdentifier());
+				}
+				else if(status == ReservationStatus.CheckedIn) {
+					stayIds.add(item.getIdentifier());
+				}
+
+				return false;
+			}
+
+		}, Reservation.class, false);
+
+		for(long id: arrivalIds)
+			arrivals.add(persistence.retrieveByID(id, Reservation.class).getGuest().getIdentifier());
+		for(long id: stayIds)
+			stays.add(new Stay(persistence.retrieveByID(id, Reservation.class)));
+	}
+
+	/**
+	 * Runs the workload on the specified number of threads, measuring after the warm up period.
+	 * @param threads - The number of concurrent sessions.
+	 * @param warmup - The warm up period in seconds.
+	 * @param seconds - The measurement period in seconds.
+	 * @param seed - The seed from which every thread derives its random choices.
+	 * @return The measured duration in nanoseconds.
+	 * @throws InterruptedException
+	 */
+	public long run(int threads, int warmup, int seconds, long seed) throws InterruptedException {
+		final long end = System.nanoTime() + (warmup + seconds) * 1000000000L;
+
+		Thread[] workers = new Thread[threads];
+		for(int i = 0; i < threads; i++) {
+			final Random random = new Random(seed + i);
+			workers[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while(System.nanoTime() < end)
+						session(random);
+				}
+
+			}, "front-desk-" + i);
+			workers[i].start();
+		}
+
+		Thread.sleep(warmup * 1000L);
+		measuring = true;
+		long start = System.nanoTime();
+
+		for(Thread worker: workers)
+			worker.join();
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Runs one session performing a randomly selected operation.
+	 * @param random
+	 */
+	private void session(Random random) {
+		Operation operation = select(random);
+		FrontDeskScript script = new FrontDeskScript();
+		Stay stay = null;
+
+		// Resolve the operation against the pools, falling back to a reservation when a pool is empty
+		Long id = null;
+		if(operation == Operation.Cancel)
+			id = cancellable.take(random);
+		else if(operation == Operation.CheckIn)
+			id = arrivals.take(random);
+		else if(operation == Operation.CheckOut)
+			stay = stays.take(random);
+		else if(operation == Operation.Order)
+			stay = stays.peek(random);
+
+		if(id == null && stay == null)
+			operation = Operation.Reserve;
+
+		Controller controller;
+		int option;
+		switch(operation) {
+		case Cancel:
+			controller = rController;
+			option = 1;
+			script.setInput(ReservationController.KEY_RESERVATION_NO, Long.toString(id));
+			break;
+		case CheckIn:
+			controller = cController;
+			option = 0;
+			script.setInput(GuestController.KEY_ID, Long.toString(id));
+			script.setReply("You have no reservations for today", Options.No.toString());
+			script.setReply("Do you wish to add check-in all", Options.Yes.toString());
+			script.setReply("You have selected", Options.Yes.toString());
+			break;
+		case CheckOut:
+			controller = cController;
+			option = 1;
+			script.setInput(GuestController.KEY_ID, Long.toString(stay.guest));
+			script.setReply("Do you wish to add check-out all", Options.Yes.toString());
+			script.setReply("You have selected", Options.Yes.toString());
+			script.setReply("Do you wish to specify a discount?", Options.No.toString());
+			script.setReply("Which method of payment", "1");
+			break;
+		case Order:
+			controller = soController;
+			option = 0;
+			script.setInput(ServiceOrderController.KEY_ROOM, stay.room);
+			script.setInput(MenuItemController.KEY_ID, Long.toString(1 + random.nextInt((int) menuItems)));
+			script.setInput(ServiceOrderController.KEY_REMARKS, "Load test");
+			script.setReply("Do you want to add more items?", Options.No.toString());
+			break;
+		default:
+			controller = rController;
+			option = 0;
+			reserve(script, random);
+			break;
+		}
+
+		ScriptedView view = new ScriptedView(controller, operation.toString(), script);
+		long start = System.nanoTime();
+		controller.onOptionSelected(view, option);
+		long elapsed = System.nanoTime() - start;
+
+		boolean success = !view.isExhausted() && !view.getOutputs().contains(PersistenceController.MESSAGE_ERROR);
+		if(measuring) {
+			latencies[operation.ordinal()].record(elapsed);
+			if(!success)
+				errors.incrementAndGet(operation.ordinal());
+		}
+
+		// Feed the outcome back into the pools
+		long today = today().getTime();
+		for(Object output: view.getOutputs()) {
+			if(output instanceof Reservation) {
+				Reservation reservation = (Reservation) output;
+				if(operation == Operation.Reserve && reservation.isManaged()) {
+					cancellable.add(reservation.getIdentifier());
+					if(reservation.getStartDate().getTime() == today)
+						arrivals.add(reservation.getGuest().getIdentifier());
+				}
+				else if(operation == Operation.CheckIn && reservation.getStatus() == ReservationStatus.CheckedIn) {
+					stays.add(new Stay(reservation));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fills the script of a reservation of one to four nights by a random guest, a quarter of which arrive today.
+	 * @param script
+	 * @param random
+	 */
+	private void reserve(FrontDeskScript script, Random random) {
+		SimpleDateFormat sdf = new SimpleDateFormat(ReservationController.DATE_FORMAT);
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(today());
+		if(random.nextInt(4) != 0)
+			calendar.add(Calendar.DATE, 1 + random.nextInt(30));
+		String start = sdf.format(calendar.getTime());
+		calendar.add(Calendar.DATE, 1 + random.nextInt(4));
+		String end = sdf.format(calendar.getTime());
+
+		script.setInput(ReservationController.KEY_START_DATE, start);
+		script.setInput(ReservationController.KEY_END_DATE, end);
+		script.setInput(GuestController.KEY_ID, Long.toString(1 + (long) (random.nextDouble() * guests)));
+		script.setInput(ReservationController.KEY_NUM_CHILDREN, Integer.toString(random.nextInt(3)));
+		script.setInput(ReservationController.KEY_NUM_ADULT, Integer.toString(1 + random.nextInt(2)));
+		script.setReply("Do you want to refine", Options.No.toString());
+		script.setReply("Do you want to continue to make the reservation?", Options.Yes.toString());
+		script.setReply("Do you want to use the billing information", Options.Yes.toString());
+	}
+
+	/**
+	 * Selects an operation according to the mix.
+	 * @param random
+	 * @return operation
+	 */
+	private Operation select(Random random) {
+		int total = 0;
+		for(int weight: mix)
+			total += weight;
+
+		int value = random.nextInt(total);
+		int index = 0;
+		while(value >= mix[index])
+			value -= mix[index++];
+
+		return Operation.values()[index];
+	}
+
+	/**
+	 * Prints the throughput and latency of every operation followed by the persistence metrics.
+	 * @param duration - The measured duration in nanoseconds.
+	 */
+	public void report(long duration) {
+		double seconds = duration / 1e9;
+		long calls = 0;
+
+		System.out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+				"Operation", "Calls", "Errors", "Ops/s", "Mean(ms)", "p50(ms)", "p90(ms)", "p99(ms)", "Max(ms)");
+		for(Operation operation: Operation.values()) {
+			LatencyHistogram latency = latencies[operation.ordinal()];
+			calls += latency.getCount();
+			System.out.printf("%-10s %,10d %,8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+					operation, latency.getCount(), errors.get(operation.ordinal()), latency.getCount() / seconds,
+					latency.getMean() / 1e6, latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(90) / 1e6,
+					latency.getValueAtPercentile(99) / 1e6, latency.getMax() / 1e6);
+		}
+		System.out.printf("%-10s %,10d %8s %10.1f%n", "Total", calls, "", calls / seconds);
+		System.out.println();
+		System.out.println(persistence.getMetrics());
+	}
+
+	/**
+	 * Gets today's date at midnight, as the controllers compare it.
+	 * @return today
+	 */
+	private static Date today() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+
+		return calendar.getTime();
+	}
+
+	/**
+	 * Runs the driver from key=value arguments: dataset, threads, warmup, seconds, seed, mix, and the rooms, guests,
+	 * years and futureDays of a generated dataset.
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		File dataset = null;
+		int threads = 4;
+		int warmup = 5;
+		int seconds = 30;
+		long seed = 42;
+		int[] mix = { 30, 10, 20, 15, 25 };
+		HotelDatasetGenerator generator = new HotelDatasetGenerator();
+		// Controllers scan whole data files, so the default dataset holds the coming month only
+		generator.setYears(0);
+		generator.setFutureDays(30);
+
+		// Loop through each argument and apply it to the driver
+		for(String arg: args) {
+			String[] kv = arg.split("=", 2);
+			if(kv.length != 2)
+				throw new IllegalArgumentException("Expected key=value but was " + arg);
+
+			switch(kv[0]) {
+			case "dataset": dataset = new File(kv[1]); break;
+			case "threads": threads = Integer.parseInt(kv[1]); break;
+			case "warmup": warmup = Integer.parseInt(kv[1]); break;
+			case "seconds": seconds = Integer.parseInt(kv[1]); break;
+			case "seed": seed = Long.parseLong(kv[1]); generator.setSeed(seed); break;
+			case "rooms": generator.setRooms(Integer.parseInt(kv[1])); break;
+			case "guests": generator.setGuests(Integer.parseInt(kv[1])); break;
+			case "years": generator.setYears(Integer.parseInt(kv[1])); break;
+			case "futureDays": generator.setFutureDays(Integer.parseInt(kv[1])); break;
+			case "mix":
+				for(String weight: kv[1].split(",")) {
+					String[] pair = weight.split(":");
+					mix[Operation.valueOf(pair[0]).ordinal()] = Integer.parseInt(pair[1]);
+				}
+				break;
+			default: throw new IllegalArgumentException("Unknown option " + kv[0]);
+			}
+		}
+
+		File directory = dataset;
+		if(directory == null) {
+			directory = Files.createTempDirectory("front-desk").toFile();
+			generator.generate(directory);
+		}
+
+		try {
+			FrontDeskLoadDriver driver = new FrontDeskLoadDriver(new File(directory, "persistence.cfg"), mix);
+			driver.prepare();
+			System.out.printf("%d threads, %d s warm up, %d s measured, dataset %s%n%n", threads, warmup, seconds, directory.getAbsolutePath());
+
+			long duration = driver.run(threads, warmup, seconds, seed);
+			driver.report(duration);
+		} finally {
+			if(dataset == null)
+				GuestDataset.delete(directory);
+		}
+	}
+
+	/**
+	 * Stay is a checked-in reservation identified the way the front desk refers to it.
+	 * @author YingHao
+	 */
+	private static class Stay {
+		private final long guest;
+		private final String room;
+
+		/**
+		 * Stay constructor.
+		 * @param reservation - A checked-in reservation.
+		 */
+		public Stay(Reservation reservation) {
+			this.guest = reservation.getGuest().getIdentifier();
+			this.room = reservation.getAssignedRoom().getNumber();
+		}
+	}
+
+	/**
+	 * Pool is a thread-safe bag of candidates for operations.
+	 * @author YingHao
+	 *
+	 * @param <T>
+	 */
+	private static class Pool<T> {
+		private final List<T> items = new ArrayList<T>();
+
+		/**
+		 * Adds a candidate.
+		 * @param item
+		 */
+		public synchronized void add(T item) {
+			items.add(item);
+		}
+
+		/**
+		 * Removes and returns a random candidate.
+		 * @param random
+		 * @return candidate, or null if this pool is empty
+		 */
+		public synchronized T take(Random random) {
+			T item = null;
+			if(items.size() > 0) {
+				int index = random.nextInt(items.size());
+				item = items.get(index);
+				items.set(index, items.get(items.size() - 1));
+				items.remove(items.size() - 1);
+			}
+
+			return item;
+		}
+
+		/**
+		 * Returns a random candidate without removing it.
+		 * @param random
+		 * @return candidate, or null if this pool is empty
+		 */
+		public synchronized T peek(Random random) {
+			return items.size() > 0? items.get(random.nextInt(items.size())): null;
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package workload;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import view.Options;
+import view.Script;
+
+/**
+ * FrontDeskScript answers the prompts of one front-desk operation. Input fields are answered by their key and
+ * option prompts by the beginning of the message displayed before them, so the same script copes with the different
+ * paths a controller may take. A prompt the script does not know ends the session, and retries are always declined.
+ * @author YingHao
+ */
+public class FrontDeskScript implements Script {
+	private final Map<String, String> inputs;
+	private final Map<String, String> replies;
+
+	/**
+	 * FrontDeskScript constructor.
+	 */
+	public FrontDeskScript() {
+		this.inputs = new HashMap<String, String>();
+		this.replies = new LinkedHashMap<String, String>();
+		this.setReply("Do you want to retry?", Options.No.toString());
+	}
+
+	/**
+	 * Sets the answer of an input field.
+	 * @param key - The key of the field.
+	 * @param answer - The answer.
+	 */
+	public void setInput(String key, String answer) {
+		inputs.put(key, answer);
+	}
+
+	/**
+	 * Sets the answer of the options displayed after a message beginning with the specified text.
+	 * @param message - The beginning of the message.
+	 * @param answer - The answer, either the text or the 1-based position of the option.
+	 */
+	public void setReply(String message, String answer) {
+		replies.put(message, answer);
+	}
+
+	@Override
+	public String answer(String prompt) {
+		String answer = null;
+
+		if(prompt != null) {
+			answer = inputs.get(prompt);
+
+			// Loop through the replies to find one for the message
+			for(Map.Entry<String, String> reply: replies.entrySet())
+				if(answer == null && prompt.startsWith(reply.getKey()))
+					answer = reply.getValue();
+		}
+
+		return answer;
+	}
+
+}